@@ -4,11 +4,12 @@ module mini.boot {
     requires com.auth0.jwt;
     requires com.fasterxml.jackson.datatype.jsr310;
     requires bcrypt;
+    requires com.zaxxer.hikari;
     requires transitive java.sql;
+    // pgjdbc là automatic module (Automatic-Module-Name: org.postgresql.jdbc), cần cho COPY (CopyManager)
+    requires org.postgresql.jdbc;
 
-
-    // PostgreSQL, MS SQL Server không phải là proper Java modules
-    // Chúng sẽ được load qua classpath tự động (automatic modules)
+    // MS SQL Server không phải là proper Java module, được load qua classpath
 
     // ========== Exports ==========
     exports org.miniboot.app;
@@ -29,6 +30,7 @@ module mini.boot {
     exports org.miniboot.app.domain.service;
     exports org.miniboot.app.config;
     exports org.miniboot.app.http;
+    exports org.miniboot.app.metrics;
     exports org.miniboot.app.router;
     exports org.miniboot.app.router.middleware;
     exports org.miniboot.app.util;
@@ -4,18 +4,44 @@ import java.io.FileInputStream;
 import java.util.Map;
 import java.util.Properties;
 
+import org.miniboot.app.config.DatabaseConstants;
 import org.miniboot.app.config.HttpConstants;
+import org.miniboot.app.util.Logger;
 
 public class AppConfig {
     // Defaults
     public static String HTTP_PORT = "8080";
     public static int MAX_BODY_BYTES = 1_000_000; // 1MB
+    public static int MAX_STREAM_BODY_BYTES = 200_000_000; // route nhận body dạng stream (Router.postStreaming), không giữ trong bộ nhớ
+    public static int MAX_HEADER_BYTES = 16_384; // tổng kích thước request line + headers
+    public static int MAX_HEADER_COUNT = 100;
     public static int WORKER_THREADS = 64;
+    public static String SERVER_MODE = "blocking"; // blocking (ServerSocket + thread pool) | nio (Selector event loop)
+    public static int KEEP_ALIVE_TIMEOUT_MS = 5_000; // idle timeout giữa 2 request trên cùng connection
+    public static int KEEP_ALIVE_MAX_REQUESTS = 100; // số request tối đa trên một connection (1 = tắt keep-alive)
+    public static String EXECUTOR_MODE = "fixed"; // fixed (platform thread pool) | virtual (thread-per-task) | bounded (virtual + semaphore)
+    public static int VIRTUAL_THREAD_LIMIT = 1_000; // số request xử lý đồng thời tối đa ở chế độ bounded
+    public static boolean COMPRESSION_ENABLED = true; // nén response (gzip/deflate) theo Accept-Encoding
+    public static int COMPRESSION_MIN_BYTES = 1_024; // body nhỏ hơn ngưỡng này gửi nguyên bản
+    public static int COMPRESSION_LEVEL = 5; // 1 (nhanh) .. 9 (nén tốt nhất)
+    public static String COMPRESSION_MIME_TYPES = "application/json,text/plain,text/html,text/css,text/csv,application/javascript,application/xml";
 
     // Keys
     public static final String PORT_KEY = "PORT";
     public static final String MAX_BODY_BYTES_KEY = "MAX_BODY_BYTES";
+    public static final String MAX_STREAM_BODY_BYTES_KEY = "MAX_STREAM_BODY_BYTES";
+    public static final String MAX_HEADER_BYTES_KEY = "MAX_HEADER_BYTES";
+    public static final String MAX_HEADER_COUNT_KEY = "MAX_HEADER_COUNT";
     public static final String WORKER_THREADS_KEY = "WORKER_THREADS";
+    public static final String SERVER_MODE_KEY = "SERVER_MODE";
+    public static final String KEEP_ALIVE_TIMEOUT_MS_KEY = "KEEP_ALIVE_TIMEOUT_MS";
+    public static final String KEEP_ALIVE_MAX_REQUESTS_KEY = "KEEP_ALIVE_MAX_REQUESTS";
+    public static final String EXECUTOR_MODE_KEY = "EXECUTOR_MODE";
+    public static final String VIRTUAL_THREAD_LIMIT_KEY = "VIRTUAL_THREAD_LIMIT";
+    public static final String COMPRESSION_ENABLED_KEY = "COMPRESSION_ENABLED";
+    public static final String COMPRESSION_MIN_BYTES_KEY = "COMPRESSION_MIN_BYTES";
+    public static final String COMPRESSION_LEVEL_KEY = "COMPRESSION_LEVEL";
+    public static final String COMPRESSION_MIME_TYPES_KEY = "COMPRESSION_MIME_TYPES";
 
     // HTTP constants - sử dụng từ HttpConstants
     @Deprecated public static final String POST_KEY = HttpConstants.METHOD_POST;
@@ -65,12 +91,94 @@ public class AppConfig {
     public static final String JSON_PRETTY_DEFAULT = "false";
     public static final String LOG_LEVEL_KEY = "LOG_LEVEL";
     public static final String LOG_LEVEL_DEFAULT = "INFO";
+    public static final String ACCESS_LOG_ENABLED_KEY = "ACCESS_LOG_ENABLED";
+    public static final String LOG_BUFFER_SIZE_KEY = "LOG_BUFFER_SIZE";
+    public static final String JWT_CACHE_MAX_ENTRIES_KEY = "JWT_CACHE_MAX_ENTRIES";
+    public static final String JWT_CACHE_TTL_MS_KEY = "JWT_CACHE_TTL_MS";
+    public static final String RATE_LIMIT_ENABLED_KEY = "RATE_LIMIT_ENABLED";
+    public static final String RATE_LIMIT_PER_MINUTE_KEY = "RATE_LIMIT_PER_MINUTE";
+    public static final String RATE_LIMIT_BURST_KEY = "RATE_LIMIT_BURST";
+    public static final String RATE_LIMIT_ROUTES_KEY = "RATE_LIMIT_ROUTES";
+    public static final String RATE_LIMIT_MAX_KEYS_KEY = "RATE_LIMIT_MAX_KEYS";
+    public static final String TRUSTED_PROXIES_KEY = "TRUSTED_PROXIES";
+    public static final String AVAILABILITY_INDEX_MAX_DAYS_KEY = "AVAILABILITY_INDEX_MAX_DAYS";
+    public static final String AVAILABILITY_INDEX_TTL_MS_KEY = "AVAILABILITY_INDEX_TTL_MS";
+    public static final String AVAILABILITY_SEARCH_MAX_DAYS_KEY = "AVAILABILITY_SEARCH_MAX_DAYS";
+    public static final String DOCTOR_SCHEDULE_CACHE_TTL_MS_KEY = "DOCTOR_SCHEDULE_CACHE_TTL_MS";
+    public static final String PAGE_DEFAULT_LIMIT_KEY = "PAGE_DEFAULT_LIMIT";
+    public static final String PAGE_MAX_LIMIT_KEY = "PAGE_MAX_LIMIT";
+    public static final String STOCK_SNAPSHOT_ENABLED_KEY = "STOCK_SNAPSHOT_ENABLED";
+    public static final String STOCK_SNAPSHOT_INTERVAL_MS_KEY = "STOCK_SNAPSHOT_INTERVAL_MS";
+    public static final String STOCK_SNAPSHOT_LAG_MS_KEY = "STOCK_SNAPSHOT_LAG_MS";
+    public static final String STOCK_SNAPSHOT_RETAIN_KEY = "STOCK_SNAPSHOT_RETAIN";
+    public static final String STOCK_SNAPSHOT_VERIFY_INTERVAL_MS_KEY = "STOCK_SNAPSHOT_VERIFY_INTERVAL_MS";
+    public static final String PAYMENT_STATUS_CACHE_MAX_ENTRIES_KEY = "PAYMENT_STATUS_CACHE_MAX_ENTRIES";
+    public static final String PAYMENT_STATUS_CACHE_TTL_MS_KEY = "PAYMENT_STATUS_CACHE_TTL_MS";
+    public static final String CUSTOMER_PREFIX_INDEX_ENABLED_KEY = "CUSTOMER_PREFIX_INDEX_ENABLED";
+    public static final String CUSTOMER_IMPORT_CHUNK_SIZE_KEY = "CUSTOMER_IMPORT_CHUNK_SIZE";
+
+    // Logging (util.Logger)
+    public static String LOG_LEVEL = LOG_LEVEL_DEFAULT; // TRACE | DEBUG | INFO | WARN | ERROR
+    public static boolean ACCESS_LOG_ENABLED = true; // một dòng access log cho mỗi request
+    public static int LOG_BUFFER_SIZE = 8_192; // số event chờ ghi tối đa, đầy thì bỏ bớt (không block request)
+
+    // JWT verify cache (auth.JwtService)
+    public static int JWT_CACHE_MAX_ENTRIES = 10_000; // số token đã xác thực giữ trong cache
+    public static long JWT_CACHE_TTL_MS = 300_000; // thời gian giữ tối đa (không vượt quá exp của token), 0 = tắt cache
+
+    // Rate limiting (router.middleware.RateLimitMiddleware)
+    public static boolean RATE_LIMIT_ENABLED = true;
+    public static int RATE_LIMIT_PER_MINUTE = 100; // giới hạn mặc định mỗi client (IP hoặc user)
+    public static int RATE_LIMIT_BURST = 100; // số request liên tiếp tối đa khi bucket đầy
+    // Giới hạn riêng theo tiền tố path: "prefix=perMinute[:burst],...", perMinute = 0 -> không giới hạn
+    public static String RATE_LIMIT_ROUTES = "/auth/login=10:5,/auth/register=10:5,/auth/reset-password=5:3,/health=0";
+    public static int RATE_LIMIT_MAX_KEYS = 100_000; // số client theo dõi tối đa mỗi nhóm route
+    // IP reverse proxy được tin X-Forwarded-For (http.HttpRequest.clientIp), phân tách bằng dấu phẩy;
+    // rỗng = bỏ qua header, "*" = connection nào cũng là proxy (chỉ khi server không nhận kết nối trực tiếp)
+    public static String TRUSTED_PROXIES = "";
+
+    // Lịch bận theo (bác sĩ, ngày) trong bộ nhớ (domain.service.AvailabilityIndex)
+    public static int AVAILABILITY_INDEX_MAX_DAYS = 20_000; // số (bác sĩ, ngày) giữ tối đa
+    public static long AVAILABILITY_INDEX_TTL_MS = 300_000; // nạp lại từ DB sau khoảng này, 0 = luôn đọc DB
+    public static int AVAILABILITY_SEARCH_MAX_DAYS = 31; // số ngày tối đa mỗi lần gọi GET /doctors/availability
+    public static long DOCTOR_SCHEDULE_CACHE_TTL_MS = 600_000; // cache lịch làm việc (domain.repo.DoctorScheduleRepository), 0 = tắt
+
+    // Phân trang keyset cho các endpoint danh sách (?limit=&cursor=)
+    public static int PAGE_DEFAULT_LIMIT = 50;
+    public static int PAGE_MAX_LIMIT = 500;
+
+    // Checkpoint tồn kho theo sản phẩm (domain.service.InventorySnapshotService)
+    public static boolean STOCK_SNAPSHOT_ENABLED = true;
+    public static long STOCK_SNAPSHOT_INTERVAL_MS = 86_400_000; // khoảng cách giữa 2 checkpoint
+    public static long STOCK_SNAPSHOT_LAG_MS = 300_000; // checkpoint chỉ gồm movement cũ hơn now - lag
+    public static int STOCK_SNAPSHOT_RETAIN = 90; // số checkpoint giữ lại
+    public static long STOCK_SNAPSHOT_VERIFY_INTERVAL_MS = 86_400_000; // đối chiếu checkpoint với sổ kho, 0 = tắt
+
+    // Cache trạng thái hiện tại của payment (domain.repo.Payment.PostgreSQLPaymentStatusLogRepository)
+    public static int PAYMENT_STATUS_CACHE_MAX_ENTRIES = 10_000;
+    public static long PAYMENT_STATUS_CACHE_TTL_MS = 300_000; // 0 = tắt cache
+
+    // Trie tên / số điện thoại customer trong bộ nhớ cho GET /customers/typeahead (tắt -> tìm bằng index trigram trong DB)
+    public static boolean CUSTOMER_PREFIX_INDEX_ENABLED = false;
+    public static int CUSTOMER_IMPORT_CHUNK_SIZE = 1_000; // số dòng mỗi lần COPY của POST /customers/import
 
     // Database Config Keys (used by DatabaseConfig)
     public static final String DB_URL_KEY = "DB_URL";
     public static final String DB_USER_KEY = "DB_USER";
     public static final String DB_PASSWORD_KEY = "DB_PASSWORD";
 
+    // Database connection pool (HikariCP)
+    public static int DB_POOL_MAX_SIZE = DatabaseConstants.DEFAULT_DB_POOL_SIZE;
+    public static int DB_POOL_MIN_IDLE = DatabaseConstants.DEFAULT_DB_POOL_MIN_IDLE;
+    public static long DB_CONNECTION_TIMEOUT_MS = DatabaseConstants.DEFAULT_DB_CONNECTION_TIMEOUT_MS;
+    public static long DB_IDLE_TIMEOUT_MS = DatabaseConstants.DEFAULT_DB_IDLE_TIMEOUT_MS;
+    public static long DB_MAX_LIFETIME_MS = DatabaseConstants.DEFAULT_DB_MAX_LIFETIME_MS;
+    public static long DB_LEAK_DETECTION_MS = DatabaseConstants.DEFAULT_DB_LEAK_DETECTION_MS;
+    public static int DB_PREPARE_THRESHOLD = DatabaseConstants.DEFAULT_DB_PREPARE_THRESHOLD;
+    public static int DB_STMT_CACHE_QUERIES = DatabaseConstants.DEFAULT_DB_STMT_CACHE_QUERIES;
+    public static int DB_STMT_CACHE_SIZE_MIB = DatabaseConstants.DEFAULT_DB_STMT_CACHE_SIZE_MIB;
+    public static boolean DB_REWRITE_BATCHED_INSERTS = DatabaseConstants.DEFAULT_DB_REWRITE_BATCHED_INSERTS;
+
     // Math
     public static final int MAX_INTEGER_VALUE = 10000000;
 
@@ -113,6 +221,57 @@ public class AppConfig {
 
         HTTP_PORT = pick.apply(PORT_KEY, HTTP_PORT);
         MAX_BODY_BYTES = Integer.parseInt(pick.apply(MAX_BODY_BYTES_KEY, String.valueOf(MAX_BODY_BYTES)));
+        MAX_STREAM_BODY_BYTES = Integer.parseInt(pick.apply(MAX_STREAM_BODY_BYTES_KEY, String.valueOf(MAX_STREAM_BODY_BYTES)));
+        MAX_HEADER_BYTES = Integer.parseInt(pick.apply(MAX_HEADER_BYTES_KEY, String.valueOf(MAX_HEADER_BYTES)));
+        MAX_HEADER_COUNT = Integer.parseInt(pick.apply(MAX_HEADER_COUNT_KEY, String.valueOf(MAX_HEADER_COUNT)));
         WORKER_THREADS = Integer.parseInt(pick.apply(WORKER_THREADS_KEY, String.valueOf(WORKER_THREADS)));
+        SERVER_MODE = pick.apply(SERVER_MODE_KEY, SERVER_MODE).trim().toLowerCase();
+        KEEP_ALIVE_TIMEOUT_MS = Integer.parseInt(pick.apply(KEEP_ALIVE_TIMEOUT_MS_KEY, String.valueOf(KEEP_ALIVE_TIMEOUT_MS)));
+        KEEP_ALIVE_MAX_REQUESTS = Integer.parseInt(pick.apply(KEEP_ALIVE_MAX_REQUESTS_KEY, String.valueOf(KEEP_ALIVE_MAX_REQUESTS)));
+        EXECUTOR_MODE = pick.apply(EXECUTOR_MODE_KEY, EXECUTOR_MODE).trim().toLowerCase();
+        VIRTUAL_THREAD_LIMIT = Integer.parseInt(pick.apply(VIRTUAL_THREAD_LIMIT_KEY, String.valueOf(VIRTUAL_THREAD_LIMIT)));
+        COMPRESSION_ENABLED = Boolean.parseBoolean(pick.apply(COMPRESSION_ENABLED_KEY, String.valueOf(COMPRESSION_ENABLED)));
+        COMPRESSION_MIN_BYTES = Integer.parseInt(pick.apply(COMPRESSION_MIN_BYTES_KEY, String.valueOf(COMPRESSION_MIN_BYTES)));
+        COMPRESSION_LEVEL = Integer.parseInt(pick.apply(COMPRESSION_LEVEL_KEY, String.valueOf(COMPRESSION_LEVEL)));
+        COMPRESSION_MIME_TYPES = pick.apply(COMPRESSION_MIME_TYPES_KEY, COMPRESSION_MIME_TYPES);
+        LOG_LEVEL = pick.apply(LOG_LEVEL_KEY, LOG_LEVEL);
+        ACCESS_LOG_ENABLED = Boolean.parseBoolean(pick.apply(ACCESS_LOG_ENABLED_KEY, String.valueOf(ACCESS_LOG_ENABLED)));
+        LOG_BUFFER_SIZE = Integer.parseInt(pick.apply(LOG_BUFFER_SIZE_KEY, String.valueOf(LOG_BUFFER_SIZE)));
+        JWT_CACHE_MAX_ENTRIES = Integer.parseInt(pick.apply(JWT_CACHE_MAX_ENTRIES_KEY, String.valueOf(JWT_CACHE_MAX_ENTRIES)));
+        JWT_CACHE_TTL_MS = Long.parseLong(pick.apply(JWT_CACHE_TTL_MS_KEY, String.valueOf(JWT_CACHE_TTL_MS)));
+        RATE_LIMIT_ENABLED = Boolean.parseBoolean(pick.apply(RATE_LIMIT_ENABLED_KEY, String.valueOf(RATE_LIMIT_ENABLED)));
+        RATE_LIMIT_PER_MINUTE = Integer.parseInt(pick.apply(RATE_LIMIT_PER_MINUTE_KEY, String.valueOf(RATE_LIMIT_PER_MINUTE)));
+        RATE_LIMIT_BURST = Integer.parseInt(pick.apply(RATE_LIMIT_BURST_KEY, String.valueOf(RATE_LIMIT_BURST)));
+        RATE_LIMIT_ROUTES = pick.apply(RATE_LIMIT_ROUTES_KEY, RATE_LIMIT_ROUTES);
+        RATE_LIMIT_MAX_KEYS = Integer.parseInt(pick.apply(RATE_LIMIT_MAX_KEYS_KEY, String.valueOf(RATE_LIMIT_MAX_KEYS)));
+        TRUSTED_PROXIES = pick.apply(TRUSTED_PROXIES_KEY, TRUSTED_PROXIES);
+        AVAILABILITY_INDEX_MAX_DAYS = Integer.parseInt(pick.apply(AVAILABILITY_INDEX_MAX_DAYS_KEY, String.valueOf(AVAILABILITY_INDEX_MAX_DAYS)));
+        AVAILABILITY_INDEX_TTL_MS = Long.parseLong(pick.apply(AVAILABILITY_INDEX_TTL_MS_KEY, String.valueOf(AVAILABILITY_INDEX_TTL_MS)));
+        AVAILABILITY_SEARCH_MAX_DAYS = Integer.parseInt(pick.apply(AVAILABILITY_SEARCH_MAX_DAYS_KEY, String.valueOf(AVAILABILITY_SEARCH_MAX_DAYS)));
+        DOCTOR_SCHEDULE_CACHE_TTL_MS = Long.parseLong(pick.apply(DOCTOR_SCHEDULE_CACHE_TTL_MS_KEY, String.valueOf(DOCTOR_SCHEDULE_CACHE_TTL_MS)));
+        PAGE_DEFAULT_LIMIT = Integer.parseInt(pick.apply(PAGE_DEFAULT_LIMIT_KEY, String.valueOf(PAGE_DEFAULT_LIMIT)));
+        PAGE_MAX_LIMIT = Integer.parseInt(pick.apply(PAGE_MAX_LIMIT_KEY, String.valueOf(PAGE_MAX_LIMIT)));
+        STOCK_SNAPSHOT_ENABLED = Boolean.parseBoolean(pick.apply(STOCK_SNAPSHOT_ENABLED_KEY, String.valueOf(STOCK_SNAPSHOT_ENABLED)));
+        STOCK_SNAPSHOT_INTERVAL_MS = Long.parseLong(pick.apply(STOCK_SNAPSHOT_INTERVAL_MS_KEY, String.valueOf(STOCK_SNAPSHOT_INTERVAL_MS)));
+        STOCK_SNAPSHOT_LAG_MS = Long.parseLong(pick.apply(STOCK_SNAPSHOT_LAG_MS_KEY, String.valueOf(STOCK_SNAPSHOT_LAG_MS)));
+        STOCK_SNAPSHOT_RETAIN = Integer.parseInt(pick.apply(STOCK_SNAPSHOT_RETAIN_KEY, String.valueOf(STOCK_SNAPSHOT_RETAIN)));
+        STOCK_SNAPSHOT_VERIFY_INTERVAL_MS = Long.parseLong(pick.apply(STOCK_SNAPSHOT_VERIFY_INTERVAL_MS_KEY, String.valueOf(STOCK_SNAPSHOT_VERIFY_INTERVAL_MS)));
+        PAYMENT_STATUS_CACHE_MAX_ENTRIES = Integer.parseInt(pick.apply(PAYMENT_STATUS_CACHE_MAX_ENTRIES_KEY, String.valueOf(PAYMENT_STATUS_CACHE_MAX_ENTRIES)));
+        PAYMENT_STATUS_CACHE_TTL_MS = Long.parseLong(pick.apply(PAYMENT_STATUS_CACHE_TTL_MS_KEY, String.valueOf(PAYMENT_STATUS_CACHE_TTL_MS)));
+        CUSTOMER_PREFIX_INDEX_ENABLED = Boolean.parseBoolean(pick.apply(CUSTOMER_PREFIX_INDEX_ENABLED_KEY, String.valueOf(CUSTOMER_PREFIX_INDEX_ENABLED)));
+        CUSTOMER_IMPORT_CHUNK_SIZE = Integer.parseInt(pick.apply(CUSTOMER_IMPORT_CHUNK_SIZE_KEY, String.valueOf(CUSTOMER_IMPORT_CHUNK_SIZE)));
+
+        DB_POOL_MAX_SIZE = Integer.parseInt(pick.apply(DatabaseConstants.CONFIG_DB_POOL_SIZE, String.valueOf(DB_POOL_MAX_SIZE)));
+        DB_POOL_MIN_IDLE = Integer.parseInt(pick.apply(DatabaseConstants.CONFIG_DB_POOL_MIN_IDLE, String.valueOf(DB_POOL_MIN_IDLE)));
+        DB_CONNECTION_TIMEOUT_MS = Long.parseLong(pick.apply(DatabaseConstants.CONFIG_DB_CONNECTION_TIMEOUT_MS, String.valueOf(DB_CONNECTION_TIMEOUT_MS)));
+        DB_IDLE_TIMEOUT_MS = Long.parseLong(pick.apply(DatabaseConstants.CONFIG_DB_IDLE_TIMEOUT_MS, String.valueOf(DB_IDLE_TIMEOUT_MS)));
+        DB_MAX_LIFETIME_MS = Long.parseLong(pick.apply(DatabaseConstants.CONFIG_DB_MAX_LIFETIME_MS, String.valueOf(DB_MAX_LIFETIME_MS)));
+        DB_LEAK_DETECTION_MS = Long.parseLong(pick.apply(DatabaseConstants.CONFIG_DB_LEAK_DETECTION_MS, String.valueOf(DB_LEAK_DETECTION_MS)));
+        DB_PREPARE_THRESHOLD = Integer.parseInt(pick.apply(DatabaseConstants.CONFIG_DB_PREPARE_THRESHOLD, String.valueOf(DB_PREPARE_THRESHOLD)));
+        DB_STMT_CACHE_QUERIES = Integer.parseInt(pick.apply(DatabaseConstants.CONFIG_DB_STMT_CACHE_QUERIES, String.valueOf(DB_STMT_CACHE_QUERIES)));
+        DB_STMT_CACHE_SIZE_MIB = Integer.parseInt(pick.apply(DatabaseConstants.CONFIG_DB_STMT_CACHE_SIZE_MIB, String.valueOf(DB_STMT_CACHE_SIZE_MIB)));
+        DB_REWRITE_BATCHED_INSERTS = Boolean.parseBoolean(pick.apply(DatabaseConstants.CONFIG_DB_REWRITE_BATCHED_INSERTS, String.valueOf(DB_REWRITE_BATCHED_INSERTS)));
+
+        Logger.configure();
     }
 }
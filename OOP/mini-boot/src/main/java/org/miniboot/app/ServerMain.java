@@ -5,40 +5,46 @@ import org.miniboot.app.controllers.AuthController;
 import org.miniboot.app.controllers.DoctorController;
 import org.miniboot.app.controllers.DoctorScheduleController;
 import org.miniboot.app.controllers.EmployeeController;
+import org.miniboot.app.controllers.MetricsController;
 import org.miniboot.app.controllers.Inventory.InventoryController;
 import org.miniboot.app.controllers.Inventory.StockMovementController;
 import org.miniboot.app.controllers.PatientAndPrescription.CustomerRecordController;
 import org.miniboot.app.controllers.PatientAndPrescription.PrescriptionController;
+import org.miniboot.app.controllers.payment.FinancialReportController;
 import org.miniboot.app.controllers.payment.PaymentController;
 import org.miniboot.app.controllers.payment.PaymentItemController;
 import org.miniboot.app.controllers.payment.PaymentStatusLogController;
-import org.miniboot.app.domain.repo.AppointmentRepository;
+import org.miniboot.app.config.DatabaseConfig;
 import org.miniboot.app.domain.repo.DoctorRepository;
 import org.miniboot.app.domain.repo.DoctorScheduleRepository;
 import org.miniboot.app.domain.repo.Employee.PostgreSQLEmployeeRepository;
 import org.miniboot.app.domain.repo.Inventory.PostgreSQLProductRepository;
 import org.miniboot.app.domain.repo.Inventory.PostgreSQLStockMovmentRepository;
-import org.miniboot.app.domain.repo.Inventory.ProductRepository;
-import org.miniboot.app.domain.repo.PatientAndPrescription.CustomerRecordRepository;
+import org.miniboot.app.domain.repo.Inventory.StockSnapshotRepository;
 import org.miniboot.app.domain.repo.PatientAndPrescription.PostgreSQLCustomerRecordRepository;
 import org.miniboot.app.domain.repo.PatientAndPrescription.PostgreSQLPrescription;
 import org.miniboot.app.domain.repo.PatientAndPrescription.PrescriptionRepository;
 import org.miniboot.app.domain.repo.Payment.PaymentItemRepository;
-import org.miniboot.app.domain.repo.Payment.PaymentRepository;
-import org.miniboot.app.domain.repo.Payment.PaymentStatusLogRepository;
+import org.miniboot.app.domain.repo.Payment.PaymentRollupRepository;
 import org.miniboot.app.domain.repo.Payment.PostgreSQLPaymentItemRepository;
 import org.miniboot.app.domain.repo.Payment.PostgreSQLPaymentRepository;
 import org.miniboot.app.domain.repo.Payment.PostgreSQLPaymentStatusLogRepository;
 import org.miniboot.app.domain.repo.PostgreSQLAppointmentRepository;
 import org.miniboot.app.domain.repo.PostgreSQLDoctorRepository;
 import org.miniboot.app.http.HttpServer;
+import org.miniboot.app.http.NioHttpServer;
 import org.miniboot.app.router.Router;
 import org.miniboot.app.router.middleware.AuthMiddlewareStub;
+import org.miniboot.app.router.middleware.CompressionMiddleware;
 import org.miniboot.app.router.middleware.CorsMiddleware;
 import org.miniboot.app.router.middleware.ErrorHandle;
 import org.miniboot.app.router.middleware.LoggingMiddleware;
+import org.miniboot.app.router.middleware.RateLimitMiddleware;
+import org.miniboot.app.util.Logger;
 
 public class ServerMain {
+    private static final Logger LOG = Logger.get(ServerMain.class);
+
     public static void main(String[] args) throws Exception {
         AppConfig.load();
         int port = Integer.parseInt(AppConfig.HTTP_PORT);
@@ -50,18 +56,70 @@ public class ServerMain {
 
         // Tạo repositories
         DoctorRepository doctorRepo = new PostgreSQLDoctorRepository();
-        AppointmentRepository apptRepo = new PostgreSQLAppointmentRepository();
+        PostgreSQLAppointmentRepository apptRepo = new PostgreSQLAppointmentRepository();
         PaymentItemRepository paymentItemRepo = new PostgreSQLPaymentItemRepository();
 
-        PaymentRepository paymentRepo = new PostgreSQLPaymentRepository();
-        PaymentStatusLogRepository paymentStatusRepo = new PostgreSQLPaymentStatusLogRepository();
+        PaymentRollupRepository paymentRollupRepo = new PaymentRollupRepository();
+        PostgreSQLPaymentStatusLogRepository paymentStatusRepo = new PostgreSQLPaymentStatusLogRepository(paymentRollupRepo);
+        PostgreSQLPaymentRepository paymentRepo = new PostgreSQLPaymentRepository(paymentStatusRepo);
 
-        CustomerRecordRepository customerRecordRepo = new PostgreSQLCustomerRecordRepository();
+        PostgreSQLCustomerRecordRepository customerRecordRepo = new PostgreSQLCustomerRecordRepository();
         PrescriptionRepository prescriptionRepository = new PostgreSQLPrescription();
         DoctorScheduleRepository doctorScheduleRepo = new DoctorScheduleRepository();
+        PostgreSQLProductRepository productRepo = new PostgreSQLProductRepository();
 
         System.out.println("✅ Repositories initialized");
 
+        // Nạp sẵn lịch làm việc của mọi bác sĩ (một query) để check booking không phải đọc DB
+        try {
+            int doctors = doctorScheduleRepo.warmUp();
+            System.out.println("✅ Doctor schedules cached for " + doctors + " doctors");
+        } catch (Exception e) {
+            System.err.println("⚠️ Cannot warm up doctor schedule cache: " + e.getMessage());
+        }
+
+        // Index tra status mới nhất theo payment (kiểm tra trùng code khi tạo payment)
+        // và index (cột sắp xếp, id) cho phân trang keyset ?limit=&cursor=
+        try {
+            paymentRepo.ensureIndexes();
+        } catch (Exception e) {
+            System.err.println("⚠️ Cannot create payment indexes: " + e.getMessage());
+        }
+        try {
+            apptRepo.ensureIndexes();
+            productRepo.ensureIndexes();
+        } catch (Exception e) {
+            System.err.println("⚠️ Cannot create keyset pagination indexes: " + e.getMessage());
+        }
+        // Bảng trạng thái hiện tại của payment; lỗi -> tiếp tục đọc từ payment_status_log
+        try {
+            paymentStatusRepo.ensureSchema();
+        } catch (Exception e) {
+            System.err.println("⚠️ Cannot prepare payment_current_status: " + e.getMessage());
+        }
+        // Rollup doanh thu theo ngày cho báo cáo tài chính; lỗi -> báo cáo tổng hợp thẳng từ payments
+        try {
+            paymentRollupRepo.ensureSchema();
+        } catch (Exception e) {
+            System.err.println("⚠️ Cannot prepare payment rollups: " + e.getMessage());
+        }
+
+        // Index trigram tìm customer theo tên không dấu / số điện thoại; lỗi -> tìm bằng LIKE như cũ
+        try {
+            customerRecordRepo.ensureSearchIndexes();
+        } catch (Exception e) {
+            System.err.println("⚠️ Cannot create customer search indexes: " + e.getMessage());
+        }
+        // Trie typeahead customer (CUSTOMER_PREFIX_INDEX_ENABLED)
+        try {
+            int customers = customerRecordRepo.warmUp();
+            if (AppConfig.CUSTOMER_PREFIX_INDEX_ENABLED) {
+                System.out.println("✅ Customer prefix index loaded with " + customers + " customers");
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ Cannot load customer prefix index: " + e.getMessage());
+        }
+
         // Tạo services
         org.miniboot.app.domain.service.ScheduleService scheduleService = 
             new org.miniboot.app.domain.service.ScheduleService(doctorScheduleRepo, apptRepo);
@@ -69,33 +127,39 @@ public class ServerMain {
         System.out.println("✅ Services initialized");
 
         // Tạo controllers
-        DoctorController dc = new DoctorController(doctorRepo, apptRepo, doctorScheduleRepo);
+        DoctorController dc = new DoctorController(doctorRepo, scheduleService);
         AppointmentController ac = new AppointmentController(apptRepo, scheduleService);
-        CustomerRecordController crc = new CustomerRecordController(customerRecordRepo);
+        CustomerRecordController crc = new CustomerRecordController(customerRecordRepo,
+                new org.miniboot.app.domain.service.CustomerImportService(customerRecordRepo));
         PaymentController pc = new PaymentController(paymentRepo, paymentStatusRepo);
         PaymentStatusLogController pslc = new PaymentStatusLogController(paymentStatusRepo);
         PaymentItemController pic = new PaymentItemController(paymentItemRepo);
-        ProductRepository productRepo = new PostgreSQLProductRepository();
+        FinancialReportController frc = new FinancialReportController(paymentRollupRepo);
         InventoryController ic = new InventoryController(productRepo);
-        PostgreSQLStockMovmentRepository stockMovementRepo = new PostgreSQLStockMovmentRepository();
+        StockSnapshotRepository stockSnapshotRepo = new StockSnapshotRepository();
+        PostgreSQLStockMovmentRepository stockMovementRepo = new PostgreSQLStockMovmentRepository(stockSnapshotRepo);
+        new org.miniboot.app.domain.service.InventorySnapshotService(stockSnapshotRepo).start();
         StockMovementController smc = new StockMovementController(stockMovementRepo);
         PrescriptionController prc = new PrescriptionController(prescriptionRepository);
 
         // Tạo router và mount controllers
         Router router = new Router();
+        router.use(new CompressionMiddleware()); // ngoài cùng: nén cả response lỗi / 401
+        router.use(new RateLimitMiddleware(RateLimitMiddleware.Scope.CLIENT_IP)); // trước Auth: đếm cả request token sai
         router.use(new AuthMiddlewareStub());
+        router.use(new RateLimitMiddleware(RateLimitMiddleware.Scope.USER)); // sau Auth: hạn mức riêng mỗi user
         router.use(new CorsMiddleware());
         router.use(new LoggingMiddleware());
         router.use(new ErrorHandle());
         
         // Health check endpoint (cho Render, Railway, etc.)
         router.get("/health", req -> {
-            System.out.println("🏥 Health check received");
+            LOG.debug("Health check received");
             return org.miniboot.app.http.HttpResponse.of(200, "text/plain", "OK".getBytes());
         });
         
         router.get("/", req -> {
-            System.out.println("🏠 Root endpoint accessed");
+            LOG.debug("Root endpoint accessed");
             String message = "mini-boot server is running on port " + port;
             return org.miniboot.app.http.HttpResponse.of(200, "text/plain", message.getBytes());
         });
@@ -110,21 +174,27 @@ public class ServerMain {
         PaymentController.mount(router, pc);
         PaymentStatusLogController.mount(router, pslc);
         PaymentItemController.mount(router, pic);
+        FinancialReportController.mount(router, frc);
         PrescriptionController.mount(router, prc);
         AuthController.mount(router);
         CustomerRecordController.mount(router, crc);
         PostgreSQLEmployeeRepository employeeRepo = new PostgreSQLEmployeeRepository();
         EmployeeController.mount(router, employeeRepo);
+        MetricsController.mount(router);
+
+        // Đóng connection pool khi JVM shutdown
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> DatabaseConfig.getInstance().closeConnection()));
 
         // Khởi động server
-        HttpServer server = new HttpServer(port, router);
-        System.out.println("🌐 Server starting on http://localhost:" + port);
+        System.out.println("🌐 Server starting on http://localhost:" + port + " (mode: " + AppConfig.SERVER_MODE + ")");
         System.out.println("📋 Available endpoints:");
         System.out.println("   GET  /appointments");
         System.out.println("   POST /appointments");
         System.out.println("   GET  /doctors");
         System.out.println("   POST /auth/login");
         System.out.println("\n✅ Server is ready!");
+        System.out.println("   GET  /customers/typeahead?q=...&limit=...");
+        System.out.println("   POST /customers/import (text/csv | application/x-ndjson)");
         System.out.println("   GET  /products");
         System.out.println("   GET  /products/search?sku=...");
         System.out.println("   POST /products");
@@ -144,7 +214,14 @@ public class ServerMain {
         System.out.println("   PUT    /payment-items");
         System.out.println("   PUT    /payment-items/replace");
         System.out.println("   DELETE /payment-items?id=... | ?paymentId=...");
+        System.out.println("   GET    /reports/financial?from=&to=&group_by=...");
+        System.out.println("   GET    /metrics");
 
-        server.start();
+        // Chọn chế độ server: nio (Selector event loop) hoặc blocking (mặc định)
+        if ("nio".equals(AppConfig.SERVER_MODE)) {
+            new NioHttpServer(port, router).start();
+        } else {
+            new HttpServer(port, router).start();
+        }
     }
 }
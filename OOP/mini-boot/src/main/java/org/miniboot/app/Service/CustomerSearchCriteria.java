@@ -9,14 +9,20 @@ public class CustomerSearchCriteria {
     private Customer.Gender gender;
     private LocalDate dateFrom;
     private LocalDate dateTo;
+    private Integer limit; // null = trả về mọi kết quả
 
     public CustomerSearchCriteria(String searchKey, Customer.Gender gender
                                  , LocalDate dateFrom, LocalDate dateTo) {
+        this(searchKey, gender, dateFrom, dateTo, null);
+    }
+
+    public CustomerSearchCriteria(String searchKey, Customer.Gender gender
+                                 , LocalDate dateFrom, LocalDate dateTo, Integer limit) {
         this.searchKey = searchKey;
         this.gender = gender;
         this.dateFrom = dateFrom;
         this.dateTo = dateTo;
-
+        this.limit = limit;
     }
 
     public String getSearchKey() {
@@ -31,6 +37,9 @@ public class CustomerSearchCriteria {
     public LocalDate getDateTo() {
         return dateTo;
     }
+    public Integer getLimit() {
+        return limit;
+    }
     public boolean isEmpty() {
         return (searchKey == null || searchKey.isEmpty()) && (gender == null && dateFrom == null && dateTo == null);
     }
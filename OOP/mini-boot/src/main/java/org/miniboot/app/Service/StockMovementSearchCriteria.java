@@ -0,0 +1,40 @@
+package org.miniboot.app.Service;
+
+import org.miniboot.app.domain.models.Inventory.Enum.MoveType;
+
+import java.time.LocalDate;
+
+/**
+ * Điều kiện lọc stock movements - các trường null thì bỏ qua.
+ * Khoảng ngày tính trọn ngày: dateFrom <= moved_at < dateTo + 1 ngày
+ */
+public class StockMovementSearchCriteria {
+    private Integer productId;
+    private MoveType moveType;
+    private LocalDate dateFrom;
+    private LocalDate dateTo;
+
+    public StockMovementSearchCriteria(Integer productId, MoveType moveType,
+                                       LocalDate dateFrom, LocalDate dateTo) {
+        this.productId = productId;
+        this.moveType = moveType;
+        this.dateFrom = dateFrom;
+        this.dateTo = dateTo;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+    public MoveType getMoveType() {
+        return moveType;
+    }
+    public LocalDate getDateFrom() {
+        return dateFrom;
+    }
+    public LocalDate getDateTo() {
+        return dateTo;
+    }
+    public boolean isEmpty() {
+        return productId == null && moveType == null && dateFrom == null && dateTo == null;
+    }
+}
@@ -1,11 +1,14 @@
 package org.miniboot.app.auth;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 
+import org.miniboot.app.AppConfig;
 import org.miniboot.app.config.AuthConstants;
+import org.miniboot.app.util.Logger;
 
 import java.util.Date;
 
@@ -14,12 +17,37 @@ import java.util.Date;
  * - Tạo token từ userId
  * - Xác thực token và lấy userId
  * - Kiểm tra token hết hạn
+ * <p>
+ * JWTVerifier được build một lần (thread-safe), kết quả xác thực được cache theo hash của token
+ * (TokenCache) nên các request lặp lại từ cùng client không phải verify HMAC và parse lại.
  */
 public class JwtService {
 
+    private static final Logger LOG = Logger.get(JwtService.class);
+
     // Sử dụng constants từ AuthConstants
     private static final Algorithm algorithm = Algorithm.HMAC256(AuthConstants.JWT_SECRET_KEY);
 
+    /** Verifier đầy đủ (chữ ký + issuer + audience + exp), dùng chung cho mọi request */
+    private static final JWTVerifier VERIFIER = JWT.require(algorithm)
+            .withIssuer(AuthConstants.JWT_ISSUER)
+            .withAudience(AuthConstants.JWT_AUDIENCE)
+            .build();
+
+    /** Chỉ kiểm tra chữ ký + exp (giữ hành vi cũ của isTokenExpired) */
+    private static final JWTVerifier SIGNATURE_VERIFIER = JWT.require(algorithm).build();
+
+    private static final TokenCache CACHE = new TokenCache(AppConfig.JWT_CACHE_MAX_ENTRIES, AppConfig.JWT_CACHE_TTL_MS);
+
+    /**
+     * Thông tin đã xác thực từ token
+     *
+     * @param userId          claim "sub"
+     * @param expiresAtMillis claim "exp" (epoch millis), Long.MAX_VALUE nếu token không có exp
+     */
+    public record Principal(String userId, long expiresAtMillis) {
+    }
+
     /**
      * Tạo JWT từ userId
      * Bao gồm cả claim "username" để test có thể verify
@@ -40,23 +68,43 @@ public class JwtService {
      * @return userId nếu hợp lệ, null nếu không hợp lệ
      */
     public static String validateTokenAndGetUserId(String token) {
+        Principal principal = verify(token);
+        return principal == null ? null : principal.userId();
+    }
+
+    /**
+     * Xác thực token (có cache)
+     *
+     * @return principal nếu hợp lệ, null nếu không hợp lệ / hết hạn
+     */
+    public static Principal verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        if (!CACHE.isEnabled()) {
+            return verifyUncached(token);
+        }
+        String key = TokenCache.keyOf(token);
+        Principal cached = CACHE.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Principal principal = verifyUncached(token);
+        if (principal != null) {
+            CACHE.put(key, principal);
+        }
+        return principal;
+    }
+
+    private static Principal verifyUncached(String token) {
         try {
-            System.out.println("🔍 [JwtService] Validating token...");
-            System.out.println("🔍 [JwtService] Expected issuer: " + AuthConstants.JWT_ISSUER);
-            System.out.println("🔍 [JwtService] Expected audience: " + AuthConstants.JWT_AUDIENCE);
-            
-            DecodedJWT jwt = JWT.require(algorithm)
-                    .withIssuer(AuthConstants.JWT_ISSUER)
-                    .withAudience(AuthConstants.JWT_AUDIENCE)
-                    .build()
-                    .verify(token);
-            
+            DecodedJWT jwt = VERIFIER.verify(token);
+            Date expiresAt = jwt.getExpiresAt();
             String userId = jwt.getSubject();
-            System.out.println("✅ [JwtService] Token valid! UserId: " + userId);
-            return userId;
+            LOG.debug("Token valid, userId: " + userId);
+            return new Principal(userId, expiresAt == null ? Long.MAX_VALUE : expiresAt.getTime());
         } catch (JWTVerificationException e) {
-            System.out.println("❌ [JwtService] Validation failed: " + e.getMessage());
-            e.printStackTrace();
+            LOG.debug("Token validation failed: " + e.getMessage());
             return null;
         }
     }
@@ -66,9 +114,7 @@ public class JwtService {
      */
     public static boolean isTokenExpired(String token) {
         try {
-            DecodedJWT jwt = JWT.require(algorithm)
-                    .build()
-                    .verify(token);
+            DecodedJWT jwt = SIGNATURE_VERIFIER.verify(token);
             return jwt.getExpiresAt().before(new Date());
         } catch (JWTVerificationException e) {
             return true;
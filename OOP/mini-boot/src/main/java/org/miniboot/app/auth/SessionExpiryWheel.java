@@ -0,0 +1,128 @@
+package org.miniboot.app.auth;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel dọn session hết hạn
+ * <p>
+ * - Vòng gồm WHEEL_SIZE ô, mỗi tick (1 giây) xử lý đúng một ô, nên chi phí mỗi tick chỉ tỷ lệ với
+ *   số session đến hạn trong ô đó chứ không phải tổng số session (khác với quét toàn bộ map).
+ * - Thread đăng nhập chỉ đẩy session vào hàng đợi lock-free (pending); chỉ thread ticker chạm tới
+ *   các ô của vòng, nên bucket không cần đồng bộ.
+ * - Gia hạn lười: getSession() chỉ cập nhật lastActivity, không di chuyển session trong vòng.
+ *   Khi tới hạn, ticker đọc lastActivity thực tế: hết hạn thì gọi onExpire, còn hạn thì xếp lại
+ *   theo deadline mới. Mỗi session tốn O(1) cho mỗi chu kỳ timeout thay vì cho mỗi request.
+ * - Session đã bị hủy (logout) được bỏ qua khi tới ô của nó.
+ */
+final class SessionExpiryWheel {
+    private static final int WHEEL_SIZE = 512; // lũy thừa của 2
+    private static final int MASK = WHEEL_SIZE - 1;
+    private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long timeoutNanos;
+    private final Consumer<SessionManager.Session> onExpire;
+
+    private final Queue<SessionManager.Session> pending = new ConcurrentLinkedQueue<>();
+    private final List<List<SessionManager.Session>> buckets = new ArrayList<>(WHEEL_SIZE);
+    private final long startNanos = System.nanoTime();
+
+    /** Tick đã xử lý gần nhất - chỉ thread ticker đọc/ghi */
+    private long currentTick;
+
+    SessionExpiryWheel(long timeoutNanos, Consumer<SessionManager.Session> onExpire) {
+        this.timeoutNanos = timeoutNanos;
+        this.onExpire = onExpire;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            buckets.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Đăng ký session mới (gọi từ thread bất kỳ)
+     */
+    void schedule(SessionManager.Session session) {
+        pending.offer(session);
+    }
+
+    /**
+     * Chạy vòng ticker trên thread daemon
+     */
+    void start() {
+        Thread ticker = new Thread(this::run, "session-expiry");
+        ticker.setDaemon(true); // Daemon để JVM có thể kết thúc nếu chỉ có thread này đang chạy
+        ticker.start();
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            long nextTickAt = startNanos + (currentTick + 1) * TICK_NANOS;
+            long wait = nextTickAt - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            // Có thể chậm nhiều tick (GC, máy bận): xử lý bù từng tick một
+            long targetTick = (System.nanoTime() - startNanos) / TICK_NANOS;
+            while (currentTick < targetTick) {
+                currentTick++;
+                transferPending();
+                expireBucket(buckets.get((int) (currentTick & MASK)));
+            }
+        }
+    }
+
+    private void transferPending() {
+        SessionManager.Session session;
+        while ((session = pending.poll()) != null) {
+            place(session, deadlineNanos(session));
+        }
+    }
+
+    private void expireBucket(List<SessionManager.Session> bucket) {
+        long now = System.nanoTime();
+        int size = bucket.size();
+        int kept = 0;
+        ArrayList<SessionManager.Session> rescheduled = null;
+        for (int i = 0; i < size; i++) {
+            SessionManager.Session session = bucket.get(i);
+            if (session.isInvalidated()) {
+                continue;
+            }
+            if (session.wheelTick > currentTick) {
+                bucket.set(kept++, session); // Chưa tới vòng của nó
+                continue;
+            }
+            long deadline = deadlineNanos(session);
+            if (deadline - now <= 0) {
+                onExpire.accept(session);
+            } else {
+                if (rescheduled == null) rescheduled = new ArrayList<>();
+                rescheduled.add(session);
+            }
+        }
+        bucket.subList(kept, size).clear();
+
+        if (rescheduled != null) {
+            for (SessionManager.Session session : rescheduled) {
+                place(session, deadlineNanos(session));
+            }
+        }
+    }
+
+    private void place(SessionManager.Session session, long deadlineNanos) {
+        // Làm tròn lên tick kế tiếp; deadline đã qua -> tick ngay sau tick hiện tại
+        long tick = Math.max(currentTick + 1, (deadlineNanos - startNanos + TICK_NANOS - 1) / TICK_NANOS);
+        session.wheelTick = tick;
+        buckets.get((int) (tick & MASK)).add(session);
+    }
+
+    private long deadlineNanos(SessionManager.Session session) {
+        return session.getLastActivityNanos() + timeoutNanos;
+    }
+}
@@ -1,10 +1,15 @@
 package org.miniboot.app.auth;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.miniboot.app.util.Logger;
 
 /**
  * SessionManager
@@ -17,36 +22,46 @@ import java.util.concurrent.ConcurrentHashMap;
  * Thiết kế chính:
  * - Singleton: đảm bảo chỉ có một instance quản lý session trong JVM.
  * - Mỗi session được lưu dưới dạng Session object với thông tin cơ bản (userId, username, role, timestamps).
- * - Có task background (daemon thread) dọn các session đã hết hạn.
+ * - Index phụ userId -> sessionIds: hủy session của một user là O(số session của user đó),
+ *   không quét toàn bộ map mỗi lần đăng nhập.
+ * - Timestamp là System.nanoTime() (long, đơn điệu): kiểm tra hết hạn không cấp phát object.
+ * - Session hết hạn được dọn bởi hashed timing wheel (SessionExpiryWheel) thay cho thread quét
+ *   toàn bộ session mỗi phút.
  */
 public class SessionManager {
-    // Singleton instance
-    private static SessionManager instance;
+    private static final Logger LOG = Logger.get(SessionManager.class);
 
     // Bản đồ lưu các session hiện đang active: sessionId -> Session
     // Sử dụng ConcurrentHashMap để an toàn khi truy cập đồng thời từ nhiều thread
     private final Map<String, Session> activeSessions;
 
+    // Index phụ: userId -> tập sessionId của user đó
+    private final Map<String, Set<String>> sessionsByUser;
+
     // Thời gian timeout mặc định cho session, tính bằng phút
     // Nếu user không có hoạt động trong khoảng này thì session được coi là expired
     private static final int SESSION_TIMEOUT_MINUTES = 30;
+    private static final long SESSION_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(SESSION_TIMEOUT_MINUTES);
+
+    private final SessionExpiryWheel expiryWheel;
 
     private SessionManager() {
         this.activeSessions = new ConcurrentHashMap<>();
-        // Khởi động task dọn session hết hạn (chạy nền, daemon)
-        startSessionCleanupTask();
+        this.sessionsByUser = new ConcurrentHashMap<>();
+        // Khởi động timing wheel dọn session hết hạn (chạy nền, daemon)
+        this.expiryWheel = new SessionExpiryWheel(SESSION_TIMEOUT_NANOS, this::expire);
+        expiryWheel.start();
+    }
+
+    // Singleton instance - holder idiom: lazy và thread-safe nhờ class loading,
+    // không cần synchronized trên đường xử lý request (thân thiện với virtual threads)
+    private static final class Holder {
+        private static final SessionManager INSTANCE = new SessionManager();
     }
 
-    // Lấy instance singleton (double-checked locking để an toàn multi-thread)
+    // Lấy instance singleton
     public static SessionManager getInstance() {
-        if (instance == null) {
-            synchronized (SessionManager.class) {
-                if (instance == null) {
-                    instance = new SessionManager();
-                }
-            }
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
 
     /**
@@ -55,7 +70,7 @@ public class SessionManager {
      * Quy trình:
      * 1. Hủy các session cũ của user (nếu muốn chỉ cho 1 session/1 user tại 1 thời điểm)
      * 2. Tạo sessionId mới (UUID)
-     * 3. Lưu Session vào activeSessions
+     * 3. Lưu Session vào activeSessions, index theo userId và timing wheel
      *
      * @param userId id người dùng
      * @param username username (dùng để log/hiển thị)
@@ -69,9 +84,10 @@ public class SessionManager {
         String sessionId = UUID.randomUUID().toString();
         Session session = new Session(sessionId, userId, username, role);
         activeSessions.put(sessionId, session);
+        indexSession(session);
+        expiryWheel.schedule(session);
 
-        // Log đơn giản (stdout). Trong production nên dùng logger và tránh in dữ liệu nhạy cảm.
-        System.out.println("✓ Session created: " + username + " (" + role + ")");
+        LOG.info("✓ Session created: " + username + " (" + role + ")");
         return sessionId;
     }
 
@@ -86,12 +102,18 @@ public class SessionManager {
      */
     public Optional<Session> getSession(String sessionId) {
         Session session = activeSessions.get(sessionId);
-        if (session != null && !session.isExpired()) {
-            // Cập nhật thời điểm hoạt động cuối cùng khi user có request
-            session.updateLastActivity();
-            return Optional.of(session);
+        if (session == null) {
+            return Optional.empty();
         }
-        return Optional.empty();
+        long now = System.nanoTime();
+        if (session.isExpired(now)) {
+            // Hết hạn nhưng wheel chưa tới lượt dọn: dọn luôn
+            expire(session);
+            return Optional.empty();
+        }
+        // Cập nhật thời điểm hoạt động cuối cùng khi user có request
+        session.lastActivityNanos = now;
+        return Optional.of(session);
     }
 
     /**
@@ -104,7 +126,9 @@ public class SessionManager {
     public void invalidateSession(String sessionId) {
         Session session = activeSessions.remove(sessionId);
         if (session != null) {
-            System.out.println("✓ Session invalidated: " + session.getUsername());
+            session.invalidated = true;
+            unindexSession(session);
+            LOG.info("✓ Session invalidated: " + session.getUsername());
         }
     }
 
@@ -117,10 +141,16 @@ public class SessionManager {
      * @param userId id người dùng
      */
     public void invalidateUserSessions(String userId) {
-        // removeIf an toàn với ConcurrentHashMap.entrySet()
-        activeSessions.entrySet().removeIf(entry ->
-                entry.getValue().getUserId().equals(userId)
-        );
+        Set<String> sessionIds = sessionsByUser.remove(userId);
+        if (sessionIds == null) {
+            return;
+        }
+        for (String sessionId : sessionIds) {
+            Session session = activeSessions.remove(sessionId);
+            if (session != null) {
+                session.invalidated = true;
+            }
+        }
     }
 
     /**
@@ -144,31 +174,31 @@ public class SessionManager {
         return activeSessions.size();
     }
 
-    /**
-     * Cleanup expired sessions
-     *
-     * Tạo một daemon thread chạy định kỳ (mỗi phút) để dọn các session đã expired.
-     * Đây là cơ chế bảo đảm memory không bị đầy bởi session cũ.
-     */
-    private void startSessionCleanupTask() {
-        Thread cleanupThread = new Thread(() -> {
-            while (true) {
-                try {
-                    Thread.sleep(60000); // Every minute
-                    cleanupExpiredSessions();
-                } catch (InterruptedException e) {
-                    // Nếu thread bị interrupt, thoát vòng lặp để thread kết thúc
-                    break;
-                }
+    // Gọi từ timing wheel (hoặc getSession) khi session đã quá hạn
+    private void expire(Session session) {
+        if (activeSessions.remove(session.getSessionId(), session)) {
+            session.invalidated = true;
+            unindexSession(session);
+            LOG.debug("Session expired: " + session.getUsername());
+        }
+    }
+
+    private void indexSession(Session session) {
+        sessionsByUser.compute(session.getUserId(), (userId, ids) -> {
+            if (ids == null) {
+                ids = ConcurrentHashMap.newKeySet();
             }
+            ids.add(session.getSessionId());
+            return ids;
         });
-        cleanupThread.setDaemon(true); // Daemon để JVM có thể kết thúc nếu chỉ có thread này đang chạy
-        cleanupThread.start();
     }
 
-    // Kiểm tra và xoá các session đã expired
-    private void cleanupExpiredSessions() {
-        activeSessions.entrySet().removeIf(entry -> entry.getValue().isExpired());
+    // Xóa khỏi index, bỏ luôn entry của user khi không còn session nào
+    private void unindexSession(Session session) {
+        sessionsByUser.computeIfPresent(session.getUserId(), (userId, ids) -> {
+            ids.remove(session.getSessionId());
+            return ids.isEmpty() ? null : ids;
+        });
     }
 
     /**
@@ -179,7 +209,7 @@ public class SessionManager {
      * - userId: id người dùng liên kết
      * - username, role: để tiện log và kiểm tra quyền
      * - createdAt: thời điểm tạo session
-     * - lastActivity: thời điểm hoạt động cuối cùng (dùng để tính timeout)
+     * - lastActivity: thời điểm hoạt động cuối cùng (nanoTime, dùng để tính timeout)
      *
      * Phương thức chính:
      * - updateLastActivity(): cập nhật timestamp khi có hoạt động
@@ -190,37 +220,55 @@ public class SessionManager {
         private final String userId;
         private final String username;
         private final String role;
-        private final LocalDateTime createdAt;
-        private LocalDateTime lastActivity;
+        // Thời điểm tạo theo đồng hồ hệ thống, chỉ dùng để hiển thị
+        private final long createdAtMillis;
+        private final long createdAtNanos;
+        private volatile long lastActivityNanos;
+        private volatile boolean invalidated;
+
+        /** Tick của timing wheel mà session đang nằm - chỉ thread ticker dùng */
+        long wheelTick;
 
         public Session(String sessionId, String userId, String username, String role) {
             this.sessionId = sessionId;
             this.userId = userId;
             this.username = username;
             this.role = role;
-            this.createdAt = LocalDateTime.now();
-            this.lastActivity = LocalDateTime.now();
+            this.createdAtMillis = System.currentTimeMillis();
+            this.createdAtNanos = System.nanoTime();
+            this.lastActivityNanos = createdAtNanos;
         }
 
         // Cập nhật thời điểm hoạt động cuối
         public void updateLastActivity() {
-            this.lastActivity = LocalDateTime.now();
+            this.lastActivityNanos = System.nanoTime();
         }
 
         // Kiểm tra session có expired hay không
         public boolean isExpired() {
-            // So sánh lastActivity + timeout với thời điểm hiện tại
-            return LocalDateTime.now().isAfter(
-                    lastActivity.plusMinutes(SESSION_TIMEOUT_MINUTES)
-            );
+            return isExpired(System.nanoTime());
         }
 
+        boolean isExpired(long nowNanos) {
+            // So sánh lastActivity + timeout với thời điểm hiện tại (so hiệu để an toàn khi nanoTime tràn)
+            return nowNanos - lastActivityNanos > SESSION_TIMEOUT_NANOS;
+        }
+
+        long getLastActivityNanos() { return lastActivityNanos; }
+        boolean isInvalidated() { return invalidated; }
+
         // Getters
         public String getSessionId() { return sessionId; }
         public String getUserId() { return userId; }
         public String getUsername() { return username; }
         public String getRole() { return role; }
-        public LocalDateTime getCreatedAt() { return createdAt; }
-        public LocalDateTime getLastActivity() { return lastActivity; }
+        public LocalDateTime getCreatedAt() { return toDateTime(createdAtMillis); }
+        public LocalDateTime getLastActivity() {
+            return toDateTime(createdAtMillis + TimeUnit.NANOSECONDS.toMillis(lastActivityNanos - createdAtNanos));
+        }
+
+        private static LocalDateTime toDateTime(long epochMillis) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+        }
     }
-}
\ No newline at end of file
+}
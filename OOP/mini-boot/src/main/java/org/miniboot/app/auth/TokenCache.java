@@ -0,0 +1,99 @@
+package org.miniboot.app.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cache token đã xác thực -> Principal, có giới hạn kích thước và TTL
+ * <p>
+ * - Key là SHA-256 của token (không giữ nguyên token trong cache).
+ * - Mỗi entry hết hạn tại min(exp của token, thời điểm cache + TTL), nên không bao giờ
+ *   trả về principal của token đã hết hạn.
+ * - Khi đầy: dọn các entry hết hạn trước, nếu vẫn đầy thì bỏ bớt ~10% entry bất kỳ.
+ *   Chỉ một thread dọn tại một thời điểm, các thread khác vẫn put bình thường.
+ * - Chỉ cache kết quả hợp lệ: token sai không chiếm chỗ trong cache.
+ */
+final class TokenCache {
+    private record Entry(JwtService.Principal principal, long validUntilMillis) {
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    TokenCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMillis = Math.max(0, ttlMillis);
+    }
+
+    boolean isEnabled() {
+        return ttlMillis > 0;
+    }
+
+    /**
+     * @return principal đã cache, null nếu không có hoặc đã hết hạn
+     */
+    JwtService.Principal get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.validUntilMillis <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.principal;
+    }
+
+    void put(String key, JwtService.Principal principal) {
+        long now = System.currentTimeMillis();
+        long validUntil = Math.min(principal.expiresAtMillis(), now + ttlMillis);
+        if (validUntil <= now) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            evict(now);
+        }
+        entries.put(key, new Entry(principal, validUntil));
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void evict(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            entries.values().removeIf(e -> e.validUntilMillis <= now);
+            int excess = entries.size() - (maxEntries - maxEntries / 10);
+            Iterator<String> it = entries.keySet().iterator();
+            while (excess-- > 0 && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * SHA-256 của token, dạng base64url
+     */
+    static String keyOf(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e); // JDK luôn có SHA-256
+        }
+    }
+}
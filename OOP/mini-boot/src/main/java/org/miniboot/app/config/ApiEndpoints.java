@@ -135,6 +135,7 @@ public final class ApiEndpoints {
     public static final String HEALTH = "/health";
     public static final String PING = "/ping";
     public static final String STATUS = "/status";
+    public static final String METRICS = "/metrics";
 
     //  UTILITY ENDPOINTS 
     public static final String ECHO = "/echo";
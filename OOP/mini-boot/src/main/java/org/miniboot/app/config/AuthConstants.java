@@ -22,6 +22,9 @@ public final class AuthConstants {
     public static final String TOKEN_TYPE = "Bearer";
     public static final int TOKEN_EXPIRATION_SECONDS = 86400; // 24 hours
 
+    // REQUEST ATTRIBUTES (do AuthMiddlewareStub gắn vào HttpRequest)
+    public static final String ATTR_USER_ID = "userId";
+
     // SESSION CONFIGURATION 
     public static final long SESSION_TIMEOUT = 1800000; // 30 minutes in milliseconds
     public static final String SESSION_ID_HEADER = "X-Session-ID";
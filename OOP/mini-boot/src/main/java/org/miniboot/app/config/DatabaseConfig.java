@@ -1,31 +1,41 @@
 package org.miniboot.app.config;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
+import javax.sql.DataSource;
+
 import org.miniboot.app.AppConfig;
+import org.miniboot.app.metrics.JdbcMetrics;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 
 /**
  * DatabaseConfig: Quản lý kết nối đến PostgreSQL Database (Supabase)
- * 
- * Sử dụng Singleton pattern để đảm bảo chỉ có một connection instance
- * được sử dụng xuyên suốt ứng dụng.
+ *
+ * Sử dụng Singleton pattern để đảm bảo chỉ có một connection pool (HikariCP)
+ * được sử dụng xuyên suốt ứng dụng. Các repository mượn connection từ pool
+ * qua getConnection() và trả lại pool khi close() trong try-with-resources.
  */
 public class DatabaseConfig {
 
-    // Singleton instance
-    private static DatabaseConfig instance;
-    private Connection connection;
+    // Connection pool dùng chung
+    private final HikariDataSource dataSource;
 
     // Database credentials
     private final String DB_URL;
     private final String DB_USER;
     private final String DB_PASSWORD;
 
+    // Metrics của repository dùng bản này (forRepository), null = không đo
+    private final JdbcMetrics.Label metrics;
+
     /**
      * Constructor private để implement Singleton pattern
      * Đọc thông tin kết nối từ environment variables hoặc system properties
+     * và khởi tạo connection pool theo cấu hình trong AppConfig
      */
     private DatabaseConfig() {
         // Sử dụng constants từ DatabaseConstants
@@ -38,6 +48,50 @@ public class DatabaseConfig {
             System.err.println("⚠️  WARNING: Database password is not set!");
             System.err.println("Please set " + DatabaseConstants.CONFIG_DB_PASSWORD + " environment variable or system property");
         }
+
+        dataSource = new HikariDataSource(buildPoolConfig());
+        metrics = null;
+    }
+
+    /**
+     * Bản dùng chung pool của base, connection được đo theo repository
+     */
+    private DatabaseConfig(DatabaseConfig base, JdbcMetrics.Label metrics) {
+        this.DB_URL = base.DB_URL;
+        this.DB_USER = base.DB_USER;
+        this.DB_PASSWORD = base.DB_PASSWORD;
+        this.dataSource = base.dataSource;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Tạo cấu hình HikariCP từ AppConfig
+     */
+    private HikariConfig buildPoolConfig() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(DatabaseConstants.POOL_NAME);
+        config.setJdbcUrl(DB_URL);
+        config.setUsername(DB_USER);
+        config.setPassword(DB_PASSWORD);
+        config.setDriverClassName(DatabaseConstants.DEFAULT_DB_DRIVER);
+
+        config.setMaximumPoolSize(AppConfig.DB_POOL_MAX_SIZE);
+        config.setMinimumIdle(Math.min(AppConfig.DB_POOL_MIN_IDLE, AppConfig.DB_POOL_MAX_SIZE));
+        config.setConnectionTimeout(AppConfig.DB_CONNECTION_TIMEOUT_MS);
+        config.setIdleTimeout(AppConfig.DB_IDLE_TIMEOUT_MS);
+        config.setMaxLifetime(AppConfig.DB_MAX_LIFETIME_MS);
+        config.setLeakDetectionThreshold(AppConfig.DB_LEAK_DETECTION_MS);
+
+        // Không fail lúc khởi động nếu DB chưa sẵn sàng - pool sẽ tự thử lại khi có request
+        config.setInitializationFailTimeout(-1);
+
+        // Statement caching phía PostgreSQL driver
+        config.addDataSourceProperty("prepareThreshold", AppConfig.DB_PREPARE_THRESHOLD);
+        config.addDataSourceProperty("preparedStatementCacheQueries", AppConfig.DB_STMT_CACHE_QUERIES);
+        config.addDataSourceProperty("preparedStatementCacheSizeMiB", AppConfig.DB_STMT_CACHE_SIZE_MIB);
+        config.addDataSourceProperty("reWriteBatchedInserts", AppConfig.DB_REWRITE_BATCHED_INSERTS);
+        config.addDataSourceProperty("loginTimeout", DatabaseConstants.DEFAULT_DB_TIMEOUT);
+        return config;
     }
 
     /**
@@ -58,39 +112,41 @@ public class DatabaseConfig {
         return defaultValue;
     }
 
+    /**
+     * Holder idiom: JVM đảm bảo khởi tạo lazy và thread-safe khi class Holder được load,
+     * không cần synchronized - tránh giữ monitor (pin carrier thread của virtual thread)
+     * trong lúc dựng connection pool
+     */
+    private static final class Holder {
+        private static final DatabaseConfig INSTANCE = new DatabaseConfig();
+    }
+
     /**
      * Get singleton instance
      */
-    public static synchronized DatabaseConfig getInstance() {
-        if (instance == null) {
-            instance = new DatabaseConfig();
-        }
-        return instance;
+    public static DatabaseConfig getInstance() {
+        return Holder.INSTANCE;
     }
 
     /**
-     * Lấy connection đến database
-     * Tạo connection mới mỗi lần thay vì reuse (để tránh connection block)
-     * Connection sẽ được đóng bởi caller trong try-with-resources
+     * Cùng pool, connection mượn qua bản trả về được ghi thời gian giữ theo repository (xem JdbcMetrics)
+     * Gọi một lần trong constructor của repository, label không phải dựng lại mỗi lần mượn connection
+     */
+    public DatabaseConfig forRepository(Class<?> repository) {
+        return new DatabaseConfig(this, JdbcMetrics.label(repository));
+    }
+
+    /**
+     * Mượn một connection từ pool
+     * Connection sẽ được trả lại pool khi caller đóng nó trong try-with-resources
+     * Bản tạo bởi forRepository trả về connection đã được bọc để đo thời gian theo repository
      */
     public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
         try {
-            // Load PostgreSQL driver
-            Class.forName(DatabaseConstants.DEFAULT_DB_DRIVER);
-
-            // Set connection timeout
-            DriverManager.setLoginTimeout(DatabaseConstants.DEFAULT_DB_TIMEOUT);
-
-            // Tạo connection MỚI mỗi lần (không cache)
-            Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-
-            System.out.println(SuccessMessages.SUCCESS_DB_CONNECTION);
-            System.out.println("Connected to: " + DB_URL);
-
-            return conn;
-
-        } catch (ClassNotFoundException e) {
-            throw new SQLException(ErrorMessages.ERROR_DB_DRIVER, e);
+            Connection connection = dataSource.getConnection();
+            JdbcMetrics.recordAcquire(System.nanoTime() - start);
+            return metrics != null ? JdbcMetrics.track(connection, metrics) : connection;
         } catch (SQLException e) {
             System.err.println("❌ " + ErrorMessages.ERROR_DB_CONNECTION + ":");
             System.err.println("   URL: " + DB_URL);
@@ -101,16 +157,35 @@ public class DatabaseConfig {
     }
 
     /**
-     * Đóng connection (nếu cần)
+     * Lấy DataSource (pool) dùng chung
+     */
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Lấy thống kê hiện tại của connection pool
+     */
+    public PoolStats getPoolStats() {
+        PoolStats stats = new PoolStats();
+        stats.max = AppConfig.DB_POOL_MAX_SIZE;
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool != null) {
+            stats.active = pool.getActiveConnections();
+            stats.idle = pool.getIdleConnections();
+            stats.total = pool.getTotalConnections();
+            stats.waiting = pool.getThreadsAwaitingConnection();
+        }
+        return stats;
+    }
+
+    /**
+     * Đóng connection pool (khi server shutdown)
      */
     public void closeConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-                System.out.println("Database connection closed successfully!");
-            } catch (SQLException e) {
-                System.err.println("❌ Failed to close database connection: " + e.getMessage());
-            }
+        if (!dataSource.isClosed()) {
+            dataSource.close();
+            System.out.println("Database connection pool closed successfully!");
         }
     }
 
@@ -122,6 +197,8 @@ public class DatabaseConfig {
         System.out.println("  URL: " + DB_URL);
         System.out.println("  User: " + DB_USER);
         System.out.println("  Password: " + (DB_PASSWORD.isEmpty() ? "NOT SET" : "***"));
+        System.out.println("  Pool: max=" + AppConfig.DB_POOL_MAX_SIZE + ", minIdle=" + AppConfig.DB_POOL_MIN_IDLE
+                + ", timeout=" + AppConfig.DB_CONNECTION_TIMEOUT_MS + "ms");
     }
 
     /**
@@ -136,4 +213,15 @@ public class DatabaseConfig {
             return false;
         }
     }
+
+    /**
+     * Snapshot thống kê của connection pool
+     */
+    public static class PoolStats {
+        public int active;
+        public int idle;
+        public int total;
+        public int waiting;
+        public int max;
+    }
 }
@@ -17,6 +17,15 @@ public final class DatabaseConstants {
     public static final String CONFIG_DB_DRIVER = "DB_DRIVER";
     public static final String CONFIG_DB_POOL_SIZE = "DB_POOL_SIZE";
     public static final String CONFIG_DB_TIMEOUT = "DB_TIMEOUT";
+    public static final String CONFIG_DB_POOL_MIN_IDLE = "DB_POOL_MIN_IDLE";
+    public static final String CONFIG_DB_CONNECTION_TIMEOUT_MS = "DB_CONNECTION_TIMEOUT_MS";
+    public static final String CONFIG_DB_IDLE_TIMEOUT_MS = "DB_IDLE_TIMEOUT_MS";
+    public static final String CONFIG_DB_MAX_LIFETIME_MS = "DB_MAX_LIFETIME_MS";
+    public static final String CONFIG_DB_LEAK_DETECTION_MS = "DB_LEAK_DETECTION_MS";
+    public static final String CONFIG_DB_PREPARE_THRESHOLD = "DB_PREPARE_THRESHOLD";
+    public static final String CONFIG_DB_STMT_CACHE_QUERIES = "DB_STMT_CACHE_QUERIES";
+    public static final String CONFIG_DB_STMT_CACHE_SIZE_MIB = "DB_STMT_CACHE_SIZE_MIB";
+    public static final String CONFIG_DB_REWRITE_BATCHED_INSERTS = "DB_REWRITE_BATCHED_INSERTS";
 
     // DATABASE DEFAULT VALUES 
     public static final String DEFAULT_DB_URL = "jdbc:postgresql://aws-1-us-east-1.pooler.supabase.com:6543/postgres";
@@ -26,6 +35,21 @@ public final class DatabaseConstants {
     public static final int DEFAULT_DB_POOL_SIZE = 10;
     public static final int DEFAULT_DB_TIMEOUT = 10; // seconds
 
+    // CONNECTION POOL DEFAULTS (HikariCP)
+    public static final String POOL_NAME = "mini-boot-db";
+    public static final int DEFAULT_DB_POOL_MIN_IDLE = 2;
+    public static final long DEFAULT_DB_CONNECTION_TIMEOUT_MS = 10_000;
+    public static final long DEFAULT_DB_IDLE_TIMEOUT_MS = 600_000;     // 10 phút
+    public static final long DEFAULT_DB_MAX_LIFETIME_MS = 1_800_000;   // 30 phút
+    public static final long DEFAULT_DB_LEAK_DETECTION_MS = 30_000;    // 0 = tắt
+    public static final int DEFAULT_DB_PREPARE_THRESHOLD = 5;
+    public static final int DEFAULT_DB_STMT_CACHE_QUERIES = 256;
+    public static final int DEFAULT_DB_STMT_CACHE_SIZE_MIB = 5;
+    // Driver gộp batch INSERT (addBatch/executeBatch) thành INSERT nhiều dòng
+    public static final boolean DEFAULT_DB_REWRITE_BATCHED_INSERTS = true;
+    // Số dòng driver lấy mỗi lần khi stream ResultSet (cursor) thay vì nạp toàn bộ vào heap
+    public static final int STREAM_FETCH_SIZE = 500;
+
     // DATABASE DRIVERS 
     public static final String DRIVER_POSTGRESQL = "org.postgresql.Driver";
     public static final String DRIVER_MYSQL = "com.mysql.cj.jdbc.Driver";
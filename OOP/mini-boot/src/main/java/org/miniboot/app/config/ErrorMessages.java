@@ -120,6 +120,7 @@ public final class ErrorMessages {
     // HTTP ERRORS 
     public static final String ERROR_METHOD_NOT_ALLOWED = "HTTP method not allowed";
     public static final String ERROR_PAYLOAD_TOO_LARGE = "Request payload too large";
+    public static final String ERROR_HEADERS_TOO_LARGE = "Request header fields too large";
     public static final String ERROR_UNSUPPORTED_MEDIA_TYPE = "Unsupported media type";
     public static final String ERROR_TOO_MANY_REQUESTS = "Too many requests";
 }
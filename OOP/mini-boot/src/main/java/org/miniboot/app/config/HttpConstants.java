@@ -35,6 +35,12 @@ public final class HttpConstants {
     public static final String HEADER_CONNECTION = "connection";
     public static final String HEADER_COOKIE = "cookie";
     public static final String HEADER_REFERER = "referer";
+    public static final String HEADER_TRANSFER_ENCODING = "transfer-encoding";
+    public static final String HEADER_ACCEPT_ENCODING = "accept-encoding";
+    public static final String HEADER_ACCEPT_LANGUAGE = "accept-language";
+    public static final String HEADER_ORIGIN = "origin";
+    public static final String HEADER_X_FORWARDED_FOR = "x-forwarded-for";
+    public static final String HEADER_EXPECT = "expect";
 
     // RESPONSE HEADERS 
     public static final String HEADER_DATE = "date";
@@ -44,6 +50,11 @@ public final class HttpConstants {
     public static final String HEADER_CACHE_CONTROL = "cache-control";
     public static final String HEADER_EXPIRES = "expires";
     public static final String HEADER_ETAG = "etag";
+    public static final String HEADER_KEEP_ALIVE = "keep-alive";
+    public static final String HEADER_ALLOW = "allow";
+    public static final String HEADER_CONTENT_ENCODING = "content-encoding";
+    public static final String HEADER_VARY = "vary";
+    public static final String HEADER_RETRY_AFTER = "retry-after";
 
     // CORS HEADERS 
     public static final String HEADER_ACCESS_CONTROL_ALLOW_ORIGIN = "Access-Control-Allow-Origin";
@@ -64,11 +75,17 @@ public final class HttpConstants {
     public static final String CONTENT_TYPE_MULTIPART = "multipart/form-data";
     public static final String CONTENT_TYPE_XML = "application/xml";
     public static final String CONTENT_TYPE_OCTET_STREAM = "application/octet-stream";
+    public static final String CONTENT_TYPE_PROMETHEUS = "text/plain; version=0.0.4; charset=utf-8";
 
     // CONNECTION VALUES 
     public static final String CONNECTION_CLOSE = "close";
     public static final String CONNECTION_KEEP_ALIVE = "keep-alive";
 
+    // CONTENT ENCODINGS 
+    public static final String ENCODING_GZIP = "gzip";
+    public static final String ENCODING_DEFLATE = "deflate";
+    public static final String ENCODING_IDENTITY = "identity";
+
     // AUTHORIZATION TYPES 
     public static final String AUTH_TYPE_BEARER = "Bearer";
     public static final String AUTH_TYPE_BASIC = "Basic";
@@ -14,6 +14,7 @@ import org.miniboot.app.config.HttpConstants;
 import org.miniboot.app.domain.models.Appointment;
 import org.miniboot.app.domain.models.AppointmentStatus;
 import org.miniboot.app.domain.repo.AppointmentRepository;
+import org.miniboot.app.domain.repo.PageRequest;
 import org.miniboot.app.domain.service.ScheduleService;
 import org.miniboot.app.http.HttpRequest;
 import org.miniboot.app.http.HttpResponse;
@@ -22,9 +23,10 @@ import org.miniboot.app.util.ExtractHelper;
 import org.miniboot.app.util.Json;
 import org.miniboot.app.util.errorvalidation.ValidationUtils;
 import org.miniboot.app.util.errorvalidation.DatabaseErrorHandler;
-import org.miniboot.app.util.errorvalidation.RateLimiter;
+import org.miniboot.app.util.Logger;
 
 public class AppointmentController {
+    private static final Logger LOG = Logger.get(AppointmentController.class);
     private final AppointmentRepository appointmentRepository;
     private final ScheduleService scheduleService;
 
@@ -70,11 +72,6 @@ public class AppointmentController {
      */
     public Function<HttpRequest, HttpResponse> createAppointment() {
         return (HttpRequest req) -> {
-            // Step 0: Rate limiting check
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-            if (rateLimitError != null)
-                return rateLimitError;
-
             // Step 1-3: Standard validations (Content-Type, JWT, optional Role check)
             HttpResponse contentTypeError = ValidationUtils.validateContentType(req, "application/json");
             if (contentTypeError != null)
@@ -101,8 +98,7 @@ public class AppointmentController {
                             idempotencyCache.remove(idempotencyKey);
                         } else {
                             if (cached.requestHash.equals(requestHash)) {
-                                System.out.println(
-                                        "♻️ Returning cached appointment for idempotency key: " + idempotencyKey);
+                                LOG.debug("♻️ Returning cached appointment for idempotency key: " + idempotencyKey);
                                 return cached.response;
                             } else {
                                 return ValidationUtils.error(409, "IDEMPOTENCY_KEY_CONFLICT",
@@ -113,11 +109,9 @@ public class AppointmentController {
                 }
 
                 // Step 5: Parse JSON
-                System.out.println("📥 Received body: " + new String(req.body, StandardCharsets.UTF_8));
                 Appointment appointment;
                 try {
                     appointment = Json.fromBytes(req.body, Appointment.class);
-                    System.out.println("✅ Parsed appointment: " + appointment);
                 } catch (Exception e) {
                     return ValidationUtils.error(400, "BAD_REQUEST",
                             "Invalid JSON format: " + e.getMessage());
@@ -144,22 +138,10 @@ public class AppointmentController {
                 // Step 7: Business rules validation
                 // Check slot không bị trùng (409 Conflict)
                 try {
-                    String date = appointment.getStartTime().toLocalDate().toString();
-                    List<Appointment> existingAppointments = appointmentRepository.findByDoctorIdAndDate(
-                            appointment.getDoctorId(), date);
-
-                    for (Appointment existing : existingAppointments) {
-                        // Skip cancelled appointments
-                        if (existing.getStatus() == AppointmentStatus.CANCELLED) {
-                            continue;
-                        }
-
-                        // Check time overlap
-                        if (appointment.getStartTime().isBefore(existing.getEndTime()) &&
-                                existing.getStartTime().isBefore(appointment.getEndTime())) {
-                            return ValidationUtils.error(409, "SLOT_CONFLICT",
-                                    "This time slot is already booked by another appointment");
-                        }
+                    if (scheduleService.hasConflictingAppointment(appointment.getDoctorId(),
+                            appointment.getStartTime(), appointment.getEndTime(), null)) {
+                        return ValidationUtils.error(409, "SLOT_CONFLICT",
+                                "This time slot is already booked by another appointment");
                     }
                 } catch (Exception e) {
                     return DatabaseErrorHandler.handleDatabaseException(e);
@@ -202,7 +184,8 @@ public class AppointmentController {
                             "Cannot create appointment");
                 }
 
-                System.out.println("✅ Appointment created successfully: ID=" + saved.getId());
+                scheduleService.onAppointmentSaved(null, saved);
+                LOG.debug("✅ Appointment created successfully: ID=" + saved.getId());
 
                 // Step 9: Cache result for idempotency
                 HttpResponse response = Json.created(saved);
@@ -213,8 +196,7 @@ public class AppointmentController {
                 return response;
 
             } catch (Exception e) {
-                System.err.println("❌ Unexpected error in createAppointment: " + e.getMessage());
-                e.printStackTrace();
+                LOG.error("❌ Unexpected error in createAppointment: " + e.getMessage(), e);
                 return ValidationUtils.error(500, "INTERNAL_SERVER_ERROR",
                         "An unexpected error occurred");
             }
@@ -241,11 +223,10 @@ public class AppointmentController {
             Optional<String> dateOpt = ExtractHelper.extractFirst(q, "date");
 
             if (doctorIdOpt.isPresent() && dateOpt.isPresent()) {
-                System.out.println(
-                        "🔍 DEBUG: GET /appointments?doctorId=" + doctorIdOpt.get() + "&date=" + dateOpt.get());
+                LOG.debug("🔍 GET /appointments?doctorId=" + doctorIdOpt.get() + "&date=" + dateOpt.get());
                 List<Appointment> result = appointmentRepository.findByDoctorIdAndDate(
                         doctorIdOpt.get(), dateOpt.get());
-                System.out.println("✅ DEBUG: Returning " + result.size() + " appointments for date " + dateOpt.get());
+                LOG.debug("✅ Returning " + result.size() + " appointments for date " + dateOpt.get());
                 return Json.ok(result);
             }
 
@@ -272,8 +253,18 @@ public class AppointmentController {
                 return Json.ok(filtered);
             }
 
-            // 4. Không có gì -> trả về tất cả (backward compatible)
-            return Json.ok(appointmentRepository.findAll());
+            // 5. Có ?limit= / ?cursor= -> một trang keyset {items, next}
+            Optional<PageRequest> page = ExtractHelper.extractPage(q);
+            if (page.isPresent()) {
+                try {
+                    return Json.ok(appointmentRepository.findPage(page.get()));
+                } catch (IllegalArgumentException e) {
+                    return ValidationUtils.error(400, "INVALID_CURSOR", e.getMessage());
+                }
+            }
+
+            // 6. Không có gì -> trả về tất cả (backward compatible), stream từ cursor
+            return Json.okStream(out -> appointmentRepository.streamAll(out::write));
         };
     }
 
@@ -283,10 +274,6 @@ public class AppointmentController {
      */
     public Function<HttpRequest, HttpResponse> getAvailableSlots() {
         return (HttpRequest req) -> {
-            // Rate limiting
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-            if (rateLimitError != null) return rateLimitError;
-            
             // JWT validation
             HttpResponse jwtError = ValidationUtils.validateJWT(req);
             if (jwtError != null) return jwtError;
@@ -363,16 +350,30 @@ public class AppointmentController {
                             "Appointment not found".getBytes(StandardCharsets.UTF_8));
                 }
 
-                // - Nếu startTime/endTime thay đổi, check slot mới có trống không
+                // Nếu startTime/endTime thay đổi, check slot mới có trống không
+                Appointment previous = existing.get();
+                if (appointment.getStatus() != AppointmentStatus.CANCELLED
+                        && appointment.getStartTime() != null && appointment.getEndTime() != null
+                        && (!appointment.getStartTime().equals(previous.getStartTime())
+                            || !appointment.getEndTime().equals(previous.getEndTime())
+                            || appointment.getDoctorId() != previous.getDoctorId())
+                        && scheduleService.hasConflictingAppointment(appointment.getDoctorId(),
+                            appointment.getStartTime(), appointment.getEndTime(), appointment.getId())) {
+                    return ValidationUtils.error(409, "SLOT_CONFLICT",
+                            "This time slot is already booked by another appointment");
+                }
+
                 Appointment updated = appointmentRepository.save(appointment);
+                scheduleService.onAppointmentSaved(previous, updated);
                 return Json.ok(updated);
 
             } catch (IOException e) {
-                System.err.println("Error updating appointment: " + e.getMessage());
-                e.printStackTrace();
+                LOG.error("Error updating appointment: " + e.getMessage(), e);
                 return HttpResponse.of(HttpConstants.STATUS_BAD_REQUEST,
                         HttpConstants.CONTENT_TYPE_TEXT_PLAIN_UTF8,
                         HttpConstants.REASON_BAD_REQUEST.getBytes(StandardCharsets.UTF_8));
+            } catch (Exception e) {
+                return DatabaseErrorHandler.handleDatabaseException(e);
             }
         };
     }
@@ -399,6 +400,7 @@ public class AppointmentController {
             Appointment appointment = existing.get();
             appointment.setStatus(AppointmentStatus.CANCELLED);
             appointmentRepository.save(appointment);
+            scheduleService.onAppointmentSaved(null, appointment);
 
             return HttpResponse.of(200, "text/plain; charset=utf-8",
                     "Appointment cancelled".getBytes(StandardCharsets.UTF_8));
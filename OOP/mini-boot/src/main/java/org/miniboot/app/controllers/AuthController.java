@@ -58,12 +58,6 @@ public class AuthController {
      */
     private static HttpResponse login(HttpRequest request) {
         try {
-
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(request);
-            if (rateLimitError != null) {
-                return rateLimitError;
-            }
-
             // Parse JSON body
             String body = request.bodyText();
 
@@ -160,12 +154,6 @@ public class AuthController {
      */
     private static HttpResponse changePassword(HttpRequest request) {
         try {
-            // 1. Kiểm tra rate limit
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(request);
-            if (rateLimitError != null) {
-                return rateLimitError;
-            }
-
             // 2. Validate JWT token
             String authHeader = request.header(HttpConstants.HEADER_AUTHORIZATION);
             String username;
@@ -254,12 +242,6 @@ public class AuthController {
      */
     private static HttpResponse forgotPassword(HttpRequest request) {
         try {
-            // 1. Kiểm tra rate limit
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(request);
-            if (rateLimitError != null) {
-                return rateLimitError;
-            }
-
             // 2. Parse request body
             String body = request.bodyText();
             String email = extractJsonField(body, "email");
@@ -335,12 +317,6 @@ public class AuthController {
      */
     private static HttpResponse signUp(HttpRequest request) {
         try {
-            // 1. Kiểm tra rate limit
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(request);
-            if (rateLimitError != null) {
-                return rateLimitError;
-            }
-
             // 2. Parse request body
             String body = request.bodyText();
             String username = extractJsonField(body, "username");
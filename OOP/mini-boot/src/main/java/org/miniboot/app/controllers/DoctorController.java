@@ -1,25 +1,24 @@
 package org.miniboot.app.controllers;
 
+import org.miniboot.app.AppConfig;
 import org.miniboot.app.config.HttpConstants;
 import org.miniboot.app.config.ErrorMessages;
-import org.miniboot.app.domain.models.Appointment;
+import org.miniboot.app.domain.models.AppointmentType;
 import org.miniboot.app.domain.models.Doctor;
-import org.miniboot.app.domain.models.DoctorSchedule;
 import org.miniboot.app.domain.models.TimeSlot;
-import org.miniboot.app.domain.repo.AppointmentRepository;
 import org.miniboot.app.domain.repo.DoctorRepository;
-import org.miniboot.app.domain.repo.DoctorScheduleRepository;
+import org.miniboot.app.domain.service.ScheduleService;
 import org.miniboot.app.http.HttpRequest;
 import org.miniboot.app.http.HttpResponse;
 import org.miniboot.app.router.Router;
 import org.miniboot.app.util.ExtractHelper;
 import org.miniboot.app.util.Json;
+import org.miniboot.app.util.errorvalidation.DatabaseErrorHandler;
 
 import java.nio.charset.StandardCharsets;
-import java.sql.SQLException;
-import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -27,22 +26,24 @@ import java.util.Optional;
 import java.util.function.Function;
 
 public class DoctorController {
+    private static final int DEFAULT_LIMIT = 10;
+    private static final int MAX_LIMIT = 500;
+    private static final int MIN_DURATION_MINUTES = 5;
+    private static final int MAX_DURATION_MINUTES = 8 * 60;
+
     private final DoctorRepository doctorRepository;
-    private final AppointmentRepository appointmentRepository;
-    private final DoctorScheduleRepository scheduleRepository;
+    private final ScheduleService scheduleService;
 
-    public DoctorController(DoctorRepository doctorRepository, 
-                           AppointmentRepository appointmentRepository,
-                           DoctorScheduleRepository scheduleRepository) {
-        this.appointmentRepository = appointmentRepository;
+    public DoctorController(DoctorRepository doctorRepository, ScheduleService scheduleService) {
         this.doctorRepository = doctorRepository;
-        this.scheduleRepository = scheduleRepository;
+        this.scheduleService = scheduleService;
     }
 
     public static void mount(Router router, DoctorController dc) {
         router.get("/doctors", dc.getDoctors());
         router.post("/doctors", dc.createDoctor());
         router.get("/doctors/available-slots", dc.getAvailableSlots());
+        router.get("/doctors/availability", dc.searchAvailability());
     }
 
     //POST /doctors
@@ -93,13 +94,20 @@ public class DoctorController {
             }
 
             int doctorId = doctorIdOpt.get();
-            String date = dateOpt.get();
+            LocalDate date;
+            try {
+                date = LocalDate.parse(dateOpt.get());
+            } catch (DateTimeParseException e) {
+                return HttpResponse.of(HttpConstants.STATUS_BAD_REQUEST,
+                        HttpConstants.CONTENT_TYPE_TEXT_PLAIN_UTF8,
+                        "Invalid date format. Expected: YYYY-MM-DD".getBytes(StandardCharsets.UTF_8));
+            }
 
-            // Tính toán slot trống
-            List<TimeSlot> availableSlots = null;
+            // Tính toán slot trống: KHÔNG lưu vào DB, lịch bận lấy từ chỉ mục trong ScheduleService
+            List<TimeSlot> availableSlots;
             try {
-                availableSlots = calculateAvailableSlots(doctorId, date);
-            } catch (SQLException e) {
+                availableSlots = scheduleService.getAvailableSlots(doctorId, date);
+            } catch (Exception e) {
                 throw new RuntimeException(e);
             }
 
@@ -108,91 +116,113 @@ public class DoctorController {
     }
 
     /**
-     * Tính toán slot trống cho bác sĩ trong ngày
-     * KHÔNG lưu vào DB, chỉ tính toán runtime
-     * Sử dụng lịch làm việc thực tế từ doctor_schedules
+     * GET /doctors/availability?from=YYYY-MM-DD[&to=YYYY-MM-DD][&doctorIds=1,2,3][&type=visit][&duration=30]
+     *                          [&mode=first|matrix][&limit=10]
+     * Tìm lịch trống nhiều ngày / nhiều bác sĩ trong một request (thay cho gọi /doctors/available-slots
+     * cho từng bác sĩ từng ngày)
+     * - mode=first (mặc định): limit slot trống sớm nhất, sắp theo (ngày, giờ, bác sĩ)
+     * - mode=matrix: toàn bộ TimeSlot của mỗi (bác sĩ, ngày)
+     * - duration mặc định theo type (ScheduleService.defaultDurationMinutes)
      */
-    private List<TimeSlot> calculateAvailableSlots(int doctorId, String date) throws SQLException {
-        List<TimeSlot> slots = new ArrayList<>();
-
-        // 1. Parse ngày
-        LocalDate localDate = LocalDate.parse(date);
-        DayOfWeek dayOfWeek = localDate.getDayOfWeek();
-        
-        System.out.println("🔍 Calculating available slots:");
-        System.out.println("   - Doctor ID: " + doctorId);
-        System.out.println("   - Date: " + date + " (" + dayOfWeek + ")");
-
-        // 2. Lấy lịch làm việc của bác sĩ trong ngày này
-        List<DoctorSchedule> workingSchedules = scheduleRepository.findByDoctorIdAndDay(doctorId, dayOfWeek);
-        
-        if (workingSchedules.isEmpty()) {
-            System.out.println("⚠️ Doctor has NO working schedule on " + dayOfWeek);
-            return slots; // Không làm việc ngày này -> trả về list rỗng
-        }
-        
-        System.out.println("✅ Found " + workingSchedules.size() + " working schedules for this day:");
-        for (DoctorSchedule ws : workingSchedules) {
-            System.out.println("   - " + ws.getStartTime() + " to " + ws.getEndTime() + " (active: " + ws.isActive() + ")");
-        }
+    public Function<HttpRequest, HttpResponse> searchAvailability() {
+        return (HttpRequest req) -> {
+            Map<String, List<String>> q = req.query;
 
-        // 3. Lấy danh sách appointment đã book
-        List<Appointment> bookedAppointments = appointmentRepository.findByDoctorIdAndDate(doctorId, date);
-        System.out.println("📅 Found " + bookedAppointments.size() + " booked appointments");
-
-        // 4. Sinh slots cho MỖI khung giờ làm việc
-        int slotDuration = 30; // 30 phút mỗi slot
-        
-        for (DoctorSchedule schedule : workingSchedules) {
-            if (!schedule.isActive()) {
-                System.out.println("⏭️ Skipping inactive schedule: " + schedule.getStartTime() + "-" + schedule.getEndTime());
-                continue;
+            Optional<String> fromOpt = ExtractHelper.extractFirst(q, "from");
+            if (fromOpt.isEmpty()) {
+                return badRequest("Missing from parameter");
+            }
+            LocalDate from;
+            LocalDate to;
+            try {
+                from = LocalDate.parse(fromOpt.get());
+                to = LocalDate.parse(ExtractHelper.extractFirst(q, "to").orElse(fromOpt.get()));
+            } catch (DateTimeParseException e) {
+                return badRequest("Invalid date format. Expected: YYYY-MM-DD");
+            }
+            if (to.isBefore(from)) {
+                return badRequest("to must not be before from");
+            }
+            if (ChronoUnit.DAYS.between(from, to) >= AppConfig.AVAILABILITY_SEARCH_MAX_DAYS) {
+                return badRequest("Date range too large (max " + AppConfig.AVAILABILITY_SEARCH_MAX_DAYS + " days)");
             }
-            
-            LocalTime workStart = schedule.getStartTime();
-            LocalTime workEnd = schedule.getEndTime();
-            
-            System.out.println("🕒 Generating slots from " + workStart + " to " + workEnd);
-            
-            LocalTime currentTime = workStart;
-            while (currentTime.isBefore(workEnd)) {
-                LocalTime slotEnd = currentTime.plusMinutes(slotDuration);
-                
-                // Đảm bảo slot không vượt quá giờ làm việc
-                if (slotEnd.isAfter(workEnd)) {
-                    break;
-                }
-
-                boolean isAvailable = isSlotFree(currentTime, slotEnd, bookedAppointments);
 
-                TimeSlot slot = new TimeSlot(currentTime, slotEnd, slotDuration, isAvailable);
-                slots.add(slot);
+            List<Integer> doctorIds = null;
+            Optional<String> idsOpt = ExtractHelper.extractFirst(q, "doctorIds");
+            if (idsOpt.isPresent() && !idsOpt.get().isBlank()) {
+                doctorIds = new ArrayList<>();
+                try {
+                    for (String id : idsOpt.get().split(",")) {
+                        if (!id.isBlank()) {
+                            doctorIds.add(Integer.parseInt(id.trim()));
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    return badRequest(ErrorMessages.ERROR_INVALID_DOCTOR_ID);
+                }
+            }
 
-                currentTime = slotEnd;
+            AppointmentType type;
+            try {
+                type = ExtractHelper.extractFirst(q, "type").map(AppointmentType::fromString).orElse(null);
+            } catch (IllegalArgumentException e) {
+                return badRequest("Invalid type");
+            }
+            int duration;
+            try {
+                Integer requested = positiveInt(q, "duration");
+                duration = requested != null ? requested : ScheduleService.defaultDurationMinutes(type);
+            } catch (NumberFormatException e) {
+                return badRequest("duration must be a positive integer");
+            }
+            if (duration < MIN_DURATION_MINUTES || duration > MAX_DURATION_MINUTES) {
+                return badRequest("duration must be between " + MIN_DURATION_MINUTES + " and "
+                        + MAX_DURATION_MINUTES + " minutes");
             }
-        }
-        
-        System.out.println("✅ Total " + slots.size() + " slots generated");
-        long availableCount = slots.stream().filter(TimeSlot::isAvailable).count();
-        System.out.println("   - Available: " + availableCount);
-        System.out.println("   - Booked: " + (slots.size() - availableCount));
 
-        return slots;
+            String mode = ExtractHelper.extractFirst(q, "mode").orElse("first");
+            try {
+                if (mode.equals("matrix")) {
+                    return Json.ok(scheduleService.getAvailabilityMatrix(doctorIds, from, to, duration));
+                }
+                if (!mode.equals("first")) {
+                    return badRequest("mode must be first or matrix");
+                }
+                int limit;
+                try {
+                    Integer requested = positiveInt(q, "limit");
+                    limit = Math.min(MAX_LIMIT, requested != null ? requested : DEFAULT_LIMIT);
+                } catch (NumberFormatException e) {
+                    return badRequest("limit must be a positive integer");
+                }
+                return Json.ok(scheduleService.findFirstAvailable(doctorIds, from, to, duration, limit));
+            } catch (Exception e) {
+                return DatabaseErrorHandler.handleDatabaseException(e);
+            }
+        };
     }
 
     /**
-     * Kiểm tra slot có trống không (không trùng với appointment nào)
+     * Tham số số nguyên dương không bắt buộc
+     *
+     * @return null nếu không có tham số
+     * @throws NumberFormatException nếu có nhưng không phải số nguyên dương
      */
-    private boolean isSlotFree(LocalTime slotStart, LocalTime slotEnd, List<Appointment> appointments) {
-        for (Appointment appt : appointments) {
-            LocalTime apptStart = appt.getStartTime().toLocalTime();
-            LocalTime apptEnd = appt.getEndTime().toLocalTime();
-
-            // Check overlap
-            if (slotStart.isBefore(apptEnd) && apptStart.isBefore(slotEnd)) {
-                return false;
-            }
+    private static Integer positiveInt(Map<String, List<String>> q, String key) {
+        Optional<String> raw = ExtractHelper.extractFirst(q, key);
+        if (raw.isEmpty()) {
+            return null;
+        }
+        int value = Integer.parseInt(raw.get().trim());
+        if (value <= 0) {
+            throw new NumberFormatException(key + " must be positive");
         }
-        return true;
+        return value;
+    }
+
+    private static HttpResponse badRequest(String message) {
+        return HttpResponse.of(HttpConstants.STATUS_BAD_REQUEST,
+                HttpConstants.CONTENT_TYPE_TEXT_PLAIN_UTF8,
+                message.getBytes(StandardCharsets.UTF_8));
     }
 }
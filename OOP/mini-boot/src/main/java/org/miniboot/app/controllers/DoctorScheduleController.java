@@ -11,7 +11,6 @@ import org.miniboot.app.util.Json;
 import java.util.Arrays;
 import org.miniboot.app.util.errorvalidation.ValidationUtils;
 import org.miniboot.app.util.errorvalidation.DatabaseErrorHandler;
-import org.miniboot.app.util.errorvalidation.RateLimiter;
 
 import java.nio.charset.StandardCharsets;
 import java.time.DayOfWeek;
@@ -62,10 +61,6 @@ public class DoctorScheduleController {
      */
     private Function<HttpRequest, HttpResponse> getSchedules() {
         return (HttpRequest req) -> {
-            // Rate limiting
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-            if (rateLimitError != null) return rateLimitError;
-            
             // JWT validation - ai cũng có thể xem lịch làm việc bác sĩ
             HttpResponse jwtError = ValidationUtils.validateJWT(req);
             if (jwtError != null) return jwtError;
@@ -115,10 +110,6 @@ public class DoctorScheduleController {
      */
     private Function<HttpRequest, HttpResponse> createSchedule() {
         return (HttpRequest req) -> {
-            // Rate limiting
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-            if (rateLimitError != null) return rateLimitError;
-            
             // Standard validations (Content-Type, JWT, Role = ADMIN)
             HttpResponse validationError = ValidationUtils.validateStandardRequest(req, "application/json", "ADMIN");
             if (validationError != null) return validationError;
@@ -176,10 +167,6 @@ public class DoctorScheduleController {
      */
     private Function<HttpRequest, HttpResponse> updateSchedule() {
         return (HttpRequest req) -> {
-            // Rate limiting
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-            if (rateLimitError != null) return rateLimitError;
-            
             // Standard validations
             HttpResponse validationError = ValidationUtils.validateStandardRequest(req, "application/json", "ADMIN");
             if (validationError != null) return validationError;
@@ -255,10 +242,6 @@ public class DoctorScheduleController {
      */
     private Function<HttpRequest, HttpResponse> deleteSchedule() {
         return (HttpRequest req) -> {
-            // Rate limiting
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-            if (rateLimitError != null) return rateLimitError;
-            
             // JWT và Role validation
             HttpResponse jwtError = ValidationUtils.validateJWT(req);
             if (jwtError != null) return jwtError;
@@ -306,10 +289,6 @@ public class DoctorScheduleController {
      */
     private Function<HttpRequest, HttpResponse> batchDeleteByDoctor() {
         return (HttpRequest req) -> {
-            // Rate limiting
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-            if (rateLimitError != null) return rateLimitError;
-            
             // JWT và Role validation (chỉ ADMIN)
             HttpResponse jwtError = ValidationUtils.validateJWT(req);
             if (jwtError != null) return jwtError;
@@ -351,10 +330,6 @@ public class DoctorScheduleController {
      */
     private Function<HttpRequest, HttpResponse> batchCreateSchedules() {
         return (HttpRequest req) -> {
-            // Rate limiting
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-            if (rateLimitError != null) return rateLimitError;
-            
             // Standard validations
             HttpResponse validationError = ValidationUtils.validateStandardRequest(req, "application/json", "ADMIN");
             if (validationError != null) return validationError;
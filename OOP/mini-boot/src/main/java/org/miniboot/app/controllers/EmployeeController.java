@@ -8,6 +8,7 @@ import java.util.function.Function;
 import org.miniboot.app.auth.PasswordService;
 import org.miniboot.app.domain.models.Employee;
 import org.miniboot.app.domain.repo.Employee.PostgreSQLEmployeeRepository;
+import org.miniboot.app.domain.repo.PageRequest;
 import org.miniboot.app.http.HttpRequest;
 import org.miniboot.app.http.HttpResponse;
 import org.miniboot.app.router.Router;
@@ -15,8 +16,9 @@ import org.miniboot.app.util.ExtractHelper;
 import org.miniboot.app.util.Json;
 import org.miniboot.app.util.errorvalidation.ValidationUtils;
 import org.miniboot.app.util.errorvalidation.DatabaseErrorHandler;
-import org.miniboot.app.util.errorvalidation.RateLimiter;
+import org.miniboot.app.util.Logger;
 public class EmployeeController {
+    private static final Logger LOG = Logger.get(EmployeeController.class);
      private final PostgreSQLEmployeeRepository repository;
 
      public EmployeeController(PostgreSQLEmployeeRepository repository) {
@@ -39,11 +41,6 @@ public class EmployeeController {
 
      private Function<HttpRequest, HttpResponse> getAllEmployees() {
           return (HttpRequest req) -> {
-               // Step 0: Rate limiting
-               HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-               if (rateLimitError != null)
-                    return rateLimitError;
-
                // Step 1: JWT validation
                HttpResponse jwtError = ValidationUtils.validateJWT(req);
                if (jwtError != null)
@@ -68,19 +65,30 @@ public class EmployeeController {
                          }
                     }
 
+                    // Có ?limit= / ?cursor= -> một trang keyset {items, next}
+                    Optional<PageRequest> page = ExtractHelper.extractPage(q);
+                    if (page.isPresent()) {
+                         try {
+                              return Json.ok(repository.findPage(page.get()));
+                         } catch (IllegalArgumentException e) {
+                              return ValidationUtils.error(400, "INVALID_CURSOR", e.getMessage());
+                         } catch (Exception e) {
+                              return DatabaseErrorHandler.handleDatabaseException(e);
+                         }
+                    }
+
                     // Không có ?id thì lấy tất cả
-                    System.out.println("🔄 Fetching all employees...");
+                    LOG.debug("🔄 Fetching all employees...");
                     try {
                          List<Employee> employees = repository.findAll();
-                         System.out.println("✅ Found " + employees.size() + " employees");
+                         LOG.debug("✅ Found " + employees.size() + " employees");
                          return Json.ok(employees);
                     } catch (Exception e) {
                          return DatabaseErrorHandler.handleDatabaseException(e);
                     }
 
                } catch (Exception e) {
-                    System.err.println("❌ ERROR in getAllEmployees(): " + e.getMessage());
-                    e.printStackTrace();
+                    LOG.error("❌ ERROR in getAllEmployees(): " + e.getMessage(), e);
                     return ValidationUtils.error(500, "INTERNAL_SERVER_ERROR",
                               "Error fetching employees: " + e.getMessage());
                }
@@ -89,11 +97,6 @@ public class EmployeeController {
 
      private Function<HttpRequest, HttpResponse> createEmployee() {
           return (HttpRequest req) -> {
-               // Step 0: Rate limiting
-               HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-               if (rateLimitError != null)
-                    return rateLimitError;
-
                // Step 1-2: Standard validations
                HttpResponse contentTypeError = ValidationUtils.validateContentType(req, "application/json");
                if (contentTypeError != null)
@@ -217,12 +220,11 @@ public class EmployeeController {
                          return DatabaseErrorHandler.handleDatabaseException(e);
                     }
 
-                    System.out.println("✅ Created employee ID: " + saved.getId());
+                    LOG.debug("✅ Created employee ID: " + saved.getId());
                     return Json.ok(saved);
 
                } catch (Exception e) {
-                    System.err.println("❌ ERROR in createEmployee(): " + e.getMessage());
-                    e.printStackTrace();
+                    LOG.error("❌ ERROR in createEmployee(): " + e.getMessage(), e);
                     return ValidationUtils.error(500, "INTERNAL_SERVER_ERROR",
                               "Error creating employee: " + e.getMessage());
                }
@@ -231,11 +233,6 @@ public class EmployeeController {
 
      private Function<HttpRequest, HttpResponse> updateEmployee() {
           return (HttpRequest req) -> {
-               // Step 0: Rate limiting (429)
-               HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-               if (rateLimitError != null)
-                    return rateLimitError;
-
                // Step 1-2: Standard validations
                HttpResponse contentTypeError = ValidationUtils.validateContentType(req, "application/json");
                if (contentTypeError != null)
@@ -251,7 +248,7 @@ public class EmployeeController {
                // if (roleError != null) return roleError;
 
                try {
-                    System.out.println("🔄 Updating employee (read ID from body)...");
+                    LOG.debug("🔄 Updating employee (read ID from body)...");
                     // Parse JSON body -> Map
                     String bodyText = req.bodyText();
                     Map<String, Object> data;
@@ -401,11 +398,11 @@ public class EmployeeController {
                          return DatabaseErrorHandler.handleDatabaseException(e);
                     }
 
-                    System.out.println("✅ Updated employee ID: " + updated.getId());
+                    LOG.debug("✅ Updated employee ID: " + updated.getId());
                     return Json.ok(updated);
 
                } catch (Exception e) {
-                    System.err.println("❌ ERROR in updateEmployee(): " + e.getMessage());
+                    LOG.error("❌ ERROR in updateEmployee(): " + e.getMessage(), e);
                     return ValidationUtils.error(500, "INTERNAL_SERVER_ERROR",
                               "Error updating employee: " + e.getMessage());
                }
@@ -427,7 +424,7 @@ public class EmployeeController {
                     boolean deleted = repository.deleteById(id);
 
                     if (deleted) {
-                         System.out.println("✅ Deleted employee ID: " + id);
+                         LOG.debug("✅ Deleted employee ID: " + id);
                          return Json.ok(Map.of("message", "Employee deleted successfully"));
                     } else {
                          return Json.error(404, "Employee not found with ID: " + id);
@@ -436,7 +433,7 @@ public class EmployeeController {
                } catch (NumberFormatException e) {
                     return Json.error(400, "Invalid employee ID format");
                } catch (Exception e) {
-                    System.err.println("❌ ERROR in deleteEmployee(): " + e.getMessage());
+                    LOG.error("❌ ERROR in deleteEmployee(): " + e.getMessage(), e);
                     return Json.error(500, "Error deleting employee: " + e.getMessage());
                }
           };
@@ -462,11 +459,11 @@ public class EmployeeController {
                          return Json.ok(List.of());
                     }
 
-                    System.out.println("🔍 Search '" + keyword + "' found " + employees.size() + " results");
+                    LOG.debug("🔍 Search '" + keyword + "' found " + employees.size() + " results");
                     return Json.ok(employees);
 
                } catch (Exception e) {
-                    System.err.println("❌ ERROR in searchEmployees(): " + e.getMessage());
+                    LOG.error("❌ ERROR in searchEmployees(): " + e.getMessage(), e);
                     return Json.error(500, "Error searching employees: " + e.getMessage());
                }
           };
@@ -483,11 +480,11 @@ public class EmployeeController {
                     }
 
                     List<Employee> list = repository.findByRole(role);
-                    System.out.println("👥 Found " + list.size() + " " + role + "s");
+                    LOG.debug("👥 Found " + list.size() + " " + role + "s");
                     return Json.ok(list);
 
                } catch (Exception e) {
-                    System.err.println("❌ Error finding by role: " + e.getMessage());
+                    LOG.error("❌ Error finding by role: " + e.getMessage(), e);
                     return Json.error(500, "Error finding by role: " + e.getMessage());
                }
           };
@@ -509,7 +506,7 @@ public class EmployeeController {
                          return Json.error(404, "User not found");
                     }
                } catch (Exception e) {
-                    System.err.println("❌ ERROR in findPasswordByUsernameOrEmail(): " + e.getMessage());
+                    LOG.error("❌ ERROR in findPasswordByUsernameOrEmail(): " + e.getMessage(), e);
                     return Json.error(500, "Error: " + e.getMessage());
                }
           };
@@ -557,14 +554,14 @@ public class EmployeeController {
                     boolean changed = repository.changePassword(usernameOrEmail, newPasswordHash);
 
                     if (changed) {
-                         System.out.println("✅ Password changed for: " + usernameOrEmail);
+                         LOG.debug("✅ Password changed for: " + usernameOrEmail);
                          return Json.ok(Map.of("message", "Đổi mật khẩu thành công"));
                     } else {
                          return Json.error(500, "Không thể đổi mật khẩu");
                     }
 
                } catch (Exception e) {
-                    System.err.println("❌ ERROR in changePassword(): " + e.getMessage());
+                    LOG.error("❌ ERROR in changePassword(): " + e.getMessage(), e);
                     return Json.error(500, "Error: " + e.getMessage());
                }
           };
@@ -8,6 +8,7 @@ import java.util.function.Function;
 
 import org.miniboot.app.domain.models.Inventory.Product;
 import org.miniboot.app.domain.repo.Inventory.ProductRepository;
+import org.miniboot.app.domain.repo.PageRequest;
 import org.miniboot.app.http.HttpRequest;
 import org.miniboot.app.http.HttpResponse;
 import org.miniboot.app.router.Router;
@@ -15,10 +16,11 @@ import org.miniboot.app.util.ExtractHelper;
 import org.miniboot.app.util.Json;
 import org.miniboot.app.util.errorvalidation.DatabaseErrorHandler;
 import org.miniboot.app.util.errorvalidation.ProductValidator;
-import org.miniboot.app.util.errorvalidation.RateLimiter;
 import org.miniboot.app.util.errorvalidation.ValidationUtils;
+import org.miniboot.app.util.Logger;
 
 public class InventoryController {
+    private static final Logger LOG = Logger.get(InventoryController.class);
      private final ProductRepository productRepo;
 
      public InventoryController(ProductRepository productRepo) {
@@ -62,20 +64,26 @@ public class InventoryController {
                                              "Product not found".getBytes(StandardCharsets.UTF_8)));
                     }
 
-                    System.out.println("🔄 Fetching all products...");
+                    Optional<PageRequest> page = ExtractHelper.extractPage(q);
+                    if (page.isPresent()) {
+                         try {
+                              return Json.ok(productRepo.findPage(page.get()));
+                         } catch (IllegalArgumentException e) {
+                              return ValidationUtils.error(400, "INVALID_CURSOR", e.getMessage());
+                         }
+                    }
+
+                    LOG.debug("🔄 Fetching all products...");
                     List<Product> products = productRepo.findAll();
-                    System.out.println("📦 Got " + products.size() + " products from repo");
+                    LOG.debug("📦 Got " + products.size() + " products from repo");
 
-                    System.out.println("🔄 Converting to JSON...");
+                    LOG.debug("🔄 Converting to JSON...");
                     HttpResponse response = Json.ok(products);
-                    System.out.println("✅ JSON conversion successful");
+                    LOG.debug("✅ JSON conversion successful");
 
                     return response;
                } catch (Exception e) {
-                    System.err.println("❌ ERROR in getProducts():");
-                    System.err.println("   Type: " + e.getClass().getName());
-                    System.err.println("   Message: " + e.getMessage());
-                    e.printStackTrace();
+                    LOG.error("❌ ERROR in getProducts(): " + e.getMessage(), e);
                     throw e;
                }
           };
@@ -108,18 +116,15 @@ public class InventoryController {
 
                     if (productOpt.isPresent()) {
                          Product product = productOpt.get();
-                         System.out.println("✅ Found product: ID=" + product.getId() + ", Name=" + product.getName());
+                         LOG.debug("✅ Found product: ID=" + product.getId() + ", Name=" + product.getName());
                          return Json.ok(product);
                     } else {
-                         System.out.println("❌ Product not found with SKU: " + sku);
+                         LOG.debug("❌ Product not found with SKU: " + sku);
                          return HttpResponse.of(404, "text/plain",
                                    "Product not found".getBytes(StandardCharsets.UTF_8));
                     }
                } catch (Exception e) {
-                    System.err.println("❌ ERROR in searchProductBySku():");
-                    System.err.println("   Type: " + e.getClass().getName());
-                    System.err.println("   Message: " + e.getMessage());
-                    e.printStackTrace();
+                    LOG.error("❌ ERROR in searchProductBySku(): " + e.getMessage(), e);
                     return HttpResponse.of(500, "text/plain",
                               ("Error: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
                }
@@ -128,10 +133,6 @@ public class InventoryController {
 
     public Function<HttpRequest, HttpResponse> createProduct() {
         return (HttpRequest req) -> {
-            // Step 0: Rate limiting check
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-            if (rateLimitError != null) return rateLimitError;
-            
             // Step 1-3: Standard validations (Content-Type, JWT, Role)
             HttpResponse validationError = ValidationUtils.validateStandardRequest(req, "application/json", "ADMIN");
             if (validationError != null) return validationError;
@@ -175,8 +176,7 @@ public class InventoryController {
                 return Json.created(saved);
 
             } catch (Exception e) {
-                System.err.println("❌ Unexpected error in createProduct: " + e.getMessage());
-                e.printStackTrace();
+                LOG.error("❌ Unexpected error in createProduct: " + e.getMessage(), e);
                 return ValidationUtils.error(500, "INTERNAL_SERVER_ERROR",
                         "An unexpected error occurred");
             }
@@ -185,10 +185,6 @@ public class InventoryController {
 
     public Function<HttpRequest, HttpResponse> updateProduct() {
         return (HttpRequest req) -> {
-            // Step 0: Rate limiting check
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-            if (rateLimitError != null) return rateLimitError;
-            
             // Step 1-3: Standard validations (Content-Type, JWT, Role)
             HttpResponse validationError = ValidationUtils.validateStandardRequest(req, "application/json", "ADMIN");
             if (validationError != null) return validationError;
@@ -223,8 +219,7 @@ public class InventoryController {
                 return Json.ok(updated);
 
             } catch (Exception e) {
-                System.err.println("❌ Unexpected error in updateProduct: " + e.getMessage());
-                e.printStackTrace();
+                LOG.error("❌ Unexpected error in updateProduct: " + e.getMessage(), e);
                 return ValidationUtils.error(500, "INTERNAL_SERVER_ERROR",
                         "An unexpected error occurred");
             }
@@ -233,10 +228,6 @@ public class InventoryController {
 
     public Function<HttpRequest, HttpResponse> deleteProduct() {
         return (HttpRequest req) -> {
-            // Step 0: Rate limiting check
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-            if (rateLimitError != null) return rateLimitError;
-            
             // Step 1-2: Validate JWT and Role
             HttpResponse authError = ValidationUtils.validateJWT(req);
             if (authError != null) return authError;
@@ -274,8 +265,7 @@ public class InventoryController {
                 }
 
             } catch (Exception e) {
-                System.err.println("❌ Unexpected error in deleteProduct: " + e.getMessage());
-                e.printStackTrace();
+                LOG.error("❌ Unexpected error in deleteProduct: " + e.getMessage(), e);
                 return ValidationUtils.error(500, "INTERNAL_SERVER_ERROR",
                         "An unexpected error occurred");
             }
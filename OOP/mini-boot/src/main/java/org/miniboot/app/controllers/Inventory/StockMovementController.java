@@ -1,21 +1,33 @@
 package org.miniboot.app.controllers.Inventory;
 
+import org.miniboot.app.Service.StockMovementSearchCriteria;
+import org.miniboot.app.domain.models.Inventory.Enum.MoveType;
+import org.miniboot.app.domain.models.Inventory.StockBalance;
 import org.miniboot.app.domain.models.Inventory.StockMovement;
+import org.miniboot.app.domain.models.Inventory.StockMovementTotals;
 import org.miniboot.app.domain.repo.Inventory.StockMovementRepository;
+import org.miniboot.app.domain.repo.PageRequest;
 import org.miniboot.app.http.HttpRequest;
 import org.miniboot.app.http.HttpResponse;
 import org.miniboot.app.router.Router;
 import org.miniboot.app.util.ExtractHelper;
 import org.miniboot.app.util.Json;
+import org.miniboot.app.util.errorvalidation.StockMovementValidator;
+import org.miniboot.app.util.errorvalidation.ValidationUtils;
+import org.miniboot.app.util.Logger;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 
 public class StockMovementController {
+    private static final Logger LOG = Logger.get(StockMovementController.class);
     private StockMovementRepository stockMoveRepo;
 
     public StockMovementController(StockMovementRepository sm) {
@@ -26,6 +38,7 @@ public class StockMovementController {
         router.get("/stock_movements", sc.getMovements());
         router.get("/stock_movements/filter", sc.filterMovements());
         router.get("/stock_movements/stats", sc.getStats());
+        router.get("/stock_movements/balance", sc.getBalance());
         router.post("/stock_movements", sc.createMovement());
         router.put("/stock_movements", sc.updateMovement());
         router.delete("/stock_movements", sc.deleteMovement());
@@ -33,10 +46,10 @@ public class StockMovementController {
     }
     
     // POST /stock_movements/batch
+    // Ghi cả lô trong một transaction; có dòng không hợp lệ -> 422 kèm lỗi từng dòng, không ghi dòng nào
     public Function<HttpRequest, HttpResponse> createMovementsBatch() {
         return (HttpRequest req) -> {
             try {
-                System.out.println("📥 POST /stock_movements/batch - Parsing list of stock movements...");
                 List<StockMovement> movements = Json.fromBytesToList(req.body, StockMovement.class);
 
                 if (movements == null || movements.isEmpty()) {
@@ -44,7 +57,23 @@ public class StockMovementController {
                             "Danh sách stock movement rỗng".getBytes(StandardCharsets.UTF_8));
                 }
 
-                System.out.println("📦 Received " + movements.size() + " stock movements.");
+                List<Map<String, Object>> errors = StockMovementValidator.validateBatch(movements);
+                if (errors.isEmpty()) {
+                    Set<Integer> productIds = new HashSet<>();
+                    for (StockMovement m : movements) {
+                        productIds.add(m.getProductId());
+                    }
+                    errors = StockMovementValidator.unknownProducts(movements,
+                            stockMoveRepo.findMissingProductIds(productIds));
+                }
+                if (!errors.isEmpty()) {
+                    Map<String, Object> body = new LinkedHashMap<>();
+                    body.put("error", "VALIDATION_FAILED");
+                    body.put("message", errors.size() + " invalid stock movement rows, nothing was saved");
+                    body.put("errors", errors);
+                    return Json.json(422, body);
+                }
+
                 List<StockMovement> savedList = stockMoveRepo.saveAll(movements);
 
                 if (savedList == null || savedList.isEmpty()) {
@@ -52,11 +81,10 @@ public class StockMovementController {
                             "Không thể lưu danh sách stock movement".getBytes(StandardCharsets.UTF_8));
                 }
 
-                System.out.println("✅ Saved " + savedList.size() + " stock movements successfully!");
                 return Json.created(savedList);
 
             } catch (Exception e) {
-                e.printStackTrace();
+                LOG.error("❌ ERROR in createMovementsBatch(): " + e.getMessage(), e);
                 return HttpResponse.of(400, "text/plain",
                         ("Lỗi xử lý danh sách stock movements: " + e.getMessage())
                                 .getBytes(StandardCharsets.UTF_8));
@@ -77,20 +105,19 @@ public class StockMovementController {
                                     "Stock movement not found".getBytes(StandardCharsets.UTF_8)));
                 }
 
-                System.out.println("🔄 Fetching all stock movements...");
-                List<StockMovement> movements = stockMoveRepo.findAll();
-                System.out.println("📦 Got " + movements.size() + " stock movements from repo");
-
-                System.out.println("🔄 Converting to JSON...");
-                HttpResponse response = Json.ok(movements);
-                System.out.println("✅ JSON conversion successful");
+                Optional<PageRequest> page = ExtractHelper.extractPage(q);
+                if (page.isPresent()) {
+                    try {
+                        return Json.ok(stockMoveRepo.findPage(page.get()));
+                    } catch (IllegalArgumentException e) {
+                        return ValidationUtils.error(400, "INVALID_CURSOR", e.getMessage());
+                    }
+                }
 
-                return response;
+                // Stream từng dòng từ ResultSet ra socket, không gom cả bảng vào List
+                return Json.okStream(out -> stockMoveRepo.streamAll(out::write));
             } catch (Exception e) {
-                System.err.println("❌ ERROR in getMovements():");
-                System.err.println("   Type: " + e.getClass().getName());
-                System.err.println("   Message: " + e.getMessage());
-                e.printStackTrace();
+                LOG.error("❌ ERROR in getMovements(): " + e.getMessage(), e);
                 throw e;
             }
         };
@@ -120,39 +147,28 @@ public class StockMovementController {
     public Function<HttpRequest, HttpResponse> updateMovement() {
         return (HttpRequest req) -> {
             try {
-                System.out.println("📥 PUT /stock_movements - Parsing request body...");
-                System.out.println("   Body size: " + req.body.length + " bytes");
-
                 StockMovement movement = Json.fromBytes(req.body, StockMovement.class);
-
-                System.out.println("✅ Movement parsed successfully:");
-                System.out.println("   ID: " + movement.getId());
-                System.out.println("   ProductID: " + movement.getProductId());
-                System.out.println("   Qty: " + movement.getQty());
-                System.out.println("   MoveType: " + movement.getMoveType());
+                LOG.debug("📥 PUT /stock_movements: id=" + movement.getId() + ", productId=" + movement.getProductId()
+                        + ", qty=" + movement.getQty() + ", moveType=" + movement.getMoveType());
 
                 if (movement.getId() <= 0) {
-                    System.err.println("❌ ERROR: Missing or invalid movement ID: " + movement.getId());
+                    LOG.warn("❌ Missing or invalid movement ID: " + movement.getId());
                     return HttpResponse.of(400, "text/plain",
                             "Missing movement ID".getBytes(StandardCharsets.UTF_8));
                 }
 
-                System.out.println("🔄 Saving stock movement to database...");
                 StockMovement updated = stockMoveRepo.save(movement);
 
                 if (updated == null) {
-                    System.err.println("❌ ERROR: stockMoveRepo.save() returned null");
+                    LOG.error("❌ stockMoveRepo.save() returned null");
                     return HttpResponse.of(500, "text/plain",
                             "Failed to update stock movement".getBytes(StandardCharsets.UTF_8));
                 }
 
-                System.out.println("✅ Stock movement updated successfully: ID=" + updated.getId());
+                LOG.debug("✅ Stock movement updated successfully: ID=" + updated.getId());
                 return Json.ok(updated);
             } catch (Exception e) {
-                System.err.println("❌ ERROR in updateMovement():");
-                System.err.println("   Type: " + e.getClass().getName());
-                System.err.println("   Message: " + e.getMessage());
-                e.printStackTrace();
+                LOG.error("❌ ERROR in updateMovement(): " + e.getMessage(), e);
                 return HttpResponse.of(400, "text/plain",
                         ("Error: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
             }
@@ -182,85 +198,125 @@ public class StockMovementController {
         };
     }
 
+    // GET /stock_movements/filter?product_id=&move_type=&from=&to=[&limit=&cursor=]
     public Function<HttpRequest, HttpResponse> filterMovements() {
         return (HttpRequest req) -> {
             Map<String, List<String>> q = req.query;
 
-            Optional<Integer> productId = ExtractHelper.extractInt(q, "product_id");
-            Optional<String> moveType = ExtractHelper.extractString(q, "move_type");
-            Optional<String> fromDate = ExtractHelper.extractString(q, "from");
-            Optional<String> toDate = ExtractHelper.extractString(q, "to");
-
-            List<StockMovement> results = stockMoveRepo.findAll();
-
-            // Filter by product_id
-            if (productId.isPresent()) {
-                final int pid = productId.get();
-                results = results.stream()
-                        .filter(m -> m.getProductId() == pid)
-                        .toList();
-            }
-
-            // Filter by move_type
-            if (moveType.isPresent()) {
-                final String mt = moveType.get().toUpperCase();
-                results = results.stream()
-                        .filter(m -> m.getMoveType() != null && m.getMoveType().equalsIgnoreCase(mt))
-                        .toList();
+            StockMovementSearchCriteria criteria;
+            try {
+                criteria = extractCriteria(q);
+            } catch (IllegalArgumentException e) {
+                return ValidationUtils.error(400, "BAD_REQUEST", e.getMessage());
             }
 
-            // Filter by date range
-            if (fromDate.isPresent() || toDate.isPresent()) {
-                results = results.stream()
-                        .filter(m -> {
-                            if (m.getMovedAt() == null)
-                                return false;
-
-                            LocalDate movDate = m.getMovedAt().toLocalDate();
-
-                            if (fromDate.isPresent()) {
-                                LocalDate from = LocalDate.parse(fromDate.get());
-                                if (movDate.isBefore(from))
-                                    return false;
-                            }
-
-                            if (toDate.isPresent()) {
-                                LocalDate to = LocalDate.parse(toDate.get());
-                                if (movDate.isAfter(to))
-                                    return false;
-                            }
-
-                            return true;
-                        })
-                        .toList();
+            // Có ?limit= / ?cursor= -> một trang keyset {items, next}
+            Optional<PageRequest> page = ExtractHelper.extractPage(q);
+            if (page.isPresent()) {
+                try {
+                    return Json.ok(stockMoveRepo.findPageByFilter(criteria, page.get()));
+                } catch (IllegalArgumentException e) {
+                    return ValidationUtils.error(400, "INVALID_CURSOR", e.getMessage());
+                }
             }
 
-            System.out.println("✅ Filtered results: " + results.size());
+            List<StockMovement> results = stockMoveRepo.findByFilter(criteria);
+            LOG.debug("✅ Filtered results: " + results.size());
             return Json.ok(results);
         };
     }
 
-    // Thêm method stats
+    // GET /stock_movements/stats - nhận cùng bộ lọc với /filter; ?by_type=true để có thêm chi tiết theo move_type
     public Function<HttpRequest, HttpResponse> getStats() {
         return (HttpRequest req) -> {
-            List<StockMovement> all = stockMoveRepo.findAll();
+            Map<String, List<String>> q = req.query;
+
+            StockMovementSearchCriteria criteria;
+            try {
+                criteria = extractCriteria(q);
+            } catch (IllegalArgumentException e) {
+                return ValidationUtils.error(400, "BAD_REQUEST", e.getMessage());
+            }
 
-            long totalIn = all.stream()
-                    .filter(StockMovement::isInMovement)
-                    .mapToInt(StockMovement::getQty)
-                    .sum();
+            Map<MoveType, StockMovementTotals> byType = stockMoveRepo.aggregate(criteria);
 
-            long totalOut = all.stream()
-                    .filter(StockMovement::isOutMovement)
-                    .mapToInt(m -> Math.abs(m.getQty()))
-                    .sum();
+            long total = 0;
+            long totalIn = 0;
+            long totalOut = 0;
+            for (StockMovementTotals t : byType.values()) {
+                total += t.getCount();
+                totalIn += t.getQtyIn();
+                totalOut += t.getQtyOut();
+            }
 
-            Map<String, Object> stats = Map.of(
-                    "total", all.size(),
-                    "in", totalIn,
-                    "out", totalOut);
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("total", total);
+            stats.put("in", totalIn);
+            stats.put("out", totalOut);
+            if (ExtractHelper.extractString(q, "by_type").map(Boolean::parseBoolean).orElse(false)) {
+                stats.put("by_type", byType);
+            }
 
             return Json.ok(stats);
         };
     }
+
+    // GET /stock_movements/balance?as_of=yyyy-MM-dd[&product_id=] - tồn kho và giá trị tồn cuối ngày as_of
+    // (không có as_of = hiện tại), tính từ checkpoint tồn kho gần nhất + movement sau đó
+    public Function<HttpRequest, HttpResponse> getBalance() {
+        return (HttpRequest req) -> {
+            Map<String, List<String>> q = req.query;
+
+            LocalDate asOf;
+            Integer productId;
+            try {
+                asOf = ExtractHelper.extractDate(q, "as_of").orElse(null);
+                productId = extractCriteria(q).getProductId();
+            } catch (IllegalArgumentException e) {
+                return ValidationUtils.error(400, "BAD_REQUEST", e.getMessage());
+            }
+
+            List<StockBalance> items = stockMoveRepo.findBalances(
+                    asOf != null ? asOf.plusDays(1).atStartOfDay() : null, productId);
+            long totalValue = 0;
+            for (StockBalance b : items) {
+                totalValue += b.getValue();
+            }
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("as_of", asOf != null ? asOf : LocalDate.now());
+            body.put("items", items);
+            body.put("total_value", totalValue);
+            return Json.ok(body);
+        };
+    }
+
+    /**
+     * Đọc product_id, move_type, from, to (yyyy-MM-dd) từ query.
+     * Giá trị sai định dạng -> IllegalArgumentException (controller trả 400)
+     */
+    private static StockMovementSearchCriteria extractCriteria(Map<String, List<String>> q) {
+        Integer productId = ExtractHelper.extractString(q, "product_id")
+                .filter(s -> !s.isBlank())
+                .map(s -> {
+                    try {
+                        return Integer.parseInt(s.trim());
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid product_id: " + s);
+                    }
+                })
+                .orElse(null);
+        MoveType moveType = ExtractHelper.extractString(q, "move_type")
+                .filter(s -> !s.isBlank())
+                .map(s -> {
+                    try {
+                        return MoveType.valueOf(s.trim().toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Invalid move_type: " + s);
+                    }
+                })
+                .orElse(null);
+        return new StockMovementSearchCriteria(productId, moveType,
+                ExtractHelper.extractDate(q, "from").orElse(null), ExtractHelper.extractDate(q, "to").orElse(null));
+    }
 }
@@ -0,0 +1,66 @@
+package org.miniboot.app.controllers;
+
+import org.miniboot.app.auth.SessionManager;
+import org.miniboot.app.config.ApiEndpoints;
+import org.miniboot.app.config.DatabaseConfig;
+import org.miniboot.app.config.HttpConstants;
+import org.miniboot.app.http.HttpRequest;
+import org.miniboot.app.http.HttpResponse;
+import org.miniboot.app.metrics.MetricsRegistry;
+import org.miniboot.app.router.Router;
+import org.miniboot.app.util.Logger;
+import org.miniboot.app.util.errorvalidation.ValidationUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MetricsController: Xuất các chỉ số vận hành của server theo định dạng Prometheus text
+ * - GET /metrics (chỉ admin): toàn bộ MetricsRegistry, gồm
+ *   + request count / latency theo route và nhóm status (Router)
+ *   + thời gian giữ connection theo repository, thời gian chờ connection (JdbcMetrics)
+ *   + hàng đợi worker (WorkerExecutors)
+ *   + connection pool, số session đang hoạt động, số log bị drop (đăng ký ở đây)
+ */
+public class MetricsController {
+
+    /**
+     * Mount các route vào Router
+     */
+    public static void mount(Router router) {
+        registerGauges(MetricsRegistry.global());
+        router.get(ApiEndpoints.METRICS, MetricsController::getMetrics, false);
+    }
+
+    private static void registerGauges(MetricsRegistry registry) {
+        registry.gauge("miniboot_db_pool_active_connections", "Connections currently borrowed from the pool",
+                () -> DatabaseConfig.getInstance().getPoolStats().active);
+        registry.gauge("miniboot_db_pool_idle_connections", "Idle connections in the pool",
+                () -> DatabaseConfig.getInstance().getPoolStats().idle);
+        registry.gauge("miniboot_db_pool_total_connections", "Total connections in the pool",
+                () -> DatabaseConfig.getInstance().getPoolStats().total);
+        registry.gauge("miniboot_db_pool_pending_threads", "Threads waiting for a connection",
+                () -> DatabaseConfig.getInstance().getPoolStats().waiting);
+        registry.gauge("miniboot_db_pool_max_connections", "Configured maximum pool size",
+                () -> DatabaseConfig.getInstance().getPoolStats().max);
+        registry.gauge("miniboot_sessions_active", "Sessions currently stored (including expired ones not yet cleaned up)",
+                () -> SessionManager.getInstance().getActiveSessionCount());
+        registry.gauge("miniboot_log_dropped_events", "Log events dropped because the buffer was full",
+                Logger::droppedCount);
+    }
+
+    /**
+     * GET /metrics
+     * Chỉ admin: route, tên repository và tải hệ thống là thông tin nội bộ
+     */
+    private static HttpResponse getMetrics(HttpRequest request) {
+        HttpResponse jwtError = ValidationUtils.validateJWT(request);
+        if (jwtError != null) return jwtError;
+        HttpResponse adminError = ValidationUtils.validateAdmin(request);
+        if (adminError != null) return adminError;
+
+        StringBuilder sb = new StringBuilder(16 * 1024);
+        MetricsRegistry.global().writePrometheus(sb);
+        return HttpResponse.of(HttpConstants.STATUS_OK, HttpConstants.CONTENT_TYPE_PROMETHEUS,
+                sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,21 +1,28 @@
 package org.miniboot.app.controllers.PatientAndPrescription;
 import com.google.gson.Gson;
 
+import org.miniboot.app.AppConfig;
 import org.miniboot.app.config.HttpConstants;
 import org.miniboot.app.Service.CustomerSearchCriteria;
 import org.miniboot.app.domain.models.CustomerAndPrescription.Customer;
+import org.miniboot.app.domain.repo.PageRequest;
 import org.miniboot.app.domain.repo.PatientAndPrescription.CustomerRecordRepository;
+import org.miniboot.app.domain.service.CustomerImportService;
 import org.miniboot.app.http.HttpRequest;
 import org.miniboot.app.http.HttpResponse;
 import org.miniboot.app.util.CustomerAndPrescriptionConfig;
+import org.miniboot.app.util.ExtractHelper;
 import org.miniboot.app.util.GsonProvider;
 import org.miniboot.app.util.Json;
+import org.miniboot.app.util.Logger;
 import org.miniboot.app.util.errorvalidation.CustomerValidator;
 import org.miniboot.app.util.errorvalidation.DatabaseErrorHandler;
-import org.miniboot.app.util.errorvalidation.RateLimiter;
 import org.miniboot.app.util.errorvalidation.ValidationUtils;
 
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
@@ -23,28 +30,38 @@ import java.util.Optional;
 import java.util.function.Function;
 
 public class CustomerRecordController {
+    private static final Logger LOG = Logger.get(CustomerRecordController.class);
+    private static final int DEFAULT_TYPEAHEAD_LIMIT = 10;
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson; charset=utf-8";
+
     private final CustomerRecordRepository customerRecordRepository;
+    private final CustomerImportService customerImportService; // null -> không mount POST /customers/import
 
 
     public CustomerRecordController(CustomerRecordRepository customerRecordRepository) {
-        this.customerRecordRepository = customerRecordRepository;
+        this(customerRecordRepository, null);
+    }
 
+    public CustomerRecordController(CustomerRecordRepository customerRecordRepository,
+                                    CustomerImportService customerImportService) {
+        this.customerRecordRepository = customerRecordRepository;
+        this.customerImportService = customerImportService;
     }
 
     public static void mount(org.miniboot.app.router.Router router, CustomerRecordController prc) {
         router.get(CustomerAndPrescriptionConfig.GET_CUSTOMER_ENDPOINT, prc.getCustomer());
+        router.get(CustomerAndPrescriptionConfig.GET_CUSTOMER_TYPEAHEAD_ENDPOINT, prc.typeahead());
         router.post(CustomerAndPrescriptionConfig.POST_CUSTOMER_ENDPOINT, prc.createCustomer());
         router.put(CustomerAndPrescriptionConfig.PUT_CUSTOMER_BY_ID_ENDPOINT, prc.updateCustomer());
         router.delete(CustomerAndPrescriptionConfig.DELETE_CUSTOMER_BY_ID_ENDPOINT, prc.deleteCustomer());
+        if (prc.customerImportService != null) {
+            router.postStreaming(CustomerAndPrescriptionConfig.POST_CUSTOMER_IMPORT_ENDPOINT, prc.importCustomers());
+        }
 
     }
 
     public Function<HttpRequest, HttpResponse> createCustomer() {
         return (HttpRequest req) -> {
-            // Step 0: Rate limiting check
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-            if (rateLimitError != null) return rateLimitError;
-            
             // Step 1-3: Standard validations (Content-Type, JWT, Role)
             HttpResponse validationError = ValidationUtils.validateStandardRequest(req, "application/json", "ADMIN");
             if (validationError != null) return validationError;
@@ -85,6 +102,51 @@ public class CustomerRecordController {
             }
         };
     }
+    /**
+     * POST /customers/import
+     * Body: text/csv (dòng đầu là header) hoặc application/x-ndjson (mỗi dòng một customer JSON),
+     * đọc dần từ connection (tối đa MAX_STREAM_BODY_BYTES, server nio: MAX_BODY_BYTES)
+     * Response: application/x-ndjson, mỗi dòng một sự kiện gửi dần trong lúc import:
+     * {"event":"rejected","line":..,"error":..}, {"event":"progress","processed":..,"imported":..,"rejected":..}
+     * sau mỗi chunk, cuối cùng {"event":"done",...,"duration_ms":..} (hoặc {"event":"error","message":..})
+     */
+    public Function<HttpRequest, HttpResponse> importCustomers() {
+        return (HttpRequest req) -> {
+            HttpResponse jwtError = ValidationUtils.validateJWT(req);
+            if (jwtError != null) return jwtError;
+            HttpResponse adminError = ValidationUtils.validateAdmin(req);
+            if (adminError != null) return adminError;
+
+            String contentType = String.valueOf(req.header("Content-Type")).toLowerCase();
+            CustomerImportService.Format format;
+            if (contentType.contains("text/csv")) {
+                format = CustomerImportService.Format.CSV;
+            } else if (contentType.contains("ndjson") || contentType.contains("jsonl")
+                    || contentType.contains("json-lines")) {
+                format = CustomerImportService.Format.JSON_LINES;
+            } else {
+                return ValidationUtils.error(415, "UNSUPPORTED_MEDIA_TYPE",
+                        "Expected Content-Type: text/csv or application/x-ndjson");
+            }
+
+            return HttpResponse.stream(200, NDJSON_CONTENT_TYPE, out -> {
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                CustomerImportService.Listener listener = (event, flush) -> {
+                    writer.write(Json.stringify(event));
+                    writer.write('\n');
+                    if (flush) writer.flush();
+                };
+                try {
+                    customerImportService.run(req.bodyStream(), format, listener);
+                } catch (SQLException e) {
+                    LOG.error("Customer import failed: " + e.getMessage(), e);
+                    listener.onEvent(Map.of("event", "error", "message", e.getMessage()), true);
+                }
+                writer.flush();
+            });
+        };
+    }
+
     public Function<HttpRequest, HttpResponse> getCustomer() {
         return (HttpRequest req) -> {
 
@@ -117,8 +179,23 @@ public class CustomerRecordController {
                 }
             }
 
-            CustomerSearchCriteria criteria = new CustomerSearchCriteria(searchKey.orElse(null), genderEnum, dateFrom.orElse(null), dateTo.orElse(null));
+            // ?limit= khi tìm kiếm: số kết quả tối đa (khớp tốt nhất trước), trong [1, PAGE_MAX_LIMIT]
+            Integer limit = extractInt(req.query, "limit")
+                    .map(n -> Math.max(1, Math.min(AppConfig.PAGE_MAX_LIMIT, n)))
+                    .orElse(null);
+            CustomerSearchCriteria criteria = new CustomerSearchCriteria(searchKey.orElse(null), genderEnum, dateFrom.orElse(null), dateTo.orElse(null), limit);
             if(criteria.isEmpty()){
+                // Có ?limit= / ?cursor= -> một trang keyset {items, next}
+                Optional<PageRequest> page = ExtractHelper.extractPage(req.query);
+                if (page.isPresent()) {
+                    try {
+                        return Json.ok(customerRecordRepository.findPage(page.get()));
+                    } catch (IllegalArgumentException e) {
+                        return ValidationUtils.error(400, "INVALID_CURSOR", e.getMessage());
+                    } catch (Exception e) {
+                        return DatabaseErrorHandler.handleDatabaseException(e);
+                    }
+                }
 
                 return Json.ok(customerRecordRepository.findAll());
             }
@@ -140,12 +217,28 @@ public class CustomerRecordController {
         };
     }
 
+    /**
+     * GET /customers/typeahead?q=...&limit=10
+     * Gợi ý customer khi gõ: tên (không dấu, từ bất kỳ) hoặc số điện thoại bắt đầu bằng q
+     */
+    public Function<HttpRequest, HttpResponse> typeahead() {
+        return (HttpRequest req) -> {
+            Optional<String> prefix = extractFirst(req.query, "q");
+            if (prefix.isEmpty()) {
+                return Json.ok(List.of());
+            }
+            int limit = extractInt(req.query, "limit").orElse(DEFAULT_TYPEAHEAD_LIMIT);
+            limit = Math.max(1, Math.min(AppConfig.PAGE_MAX_LIMIT, limit));
+            try {
+                return Json.ok(customerRecordRepository.typeahead(prefix.get(), limit));
+            } catch (Exception e) {
+                return DatabaseErrorHandler.handleDatabaseException(e);
+            }
+        };
+    }
+
     public Function<HttpRequest, HttpResponse> updateCustomer() {
         return (HttpRequest req) -> {
-            // Step 0: Rate limiting check
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-            if (rateLimitError != null) return rateLimitError;
-            
             // Step 1-3: Standard validations (Content-Type, JWT, Role)
             HttpResponse validationError = ValidationUtils.validateStandardRequest(req, "application/json", "ADMIN");
             if (validationError != null) return validationError;
@@ -192,10 +285,6 @@ public class CustomerRecordController {
     }
     public Function<HttpRequest, HttpResponse> deleteCustomer() {
         return (HttpRequest req) -> {
-            // Step 0: Rate limiting check
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-            if (rateLimitError != null) return rateLimitError;
-            
             // Step 1-3: Standard validations (Content-Type, JWT, Role)
             HttpResponse validationError = ValidationUtils.validateStandardRequest(req, "application/json", "ADMIN");
             if (validationError != null) return validationError;
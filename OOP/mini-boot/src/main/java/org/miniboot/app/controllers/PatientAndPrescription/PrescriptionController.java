@@ -3,11 +3,14 @@ package org.miniboot.app.controllers.PatientAndPrescription;
 import com.google.gson.Gson;
 import org.miniboot.app.config.HttpConstants;
 import org.miniboot.app.domain.models.CustomerAndPrescription.Prescription;
+import org.miniboot.app.domain.repo.PageRequest;
 import org.miniboot.app.domain.repo.PatientAndPrescription.PrescriptionRepository;
 import org.miniboot.app.http.HttpRequest;
 import org.miniboot.app.http.HttpResponse;
 import org.miniboot.app.router.Router;
+import org.miniboot.app.util.ExtractHelper;
 import org.miniboot.app.util.GsonProvider;
+import org.miniboot.app.util.errorvalidation.ValidationUtils;
 
 import java.nio.charset.StandardCharsets;
 import java.util.List;
@@ -105,6 +108,16 @@ public class PrescriptionController
                     }
                 }
                 else{
+                    // Có ?limit= / ?cursor= -> một trang keyset {items, next}
+                    Optional<PageRequest> page = ExtractHelper.extractPage(req.query);
+                    if (page.isPresent()) {
+                        try {
+                            String jsonResponse = gson.toJson(prescriptionRepository.findPage(page.get()));
+                            return HttpResponse.of(200, "application/json", jsonResponse.getBytes(StandardCharsets.UTF_8));
+                        } catch (IllegalArgumentException e) {
+                            return ValidationUtils.error(400, "INVALID_CURSOR", e.getMessage());
+                        }
+                    }
                     List<Prescription> prescriptions = prescriptionRepository.findAll();
                     String jsonResponse = gson.toJson(prescriptions);
                     return HttpResponse.of(200, "application/json", jsonResponse.getBytes(StandardCharsets.UTF_8));
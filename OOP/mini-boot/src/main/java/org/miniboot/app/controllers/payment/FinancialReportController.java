@@ -0,0 +1,153 @@
+package org.miniboot.app.controllers.payment;
+
+import org.miniboot.app.domain.repo.Payment.PaymentRollupRepository;
+import org.miniboot.app.domain.repo.Payment.PaymentRollupRepository.Dimension;
+import org.miniboot.app.http.HttpRequest;
+import org.miniboot.app.http.HttpResponse;
+import org.miniboot.app.router.Router;
+import org.miniboot.app.util.ExtractHelper;
+import org.miniboot.app.util.Json;
+import org.miniboot.app.util.errorvalidation.DatabaseErrorHandler;
+import org.miniboot.app.util.errorvalidation.ValidationUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Báo cáo doanh thu từ các payment đã PAID, đọc từ rollup theo ngày (PaymentRollupRepository)
+ */
+public class FinancialReportController {
+    private static final int DEFAULT_RANGE_DAYS = 30;
+
+    private final PaymentRollupRepository rollups;
+
+    public FinancialReportController(PaymentRollupRepository rollups) {
+        this.rollups = rollups;
+    }
+
+    public static void mount(Router router, FinancialReportController c) {
+        router.get("/reports/financial", c.getReport());
+        router.post("/reports/financial/rebuild", c.rebuild());
+    }
+
+    /**
+     * GET /reports/financial?from=yyyy-MM-dd&to=yyyy-MM-dd&group_by=day,payment_method
+     * - from / to mặc định: 30 ngày gần nhất
+     * - group_by: day | week | month kết hợp với payment_method, cashier (theo payment)
+     *   hoặc category, product (theo payment item); mặc định day
+     * - Trả về {from, to, group_by, rows, totals}
+     * - Requires JWT authentication
+     */
+    public Function<HttpRequest, HttpResponse> getReport() {
+        return (HttpRequest req) -> {
+            HttpResponse jwtError = ValidationUtils.validateJWT(req);
+            if (jwtError != null)
+                return jwtError;
+
+            Map<String, List<String>> q = req.query;
+            LocalDate from;
+            LocalDate to;
+            List<Dimension> groupBy = new ArrayList<>();
+            try {
+                to = ExtractHelper.extractDate(q, "to").orElse(LocalDate.now());
+                from = ExtractHelper.extractDate(q, "from").orElse(to.minusDays(DEFAULT_RANGE_DAYS - 1));
+                if (from.isAfter(to)) {
+                    return ValidationUtils.error(400, "BAD_REQUEST", "from must not be after to");
+                }
+                for (String part : ExtractHelper.extractFirst(q, "group_by").orElse("day").split(",")) {
+                    if (part.isBlank()) {
+                        continue;
+                    }
+                    Dimension d;
+                    try {
+                        d = Dimension.fromParam(part);
+                    } catch (IllegalArgumentException e) {
+                        return ValidationUtils.error(400, "BAD_REQUEST", "Unknown group_by: " + part.trim());
+                    }
+                    if (!groupBy.contains(d)) {
+                        groupBy.add(d);
+                    }
+                }
+                PaymentRollupRepository.familyOf(groupBy);
+            } catch (IllegalArgumentException e) {
+                return ValidationUtils.error(400, "BAD_REQUEST", e.getMessage());
+            }
+
+            List<Map<String, Object>> rows;
+            try {
+                rows = rollups.report(from, to, groupBy);
+            } catch (Exception e) {
+                return DatabaseErrorHandler.handleDatabaseException(e);
+            }
+
+            List<String> columns = new ArrayList<>();
+            for (Dimension d : groupBy) {
+                columns.add(d.getColumn());
+            }
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("from", from);
+            body.put("to", to);
+            body.put("group_by", columns);
+            body.put("rows", rows);
+            body.put("totals", totals(rows, columns));
+            return Json.ok(body);
+        };
+    }
+
+    /**
+     * POST /reports/financial/rebuild?from=&to=
+     * Tính lại rollup các ngày trong khoảng (mặc định: toàn bộ) sau khi sửa payment / item đã PAID
+     * Chỉ ADMIN: khóa bảng rollup trong lúc dựng lại (chặn ghi payment)
+     */
+    public Function<HttpRequest, HttpResponse> rebuild() {
+        return (HttpRequest req) -> {
+            HttpResponse jwtError = ValidationUtils.validateJWT(req);
+            if (jwtError != null)
+                return jwtError;
+            HttpResponse adminError = ValidationUtils.validateAdmin(req);
+            if (adminError != null)
+                return adminError;
+
+            LocalDate from;
+            LocalDate to;
+            try {
+                from = ExtractHelper.extractDate(req.query, "from").orElse(null);
+                to = ExtractHelper.extractDate(req.query, "to").orElse(null);
+            } catch (IllegalArgumentException e) {
+                return ValidationUtils.error(400, "BAD_REQUEST", e.getMessage());
+            }
+            if (!rollups.isAvailable()) {
+                return ValidationUtils.error(503, "SERVICE_UNAVAILABLE", "Payment rollups are not available");
+            }
+
+            try {
+                int rows = rollups.rebuild(from, to);
+                return Json.ok(Map.of("rows", rows));
+            } catch (Exception e) {
+                return DatabaseErrorHandler.handleDatabaseException(e);
+            }
+        };
+    }
+
+    /** Cộng các cột chỉ số (bỏ qua cột chiều nhóm và tên sản phẩm) */
+    private static Map<String, Long> totals(List<Map<String, Object>> rows, List<String> columns) {
+        Set<String> skip = new HashSet<>(columns);
+        skip.add("product_name");
+        Map<String, Long> totals = new LinkedHashMap<>();
+        for (Map<String, Object> row : rows) {
+            for (Map.Entry<String, Object> e : row.entrySet()) {
+                if (!skip.contains(e.getKey()) && e.getValue() instanceof Number n) {
+                    totals.merge(e.getKey(), n.longValue(), Long::sum);
+                }
+            }
+        }
+        return totals;
+    }
+}
@@ -4,6 +4,7 @@ import org.miniboot.app.AppConfig;
 import org.miniboot.app.domain.models.Payment.Payment;
 import org.miniboot.app.domain.models.Payment.PaymentStatus;
 import org.miniboot.app.domain.models.Payment.PaymentWithStatus;
+import org.miniboot.app.domain.repo.PageRequest;
 import org.miniboot.app.domain.repo.Payment.PaymentRepository;
 import org.miniboot.app.domain.repo.Payment.PaymentStatusLogRepository;
 import org.miniboot.app.http.HttpRequest;
@@ -13,7 +14,7 @@ import org.miniboot.app.util.ExtractHelper;
 import org.miniboot.app.util.Json;
 import org.miniboot.app.util.errorvalidation.ValidationUtils;
 import org.miniboot.app.util.errorvalidation.DatabaseErrorHandler;
-import org.miniboot.app.util.errorvalidation.RateLimiter;
+import org.miniboot.app.util.Logger;
 
 import java.nio.charset.StandardCharsets;
 import java.util.List;
@@ -23,6 +24,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 public class PaymentController {
+    private static final Logger LOG = Logger.get(PaymentController.class);
     private final PaymentRepository paymentRepository;
     private final PaymentStatusLogRepository statusLogRepository;
 
@@ -67,15 +69,11 @@ public class PaymentController {
      * - Không query -> trả tất cả
      * - ?id= -> trả theo id (404 nếu không có)
      * - ?code= -> trả theo mã code (404 nếu không có)
+     * - ?limit= / ?cursor= -> trả một trang {items, next}, mới nhất trước
      * - Requires JWT authentication
      */
     public Function<HttpRequest, HttpResponse> getPayments() {
         return (HttpRequest req) -> {
-            // Step 0: Rate limiting check
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-            if (rateLimitError != null)
-                return rateLimitError;
-
             // Step 1: Validate JWT (no Content-Type check for GET)
             HttpResponse jwtError = ValidationUtils.validateJWT(req);
             if (jwtError != null)
@@ -106,21 +104,9 @@ public class PaymentController {
                 Optional<String> codeOpt = ExtractHelper.extractFirst(q, "code");
                 if (codeOpt.isPresent()) {
                     String requestedCode = codeOpt.get();
-                    Optional<Payment> payment = Optional.empty();
-
+                    Optional<Payment> payment;
                     try {
-                        var method = paymentRepository.getClass().getMethod("getPaymentByCode", String.class);
-                        @SuppressWarnings("unchecked")
-                        Optional<Payment> found = (Optional<Payment>) method.invoke(paymentRepository, requestedCode);
-                        payment = found;
-                    } catch (NoSuchMethodException ignore) {
-                        try {
-                            payment = paymentRepository.getPayments().stream()
-                                    .filter(p -> requestedCode.equals(p.getCode()))
-                                    .findFirst();
-                        } catch (Exception e) {
-                            return DatabaseErrorHandler.handleDatabaseException(e);
-                        }
+                        payment = paymentRepository.findByCode(requestedCode);
                     } catch (Exception e) {
                         return DatabaseErrorHandler.handleDatabaseException(e);
                     }
@@ -132,11 +118,23 @@ public class PaymentController {
                     return Json.ok(payment.get());
                 }
 
+                // Có ?limit= / ?cursor= -> một trang keyset {items, next}
+                Optional<PageRequest> page = ExtractHelper.extractPage(q);
+                if (page.isPresent()) {
+                    try {
+                        return Json.ok(paymentRepository.findPage(page.get()));
+                    } catch (IllegalArgumentException e) {
+                        return ValidationUtils.error(400, "INVALID_CURSOR", e.getMessage());
+                    } catch (Exception e) {
+                        return DatabaseErrorHandler.handleDatabaseException(e);
+                    }
+                }
+
                 // Trả tất cả payments
                 List<Payment> payments;
                 try {
                     payments = paymentRepository.getPayments();
-                    System.out.println("📋 Fetching all payments: " + payments.size() + " records");
+                    LOG.debug("📋 Fetching all payments: " + payments.size() + " records");
                 } catch (Exception e) {
                     return DatabaseErrorHandler.handleDatabaseException(e);
                 }
@@ -144,8 +142,7 @@ public class PaymentController {
                 return Json.ok(payments);
 
             } catch (Exception e) {
-                System.err.println("❌ Unexpected error in getPayments: " + e.getMessage());
-                e.printStackTrace();
+                LOG.error("❌ Unexpected error in getPayments: " + e.getMessage(), e);
                 return ValidationUtils.error(500, "INTERNAL_SERVER_ERROR",
                         "An unexpected error occurred");
             }
@@ -161,11 +158,6 @@ public class PaymentController {
      */
     public Function<HttpRequest, HttpResponse> createPayment() {
         return (HttpRequest req) -> {
-            // Step 0: Rate limiting check
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-            if (rateLimitError != null)
-                return rateLimitError;
-
             // Step 1-3: Standard validations (Content-Type, JWT, Role)
             HttpResponse validationError = ValidationUtils.validateStandardRequest(req, "application/json", "STAFF");
             if (validationError != null)
@@ -189,7 +181,7 @@ public class PaymentController {
                         } else {
                             // Check if request content matches
                             if (cached.requestHash.equals(requestHash)) {
-                                System.out.println("♻️ Returning cached result for idempotency key: " + idempotencyKey);
+                                LOG.debug("♻️ Returning cached result for idempotency key: " + idempotencyKey);
                                 return cached.response;
                             } else {
                                 return ValidationUtils.error(409, "IDEMPOTENCY_KEY_CONFLICT",
@@ -241,22 +233,12 @@ public class PaymentController {
                             "Amount paid exceeds maximum limit of 1,000,000,000 VND");
                 }
 
-                // Step 8: Check for duplicate payment (same code + PAID status)
+                // Step 8: Check for duplicate payment (same code + PAID status) - một query theo index của code
                 try {
-                    List<Payment> existingPayments = paymentRepository.getPayments();
-                    for (Payment p : existingPayments) {
-                        if (payment.getCode().equals(p.getCode())) {
-                            // Check if this payment is already PAID
-                            try {
-                                PaymentStatus status = statusLogRepository.getCurrentPaymentStatus(p.getId());
-                                if (status == PaymentStatus.PAID) {
-                                    return ValidationUtils.error(409, "CONFLICT",
-                                            "Payment with code '" + payment.getCode() + "' is already PAID");
-                                }
-                            } catch (Exception e) {
-                                System.err.println("⚠️ Warning: Could not check payment status: " + e.getMessage());
-                            }
-                        }
+                    Optional<PaymentWithStatus> existing = paymentRepository.findByCodeWithStatus(payment.getCode());
+                    if (existing.isPresent() && existing.get().getStatus() == PaymentStatus.PAID) {
+                        return ValidationUtils.error(409, "CONFLICT",
+                                "Payment with code '" + payment.getCode() + "' is already PAID");
                     }
                 } catch (Exception e) {
                     return DatabaseErrorHandler.handleDatabaseException(e);
@@ -279,10 +261,10 @@ public class PaymentController {
                 try {
                     statusLogRepository.setCurrentPaymentStatus(saved.getId(), PaymentStatus.UNPAID);
                 } catch (Exception e) {
-                    System.err.println("⚠️ Warning: Payment created but status log failed: " + e.getMessage());
+                    LOG.warn("⚠️ Payment created but status log failed: " + e.getMessage(), e);
                 }
 
-                System.out.println("✅ Payment created successfully: code=" + saved.getCode() + ", id=" + saved.getId());
+                LOG.debug("✅ Payment created successfully: code=" + saved.getCode() + ", id=" + saved.getId());
 
                 // Step 11: Cache result for idempotency
                 HttpResponse response = Json.created(saved);
@@ -293,8 +275,7 @@ public class PaymentController {
                 return response;
 
             } catch (Exception e) {
-                System.err.println("❌ Unexpected error in createPayment: " + e.getMessage());
-                e.printStackTrace();
+                LOG.error("❌ Unexpected error in createPayment: " + e.getMessage(), e);
                 return ValidationUtils.error(500, "INTERNAL_SERVER_ERROR",
                         "An unexpected error occurred");
             }
@@ -309,11 +290,6 @@ public class PaymentController {
      */
     public Function<HttpRequest, HttpResponse> updatePayment() {
         return (HttpRequest req) -> {
-            // Step 0: Rate limiting check
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-            if (rateLimitError != null)
-                return rateLimitError;
-
             // Step 1-3: Standard validations (Content-Type, JWT, Role)
             HttpResponse validationError = ValidationUtils.validateStandardRequest(req, "application/json", "STAFF");
             if (validationError != null)
@@ -361,7 +337,7 @@ public class PaymentController {
                         }
                     }
                 } catch (Exception e) {
-                    System.err.println("⚠️ Warning: Could not check payment status: " + e.getMessage());
+                    LOG.warn("⚠️ Could not check payment status: " + e.getMessage(), e);
                 }
 
                 // Step 8: Validate business rules
@@ -388,12 +364,11 @@ public class PaymentController {
                             "Failed to update payment");
                 }
 
-                System.out.println("✅ Payment updated successfully: ID=" + updated.getId());
+                LOG.debug("✅ Payment updated successfully: ID=" + updated.getId());
                 return Json.ok(updated);
 
             } catch (Exception e) {
-                System.err.println("❌ Unexpected error in updatePayment: " + e.getMessage());
-                e.printStackTrace();
+                LOG.error("❌ Unexpected error in updatePayment: " + e.getMessage(), e);
                 return ValidationUtils.error(500, "INTERNAL_SERVER_ERROR",
                         "An unexpected error occurred");
             }
@@ -404,36 +379,35 @@ public class PaymentController {
      * GET /payments/with-status
      * Lấy tất cả các payment, kèm theo trạng thái hiện tại của chúng.
      * Sử dụng DTO 'PaymentWithStatus'.
+     * - ?limit= / ?cursor= -> trả một trang {items, next} thay vì toàn bộ
      * Requires JWT authentication.
      */
     public Function<HttpRequest, HttpResponse> getPaymentsWithStatus() {
         return (HttpRequest req) -> {
-            // Step 0: Rate limiting check
-            HttpResponse rateLimitError = RateLimiter.checkRateLimit(req);
-            if (rateLimitError != null)
-                return rateLimitError;
-
             // Step 1: Validate JWT (no Content-Type check for GET)
             HttpResponse jwtError = ValidationUtils.validateJWT(req);
             if (jwtError != null)
                 return jwtError;
 
             try {
-                // Step 2: Get all payments with status
-                List<PaymentWithStatus> result;
-                try {
-                    result = paymentRepository.getAllPaymentsWithStatus();
-                    System.out.println("📊 Fetching all payments with status: " + result.size() + " records");
-                } catch (Exception e) {
-                    return DatabaseErrorHandler.handleDatabaseException(e);
+                // Step 2: Có ?limit= / ?cursor= -> một trang keyset {items, next}
+                Optional<PageRequest> page = ExtractHelper.extractPage(req.query);
+                if (page.isPresent()) {
+                    try {
+                        return Json.ok(paymentRepository.findPageWithStatus(page.get()));
+                    } catch (IllegalArgumentException e) {
+                        return ValidationUtils.error(400, "INVALID_CURSOR", e.getMessage());
+                    } catch (Exception e) {
+                        return DatabaseErrorHandler.handleDatabaseException(e);
+                    }
                 }
 
-                // Step 3: Return result
-                return Json.ok(result);
+                // Step 3: Không phân trang -> stream payments with status thẳng từ ResultSet ra response
+                // (query chạy khi response được ghi; lỗi DB giữa chừng sẽ đóng connection)
+                return Json.okStream(out -> paymentRepository.streamAllPaymentsWithStatus(out::write));
 
             } catch (Exception e) {
-                System.err.println("❌ Unexpected error in getPaymentsWithStatus: " + e.getMessage());
-                e.printStackTrace();
+                LOG.error("❌ Unexpected error in getPaymentsWithStatus: " + e.getMessage(), e);
                 return ValidationUtils.error(500, "INTERNAL_SERVER_ERROR",
                         "An unexpected error occurred");
             }
@@ -25,7 +25,7 @@ public class UserDAO {
     private final DatabaseConfig dbConfig;
 
     public UserDAO() {
-        this.dbConfig = DatabaseConfig.getInstance();
+        this.dbConfig = DatabaseConfig.getInstance().forRepository(UserDAO.class);
     }
 
     /**
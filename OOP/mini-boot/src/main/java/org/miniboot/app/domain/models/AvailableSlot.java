@@ -0,0 +1,69 @@
+package org.miniboot.app.domain.models;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * AvailableSlot - DTO một khoảng trống của một bác sĩ trong một ngày
+ *
+ * KHÔNG map với bảng trong database, chỉ dùng cho kết quả tìm slot trống nhiều ngày / nhiều bác sĩ
+ * (GET /doctors/availability?mode=first).
+ */
+public class AvailableSlot {
+    private int doctorId;
+    private LocalDate date;
+    private LocalTime startTime;
+    private LocalTime endTime;
+    private int duration; // Tính bằng phút
+
+    public AvailableSlot() {
+    }
+
+    public AvailableSlot(int doctorId, LocalDate date, LocalTime startTime, LocalTime endTime, int duration) {
+        this.doctorId = doctorId;
+        this.date = date;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.duration = duration;
+    }
+
+    public int getDoctorId() {
+        return doctorId;
+    }
+
+    public void setDoctorId(int doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public LocalTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public LocalTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalTime endTime) {
+        this.endTime = endTime;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    public void setDuration(int duration) {
+        this.duration = duration;
+    }
+}
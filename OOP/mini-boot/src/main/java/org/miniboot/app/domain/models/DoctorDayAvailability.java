@@ -0,0 +1,50 @@
+package org.miniboot.app.domain.models;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DoctorDayAvailability - DTO một ô của ma trận lịch trống: (bác sĩ, ngày) -> các TimeSlot
+ *
+ * KHÔNG map với bảng trong database, dùng cho GET /doctors/availability?mode=matrix.
+ * slots rỗng khi bác sĩ không làm việc ngày đó.
+ */
+public class DoctorDayAvailability {
+    private int doctorId;
+    private LocalDate date;
+    private List<TimeSlot> slots = new ArrayList<>();
+
+    public DoctorDayAvailability() {
+    }
+
+    public DoctorDayAvailability(int doctorId, LocalDate date, List<TimeSlot> slots) {
+        this.doctorId = doctorId;
+        this.date = date;
+        this.slots = slots;
+    }
+
+    public int getDoctorId() {
+        return doctorId;
+    }
+
+    public void setDoctorId(int doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public List<TimeSlot> getSlots() {
+        return slots;
+    }
+
+    public void setSlots(List<TimeSlot> slots) {
+        this.slots = slots;
+    }
+}
@@ -0,0 +1,81 @@
+package org.miniboot.app.domain.models.Inventory;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * StockBalance - DTO tồn kho của một sản phẩm tại một thời điểm
+ *
+ * KHÔNG map với bảng trong database. Được tính từ checkpoint tồn kho gần nhất + các stock movement sau đó:
+ * - qty: số lượng tồn tại thời điểm as-of
+ * - value: giá trị tồn = qty * price_cost (0 nếu sản phẩm chưa có giá nhập)
+ */
+public class StockBalance {
+    @JsonProperty("product_id")
+    private int productId;
+    private String sku;
+    private String name;
+    private long qty;
+    @JsonProperty("price_cost")
+    private Integer priceCost;
+    private long value;
+
+    public StockBalance() {
+    }
+
+    public StockBalance(int productId, String sku, String name, long qty, Integer priceCost) {
+        this.productId = productId;
+        this.sku = sku;
+        this.name = name;
+        this.qty = qty;
+        this.priceCost = priceCost;
+        this.value = priceCost != null ? qty * priceCost : 0;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public void setProductId(int productId) {
+        this.productId = productId;
+    }
+
+    public String getSku() {
+        return sku;
+    }
+
+    public void setSku(String sku) {
+        this.sku = sku;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getQty() {
+        return qty;
+    }
+
+    public void setQty(long qty) {
+        this.qty = qty;
+    }
+
+    public Integer getPriceCost() {
+        return priceCost;
+    }
+
+    public void setPriceCost(Integer priceCost) {
+        this.priceCost = priceCost;
+    }
+
+    public long getValue() {
+        return value;
+    }
+
+    public void setValue(long value) {
+        this.value = value;
+    }
+}
@@ -0,0 +1,52 @@
+package org.miniboot.app.domain.models.Inventory;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * StockMovementTotals - DTO tổng hợp stock movements của một loại giao dịch (move_type)
+ *
+ * KHÔNG map với bảng trong database. Được tính bằng COUNT / SUM ... GROUP BY move_type:
+ * - count: số giao dịch
+ * - qtyIn: tổng số lượng nhập (qty > 0)
+ * - qtyOut: tổng số lượng xuất, giá trị tuyệt đối (qty < 0)
+ */
+public class StockMovementTotals {
+    private long count;
+    @JsonProperty("qty_in")
+    private long qtyIn;
+    @JsonProperty("qty_out")
+    private long qtyOut;
+
+    public StockMovementTotals() {
+    }
+
+    public StockMovementTotals(long count, long qtyIn, long qtyOut) {
+        this.count = count;
+        this.qtyIn = qtyIn;
+        this.qtyOut = qtyOut;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getQtyIn() {
+        return qtyIn;
+    }
+
+    public void setQtyIn(long qtyIn) {
+        this.qtyIn = qtyIn;
+    }
+
+    public long getQtyOut() {
+        return qtyOut;
+    }
+
+    public void setQtyOut(long qtyOut) {
+        this.qtyOut = qtyOut;
+    }
+}
@@ -0,0 +1,53 @@
+package org.miniboot.app.domain.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page - DTO một trang kết quả phân trang keyset (cursor)
+ *
+ * KHÔNG map với bảng trong database. Trả về cho các endpoint danh sách khi client gửi ?limit= / ?cursor=:
+ * - items: các phần tử của trang
+ * - next: cursor (chuỗi mờ) để lấy trang kế tiếp, null nếu đã là trang cuối
+ */
+public class Page<T> {
+    private List<T> items = new ArrayList<>();
+    private String next;
+
+    public Page() {
+    }
+
+    public Page(List<T> items, String next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    /**
+     * Dựng trang từ tối đa limit + 1 dòng đọc được: có dòng thứ limit + 1 nghĩa là còn trang sau,
+     * cursor kế tiếp lấy từ phần tử cuối của trang
+     */
+    public static <T> Page<T> fromRows(List<T> rows, int limit, Function<T, String> cursorOf) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, limit));
+        return new Page<>(items, cursorOf.apply(items.get(limit - 1)));
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+}
@@ -1,18 +1,60 @@
 package org.miniboot.app.domain.repo;
 
 import org.miniboot.app.domain.models.Appointment;
+import org.miniboot.app.domain.models.Page;
 
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface AppointmentRepository {
     List<Appointment> findAll();
 
+    /**
+     * Duyệt toàn bộ appointments (cùng thứ tự với findAll) mà không gom vào List
+     */
+    default void streamAll(RowHandler<Appointment> handler) throws IOException {
+        for (Appointment appointment : findAll()) {
+            handler.handle(appointment);
+        }
+    }
+
+    /**
+     * Một trang appointments, cùng thứ tự với findAll (start_time giảm dần, id giảm dần)
+     */
+    Page<Appointment> findPage(PageRequest request);
+
     Optional<Appointment> findById(Integer id);
 
     Appointment save(Appointment appointment);
 
     List<Appointment> findByDoctorIdAndDate(Integer doctorId, String date);
+
+    /**
+     * Như findByDoctorIdAndDate nhưng lỗi DB được ném ra thay vì trả danh sách rỗng -
+     * dùng khi kết quả được cache làm lịch bận (danh sách rỗng = bác sĩ trống cả ngày)
+     */
+    List<Appointment> loadByDoctorIdAndDate(int doctorId, LocalDate date) throws SQLException;
+
+    /**
+     * Appointments của nhiều bác sĩ có startTime trong [from, to] (tính cả 2 đầu)
+     * Mặc định gọi loadByDoctorIdAndDate cho từng (bác sĩ, ngày); repository SQL nên ghi đè bằng một query.
+     * Lỗi DB được ném ra (kết quả được cache làm lịch bận, danh sách rỗng = trống cả khoảng).
+     */
+    default List<Appointment> findByDoctorIdsAndDateRange(Collection<Integer> doctorIds, LocalDate from, LocalDate to)
+            throws SQLException {
+        List<Appointment> result = new ArrayList<>();
+        for (Integer doctorId : doctorIds) {
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                result.addAll(loadByDoctorIdAndDate(doctorId, date));
+            }
+        }
+        return result;
+    }
     // (không bắt buộc) boolean existsSameSlot(int doctorId, String date, String startTime);
     List<Appointment> findWithFilters(
             Integer doctorId,      // null = không lọc
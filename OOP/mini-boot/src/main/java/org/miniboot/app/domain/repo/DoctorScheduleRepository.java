@@ -3,24 +3,56 @@ package org.miniboot.app.domain.repo;
 import org.miniboot.app.AppConfig;
 import org.miniboot.app.config.DatabaseConfig;
 import org.miniboot.app.domain.models.DoctorSchedule;
+import org.miniboot.app.metrics.Counter;
+import org.miniboot.app.metrics.MetricsRegistry;
+import org.miniboot.app.util.Logger;
 
 import java.sql.*;
 import java.time.DayOfWeek;
 import java.time.LocalTime;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Repository cho DoctorSchedule (Lịch làm việc của bác sĩ)
+ * <p>
+ * Lịch active được cache read-through theo bác sĩ (doctorId -> thứ trong tuần -> các ca):
+ * - findByDoctorIdAndDay / findActiveGrouped đọc từ cache, lần miss nạp toàn bộ lịch của bác sĩ trong một query
+ * - save / delete / deleteByDoctorId / insertBatch xóa entry liên quan sau khi ghi
+ * - warmUp() nạp lịch của mọi bác sĩ bằng một query lúc khởi động
+ * - Entry quá DOCTOR_SCHEDULE_CACHE_TTL_MS được nạp lại (bắt kịp thay đổi không qua repository này)
+ * List trả về từ cache là bất biến và dùng chung giữa các request: caller không được sửa.
  */
 public class DoctorScheduleRepository {
+    private static final Logger LOG = Logger.get(DoctorScheduleRepository.class);
+
+    private static final Counter CACHE_HITS = MetricsRegistry.global().counter("miniboot_cache_requests_total",
+            "In-memory cache lookups", "cache", "doctor_schedules", "result", "hit");
+    private static final Counter CACHE_MISSES = MetricsRegistry.global().counter("miniboot_cache_requests_total",
+            "In-memory cache lookups", "cache", "doctor_schedules", "result", "miss");
+
+    /** Lịch active của một bác sĩ, bất biến */
+    private record CachedSchedules(Map<DayOfWeek, List<DoctorSchedule>> byDay, long loadedAtMillis) {
+    }
 
     private final DatabaseConfig dbConfig;
+    private final ConcurrentHashMap<Integer, CachedSchedules> activeByDoctor = new ConcurrentHashMap<>();
+    /** Tăng mỗi lần ghi: lần nạp nào chạy song song với một lần ghi thì không được cache */
+    private final AtomicLong modifications = new AtomicLong();
     
     public DoctorScheduleRepository() {
-        this.dbConfig = DatabaseConfig.getInstance();
+        this.dbConfig = DatabaseConfig.getInstance().forRepository(DoctorScheduleRepository.class);
     }
     
     /**
@@ -45,24 +77,131 @@ public class DoctorScheduleRepository {
     }
     
     /**
-     * Lấy lịch làm việc của bác sĩ trong một ngày cụ thể
+     * Lấy lịch làm việc (active) của bác sĩ trong một ngày cụ thể - đọc từ cache
      */
     public List<DoctorSchedule> findByDoctorIdAndDay(int doctorId, DayOfWeek dayOfWeek) throws SQLException {
-        String sql = "SELECT * FROM doctor_schedules WHERE doctor_id = ? AND day_of_week = CAST(? AS day_of_week_enum) AND is_active = true ORDER BY start_time";
+        return findActiveGrouped(List.of(doctorId))
+                .getOrDefault(doctorId, Map.of())
+                .getOrDefault(dayOfWeek, List.of());
+    }
+
+    /**
+     * Lịch active của nhiều bác sĩ, nhóm theo thứ trong tuần - đọc từ cache, các bác sĩ còn thiếu
+     * được nạp chung trong một query
+     *
+     * @param doctorIds null = tất cả bác sĩ (luôn đọc DB và làm mới cache)
+     * @return doctorId -> thứ -> các ca (sắp theo giờ bắt đầu); bác sĩ không có lịch không có trong map
+     */
+    public Map<Integer, Map<DayOfWeek, List<DoctorSchedule>>> findActiveGrouped(Collection<Integer> doctorIds)
+            throws SQLException {
+        Map<Integer, Map<DayOfWeek, List<DoctorSchedule>>> result = new TreeMap<>();
+        List<Integer> missing = new ArrayList<>();
+        if (doctorIds != null) {
+            long now = System.currentTimeMillis();
+            for (Integer doctorId : doctorIds) {
+                CachedSchedules cached = activeByDoctor.get(doctorId);
+                if (cached != null && now - cached.loadedAtMillis() < AppConfig.DOCTOR_SCHEDULE_CACHE_TTL_MS) {
+                    CACHE_HITS.inc();
+                    if (!cached.byDay().isEmpty()) {
+                        result.put(doctorId, cached.byDay());
+                    }
+                } else {
+                    CACHE_MISSES.inc();
+                    missing.add(doctorId);
+                }
+            }
+            if (missing.isEmpty()) {
+                return result;
+            }
+        }
+
+        long version = modifications.get();
+        Map<Integer, Map<DayOfWeek, List<DoctorSchedule>>> loaded = group(findActiveByDoctorIds(doctorIds));
+        result.putAll(loaded);
+        cache(doctorIds == null ? loaded.keySet() : missing, loaded, version);
+        return result;
+    }
+
+    /**
+     * Nạp lịch active của tất cả bác sĩ vào cache (một query), gọi lúc khởi động
+     *
+     * @return số bác sĩ có lịch
+     */
+    public int warmUp() throws SQLException {
+        return findActiveGrouped(null).size();
+    }
+
+    /**
+     * Xóa toàn bộ cache, lần đọc sau sẽ nạp lại từ DB
+     */
+    public void invalidateCache() {
+        modifications.incrementAndGet();
+        activeByDoctor.clear();
+    }
+
+    private void invalidate(Collection<Integer> doctorIds) {
+        modifications.incrementAndGet();
+        for (Integer doctorId : doctorIds) {
+            activeByDoctor.remove(doctorId);
+        }
+    }
+
+    private void cache(Collection<Integer> doctorIds, Map<Integer, Map<DayOfWeek, List<DoctorSchedule>>> loaded,
+                       long version) {
+        if (AppConfig.DOCTOR_SCHEDULE_CACHE_TTL_MS <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Integer doctorId : doctorIds) {
+            CachedSchedules entry = new CachedSchedules(loaded.getOrDefault(doctorId, Map.of()), now);
+            // Kiểm tra version trong compute: lần ghi tăng version trước rồi mới xóa entry cùng key,
+            // nên hoặc ta thấy version đổi (không cache), hoặc lần ghi xóa luôn bản ta vừa đặt vào.
+            activeByDoctor.compute(doctorId, (k, current) -> modifications.get() == version ? entry : current);
+        }
+    }
+
+    private static Map<Integer, Map<DayOfWeek, List<DoctorSchedule>>> group(List<DoctorSchedule> schedules) {
+        Map<Integer, Map<DayOfWeek, List<DoctorSchedule>>> grouped = new TreeMap<>();
+        for (DoctorSchedule schedule : schedules) {
+            grouped.computeIfAbsent(schedule.getDoctorId(), id -> new EnumMap<>(DayOfWeek.class))
+                    .computeIfAbsent(schedule.getDayOfWeek(), d -> new ArrayList<>())
+                    .add(schedule);
+        }
+        for (Map.Entry<Integer, Map<DayOfWeek, List<DoctorSchedule>>> entry : grouped.entrySet()) {
+            Map<DayOfWeek, List<DoctorSchedule>> byDay = entry.getValue();
+            byDay.replaceAll((day, list) -> List.copyOf(list));
+            entry.setValue(Collections.unmodifiableMap(byDay));
+        }
+        return grouped;
+    }
+    
+    /**
+     * Lịch làm việc đang active của nhiều bác sĩ trong một query
+     *
+     * @param doctorIds null = tất cả bác sĩ
+     */
+    public List<DoctorSchedule> findActiveByDoctorIds(Collection<Integer> doctorIds) throws SQLException {
+        String sql = doctorIds == null
+                ? "SELECT * FROM doctor_schedules WHERE is_active = true ORDER BY doctor_id, start_time"
+                : "SELECT * FROM doctor_schedules WHERE doctor_id = ANY(?) AND is_active = true ORDER BY doctor_id, start_time";
         List<DoctorSchedule> schedules = new ArrayList<>();
-        
+        if (doctorIds != null && doctorIds.isEmpty()) {
+            return schedules;
+        }
+
         try (Connection conn = dbConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, doctorId);
-            stmt.setString(2, dayOfWeek.name());
+
+            if (doctorIds != null) {
+                stmt.setArray(1, conn.createArrayOf("integer", doctorIds.toArray()));
+            }
             ResultSet rs = stmt.executeQuery();
-            
+
             while (rs.next()) {
                 schedules.add(mapRow(rs));
             }
         }
-        
+
         return schedules;
     }
     
@@ -71,9 +210,17 @@ public class DoctorScheduleRepository {
      */
     public DoctorSchedule save(DoctorSchedule schedule) throws SQLException {
         if (schedule.getId() == 0) {
-            return insert(schedule);
+            try {
+                return insert(schedule);
+            } finally {
+                invalidate(List.of(schedule.getDoctorId()));
+            }
         } else {
-            return update(schedule);
+            try {
+                return update(schedule);
+            } finally {
+                invalidateCache(); // doctor_id có thể đã đổi: không biết bác sĩ cũ
+            }
         }
     }
     
@@ -154,6 +301,8 @@ public class DoctorScheduleRepository {
             int affected = stmt.executeUpdate();
             
             return affected > 0;
+        } finally {
+            invalidateCache();
         }
     }
     
@@ -170,8 +319,10 @@ public class DoctorScheduleRepository {
             stmt.setInt(1, doctorId);
             int affected = stmt.executeUpdate();
             
-            System.out.println("🗑️ Batch deleted " + affected + " schedules for doctor #" + doctorId);
+            LOG.debug("🗑️ Batch deleted " + affected + " schedules for doctor #" + doctorId);
             return affected;
+        } finally {
+            invalidate(List.of(doctorId));
         }
     }
     
@@ -219,8 +370,14 @@ public class DoctorScheduleRepository {
                 index++;
             }
             
-            System.out.println("✅ Batch inserted " + schedules.size() + " schedules");
+            LOG.debug("✅ Batch inserted " + schedules.size() + " schedules");
             return schedules;
+        } finally {
+            Set<Integer> doctorIds = new HashSet<>();
+            for (DoctorSchedule schedule : schedules) {
+                doctorIds.add(schedule.getDoctorId());
+            }
+            invalidate(doctorIds);
         }
     }
     
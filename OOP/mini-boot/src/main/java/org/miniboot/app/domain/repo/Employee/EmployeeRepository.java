@@ -4,10 +4,17 @@ import java.util.List;
 import java.util.Optional;
 
 import org.miniboot.app.domain.models.Employee;
+import org.miniboot.app.domain.models.Page;
+import org.miniboot.app.domain.repo.PageRequest;
 
 public interface EmployeeRepository {
      List<Employee> findAll();
 
+     /**
+      * Một trang employee theo id tăng dần (phân trang keyset)
+      */
+     Page<Employee> findPage(PageRequest request);
+
      Optional<Employee> findById(int id);
 
      String findPasswordByUsernameOrEmail(String username);
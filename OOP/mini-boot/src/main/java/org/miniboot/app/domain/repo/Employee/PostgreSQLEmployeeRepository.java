@@ -13,35 +13,68 @@ import java.util.Optional;
 import org.miniboot.app.auth.PasswordService;
 import org.miniboot.app.config.DatabaseConfig;
 import org.miniboot.app.domain.models.Employee;
+import org.miniboot.app.domain.models.Page;
+import org.miniboot.app.domain.repo.PageCursor;
+import org.miniboot.app.domain.repo.PageRequest;
+import org.miniboot.app.util.Logger;
 
 public class PostgreSQLEmployeeRepository implements EmployeeRepository {
+    private static final Logger LOG = Logger.get(PostgreSQLEmployeeRepository.class);
+
 
      private final DatabaseConfig dbConfig;
 
      public PostgreSQLEmployeeRepository() {
-          this.dbConfig = DatabaseConfig.getInstance();
+          this.dbConfig = DatabaseConfig.getInstance().forRepository(PostgreSQLEmployeeRepository.class);
      }
 
      @Override
      public List<Employee> findAll() {
           List<Employee> employees = new ArrayList<>();
           String sql = "SELECT * FROM employees ORDER BY id";
-          System.out.println("🔍 Executing SQL: " + sql);
+          LOG.debug("🔍 Executing SQL: " + sql);
           try (Connection conn = dbConfig.getConnection();
                     Statement stmt = conn.createStatement();
                     ResultSet rs = stmt.executeQuery(sql)) {
-               System.out.println("✅ Query executed successfully");
+               LOG.debug("✅ Query executed successfully");
                while (rs.next()) {
                     employees.add(mapResultSetToEmployee(rs));
                }
           } catch (SQLException e) {
-               System.err.println("❌ SQL ERROR in findAll(): " + e.getMessage());
+               LOG.error("❌ SQL ERROR in findAll(): " + e.getMessage());
                e.printStackTrace();
                throw new RuntimeException(e);
           }
           return employees;
      }
 
+     /**
+      * Phân trang keyset theo id: WHERE id > cursor, dùng luôn primary key index
+      */
+     @Override
+     public Page<Employee> findPage(PageRequest request) {
+          List<Employee> rows = new ArrayList<>();
+          Integer afterId = request.isFirst() ? null : PageCursor.decode(request.cursor(), 1).nextInt();
+          String sql = "SELECT * FROM employees " + (afterId != null ? "WHERE id > ? " : "") + "ORDER BY id LIMIT ?";
+          try (Connection conn = dbConfig.getConnection();
+                    PreparedStatement pstmt = conn.prepareStatement(sql)) {
+               int index = 1;
+               if (afterId != null) {
+                    pstmt.setInt(index++, afterId);
+               }
+               pstmt.setInt(index, request.limit() + 1);
+               try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                         rows.add(mapResultSetToEmployee(rs));
+                    }
+               }
+          } catch (SQLException e) {
+               LOG.error("❌ SQL ERROR in findPage(): " + e.getMessage());
+               throw new RuntimeException(e);
+          }
+          return Page.fromRows(rows, request.limit(), e -> PageCursor.encode(e.getId()));
+     }
+
      @Override
      public Optional<Employee> findById(int id) {
           String sql = "SELECT * FROM employees WHERE id = ?";
@@ -53,7 +86,7 @@ public class PostgreSQLEmployeeRepository implements EmployeeRepository {
                          return Optional.of(mapResultSetToEmployee(rs));
                }
           } catch (SQLException e) {
-               System.err.println("❌ Error finding employee by ID: " + e.getMessage());
+               LOG.error("❌ Error finding employee by ID: " + e.getMessage());
           }
           return Optional.empty();
      }
@@ -70,7 +103,7 @@ public class PostgreSQLEmployeeRepository implements EmployeeRepository {
                          return rs.getString("password");
                }
           } catch (SQLException e) {
-               System.err.println("❌ Error finding employee by ID: " + e.getMessage());
+               LOG.error("❌ Error finding employee by ID: " + e.getMessage());
           }
           return null;
      }
@@ -86,7 +119,7 @@ public class PostgreSQLEmployeeRepository implements EmployeeRepository {
                          return Optional.of(mapResultSetToEmployee(rs));
                }
           } catch (SQLException e) {
-               System.err.println("❌ Error finding by username: " + e.getMessage());
+               LOG.error("❌ Error finding by username: " + e.getMessage());
           }
           return Optional.empty();
      }
@@ -102,7 +135,7 @@ public class PostgreSQLEmployeeRepository implements EmployeeRepository {
                          return Optional.of(mapResultSetToEmployee(rs));
                }
           } catch (SQLException e) {
-               System.err.println("❌ Error finding by email: " + e.getMessage());
+               LOG.error("❌ Error finding by email: " + e.getMessage());
           }
           return Optional.empty();
      }
@@ -191,8 +224,8 @@ public class PostgreSQLEmployeeRepository implements EmployeeRepository {
                return employee;
 
           } catch (SQLException e) {
-               System.err.println("❌ SQLSTATE=" + e.getSQLState() + " CODE=" + e.getErrorCode());
-               System.err.println("❌ MESSAGE=" + e.getMessage());
+               LOG.error("❌ SQLSTATE=" + e.getSQLState() + " CODE=" + e.getErrorCode());
+               LOG.error("❌ MESSAGE=" + e.getMessage());
                throw new RuntimeException("Failed to insert employee", e);
           }
      }
@@ -273,11 +306,11 @@ public class PostgreSQLEmployeeRepository implements EmployeeRepository {
                     throw new SQLException("Không tìm thấy employee ID=" + employee.getId());
                }
 
-               System.out.println("✅ Updated employee ID: " + employee.getId());
+               LOG.debug("✅ Updated employee ID: " + employee.getId());
                return employee;
 
           } catch (SQLException e) {
-               System.err.println("❌ Error updating employee: " + e.getMessage());
+               LOG.error("❌ Error updating employee: " + e.getMessage());
                throw new RuntimeException("Failed to update employee", e);
           }
      }
@@ -291,11 +324,11 @@ public class PostgreSQLEmployeeRepository implements EmployeeRepository {
                pstmt.setInt(1, id);
                int rowsAffected = pstmt.executeUpdate();
                if (rowsAffected > 0) {
-                    System.out.println("✅ Deleted employee ID: " + id);
+                    LOG.debug("✅ Deleted employee ID: " + id);
                     return true;
                }
           } catch (SQLException e) {
-               System.err.println("❌ Error deleting employee: " + e.getMessage());
+               LOG.error("❌ Error deleting employee: " + e.getMessage());
           }
           return false;
      }
@@ -322,7 +355,7 @@ public class PostgreSQLEmployeeRepository implements EmployeeRepository {
                     }
                }
           } catch (SQLException e) {
-               System.err.println("❌ Error searching employees: " + e.getMessage());
+               LOG.error("❌ Error searching employees: " + e.getMessage());
           }
           return employees;
      }
@@ -347,7 +380,7 @@ public class PostgreSQLEmployeeRepository implements EmployeeRepository {
                     }
                }
           } catch (SQLException e) {
-               System.err.println("❌ Error finding by role: " + e.getMessage());
+               LOG.error("❌ Error finding by role: " + e.getMessage());
           }
           return employees;
      }
@@ -384,11 +417,11 @@ public class PostgreSQLEmployeeRepository implements EmployeeRepository {
                pstmt.setString(3, usernameOrEmail);
                int rowsAffected = pstmt.executeUpdate();
                if (rowsAffected > 0) {
-                    System.out.println("✅ Password changed for user: " + usernameOrEmail);
+                    LOG.debug("✅ Password changed for user: " + usernameOrEmail);
                     return true;
                }
           } catch (SQLException e) {
-               System.err.println("❌ Error changing password: " + e.getMessage());
+               LOG.error("❌ Error changing password: " + e.getMessage());
           }
           return false;
      }
@@ -14,12 +14,29 @@ import java.util.Optional;
 
 import org.miniboot.app.config.DatabaseConfig;
 import org.miniboot.app.domain.models.Inventory.Product;
+import org.miniboot.app.domain.models.Page;
+import org.miniboot.app.domain.repo.PageCursor;
+import org.miniboot.app.domain.repo.PageRequest;
+import org.miniboot.app.util.Logger;
 
 public class PostgreSQLProductRepository implements ProductRepository {
+    private static final Logger LOG = Logger.get(PostgreSQLProductRepository.class);
+
      private final DatabaseConfig dbConfig;
 
      public PostgreSQLProductRepository() {
-          this.dbConfig = DatabaseConfig.getInstance();
+          this.dbConfig = DatabaseConfig.getInstance().forRepository(PostgreSQLProductRepository.class);
+     }
+
+     /**
+      * Index cho phân trang keyset (name, id) của sản phẩm đang bán nếu chưa có (gọi một lần khi khởi động)
+      */
+     public void ensureIndexes() throws SQLException {
+          try (Connection conn = dbConfig.getConnection();
+               Statement stmt = conn.createStatement()) {
+               stmt.execute("CREATE INDEX IF NOT EXISTS idx_products_active_name_id ON Products (name, id) "
+                         + "WHERE is_active = TRUE");
+          }
      }
 
      @Override
@@ -27,28 +44,27 @@ public class PostgreSQLProductRepository implements ProductRepository {
           List<Product> products = new ArrayList<>();
           String sql = "SELECT id, sku, name, category, unit, price_cost, price_retail, " +
                     "is_active, qty_on_hand, batch_no, expiry_date, serial_no, note, created_at " +
-                    "FROM Products WHERE is_active = TRUE ORDER BY name";
+                    "FROM Products WHERE is_active = TRUE ORDER BY name, id";
 
-          System.out.println("🔍 Executing SQL: " + sql);
+          LOG.debug("🔍 Executing SQL: " + sql);
 
           try (Connection conn = dbConfig.getConnection();
                     Statement stmt = conn.createStatement();
                     ResultSet rs = stmt.executeQuery(sql)) {
 
-               System.out.println("✅ Query executed successfully");
+               LOG.debug("✅ Query executed successfully");
 
                while (rs.next()) {
-                    System.out.println("📦 Mapping product ID: " + rs.getInt("id"));
                     products.add(mapRow(rs));
                }
 
-               System.out.println("✅ Found " + products.size() + " products");
+               LOG.debug("✅ Found " + products.size() + " products");
 
           } catch (SQLException e) {
-               System.err.println("❌ SQL ERROR in findAll():");
-               System.err.println("   Message: " + e.getMessage());
-               System.err.println("   SQL State: " + e.getSQLState());
-               System.err.println("   Error Code: " + e.getErrorCode());
+               LOG.error("❌ SQL ERROR in findAll():");
+               LOG.error("   Message: " + e.getMessage());
+               LOG.error("   SQL State: " + e.getSQLState());
+               LOG.error("   Error Code: " + e.getErrorCode());
                e.printStackTrace();
                throw new RuntimeException("Failed to fetch products", e);
           }
@@ -56,6 +72,43 @@ public class PostgreSQLProductRepository implements ProductRepository {
           return products;
      }
 
+     /**
+      * Một trang sản phẩm theo keyset (name, id)
+      */
+     @Override
+     public Page<Product> findPage(PageRequest request) {
+          List<Product> rows = new ArrayList<>();
+          PageCursor.Reader cursor = request.isFirst() ? null : PageCursor.decode(request.cursor(), 2);
+          String sql = "SELECT id, sku, name, category, unit, price_cost, price_retail, " +
+                    "is_active, qty_on_hand, batch_no, expiry_date, serial_no, note, created_at " +
+                    "FROM Products WHERE is_active = TRUE " +
+                    (cursor != null ? "AND (name, id) > (?, ?) " : "") +
+                    "ORDER BY name, id LIMIT ?";
+
+          try (Connection conn = dbConfig.getConnection();
+                    PreparedStatement ps = conn.prepareStatement(sql)) {
+
+               int index = 1;
+               if (cursor != null) {
+                    ps.setString(index++, cursor.nextString());
+                    ps.setInt(index++, cursor.nextInt());
+               }
+               ps.setInt(index, request.limit() + 1);
+
+               try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                         rows.add(mapRow(rs));
+                    }
+               }
+
+          } catch (SQLException e) {
+               LOG.error("❌ SQL ERROR in findPage(): " + e.getMessage());
+               throw new RuntimeException("Failed to fetch products", e);
+          }
+
+          return Page.fromRows(rows, request.limit(), p -> PageCursor.encode(p.getName(), p.getId()));
+     }
+
      @Override
      public Optional<Product> findById(int id) {
           String sql = "SELECT id, sku, name, category, unit, price_cost, price_retail, " +
@@ -73,7 +126,7 @@ public class PostgreSQLProductRepository implements ProductRepository {
                }
 
           } catch (SQLException e) {
-               System.err.println("Error finding product: " + e.getMessage());
+               LOG.error("Error finding product: " + e.getMessage());
           }
 
           return Optional.empty();
@@ -97,7 +150,7 @@ public class PostgreSQLProductRepository implements ProductRepository {
                }
 
           } catch (SQLException e) {
-               System.err.println("Error finding product: " + e.getMessage());
+               LOG.error("Error finding product: " + e.getMessage());
           }
 
           return Optional.empty();
@@ -135,10 +188,10 @@ public class PostgreSQLProductRepository implements ProductRepository {
                ResultSet rs = ps.executeQuery();
                if (rs.next()) {
                     p.setId(rs.getInt(1));
-                    System.out.println("Product created: ID = " + p.getId());
+                    LOG.debug("Product created: ID = " + p.getId());
                }
           } catch (SQLException e) {
-               System.err.println("Error inserting product: " + e.getMessage());
+               LOG.error("Error inserting product: " + e.getMessage());
                e.printStackTrace();
                return null;
           }
@@ -151,11 +204,11 @@ public class PostgreSQLProductRepository implements ProductRepository {
                     "price_cost=?, price_retail=?, is_active=?, qty_on_hand=?, " +
                     "batch_no=?, expiry_date=?, serial_no=?, note=? WHERE id=?";
 
-          System.out.println("🔄 Updating product ID: " + p.getId());
-          System.out.println("   SKU: " + p.getSku());
-          System.out.println("   Name: " + p.getName());
-          System.out.println("   Category: " + p.getCategory());
-          System.out.println("   SQL: " + sql);
+          LOG.debug("🔄 Updating product ID: " + p.getId());
+          LOG.debug("   SKU: " + p.getSku());
+          LOG.debug("   Name: " + p.getName());
+          LOG.debug("   Category: " + p.getCategory());
+          LOG.debug("   SQL: " + sql);
 
           try (Connection conn = dbConfig.getConnection();
                     PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -174,23 +227,23 @@ public class PostgreSQLProductRepository implements ProductRepository {
                ps.setString(12, p.getNote());
                ps.setInt(13, p.getId());
 
-               System.out.println("📤 Executing UPDATE query...");
+               LOG.debug("📤 Executing UPDATE query...");
                int affected = ps.executeUpdate();
-               System.out.println("✅ Rows affected: " + affected);
+               LOG.debug("✅ Rows affected: " + affected);
 
                if (affected > 0) {
-                    System.out.println("✅ Product updated successfully: ID = " + p.getId());
+                    LOG.debug("✅ Product updated successfully: ID = " + p.getId());
                     return p;
                } else {
-                    System.err.println("⚠️ WARNING: No rows affected. Product ID may not exist: " + p.getId());
+                    LOG.error("⚠️ WARNING: No rows affected. Product ID may not exist: " + p.getId());
                     return null;
                }
 
           } catch (SQLException e) {
-               System.err.println("❌ SQL ERROR in update():");
-               System.err.println("   Message: " + e.getMessage());
-               System.err.println("   SQL State: " + e.getSQLState());
-               System.err.println("   Error Code: " + e.getErrorCode());
+               LOG.error("❌ SQL ERROR in update():");
+               LOG.error("   Message: " + e.getMessage());
+               LOG.error("   SQL State: " + e.getSQLState());
+               LOG.error("   Error Code: " + e.getErrorCode());
                e.printStackTrace();
                return null;
           }
@@ -207,7 +260,7 @@ public class PostgreSQLProductRepository implements ProductRepository {
                return ps.executeUpdate() > 0;
 
           } catch (SQLException e) {
-               System.err.println("Error deleting product: " + e.getMessage());
+               LOG.error("Error deleting product: " + e.getMessage());
           }
 
           return false;
@@ -240,8 +293,8 @@ public class PostgreSQLProductRepository implements ProductRepository {
 
                return p;
           } catch (SQLException e) {
-               System.err.println("❌ ERROR mapping row:");
-               System.err.println("   Column error: " + e.getMessage());
+               LOG.error("❌ ERROR mapping row:");
+               LOG.error("   Column error: " + e.getMessage());
                throw e;
           }
      }
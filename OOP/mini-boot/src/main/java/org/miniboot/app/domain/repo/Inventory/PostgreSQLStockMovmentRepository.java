@@ -1,60 +1,260 @@
 package org.miniboot.app.domain.repo.Inventory;
 
+import org.miniboot.app.Service.StockMovementSearchCriteria;
 import org.miniboot.app.config.DatabaseConfig;
+import org.miniboot.app.config.DatabaseConstants;
+import org.miniboot.app.domain.models.Inventory.Enum.MoveType;
+import org.miniboot.app.domain.models.Inventory.StockBalance;
 import org.miniboot.app.domain.models.Inventory.StockMovement;
-
+import org.miniboot.app.domain.models.Inventory.StockMovementTotals;
+import org.miniboot.app.domain.models.Page;
+import org.miniboot.app.domain.repo.PageCursor;
+import org.miniboot.app.domain.repo.PageRequest;
+import org.miniboot.app.domain.repo.RowHandler;
+import org.miniboot.app.util.Logger;
+
+import java.io.IOException;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 
 public class PostgreSQLStockMovmentRepository implements StockMovementRepository {
+    private static final Logger LOG = Logger.get(PostgreSQLStockMovmentRepository.class);
+
     private final DatabaseConfig dbConfig;
+    private final StockSnapshotRepository snapshots;
+
+    private static final String SELECT_WITH_PRODUCT = "SELECT sm.id, sm.product_id, sm.qty, sm.move_type, sm.ref_table, sm.ref_id, " +
+            "sm.batch_no, sm.expiry_date, sm.serial_no, sm.moved_at, sm.moved_by, sm.note, " +
+            "p.name as product_name " +
+            "FROM stock_movements sm " +
+            "LEFT JOIN Products p ON sm.product_id = p.id ";
+    private static final String ORDER_BY = "ORDER BY sm.moved_at DESC, sm.id DESC";
+    private static final String FIND_ALL_SQL = SELECT_WITH_PRODUCT + ORDER_BY;
+    private static final String AGGREGATE_SQL = "SELECT sm.move_type, COUNT(*) AS cnt, " +
+            "COALESCE(SUM(sm.qty) FILTER (WHERE sm.qty > 0), 0) AS qty_in, " +
+            "COALESCE(SUM(-sm.qty) FILTER (WHERE sm.qty < 0), 0) AS qty_out " +
+            "FROM stock_movements sm ";
+    /** Mỗi cột là một mảng: số tham số không đổi theo kích thước lô */
+    private static final String INSERT_ROWS_SQL = "INSERT INTO stock_movements (product_id, qty, move_type, ref_table, ref_id, " +
+            "batch_no, expiry_date, serial_no, moved_at, moved_by, note) " +
+            "SELECT s.product_id, s.qty, s.move_type::stock_movement_type, s.ref_table, s.ref_id, " +
+            "s.batch_no, s.expiry_date, s.serial_no, s.moved_at, s.moved_by, s.note " +
+            "FROM unnest(?::int[], ?::int[], ?::text[], ?::varchar[], ?::int[], ?::varchar[], ?::date[], ?::varchar[], " +
+            "?::timestamp[], ?::int[], ?::text[]) WITH ORDINALITY " +
+            "AS s(product_id, qty, move_type, ref_table, ref_id, batch_no, expiry_date, serial_no, moved_at, moved_by, note, ord) " +
+            "ORDER BY s.ord RETURNING id";
+    private static final StockMovementSearchCriteria NO_FILTER = new StockMovementSearchCriteria(null, null, null, null);
 
     public PostgreSQLStockMovmentRepository() {
-        this.dbConfig = DatabaseConfig.getInstance();
+        this(new StockSnapshotRepository());
+    }
+
+    /**
+     * @param snapshots checkpoint tồn kho: được báo sau mỗi lần ghi, dùng để tính stats / tồn kho theo thời điểm
+     */
+    public PostgreSQLStockMovmentRepository(StockSnapshotRepository snapshots) {
+        this.dbConfig = DatabaseConfig.getInstance().forRepository(PostgreSQLStockMovmentRepository.class);
+        this.snapshots = snapshots;
     }
 
     @Override
     public List<StockMovement> findAll() {
         List<StockMovement> movements = new ArrayList<>();
-        String sql = "SELECT sm.id, sm.product_id, sm.qty, sm.move_type, sm.ref_table, sm.ref_id, " +
-                "sm.batch_no, sm.expiry_date, sm.serial_no, sm.moved_at, sm.moved_by, sm.note, " +
-                "p.name as product_name " +
-                "FROM stock_movements sm " +
-                "LEFT JOIN Products p ON sm.product_id = p.id " +
-                "ORDER BY sm.moved_at DESC";
+        String sql = FIND_ALL_SQL;
 
-        System.out.println("🔍 Executing SQL: " + sql);
+        LOG.debug("🔍 Executing SQL: " + sql);
 
         try (Connection conn = dbConfig.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
-            System.out.println("Database connection established successfully!");
-            System.out.println("Connected to: " + conn.getMetaData().getURL());
-            System.out.println("✅ Query executed successfully");
-
             while (rs.next()) {
-                System.out.println("📦 Mapping stock movement ID: " + rs.getInt("id"));
                 movements.add(mapRow(rs));
             }
 
-            System.out.println("✅ Found " + movements.size() + " stock movements");
+            LOG.debug("✅ Found " + movements.size() + " stock movements");
 
         } catch (SQLException e) {
-            System.err.println("❌ SQL ERROR in findAll():");
-            System.err.println("   Message: " + e.getMessage());
-            System.err.println("   SQL State: " + e.getSQLState());
-            System.err.println("   Error Code: " + e.getErrorCode());
-            e.printStackTrace();
+            LOG.error("❌ SQL ERROR in findAll() (SQL State: " + e.getSQLState() + ", Error Code: " + e.getErrorCode() + ")", e);
             throw new RuntimeException("Failed to fetch stock movements", e);
         }
 
         return movements;
     }
 
+    /**
+     * Stream toàn bộ stock movements bằng server-side cursor (fetch size cố định):
+     * mỗi dòng được map và giao cho handler ngay, không nạp cả bảng vào heap
+     */
+    @Override
+    public void streamAll(RowHandler<StockMovement> handler) throws IOException {
+        try (Connection conn = dbConfig.getConnection()) {
+            // PostgreSQL driver chỉ dùng cursor khi tắt autocommit
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.setFetchSize(DatabaseConstants.STREAM_FETCH_SIZE);
+                try (ResultSet rs = stmt.executeQuery(FIND_ALL_SQL)) {
+                    while (rs.next()) {
+                        handler.handle(mapRow(rs));
+                    }
+                }
+            } finally {
+                conn.rollback(); // Chỉ đọc - đóng transaction của cursor
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            LOG.error("❌ SQL ERROR in streamAll(): " + e.getMessage());
+            throw new RuntimeException("Failed to stream stock movements", e);
+        }
+    }
+
+    /**
+     * Một trang stock movements theo keyset (moved_at, id)
+     */
+    @Override
+    public Page<StockMovement> findPage(PageRequest request) {
+        return findPageByFilter(NO_FILTER, request);
+    }
+
+    @Override
+    public List<StockMovement> findByFilter(StockMovementSearchCriteria criteria) {
+        List<Object> params = new ArrayList<>();
+        String sql = SELECT_WITH_PRODUCT + where(criteria, params) + ORDER_BY;
+        List<StockMovement> movements = new ArrayList<>();
+
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    movements.add(mapRow(rs));
+                }
+            }
+
+        } catch (SQLException e) {
+            LOG.error("❌ SQL ERROR in findByFilter(): " + e.getMessage());
+            throw new RuntimeException("Failed to filter stock movements", e);
+        }
+
+        return movements;
+    }
+
+    /**
+     * Trang kế tiếp lấy bằng (moved_at, id) < cursor, ghép thêm vào điều kiện lọc
+     */
+    @Override
+    public Page<StockMovement> findPageByFilter(StockMovementSearchCriteria criteria, PageRequest request) {
+        List<StockMovement> rows = new ArrayList<>();
+        PageCursor.Reader cursor = request.isFirst() ? null : PageCursor.decode(request.cursor(), 2);
+
+        List<Object> params = new ArrayList<>();
+        StringBuilder where = new StringBuilder(where(criteria, params));
+        if (cursor != null) {
+            where.append(where.length() == 0 ? "WHERE " : "AND ").append("(sm.moved_at, sm.id) < (?, ?) ");
+            params.add(Timestamp.valueOf(cursor.nextDateTime()));
+            params.add(cursor.nextInt());
+        }
+        params.add(request.limit() + 1);
+        String sql = SELECT_WITH_PRODUCT + where + ORDER_BY + " LIMIT ?";
+
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapRow(rs));
+                }
+            }
+
+        } catch (SQLException e) {
+            LOG.error("❌ SQL ERROR in findPageByFilter(): " + e.getMessage());
+            throw new RuntimeException("Failed to fetch stock movements", e);
+        }
+
+        return Page.fromRows(rows, request.limit(), m -> PageCursor.encode(m.getMovedAt(), m.getId()));
+    }
+
+    /**
+     * Một dòng mỗi move_type: số giao dịch, tổng nhập, tổng xuất - database trả về tối đa 8 dòng
+     * dù sổ kho lớn đến đâu. Có from: quét khoảng [from, to] bằng index moved_at
+     */
+    @Override
+    public Map<MoveType, StockMovementTotals> aggregate(StockMovementSearchCriteria criteria) {
+        if (criteria.getDateFrom() == null) {
+            // Không có mốc đầu: tổng cộng dồn = checkpoint gần nhất + delta, không quét từ đầu sổ kho
+            LocalDateTime before = criteria.getDateTo() != null ? criteria.getDateTo().plusDays(1).atStartOfDay() : null;
+            return snapshots.cumulativeTotals(before, criteria.getProductId(), criteria.getMoveType());
+        }
+        List<Object> params = new ArrayList<>();
+        String sql = AGGREGATE_SQL + where(criteria, params) + "GROUP BY sm.move_type";
+        Map<MoveType, StockMovementTotals> totals = new EnumMap<>(MoveType.class);
+
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    totals.put(MoveType.valueOf(rs.getString("move_type").toUpperCase()),
+                            new StockMovementTotals(rs.getLong("cnt"), rs.getLong("qty_in"), rs.getLong("qty_out")));
+                }
+            }
+
+        } catch (SQLException e) {
+            LOG.error("❌ SQL ERROR in aggregate(): " + e.getMessage());
+            throw new RuntimeException("Failed to aggregate stock movements", e);
+        }
+
+        return totals;
+    }
+
+    @Override
+    public List<StockBalance> findBalances(LocalDateTime before, Integer productId) {
+        return snapshots.balancesAsOf(before, productId);
+    }
+
+    /**
+     * WHERE cho điều kiện lọc, chỉ so sánh trực tiếp trên cột (không bọc hàm) để dùng được index
+     * (product_id, moved_at). Giá trị tham số được thêm vào params theo đúng thứ tự dấu ?
+     */
+    private static String where(StockMovementSearchCriteria criteria, List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+        if (criteria.getProductId() != null) {
+            conditions.add("sm.product_id = ?");
+            params.add(criteria.getProductId());
+        }
+        if (criteria.getMoveType() != null) {
+            conditions.add("sm.move_type = ?::stock_movement_type");
+            params.add(criteria.getMoveType().name().toLowerCase());
+        }
+        if (criteria.getDateFrom() != null) {
+            conditions.add("sm.moved_at >= ?");
+            params.add(Timestamp.valueOf(criteria.getDateFrom().atStartOfDay()));
+        }
+        if (criteria.getDateTo() != null) {
+            conditions.add("sm.moved_at < ?");
+            params.add(Timestamp.valueOf(criteria.getDateTo().plusDays(1).atStartOfDay()));
+        }
+        return conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ";
+    }
+
+    private static void bind(PreparedStatement ps, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
+        }
+    }
+
     @Override
     public Optional<StockMovement> findById(int id) {
         String sql = "SELECT id, product_id, qty, move_type, ref_table, ref_id, " +
@@ -72,7 +272,7 @@ public class PostgreSQLStockMovmentRepository implements StockMovementRepository
             }
 
         } catch (SQLException e) {
-            System.err.println("❌ Error finding stock movement by ID: " + e.getMessage());
+            LOG.error("❌ Error finding stock movement by ID: " + e.getMessage());
             e.printStackTrace();
         }
 
@@ -112,21 +312,22 @@ public class PostgreSQLStockMovmentRepository implements StockMovementRepository
             }
 
             ps.setString(8, m.getSerialNo());
-            ps.setTimestamp(9, Timestamp.valueOf(
-                    m.getMovedAt() != null ? m.getMovedAt() : LocalDateTime.now()));
+            LocalDateTime movedAt = m.getMovedAt() != null ? m.getMovedAt() : LocalDateTime.now();
+            ps.setTimestamp(9, Timestamp.valueOf(movedAt));
             ps.setInt(10, m.getMovedBy());
             ps.setString(11, m.getNote());
 
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
                 m.setId(rs.getInt(1));
-                System.out.println("✅ Stock movement created: ID = " + m.getId());
+                LOG.debug("✅ Stock movement created: ID = " + m.getId());
 
                 // UPDATE product qty_on_hand
                 updateProductQuantity(conn, m.getProductId(), m.getQty());
+                snapshots.invalidateFrom(movedAt);
             }
         } catch (SQLException e) {
-            System.err.println("❌ Error inserting stock movement: " + e.getMessage());
+            LOG.error("❌ Error inserting stock movement: " + e.getMessage());
             e.printStackTrace();
             return null;
         }
@@ -134,72 +335,175 @@ public class PostgreSQLStockMovmentRepository implements StockMovementRepository
         return m;
     }
 
+    /**
+     * Ghi cả lô trong một transaction:
+     * - Khóa trước các dòng Products của lô theo thứ tự id (SELECT ... ORDER BY id FOR UPDATE):
+     *   hai lô ghi đồng thời luôn khóa theo cùng một thứ tự nên không deadlock
+     * - INSERT cả lô bằng một câu lệnh (mỗi cột là một mảng, unnest) thay vì một round trip mỗi dòng
+     * - Một câu UPDATE Products duy nhất cho tổng thay đổi qty_on_hand của từng sản phẩm
+     * Lỗi bất kỳ -> rollback, không dòng nào được ghi, ném RuntimeException
+     */
     private List<StockMovement> insertBatch(List<StockMovement> movements) {
-        String sql = "INSERT INTO stock_movements (product_id, qty, move_type, ref_table, ref_id, " +
-                "batch_no, expiry_date, serial_no, moved_at, moved_by, note) " +
-                "VALUES (?,?,?::stock_movement_type,?,?,?,?,?,?,?,?) RETURNING id";
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime earliest = null;
+        Map<Integer, Integer> deltas = new TreeMap<>();
+        for (StockMovement m : movements) {
+            if (m.getMovedAt() == null) {
+                m.setMovedAt(now);
+            }
+            if (earliest == null || m.getMovedAt().isBefore(earliest)) {
+                earliest = m.getMovedAt();
+            }
+            deltas.merge(m.getProductId(), m.getQty(), Integer::sum);
+        }
 
-        try (Connection conn = dbConfig.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (Connection conn = dbConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                lockProducts(conn, deltas.keySet());
+                insertRows(conn, movements);
+                applyQuantityDeltas(conn, deltas);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            LOG.error("❌ Error inserting stock movements: " + e.getMessage(), e);
+            throw new RuntimeException("Failed to insert stock movements", e);
+        }
 
-            // Thiết lập tự động cho mỗi StockMovement
-            for (StockMovement m : movements) {
-                ps.setInt(1, m.getProductId());
-                ps.setInt(2, m.getQty());
-                ps.setString(3, m.getMoveType().toLowerCase());
-                ps.setString(4, m.getRefTable());
+        LOG.debug("✅ Stock movements created: " + movements.size() + " rows, " + deltas.size() + " products");
+        snapshots.invalidateFrom(earliest);
+        return movements;
+    }
 
-                if (m.getRefId() != null) {
-                    ps.setInt(5, m.getRefId());
-                } else {
-                    ps.setNull(5, Types.INTEGER);
+    /**
+     * Khóa các dòng Products theo thứ tự id trước mọi lệnh ghi của transaction
+     */
+    private static void lockProducts(Connection conn, Set<Integer> productIds) throws SQLException {
+        String sql = "SELECT id FROM Products WHERE id = ANY(?) ORDER BY id FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setArray(1, conn.createArrayOf("integer", productIds.toArray()));
+            int locked = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    locked++;
                 }
+            }
+            if (locked != productIds.size()) {
+                throw new SQLException((productIds.size() - locked) + " products not found for qty update");
+            }
+        }
+    }
 
-                ps.setString(6, m.getBatchNo());
+    /**
+     * INSERT ... SELECT FROM unnest(...) WITH ORDINALITY ORDER BY ord RETURNING id
+     * <p>
+     * id lấy từ sequence theo đúng thứ tự các dòng được chèn (ORDER BY ord), nên id tăng dần theo ord:
+     * sắp xếp các id trả về rồi gán theo vị trí trong lô, không dựa vào thứ tự dòng của RETURNING
+     */
+    private static void insertRows(Connection conn, List<StockMovement> movements) throws SQLException {
+        int n = movements.size();
+        Object[] productIds = new Object[n];
+        Object[] qtys = new Object[n];
+        Object[] moveTypes = new Object[n];
+        Object[] refTables = new Object[n];
+        Object[] refIds = new Object[n];
+        Object[] batchNos = new Object[n];
+        Object[] expiryDates = new Object[n];
+        Object[] serialNos = new Object[n];
+        Object[] movedAts = new Object[n];
+        Object[] movedBys = new Object[n];
+        Object[] notes = new Object[n];
+        for (int i = 0; i < n; i++) {
+            StockMovement m = movements.get(i);
+            productIds[i] = m.getProductId();
+            qtys[i] = m.getQty();
+            moveTypes[i] = m.getMoveType().toLowerCase();
+            refTables[i] = m.getRefTable();
+            refIds[i] = m.getRefId();
+            batchNos[i] = m.getBatchNo();
+            expiryDates[i] = m.getExpiryDate() != null ? java.sql.Date.valueOf(m.getExpiryDate()) : null;
+            serialNos[i] = m.getSerialNo();
+            movedAts[i] = Timestamp.valueOf(m.getMovedAt());
+            movedBys[i] = m.getMovedBy();
+            notes[i] = m.getNote();
+        }
 
-                if (m.getExpiryDate() != null) {
-                    ps.setDate(7, java.sql.Date.valueOf(m.getExpiryDate()));
-                } else {
-                    ps.setNull(7, Types.DATE);
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_ROWS_SQL)) {
+            ps.setArray(1, conn.createArrayOf("integer", productIds));
+            ps.setArray(2, conn.createArrayOf("integer", qtys));
+            ps.setArray(3, conn.createArrayOf("text", moveTypes));
+            ps.setArray(4, conn.createArrayOf("text", refTables));
+            ps.setArray(5, conn.createArrayOf("integer", refIds));
+            ps.setArray(6, conn.createArrayOf("text", batchNos));
+            ps.setArray(7, conn.createArrayOf("date", expiryDates));
+            ps.setArray(8, conn.createArrayOf("text", serialNos));
+            ps.setArray(9, conn.createArrayOf("timestamp", movedAts));
+            ps.setArray(10, conn.createArrayOf("integer", movedBys));
+            ps.setArray(11, conn.createArrayOf("text", notes));
+
+            int[] ids = new int[n];
+            int count = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (count == n) {
+                        throw new SQLException("Unexpected extra id for stock movement batch");
+                    }
+                    ids[count++] = rs.getInt(1);
                 }
+            }
+            if (count != n) {
+                throw new SQLException("Missing generated id for stock movement batch");
+            }
+            Arrays.sort(ids);
+            for (int i = 0; i < n; i++) {
+                movements.get(i).setId(ids[i]);
+            }
+        }
+    }
 
-                ps.setString(8, m.getSerialNo());
-                ps.setTimestamp(9, Timestamp.valueOf(
-                        m.getMovedAt() != null ? m.getMovedAt() : LocalDateTime.now()));
-                ps.setInt(10, m.getMovedBy());
-                ps.setString(11, m.getNote());
+    /**
+     * Cộng tổng thay đổi vào qty_on_hand của mọi sản phẩm trong lô bằng một câu lệnh
+     * (các dòng đã được lockProducts khóa)
+     */
+    private static void applyQuantityDeltas(Connection conn, Map<Integer, Integer> deltas) throws SQLException {
+        String sql = "UPDATE Products p SET qty_on_hand = p.qty_on_hand + d.delta " +
+                "FROM unnest(?::int[], ?::int[]) AS d(id, delta) WHERE p.id = d.id";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setArray(1, conn.createArrayOf("integer", deltas.keySet().toArray()));
+            ps.setArray(2, conn.createArrayOf("integer", deltas.values().toArray()));
+            ps.executeUpdate();
+        }
+    }
 
-                // Thêm câu lệnh vào batch
-                ps.addBatch();
-            }
+    @Override
+    public Set<Integer> findMissingProductIds(Set<Integer> productIds) {
+        Set<Integer> missing = new HashSet<>(productIds);
+        if (missing.isEmpty()) {
+            return missing;
+        }
+        String sql = "SELECT id FROM Products WHERE id = ANY(?)";
 
-            // Thực thi batch
-            int[] updateCounts = ps.executeBatch();
-
-            // Kiểm tra và lấy kết quả trả về (id của các stock movement mới tạo)
-            for (int i = 0; i < movements.size(); i++) {
-                if (updateCounts[i] > 0) {
-                    // Lấy id cho mỗi StockMovement mới
-                    ResultSet rs = ps.getGeneratedKeys();
-                    if (rs.next()) {
-                        movements.get(i).setId(rs.getInt(1));  // Gán id cho StockMovement
-                        System.out.println("✅ Stock movement created: ID = " + movements.get(i).getId());
-                    }
-                }
-            }
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
 
-            // UPDATE product qty_on_hand
-            for (StockMovement m : movements) {
-                updateProductQuantity(conn, m.getProductId(), m.getQty());
+            ps.setArray(1, conn.createArrayOf("integer", productIds.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    missing.remove(rs.getInt(1));
+                }
             }
 
         } catch (SQLException e) {
-            System.err.println("❌ Error inserting stock movements: " + e.getMessage());
-            e.printStackTrace();
-            return null;
+            LOG.error("❌ SQL ERROR in findMissingProductIds(): " + e.getMessage());
+            throw new RuntimeException("Failed to check products", e);
         }
 
-        return movements;
+        return missing;
     }
 
     @Override
@@ -210,7 +514,7 @@ public class PostgreSQLStockMovmentRepository implements StockMovementRepository
 
     private StockMovement update(StockMovement m) {
         // Cần lấy qty và product_id CŨ để revert, sau đó apply qty MỚI
-        String selectSql = "SELECT product_id, qty FROM stock_movements WHERE id = ?";
+        String selectSql = "SELECT product_id, qty, moved_at FROM stock_movements WHERE id = ?";
         String updateSql = "UPDATE stock_movements SET product_id=?, qty=?, move_type=?::stock_movement_type, " +
                 "ref_table=?, ref_id=?, batch_no=?, expiry_date=?, serial_no=?, " +
                 "moved_at=?, moved_by=?, note=? WHERE id=?";
@@ -220,12 +524,14 @@ public class PostgreSQLStockMovmentRepository implements StockMovementRepository
             // 1️⃣ Lấy giá trị CŨ
             int oldProductId = 0;
             int oldQty = 0;
+            Timestamp oldMovedAt = null;
             try (PreparedStatement ps = conn.prepareStatement(selectSql)) {
                 ps.setInt(1, m.getId());
                 ResultSet rs = ps.executeQuery();
                 if (rs.next()) {
                     oldProductId = rs.getInt("product_id");
                     oldQty = rs.getInt("qty");
+                    oldMovedAt = rs.getTimestamp("moved_at");
                 }
             }
 
@@ -258,7 +564,7 @@ public class PostgreSQLStockMovmentRepository implements StockMovementRepository
 
                 int affected = ps.executeUpdate();
                 if (affected > 0) {
-                    System.out.println("✅ Stock movement updated: ID = " + m.getId());
+                    LOG.debug("✅ Stock movement updated: ID = " + m.getId());
 
                     // 3️⃣ UPDATE product quantities
                     // Revert old change
@@ -267,11 +573,18 @@ public class PostgreSQLStockMovmentRepository implements StockMovementRepository
                     }
                     // Apply new change
                     updateProductQuantity(conn, m.getProductId(), m.getQty());
+
+                    // Checkpoint sau mốc sớm hơn giữa moved_at cũ và mới không còn đúng
+                    LocalDateTime affectedFrom = m.getMovedAt();
+                    if (oldMovedAt != null && oldMovedAt.toLocalDateTime().isBefore(affectedFrom)) {
+                        affectedFrom = oldMovedAt.toLocalDateTime();
+                    }
+                    snapshots.invalidateFrom(affectedFrom);
                 }
             }
 
         } catch (SQLException e) {
-            System.err.println("❌ Error updating stock movement: " + e.getMessage());
+            LOG.error("❌ Error updating stock movement: " + e.getMessage());
             e.printStackTrace();
             return null;
         }
@@ -281,21 +594,23 @@ public class PostgreSQLStockMovmentRepository implements StockMovementRepository
 
     @Override
     public boolean deleteById(int id) {
-        String sql = "DELETE FROM stock_movements WHERE id = ?";
+        String sql = "DELETE FROM stock_movements WHERE id = ? RETURNING moved_at";
 
         try (Connection conn = dbConfig.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, id);
-            int affected = ps.executeUpdate();
-
-            if (affected > 0) {
-                System.out.println("✅ Stock movement deleted: ID = " + id);
-                return true;
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    LOG.debug("✅ Stock movement deleted: ID = " + id);
+                    Timestamp movedAt = rs.getTimestamp(1);
+                    snapshots.invalidateFrom(movedAt != null ? movedAt.toLocalDateTime() : null);
+                    return true;
+                }
             }
 
         } catch (SQLException e) {
-            System.err.println("❌ Error deleting stock movement: " + e.getMessage());
+            LOG.error("❌ Error deleting stock movement: " + e.getMessage());
             e.printStackTrace();
         }
 
@@ -344,8 +659,8 @@ public class PostgreSQLStockMovmentRepository implements StockMovementRepository
 
             return m;
         } catch (SQLException e) {
-            System.err.println("❌ ERROR mapping stock movement row:");
-            System.err.println("   Column error: " + e.getMessage());
+            LOG.error("❌ ERROR mapping stock movement row:");
+            LOG.error("   Column error: " + e.getMessage());
             throw e;
         }
     }
@@ -363,9 +678,9 @@ public class PostgreSQLStockMovmentRepository implements StockMovementRepository
         // lowercase)
         String sql = "UPDATE Products SET qty_on_hand = qty_on_hand + ? WHERE id = ?";
 
-        System.out.println("🔄 Updating product quantity:");
-        System.out.println("   Product ID: " + productId);
-        System.out.println("   Quantity Change: " + qtyChange);
+        LOG.debug("🔄 Updating product quantity:");
+        LOG.debug("   Product ID: " + productId);
+        LOG.debug("   Quantity Change: " + qtyChange);
 
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, qtyChange);
@@ -373,15 +688,15 @@ public class PostgreSQLStockMovmentRepository implements StockMovementRepository
 
             int affected = ps.executeUpdate();
             if (affected > 0) {
-                System.out.println("✅ Updated qty_on_hand for Product ID " + productId +
+                LOG.debug("✅ Updated qty_on_hand for Product ID " + productId +
                         " by " + (qtyChange > 0 ? "+" : "") + qtyChange);
             } else {
-                System.err.println("⚠️ Product ID " + productId + " not found for qty update");
+                LOG.error("⚠️ Product ID " + productId + " not found for qty update");
             }
         } catch (SQLException e) {
-            System.err.println("❌ Error updating product quantity: " + e.getMessage());
-            System.err.println("   SQL: " + sql);
-            System.err.println("   Product ID: " + productId + ", Qty Change: " + qtyChange);
+            LOG.error("❌ Error updating product quantity: " + e.getMessage());
+            LOG.error("   SQL: " + sql);
+            LOG.error("   Product ID: " + productId + ", Qty Change: " + qtyChange);
             e.printStackTrace();
         }
     }
@@ -4,10 +4,17 @@ import java.util.List;
 import java.util.Optional;
 
 import org.miniboot.app.domain.models.Inventory.Product;
+import org.miniboot.app.domain.models.Page;
+import org.miniboot.app.domain.repo.PageRequest;
 
 public interface ProductRepository {
      List<Product> findAll();
 
+     /**
+      * Một trang sản phẩm đang active, cùng thứ tự với findAll (name, id)
+      */
+     Page<Product> findPage(PageRequest request);
+
      Optional<Product> findById(int id);
 
      Optional<Product> findBySku(String sku);
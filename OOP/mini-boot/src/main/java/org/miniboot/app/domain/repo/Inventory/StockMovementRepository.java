@@ -1,18 +1,77 @@
 package org.miniboot.app.domain.repo.Inventory;
 
+import org.miniboot.app.Service.StockMovementSearchCriteria;
+import org.miniboot.app.domain.models.Inventory.Enum.MoveType;
+import org.miniboot.app.domain.models.Inventory.StockBalance;
 import org.miniboot.app.domain.models.Inventory.StockMovement;
+import org.miniboot.app.domain.models.Inventory.StockMovementTotals;
+import org.miniboot.app.domain.models.Page;
+import org.miniboot.app.domain.repo.PageRequest;
+import org.miniboot.app.domain.repo.RowHandler;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface StockMovementRepository {
     List<StockMovement> findAll();
 
+    /**
+     * Duyệt toàn bộ stock movements (cùng thứ tự với findAll) mà không gom vào List
+     */
+    default void streamAll(RowHandler<StockMovement> handler) throws IOException {
+        for (StockMovement movement : findAll()) {
+            handler.handle(movement);
+        }
+    }
+
+    /**
+     * Một trang stock movements, cùng thứ tự với findAll (moved_at giảm dần, id giảm dần)
+     */
+    Page<StockMovement> findPage(PageRequest request);
+
+    /**
+     * Stock movements thỏa điều kiện lọc, cùng thứ tự với findAll - lọc trong SQL, không nạp cả sổ kho
+     */
+    List<StockMovement> findByFilter(StockMovementSearchCriteria criteria);
+
+    /**
+     * Một trang stock movements thỏa điều kiện lọc (phân trang keyset như findPage)
+     */
+    Page<StockMovement> findPageByFilter(StockMovementSearchCriteria criteria, PageRequest request);
+
+    /**
+     * Tổng hợp COUNT / SUM theo move_type cho các stock movements thỏa điều kiện lọc.
+     * Loại không có giao dịch nào thì không có trong map
+     */
+    Map<MoveType, StockMovementTotals> aggregate(StockMovementSearchCriteria criteria);
+
+    /**
+     * Tồn kho (và giá trị tồn theo giá nhập) từng sản phẩm tính từ các movement có moved_at < before
+     *
+     * @param before    null = hiện tại
+     * @param productId null = mọi sản phẩm
+     */
+    List<StockBalance> findBalances(LocalDateTime before, Integer productId);
+
     Optional<StockMovement> findById(int id);
 
     boolean deleteById(int id);
 
     StockMovement save(StockMovement stockmovement);
 
+    /**
+     * Ghi cả lô trong một transaction (tất cả hoặc không dòng nào), cập nhật qty_on_hand theo tổng từng sản phẩm
+     *
+     * @return danh sách đã gán id, null nếu ghi thất bại
+     */
     List<StockMovement> saveAll(List<StockMovement> movements);
+
+    /**
+     * Các product id trong danh sách không tồn tại trong Products (một query cho cả lô)
+     */
+    Set<Integer> findMissingProductIds(Set<Integer> productIds);
 }
@@ -0,0 +1,388 @@
+package org.miniboot.app.domain.repo.Inventory;
+
+import org.miniboot.app.config.DatabaseConfig;
+import org.miniboot.app.domain.models.Inventory.Enum.MoveType;
+import org.miniboot.app.domain.models.Inventory.StockBalance;
+import org.miniboot.app.domain.models.Inventory.StockMovementTotals;
+import org.miniboot.app.util.Logger;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checkpoint tồn kho theo sản phẩm (stock_snapshot_runs + stock_snapshots)
+ * <p>
+ * - Mỗi checkpoint tại thời điểm T lưu, cho từng (sản phẩm, move_type), số giao dịch và tổng nhập / xuất
+ *   cộng dồn của mọi movement có moved_at < T. Tồn kho = SUM(qty_in - qty_out).
+ * - Checkpoint mới = checkpoint trước + các movement trong [T trước, T) - không quét lại cả sổ kho.
+ * - Truy vấn "tại thời điểm X" = checkpoint gần nhất trước X + movement trong [checkpoint, X),
+ *   quét delta bằng index (product_id, moved_at) / (moved_at).
+ * - Ghi movement có moved_at < checkpoint mới nhất (nhập lùi ngày, sửa, xóa) làm checkpoint đó sai:
+ *   invalidateFrom() xóa các checkpoint sau moved_at, lần chạy kế tiếp sẽ dựng lại.
+ * - verify() đối chiếu checkpoint mới nhất với sổ kho và qty_on_hand với tổng movement.
+ * Nếu chưa tạo được bảng (ensureSchema lỗi / tắt), mọi truy vấn quét thẳng stock_movements.
+ */
+public class StockSnapshotRepository {
+    private static final Logger LOG = Logger.get(StockSnapshotRepository.class);
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS stock_snapshot_runs (" +
+                    "snapshot_at timestamp PRIMARY KEY, " +
+                    "created_at timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP)",
+            "CREATE TABLE IF NOT EXISTS stock_snapshots (" +
+                    "snapshot_at timestamp NOT NULL REFERENCES stock_snapshot_runs(snapshot_at) ON DELETE CASCADE, " +
+                    "product_id integer NOT NULL, " +
+                    "move_type stock_movement_type NOT NULL, " +
+                    "movement_count bigint NOT NULL, " +
+                    "qty_in bigint NOT NULL, " +
+                    "qty_out bigint NOT NULL, " +
+                    "PRIMARY KEY (snapshot_at, product_id, move_type))",
+            "CREATE INDEX IF NOT EXISTS idx_stock_movements_product_moved_at ON stock_movements (product_id, moved_at)",
+            // (moved_at, id): khoảng thời gian và phân trang keyset (moved_at, id); thay index (moved_at) cũ
+            "CREATE INDEX IF NOT EXISTS idx_stock_movements_moved_at_id ON stock_movements (moved_at, id)",
+            "DROP INDEX IF EXISTS idx_stock_movements_moved_at"
+    };
+
+    /** Kết quả đối chiếu của verify() */
+    public record VerifyResult(LocalDateTime snapshotAt, int snapshotMismatches, int qtyOnHandDrift) {
+    }
+
+    private final DatabaseConfig dbConfig;
+    private volatile boolean available;
+    /** Checkpoint mới nhất (null = chưa có) - chỉ dùng để quyết định có cần xóa checkpoint khi ghi hay không */
+    private volatile LocalDateTime latestSnapshotAt;
+    /** Checkpoint đang được tạo; movement ghi lùi về trước mốc này trong lúc tạo sẽ hủy checkpoint đó */
+    private volatile LocalDateTime pendingSnapshotAt;
+    /** moved_at sớm nhất của các movement ghi lùi về trước pendingSnapshotAt trong lúc đang tạo */
+    private final AtomicReference<LocalDateTime> racedMovedAt = new AtomicReference<>();
+
+    public StockSnapshotRepository() {
+        this.dbConfig = DatabaseConfig.getInstance().forRepository(StockSnapshotRepository.class);
+    }
+
+    /**
+     * Tạo bảng checkpoint và index cho stock_movements nếu chưa có
+     */
+    public void ensureSchema() throws SQLException {
+        try (Connection conn = dbConfig.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String ddl : SCHEMA) {
+                stmt.execute(ddl);
+            }
+            latestSnapshotAt = latestSnapshotAt(conn, null);
+        }
+        available = true;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public LocalDateTime getLatestSnapshotAt() {
+        return latestSnapshotAt;
+    }
+
+    /**
+     * Tạo checkpoint tại cutoff từ checkpoint trước đó + movement trong [checkpoint trước, cutoff).
+     * Chỉ gọi từ một thread (job định kỳ)
+     *
+     * @return false nếu đã có checkpoint tại / sau cutoff
+     */
+    public boolean createSnapshot(LocalDateTime cutoff, int retain) throws SQLException {
+        if (!available) {
+            return false;
+        }
+        racedMovedAt.set(null);
+        pendingSnapshotAt = cutoff;
+        try (Connection conn = dbConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                LocalDateTime latest = latestSnapshotAt(conn, null);
+                if (latest != null && !latest.isBefore(cutoff)) {
+                    conn.rollback();
+                    return false;
+                }
+
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO stock_snapshot_runs (snapshot_at) VALUES (?)")) {
+                    ps.setTimestamp(1, Timestamp.valueOf(cutoff));
+                    ps.executeUpdate();
+                }
+
+                List<Object> params = new ArrayList<>();
+                params.add(Timestamp.valueOf(cutoff));
+                StringBuilder sql = new StringBuilder("INSERT INTO stock_snapshots " +
+                        "(snapshot_at, product_id, move_type, movement_count, qty_in, qty_out) " +
+                        "SELECT ?, product_id, move_type, SUM(movement_count), SUM(qty_in), SUM(qty_out) FROM (");
+                appendCumulative(sql, params, latest, cutoff, null, null, "product_id, move_type");
+                sql.append(") t GROUP BY product_id, move_type");
+
+                int rows;
+                try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                    bind(ps, params);
+                    rows = ps.executeUpdate();
+                }
+
+                // Giữ lại `retain` checkpoint mới nhất (stock_snapshots xóa theo ON DELETE CASCADE)
+                try (PreparedStatement ps = conn.prepareStatement("DELETE FROM stock_snapshot_runs WHERE snapshot_at < " +
+                        "(SELECT snapshot_at FROM stock_snapshot_runs ORDER BY snapshot_at DESC OFFSET ? LIMIT 1)")) {
+                    ps.setInt(1, Math.max(1, retain) - 1);
+                    ps.executeUpdate();
+                }
+
+                conn.commit();
+                latestSnapshotAt = cutoff; // trước khi bỏ pendingSnapshotAt: writer luôn thấy một trong hai
+                LOG.info("Stock snapshot created at " + cutoff + " (" + rows + " rows, previous: " + latest + ")");
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } finally {
+            pendingSnapshotAt = null;
+        }
+
+        LocalDateTime raced = racedMovedAt.get();
+        if (raced != null) {
+            // Có movement ghi lùi về trước cutoff trong lúc đang tạo: checkpoint có thể đã thiếu nó
+            invalidateAfter(raced);
+        }
+        return true;
+    }
+
+    /**
+     * Gọi sau mỗi lần ghi movement với moved_at nhỏ nhất bị ảnh hưởng (cũ và mới khi update).
+     * Chỉ chạm DB khi moved_at nằm trước checkpoint mới nhất
+     */
+    public void invalidateFrom(LocalDateTime movedAt) {
+        if (!available || movedAt == null) {
+            return;
+        }
+        LocalDateTime pending = pendingSnapshotAt;
+        if (pending != null && movedAt.isBefore(pending)) {
+            racedMovedAt.accumulateAndGet(movedAt, (a, b) -> a == null || b.isBefore(a) ? b : a);
+        }
+        LocalDateTime latest = latestSnapshotAt;
+        if (latest == null || !movedAt.isBefore(latest)) {
+            return;
+        }
+        try {
+            invalidateAfter(movedAt);
+        } catch (SQLException e) {
+            LOG.error("❌ Cannot invalidate stock snapshots after " + movedAt + ": " + e.getMessage());
+        }
+    }
+
+    private void invalidateAfter(LocalDateTime movedAt) throws SQLException {
+        try (Connection conn = dbConfig.getConnection()) {
+            int deleted;
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM stock_snapshot_runs WHERE snapshot_at > ?")) {
+                ps.setTimestamp(1, Timestamp.valueOf(movedAt));
+                deleted = ps.executeUpdate();
+            }
+            latestSnapshotAt = latestSnapshotAt(conn, null);
+            if (deleted > 0) {
+                LOG.info("Stock snapshots after " + movedAt + " invalidated (" + deleted + " checkpoints)");
+            }
+        }
+    }
+
+    /**
+     * Tổng theo move_type của các movement có moved_at < before (before null = tất cả),
+     * lọc thêm theo sản phẩm / move_type nếu có
+     */
+    public Map<MoveType, StockMovementTotals> cumulativeTotals(LocalDateTime before, Integer productId, MoveType moveType) {
+        Map<MoveType, StockMovementTotals> totals = new EnumMap<>(MoveType.class);
+        try (Connection conn = dbConfig.getConnection()) {
+            LocalDateTime snapshotAt = available ? latestSnapshotAt(conn, before) : null;
+
+            List<Object> params = new ArrayList<>();
+            StringBuilder sql = new StringBuilder("SELECT move_type, SUM(movement_count) AS movement_count, " +
+                    "SUM(qty_in) AS qty_in, SUM(qty_out) AS qty_out FROM (");
+            appendCumulative(sql, params, snapshotAt, before, productId, moveType, "move_type");
+            sql.append(") t GROUP BY move_type");
+
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                bind(ps, params);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        totals.put(MoveType.valueOf(rs.getString("move_type").toUpperCase()),
+                                new StockMovementTotals(rs.getLong("movement_count"),
+                                        rs.getLong("qty_in"), rs.getLong("qty_out")));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error("❌ SQL ERROR in cumulativeTotals(): " + e.getMessage());
+            throw new RuntimeException("Failed to aggregate stock movements", e);
+        }
+        return totals;
+    }
+
+    /**
+     * Tồn kho từng sản phẩm tính đến trước thời điểm before (before null = hiện tại).
+     * Gồm sản phẩm đang active và sản phẩm ngừng bán nhưng vẫn còn tồn
+     */
+    public List<StockBalance> balancesAsOf(LocalDateTime before, Integer productId) {
+        List<StockBalance> balances = new ArrayList<>();
+        try (Connection conn = dbConfig.getConnection()) {
+            LocalDateTime snapshotAt = available ? latestSnapshotAt(conn, before) : null;
+
+            List<Object> params = new ArrayList<>();
+            StringBuilder sql = new StringBuilder("SELECT p.id, p.sku, p.name, p.price_cost, COALESCE(b.qty, 0) AS qty " +
+                    "FROM products p LEFT JOIN (SELECT product_id, SUM(qty_in) - SUM(qty_out) AS qty FROM (");
+            appendCumulative(sql, params, snapshotAt, before, productId, null, "product_id");
+            sql.append(") t GROUP BY product_id) b ON b.product_id = p.id WHERE ");
+            if (productId != null) {
+                sql.append("p.id = ? ");
+                params.add(productId);
+            } else {
+                sql.append("(p.is_active = TRUE OR COALESCE(b.qty, 0) <> 0) ");
+            }
+            sql.append("ORDER BY p.name, p.id");
+
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                bind(ps, params);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Integer priceCost = (Integer) rs.getObject("price_cost");
+                        balances.add(new StockBalance(rs.getInt("id"), rs.getString("sku"), rs.getString("name"),
+                                rs.getLong("qty"), priceCost));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error("❌ SQL ERROR in balancesAsOf(): " + e.getMessage());
+            throw new RuntimeException("Failed to compute stock balances", e);
+        }
+        return balances;
+    }
+
+    /**
+     * Đối chiếu checkpoint mới nhất với tổng tính lại từ sổ kho (checkpoint sai thì xóa toàn bộ để dựng lại),
+     * và đếm số sản phẩm có qty_on_hand lệch với tổng movement
+     */
+    public VerifyResult verify() throws SQLException {
+        try (Connection conn = dbConfig.getConnection()) {
+            LocalDateTime snapshotAt = available ? latestSnapshotAt(conn, null) : null;
+
+            int mismatches = 0;
+            if (snapshotAt != null) {
+                String sql = "SELECT COUNT(*) FROM " +
+                        "(SELECT * FROM stock_snapshots WHERE snapshot_at = ?) s FULL JOIN (" +
+                        ledgerTotals("product_id, move_type") + "WHERE moved_at < ? GROUP BY product_id, move_type) l " +
+                        "ON s.product_id = l.product_id AND s.move_type = l.move_type " +
+                        "WHERE s.movement_count IS DISTINCT FROM l.movement_count " +
+                        "OR s.qty_in IS DISTINCT FROM l.qty_in OR s.qty_out IS DISTINCT FROM l.qty_out";
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setTimestamp(1, Timestamp.valueOf(snapshotAt));
+                    ps.setTimestamp(2, Timestamp.valueOf(snapshotAt));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        mismatches = rs.getInt(1);
+                    }
+                }
+                if (mismatches > 0) {
+                    // Checkpoint dựng nối tiếp nhau: không biết sai từ mốc nào -> bỏ hết, lần chạy sau dựng lại từ đầu
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.executeUpdate("DELETE FROM stock_snapshot_runs");
+                    }
+                    latestSnapshotAt = null;
+                }
+            }
+
+            int drift;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM products p LEFT JOIN " +
+                         "(SELECT product_id, SUM(qty) AS qty FROM stock_movements GROUP BY product_id) l " +
+                         "ON l.product_id = p.id WHERE p.qty_on_hand <> COALESCE(l.qty, 0)")) {
+                rs.next();
+                drift = rs.getInt(1);
+            }
+            return new VerifyResult(snapshotAt, mismatches, drift);
+        }
+    }
+
+    /**
+     * Nối vào sql một UNION ALL: các dòng của checkpoint snapshotAt (nếu có)
+     * + tổng movement trong [snapshotAt, before), nhóm theo groupBy
+     */
+    private static void appendCumulative(StringBuilder sql, List<Object> params, LocalDateTime snapshotAt,
+                                         LocalDateTime before, Integer productId, MoveType moveType, String groupBy) {
+        if (snapshotAt != null) {
+            sql.append("SELECT ").append(groupBy).append(", movement_count, qty_in, qty_out " +
+                    "FROM stock_snapshots WHERE snapshot_at = ? ");
+            params.add(Timestamp.valueOf(snapshotAt));
+            appendFilters(sql, params, productId, moveType);
+            sql.append("UNION ALL ");
+        }
+
+        List<String> conditions = new ArrayList<>();
+        if (snapshotAt != null) {
+            conditions.add("moved_at >= ?");
+            params.add(Timestamp.valueOf(snapshotAt));
+        }
+        if (before != null) {
+            conditions.add("moved_at < ?");
+            params.add(Timestamp.valueOf(before));
+        }
+        sql.append(ledgerTotals(groupBy));
+        sql.append("WHERE TRUE ");
+        for (String condition : conditions) {
+            sql.append("AND ").append(condition).append(' ');
+        }
+        appendFilters(sql, params, productId, moveType);
+        sql.append("GROUP BY ").append(groupBy).append(' ');
+    }
+
+    /**
+     * SELECT số giao dịch, tổng nhập, tổng xuất của stock_movements theo các cột nhóm (chưa có WHERE / GROUP BY)
+     */
+    private static String ledgerTotals(String groupBy) {
+        return "SELECT " + groupBy + ", COUNT(*) AS movement_count, " +
+                "COALESCE(SUM(qty) FILTER (WHERE qty > 0), 0) AS qty_in, " +
+                "COALESCE(SUM(-qty) FILTER (WHERE qty < 0), 0) AS qty_out " +
+                "FROM stock_movements ";
+    }
+
+    private static void appendFilters(StringBuilder sql, List<Object> params, Integer productId, MoveType moveType) {
+        if (productId != null) {
+            sql.append("AND product_id = ? ");
+            params.add(productId);
+        }
+        if (moveType != null) {
+            sql.append("AND move_type = ?::stock_movement_type ");
+            params.add(moveType.name().toLowerCase());
+        }
+    }
+
+    /**
+     * Checkpoint mới nhất có snapshot_at <= before (before null = mới nhất)
+     */
+    private static LocalDateTime latestSnapshotAt(Connection conn, LocalDateTime before) throws SQLException {
+        String sql = before == null
+                ? "SELECT MAX(snapshot_at) FROM stock_snapshot_runs"
+                : "SELECT MAX(snapshot_at) FROM stock_snapshot_runs WHERE snapshot_at <= ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (before != null) {
+                ps.setTimestamp(1, Timestamp.valueOf(before));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                Timestamp ts = rs.next() ? rs.getTimestamp(1) : null;
+                return ts != null ? ts.toLocalDateTime() : null;
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement ps, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
+        }
+    }
+}
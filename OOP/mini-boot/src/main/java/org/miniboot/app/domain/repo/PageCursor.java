@@ -0,0 +1,81 @@
+package org.miniboot.app.domain.repo;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Mã hóa / giải mã cursor của phân trang keyset
+ * <p>
+ * Cursor là giá trị các cột sắp xếp của phần tử cuối trang (vd. start_time + id), nối bằng ký tự
+ * phân cách rồi base64url - client chỉ gửi lại nguyên văn, không cần hiểu nội dung.
+ * Cursor hỏng / sửa tay -> IllegalArgumentException (controller trả 400).
+ */
+public final class PageCursor {
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = "\u001F"; // unit separator: không xuất hiện trong dữ liệu thường
+
+    private PageCursor() {
+    }
+
+    /**
+     * @param keys giá trị các cột sắp xếp, theo đúng thứ tự của ORDER BY
+     */
+    public static String encode(Object... keys) {
+        StringBuilder sb = new StringBuilder(VERSION);
+        for (Object key : keys) {
+            sb.append(SEPARATOR).append(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param parts số giá trị mà cursor phải có
+     */
+    public static Reader decode(String cursor, int parts) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String[] values = raw.split(SEPARATOR, -1);
+        if (values.length != parts + 1 || !values[0].equals(VERSION)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return new Reader(values);
+    }
+
+    /**
+     * Đọc lần lượt các giá trị trong cursor
+     */
+    public static final class Reader {
+        private final String[] values;
+        private int index = 1;
+
+        private Reader(String[] values) {
+            this.values = values;
+        }
+
+        public String nextString() {
+            return values[index++];
+        }
+
+        public int nextInt() {
+            try {
+                return Integer.parseInt(nextString());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        public LocalDateTime nextDateTime() {
+            try {
+                return LocalDateTime.parse(nextString());
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.miniboot.app.domain.repo;
+
+/**
+ * Tham số phân trang keyset cho findPage() của các repository
+ *
+ * @param cursor cursor trả về ở trang trước (Page.next), null = trang đầu
+ * @param limit  số phần tử tối đa của trang (> 0)
+ */
+public record PageRequest(String cursor, int limit) {
+    public PageRequest {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be > 0");
+        }
+        if (cursor != null && cursor.isBlank()) {
+            cursor = null;
+        }
+    }
+
+    public static PageRequest first(int limit) {
+        return new PageRequest(null, limit);
+    }
+
+    public boolean isFirst() {
+        return cursor == null;
+    }
+}
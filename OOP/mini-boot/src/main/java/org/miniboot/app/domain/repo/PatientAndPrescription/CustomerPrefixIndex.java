@@ -0,0 +1,196 @@
+package org.miniboot.app.domain.repo.PatientAndPrescription;
+
+import org.miniboot.app.domain.models.CustomerAndPrescription.Customer;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trie tên / số điện thoại customer trong bộ nhớ cho gợi ý khi gõ (typeahead)
+ * <p>
+ * - Khóa đã chuẩn hóa (bỏ dấu, đ -> d, chữ thường): số điện thoại, "họ tên" bắt đầu từ mỗi từ
+ *   và "tên họ", nên "an", "van an", "nguyen van a", "an nguyen" đều khớp "Nguyễn Văn An".
+ * - Kết quả theo thứ tự khóa: khớp trọn khóa trước, sau đó theo bảng chữ cái.
+ * - PostgreSQLCustomerRecordRepository cập nhật khi save / deleteById, load() nạp lại toàn bộ.
+ * Một lock đọc/ghi: tìm kiếm chạy song song, ghi hiếm và ngắn.
+ */
+final class CustomerPrefixIndex {
+    private static final class Node {
+        final TreeMap<Character, Node> children = new TreeMap<>();
+        Set<Integer> ids; // customer có một khóa kết thúc tại node này
+    }
+
+    private Node root = new Node();
+    private final Map<Integer, Customer> customers = new HashMap<>();
+    private final Map<Integer, Set<String>> keysById = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    void load(Collection<Customer> all) {
+        lock.writeLock().lock();
+        try {
+            root = new Node();
+            customers.clear();
+            keysById.clear();
+            for (Customer c : all) {
+                putLocked(c);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void put(Customer c) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(c.getId());
+            putLocked(c);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    List<Customer> search(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.children.get(key.charAt(i));
+            }
+            if (node == null) {
+                return List.of();
+            }
+            Set<Integer> ids = new LinkedHashSet<>();
+            collect(node, ids, limit);
+            List<Customer> out = new ArrayList<>(ids.size());
+            for (Integer id : ids) {
+                out.add(customers.get(id));
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return customers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bỏ dấu tiếng Việt, đ -> d, chữ thường, gộp khoảng trắng
+     */
+    static String normalize(String s) {
+        if (s == null) {
+            return "";
+        }
+        String stripped = Normalizer.normalize(s, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .replace('đ', 'd')
+                .replace('Đ', 'D');
+        return stripped.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+
+    private void putLocked(Customer c) {
+        Set<String> keys = keysOf(c);
+        for (String key : keys) {
+            Node node = root;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), ch -> new Node());
+            }
+            if (node.ids == null) {
+                node.ids = new LinkedHashSet<>();
+            }
+            node.ids.add(c.getId());
+        }
+        customers.put(c.getId(), c);
+        keysById.put(c.getId(), keys);
+    }
+
+    private void removeLocked(int id) {
+        Set<String> keys = keysById.remove(id);
+        customers.remove(id);
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            removeKey(root, key, 0, id);
+        }
+    }
+
+    /** Trả về true nếu node không còn dữ liệu (cha bỏ nhánh này) */
+    private static boolean removeKey(Node node, String key, int depth, int id) {
+        if (depth == key.length()) {
+            if (node.ids != null) {
+                node.ids.remove(id);
+                if (node.ids.isEmpty()) {
+                    node.ids = null;
+                }
+            }
+        } else {
+            char ch = key.charAt(depth);
+            Node child = node.children.get(ch);
+            if (child != null && removeKey(child, key, depth + 1, id)) {
+                node.children.remove(ch);
+            }
+        }
+        return node.ids == null && node.children.isEmpty();
+    }
+
+    private static boolean collect(Node node, Set<Integer> out, int limit) {
+        if (node.ids != null) {
+            for (Integer id : node.ids) {
+                out.add(id);
+                if (out.size() >= limit) {
+                    return true;
+                }
+            }
+        }
+        for (Node child : node.children.values()) {
+            if (collect(child, out, limit)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<String> keysOf(Customer c) {
+        Set<String> keys = new LinkedHashSet<>();
+        String last = normalize(c.getLastname());
+        String first = normalize(c.getFirstname());
+        String[] words = normalize(last + " " + first).split(" ");
+        for (int i = 0; i < words.length; i++) {
+            keys.add(String.join(" ", List.of(words).subList(i, words.length)));
+        }
+        keys.add(normalize(first + " " + last));
+        String phone = normalize(c.getPhone()).replace(" ", "");
+        keys.add(phone);
+        keys.remove("");
+        return keys;
+    }
+}
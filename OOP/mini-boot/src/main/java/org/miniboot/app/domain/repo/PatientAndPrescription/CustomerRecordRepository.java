@@ -2,6 +2,8 @@ package org.miniboot.app.domain.repo.PatientAndPrescription;
 
 import org.miniboot.app.Service.CustomerSearchCriteria;
 import org.miniboot.app.domain.models.CustomerAndPrescription.Customer;
+import org.miniboot.app.domain.models.Page;
+import org.miniboot.app.domain.repo.PageRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -14,8 +16,22 @@ public interface CustomerRecordRepository {
 
     List<Customer> findAll();
 
+    /**
+     * Một trang customer theo id tăng dần (phân trang keyset)
+     */
+    Page<Customer> findPage(PageRequest request);
+
+    /**
+     * Tìm theo searchKey (tên không dấu / số điện thoại / id) + gender + khoảng ngày sinh,
+     * kết quả khớp tốt nhất trước, tối đa criteria.getLimit()
+     */
     List<Customer> findByFilterAll(CustomerSearchCriteria criteria);
 
+    /**
+     * Gợi ý khi gõ: customer có tên (từ bất kỳ) hoặc số điện thoại bắt đầu bằng prefix
+     */
+    List<Customer> typeahead(String prefix, int limit);
+
     boolean deleteById(int id);
 
 
@@ -1,24 +1,104 @@
 package org.miniboot.app.domain.repo.PatientAndPrescription;
 
+import org.miniboot.app.AppConfig;
 import org.miniboot.app.Service.CustomerSearchCriteria;
 import org.miniboot.app.Service.mappers.CustomerAndPrescription.CustomerMapper;
 import org.miniboot.app.config.DatabaseConfig;
 import org.miniboot.app.controllers.UserController;
 import org.miniboot.app.domain.models.CustomerAndPrescription.Customer;
+import org.miniboot.app.domain.models.Page;
+import org.miniboot.app.domain.repo.PageCursor;
+import org.miniboot.app.domain.repo.PageRequest;
 import org.miniboot.app.util.CustomerAndPrescriptionConfig;
+import org.miniboot.app.util.Logger;
 
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.StringReader;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
 
 public class PostgreSQLCustomerRecordRepository implements  CustomerRecordRepository {
+    private static final Logger LOG = Logger.get(PostgreSQLCustomerRecordRepository.class);
+
+    // Phải giống hệt biểu thức của idx_customers_name_trgm để planner dùng được index
+    private static final String NAME_EXPR =
+            "customer_search_text(coalesce(c.lastname, '') || ' ' || coalesce(c.firstname, ''))";
+
     private final DatabaseConfig dbConfig;
+    private final CustomerPrefixIndex prefixIndex; // null nếu CUSTOMER_PREFIX_INDEX_ENABLED = false
+    // Schema của pg_trgm (qualify operator / hàm), null -> chưa có index trigram, tìm bằng LIKE như cũ
+    private volatile String trgmSchema;
 
     public PostgreSQLCustomerRecordRepository() {
-        this.dbConfig = DatabaseConfig.getInstance();
+        this.dbConfig = DatabaseConfig.getInstance().forRepository(PostgreSQLCustomerRecordRepository.class);
+        this.prefixIndex = AppConfig.CUSTOMER_PREFIX_INDEX_ENABLED ? new CustomerPrefixIndex() : null;
+    }
+
+    /**
+     * Tạo (nếu chưa có) extension pg_trgm + unaccent, hàm customer_search_text (bỏ dấu + chữ thường, IMMUTABLE
+     * để dùng trong index) và index GIN trigram cho tên, số điện thoại. Lỗi -> findByFilterAll dùng LIKE như cũ
+     */
+    public void ensureSearchIndexes() throws SQLException {
+        try (Connection conn = dbConfig.getConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            st.execute("CREATE EXTENSION IF NOT EXISTS unaccent");
+            // Extension có thể nằm ngoài public (vd. schema extensions của Supabase)
+            String trgm = extensionSchema(conn, "pg_trgm");
+            String unaccent = extensionSchema(conn, "unaccent");
+            st.execute("""
+                    CREATE OR REPLACE FUNCTION customer_search_text(text) RETURNS text
+                        LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT
+                        AS $$ SELECT lower(%1$s.unaccent('%1$s.unaccent'::regdictionary, $1)) $$
+                    """.formatted(unaccent));
+            st.execute("CREATE INDEX IF NOT EXISTS idx_customers_name_trgm ON customers USING gin ("
+                    + NAME_EXPR.replace("c.", "") + " " + trgm + ".gin_trgm_ops)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_customers_phone_trgm ON customers USING gin (phone "
+                    + trgm + ".gin_trgm_ops)");
+            trgmSchema = trgm;
+        }
+    }
 
+    private static String extensionSchema(Connection conn, String extension) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT quote_ident(n.nspname)
+                FROM pg_extension e
+                JOIN pg_namespace n ON n.oid = e.extnamespace
+                WHERE e.extname = ?
+                """)) {
+            ps.setString(1, extension);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) throw new SQLException("Extension " + extension + " is not installed");
+                return rs.getString(1);
+            }
+        }
+    }
+
+    /**
+     * Nạp toàn bộ customer vào trie typeahead (nếu bật), trả về số customer đã nạp
+     */
+    public int warmUp() throws SQLException {
+        if (prefixIndex == null) {
+            return 0;
+        }
+        List<Customer> all = new ArrayList<>();
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM customers ORDER BY id");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                all.add(CustomerMapper.mapResultSetToCustomer(rs));
+            }
+        }
+        prefixIndex.load(all);
+        return all.size();
     }
     public Customer save(Customer customer) {
         LocalDateTime now = LocalDateTime.now();
@@ -31,16 +111,19 @@ public class PostgreSQLCustomerRecordRepository implements  CustomerRecordReposi
 
         Customer savedCustomer;
         if(customer.getId() <= 0){
-            System.out.println("📝 Inserting new customer: " + customer.getUsername());
+            LOG.debug("📝 Inserting new customer: " + customer.getUsername());
             savedCustomer = insertCustomer(customer).orElse(null);
         } else {
-            System.out.println("📝 Updating existing customer: " + customer.getId());
+            LOG.debug("📝 Updating existing customer: " + customer.getId());
             savedCustomer = updateCustomer(customer).orElse(null);
         }
 
         if(savedCustomer == null) {
             throw new RuntimeException("Failed to save customer to database");
         }
+        if (prefixIndex != null) {
+            prefixIndex.put(savedCustomer);
+        }
 
         return savedCustomer;
     }
@@ -64,27 +147,27 @@ public class PostgreSQLCustomerRecordRepository implements  CustomerRecordReposi
 
             int affectedRows = pstmt.executeUpdate();
             if (affectedRows == 0) {
-                System.err.println("❌ Insert failed: No rows affected");
+                LOG.error("❌ Insert failed: No rows affected");
                 throw new SQLException("Inserting customer failed, no rows affected.");
             }
 
             try(ResultSet generatedKeys = pstmt.getGeneratedKeys()){
                 if(generatedKeys.next()){
                     customer.setId(generatedKeys.getInt(1));
-                    System.out.println("✅ Customer inserted successfully with ID: " + customer.getId());
+                    LOG.debug("✅ Customer inserted successfully with ID: " + customer.getId());
                 } else {
-                    System.err.println("❌ Insert failed: No ID generated");
+                    LOG.error("❌ Insert failed: No ID generated");
                     throw new SQLException("Inserting customer failed, no ID obtained.");
                 }
             }
         }
         catch (Exception e){
-            System.err.println("❌ Error inserting Customer: " + e.getMessage());
+            LOG.error("❌ Error inserting Customer: " + e.getMessage());
             e.printStackTrace();
             // QUAN TRỌNG: Throw exception để controller biết có lỗi
             throw new RuntimeException("Database insert failed: " + e.getMessage(), e);
         }
-        System.out.println("✅ Customer save completed successfully");
+        LOG.debug("✅ Customer save completed successfully");
         return Optional.of(customer);
     }
     private Optional<Customer> updateCustomer(Customer customer) {
@@ -111,11 +194,11 @@ public class PostgreSQLCustomerRecordRepository implements  CustomerRecordReposi
             }
         }
         catch (Exception e){
-            System.err.println("❌ Error updating Customer: " + e.getMessage());
+            LOG.error("❌ Error updating Customer: " + e.getMessage());
             e.printStackTrace();
             return Optional.empty();
         }
-        System.out.println("OK");
+        LOG.debug("OK");
         return Optional.of(customer);
     }
     public void saveAll(List<Customer> customers) {
@@ -153,14 +236,93 @@ public class PostgreSQLCustomerRecordRepository implements  CustomerRecordReposi
             }
 
         } catch (Exception e) {
-            System.err.println("❌ Error save Custommer: " + e.getMessage());
+            LOG.error("❌ Error save Custommer: " + e.getMessage());
             e.printStackTrace();
             return;
 
         }
-        System.out.println("OK");
+        LOG.debug("OK");
+        // Batch không trả id -> nạp lại trie từ DB
+        if (prefixIndex != null) {
+            try {
+                warmUp();
+            } catch (SQLException e) {
+                LOG.error("❌ Error reloading customer prefix index: " + e.getMessage());
+            }
+        }
+
+    }
+    /**
+     * Ghi một lô customer bằng COPY ... FROM STDIN (một round trip, không parse từng INSERT).
+     * Customer phải đã có username / password / created_at; id không được trả về.
+     * Một lô là một transaction: lỗi -> không dòng nào của lô được ghi
+     */
+    public int copyInsert(List<Customer> customers) throws SQLException {
+        if (customers.isEmpty()) {
+            return 0;
+        }
+        StringBuilder csv = new StringBuilder(customers.size() * 160);
+        for (Customer c : customers) {
+            appendCsv(csv, c.getUsername()).append(',');
+            appendCsv(csv, c.getPassword()).append(',');
+            appendCsv(csv, c.getFirstname()).append(',');
+            appendCsv(csv, c.getLastname()).append(',');
+            appendCsv(csv, c.getPhone()).append(',');
+            appendCsv(csv, c.getEmail()).append(',');
+            appendCsv(csv, c.getDob() != null ? c.getDob().toString() : null).append(',');
+            appendCsv(csv, c.getGender() != null ? c.getGender().name() : null).append(',');
+            appendCsv(csv, c.getAddress()).append(',');
+            appendCsv(csv, c.getNote()).append(',');
+            appendCsv(csv, c.getCreatedAt() != null ? c.getCreatedAt().toString() : null).append('\n');
+        }
+        try (Connection conn = dbConfig.getConnection()) {
+            CopyManager copy = conn.unwrap(PGConnection.class).getCopyAPI();
+            try {
+                long rows = copy.copyIn("COPY customers (username, password, firstname, lastname, phone, email, "
+                        + "dob, gender, address, note, created_at) FROM STDIN WITH (FORMAT csv)", new StringReader(csv.toString()));
+                return (int) rows;
+            } catch (IOException e) {
+                throw new SQLException("COPY customers failed: " + e.getMessage(), e);
+            }
+        }
+    }
 
+    // CSV của COPY: null -> ô trống không quote (NULL), còn lại luôn quote (chuỗi rỗng vẫn là '')
+    private static StringBuilder appendCsv(StringBuilder sb, String value) {
+        if (value == null) {
+            return sb;
+        }
+        return sb.append('"').append(value.replace("\"", "\"\"")).append('"');
     }
+
+    /**
+     * Nạp số điện thoại (trim) và email (trim, chữ thường) của mọi customer, cùng username của
+     * customer / employee / admin (đăng nhập tìm theo username qua cả ba bảng) vào các set
+     */
+    public void loadContacts(Set<String> phones, Set<String> emails, Set<String> usernames) throws SQLException {
+        try (Connection conn = dbConfig.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT phone, email, username FROM customers");
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String phone = rs.getString(1);
+                    String email = rs.getString(2);
+                    String username = rs.getString(3);
+                    if (phone != null && !phone.isBlank()) phones.add(phone.trim());
+                    if (email != null && !email.isBlank()) emails.add(email.trim().toLowerCase(Locale.ROOT));
+                    if (username != null) usernames.add(username);
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT username FROM employees UNION ALL SELECT username FROM admins");
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String username = rs.getString(1);
+                    if (username != null) usernames.add(username);
+                }
+            }
+        }
+    }
+
     public List<Customer> findAll() {
         List<Customer> customers = new ArrayList<>();
         String sqlQuery = "SELECT * FROM customers ORDER BY id;";
@@ -172,7 +334,7 @@ public class PostgreSQLCustomerRecordRepository implements  CustomerRecordReposi
             }
         }
         catch (Exception e){
-            System.err.println("❌ Error findAll Custommer: " + e.getMessage());
+            LOG.error("❌ Error findAll Custommer: " + e.getMessage());
             e.printStackTrace();
             return null;
 
@@ -180,53 +342,120 @@ public class PostgreSQLCustomerRecordRepository implements  CustomerRecordReposi
 
         return customers;
     }
+    /**
+     * Phân trang keyset theo id: WHERE id > cursor, dùng luôn primary key index
+     */
+    public Page<Customer> findPage(PageRequest request) {
+        List<Customer> rows = new ArrayList<>();
+        Integer afterId = request.isFirst() ? null : PageCursor.decode(request.cursor(), 1).nextInt();
+        String sqlQuery = "SELECT * FROM customers " + (afterId != null ? "WHERE id > ? " : "") + "ORDER BY id LIMIT ?";
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sqlQuery)) {
+            int index = 1;
+            if (afterId != null) {
+                pstmt.setInt(index++, afterId);
+            }
+            pstmt.setInt(index, request.limit() + 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(CustomerMapper.mapResultSetToCustomer(rs));
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error("❌ Error findPage Customer: " + e.getMessage());
+            throw new RuntimeException("Database find failed: " + e.getMessage(), e);
+        }
+        return Page.fromRows(rows, request.limit(), c -> PageCursor.encode(c.getId()));
+    }
+    /**
+     * - Có index trigram: tên so sánh không dấu (customer_search_text), khớp chuỗi con hoặc gần đúng theo từ
+     *   (word similarity, chịu được gõ sai), số điện thoại khớp chuỗi con, hoặc đúng id.
+     *   Xếp hạng: đúng id > số điện thoại bắt đầu bằng key > một từ trong tên bắt đầu bằng key
+     *   > độ giống, cùng hạng thì id mới trước.
+     * - Chưa có index: LIKE như cũ, id mới trước
+     */
     public List<Customer> findByFilterAll(CustomerSearchCriteria criteria) {
         List<Customer> customers = new ArrayList<>();
 
+        String trgm = trgmSchema;
+        String key = criteria.getSearchKey() == null ? "" : criteria.getSearchKey().trim();
+        boolean ranked = trgm != null && !key.isEmpty();
+
         // Xây dựng SQL query động dựa trên criteria có giá trị
-        StringBuilder sqlQuery = new StringBuilder("SELECT * FROM customers WHERE 1=1");
+        StringBuilder sqlQuery = new StringBuilder();
         List<Object> parameters = new ArrayList<>();
 
-        // Thêm điều kiện search key (firstname, lastname, phone, id)
-        if (criteria.getSearchKey() != null && !criteria.getSearchKey().trim().isEmpty()) {
-            sqlQuery.append(" AND (LOWER(firstname) LIKE LOWER(?) OR LOWER(lastname) LIKE LOWER(?) OR phone LIKE ? OR id = ?)");
-            String searchPattern = "%" + criteria.getSearchKey().trim() + "%";
-            parameters.add(searchPattern); // firstname
-            parameters.add(searchPattern); // lastname
-            parameters.add(criteria.getSearchKey().trim()); // phone
-
-            // Thử parse thành int cho id, nếu không được thì set -1
-            try {
-                parameters.add(Integer.parseInt(criteria.getSearchKey().trim())); // id
-            } catch (NumberFormatException e) {
-                parameters.add(-1); // ID không hợp lệ
+        if (ranked) {
+            // Không dùng CTE cho term: CTE tham chiếu nhiều lần bị materialize, planner không thấy hằng số
+            // để dùng index GIN -> gọi customer_search_text(?) ngay trong từng điều kiện (IMMUTABLE, tính một lần)
+            String escaped = escapeLike(key);
+            sqlQuery.append("SELECT c.* FROM customers c WHERE (")
+                    .append(NAME_EXPR).append(" LIKE '%' || customer_search_text(?) || '%'")
+                    .append(" OR customer_search_text(?) OPERATOR(").append(trgm).append(".<%) ").append(NAME_EXPR)
+                    .append(" OR c.phone LIKE '%' || ? || '%'")
+                    .append(" OR c.id = ?)");
+            parameters.add(escaped);
+            parameters.add(key);
+            parameters.add(escaped);
+            parameters.add(parseId(key));
+        } else {
+            sqlQuery.append("SELECT * FROM customers c WHERE 1=1");
+            // Thêm điều kiện search key (firstname, lastname, phone, id)
+            if (!key.isEmpty()) {
+                sqlQuery.append(" AND (LOWER(firstname) LIKE LOWER(?) OR LOWER(lastname) LIKE LOWER(?) OR phone LIKE ? OR id = ?)");
+                String searchPattern = "%" + escapeLike(key) + "%";
+                parameters.add(searchPattern); // firstname
+                parameters.add(searchPattern); // lastname
+                parameters.add(escapeLike(key)); // phone
+                parameters.add(parseId(key)); // id
             }
         }
 
         // Thêm điều kiện gender
         if (criteria.getGender() != null) {
-            sqlQuery.append(" AND UPPER(gender) = UPPER(?)");
+            sqlQuery.append(" AND UPPER(c.gender) = UPPER(?)");
             parameters.add(criteria.getGender().name());
         }
 
         // Thêm điều kiện date from
         if (criteria.getDateFrom() != null) {
-            sqlQuery.append(" AND dob >= ?");
+            sqlQuery.append(" AND c.dob >= ?");
             parameters.add(Date.valueOf(criteria.getDateFrom()));
         }
 
         // Thêm điều kiện date to
         if (criteria.getDateTo() != null) {
-            sqlQuery.append(" AND dob <= ?");
+            sqlQuery.append(" AND c.dob <= ?");
             parameters.add(Date.valueOf(criteria.getDateTo()));
         }
-        sqlQuery.append(" ORDER BY id DESC;");
 
-        System.out.println("🔍 SQL Query: " + sqlQuery.toString());
-        System.out.println("🔍 Parameters: " + parameters);
+        if (ranked) {
+            String escaped = escapeLike(key);
+            sqlQuery.append(" ORDER BY CASE")
+                    .append(" WHEN c.id = ? THEN 0")
+                    .append(" WHEN c.phone LIKE ? || '%' THEN 1")
+                    .append(" WHEN ").append(NAME_EXPR).append(" LIKE customer_search_text(?) || '%'")
+                    .append(" OR ").append(NAME_EXPR).append(" LIKE '% ' || customer_search_text(?) || '%' THEN 2")
+                    .append(" ELSE 3 END, ")
+                    .append(trgm).append(".word_similarity(customer_search_text(?), ").append(NAME_EXPR).append(") DESC, c.id DESC");
+            parameters.add(parseId(key));
+            parameters.add(escaped);
+            parameters.add(escaped);
+            parameters.add(escaped);
+            parameters.add(key);
+        } else {
+            sqlQuery.append(" ORDER BY c.id DESC");
+        }
+        if (criteria.getLimit() != null) {
+            sqlQuery.append(" LIMIT ?");
+            parameters.add(criteria.getLimit());
+        }
 
-        try (Connection conn = dbConfig.getConnection()){
-            PreparedStatement pstmt = conn.prepareStatement(sqlQuery.toString());
+        LOG.debug("🔍 SQL Query: " + sqlQuery.toString());
+        LOG.debug("🔍 Parameters: " + parameters);
+
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sqlQuery.toString())) {
 
             // Set parameters
             for (int i = 0; i < parameters.size(); i++) {
@@ -240,31 +469,61 @@ public class PostgreSQLCustomerRecordRepository implements  CustomerRecordReposi
                 }
             }
 
-            ResultSet rs = pstmt.executeQuery();
-            while(rs.next()){
-                customers.add(CustomerMapper.mapResultSetToCustomer(rs));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while(rs.next()){
+                    customers.add(CustomerMapper.mapResultSetToCustomer(rs));
+                }
             }
 
-            System.out.println("✅ Found " + customers.size() + " customers matching criteria");
+            LOG.debug("✅ Found " + customers.size() + " customers matching criteria");
 
         } catch (Exception e) {
-            System.err.println("❌ Error findByFilter Customer: " + e.getMessage());
+            LOG.error("❌ Error findByFilter Customer: " + e.getMessage());
             e.printStackTrace();
             return new ArrayList<>(); // Trả về empty list thay vì null
         }
 
         return customers;
     }
+
+    /**
+     * Trie trong bộ nhớ nếu bật CUSTOMER_PREFIX_INDEX_ENABLED, ngược lại tìm xếp hạng trong DB
+     */
+    @Override
+    public List<Customer> typeahead(String prefix, int limit) {
+        if (prefixIndex != null) {
+            return prefixIndex.search(prefix, limit);
+        }
+        return findByFilterAll(new CustomerSearchCriteria(prefix, null, null, null, limit));
+    }
+
+    // Thử parse thành int cho id, nếu không được thì -1 (không khớp id nào)
+    private static int parseId(String key) {
+        try {
+            return Integer.parseInt(key);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Ký tự đặc biệt của LIKE trong key được tìm như ký tự thường (escape mặc định là \)
+    private static String escapeLike(String key) {
+        return key.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
     public boolean deleteById(int id) {
         String sqlQuery = "DELETE FROM customers WHERE id = ?;";
         try (Connection conn = dbConfig.getConnection()){
             PreparedStatement pstmt = conn.prepareStatement(sqlQuery);
             pstmt.setInt(1, id);
             int affectedRows = pstmt.executeUpdate();
+            if (affectedRows > 0 && prefixIndex != null) {
+                prefixIndex.remove(id);
+            }
             return affectedRows > 0;
         }
         catch (Exception e){
-            System.err.println("❌ Error delete Customer: " + e.getMessage());
+            LOG.error("❌ Error delete Customer: " + e.getMessage());
             e.printStackTrace();
             return false;
         }
@@ -281,7 +540,7 @@ public class PostgreSQLCustomerRecordRepository implements  CustomerRecordReposi
             }
         }
         catch (Exception e){
-            System.err.println("❌ Error exist Customer: " + e.getMessage());
+            LOG.error("❌ Error exist Customer: " + e.getMessage());
             e.printStackTrace();
             return false;
         }
@@ -297,7 +556,7 @@ public class PostgreSQLCustomerRecordRepository implements  CustomerRecordReposi
             }
         }
         catch (Exception e){
-            System.err.println("❌ Error count Customer: " + e.getMessage());
+            LOG.error("❌ Error count Customer: " + e.getMessage());
             e.printStackTrace();
             return 0;
         }
@@ -317,7 +576,7 @@ public class PostgreSQLCustomerRecordRepository implements  CustomerRecordReposi
                 return Optional.of(CustomerMapper.mapResultSetToCustomer(rs));
             }
         } catch (SQLException e) {
-            System.err.println("❌ Error finding customer by phone: " + e.getMessage());
+            LOG.error("❌ Error finding customer by phone: " + e.getMessage());
             e.printStackTrace();
             throw new RuntimeException("Database find failed: " + e.getMessage(), e);
         }
@@ -337,7 +596,7 @@ public class PostgreSQLCustomerRecordRepository implements  CustomerRecordReposi
                 return Optional.of(CustomerMapper.mapResultSetToCustomer(rs));
             }
         } catch (SQLException e) {
-            System.err.println("❌ Error finding customer by email: " + e.getMessage());
+            LOG.error("❌ Error finding customer by email: " + e.getMessage());
             e.printStackTrace();
             throw new RuntimeException("Database find failed: " + e.getMessage(), e);
         }
@@ -3,6 +3,10 @@ package org.miniboot.app.domain.repo.PatientAndPrescription;
 import org.miniboot.app.Service.mappers.CustomerAndPrescription.PrescriptionMapper;
 import org.miniboot.app.config.DatabaseConfig;
 import org.miniboot.app.domain.models.CustomerAndPrescription.Prescription;
+import org.miniboot.app.domain.models.Page;
+import org.miniboot.app.domain.repo.PageCursor;
+import org.miniboot.app.domain.repo.PageRequest;
+import org.miniboot.app.util.Logger;
 
 import java.math.BigDecimal;
 import java.sql.*;
@@ -11,16 +15,18 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class PostgreSQLPrescription implements PrescriptionRepository {
+    private static final Logger LOG = Logger.get(PostgreSQLPrescription.class);
+
     private final DatabaseConfig dbConfig;
 
     public PostgreSQLPrescription() {
-        dbConfig = DatabaseConfig.getInstance();
+        dbConfig = DatabaseConfig.getInstance().forRepository(PostgreSQLPrescription.class);
     }
 
 
     public List<Prescription> findAll(){
         List<Prescription> prescriptions = new ArrayList<>();
-        String sqlQuery = "SELECT * FROM prescriptions";
+        String sqlQuery = "SELECT * FROM prescriptions ORDER BY id";
         try(Connection conn = dbConfig.getConnection()){
 
 
@@ -34,7 +40,7 @@ public class PostgreSQLPrescription implements PrescriptionRepository {
 
 
         } catch (SQLException e) {
-            System.err.println("❌ Error find all Prescriptions: " + e.getMessage());
+            LOG.error("❌ Error find all Prescriptions: " + e.getMessage());
             e.printStackTrace();
             // QUAN TRỌNG: Throw exception để controller biết có lỗi
             throw new RuntimeException("Database find failed: " + e.getMessage(), e);
@@ -42,6 +48,32 @@ public class PostgreSQLPrescription implements PrescriptionRepository {
 
         return prescriptions;
     }
+    /**
+     * Phân trang keyset theo id: WHERE id > cursor, dùng luôn primary key index
+     */
+    public Page<Prescription> findPage(PageRequest request) {
+        List<Prescription> rows = new ArrayList<>();
+        Integer afterId = request.isFirst() ? null : PageCursor.decode(request.cursor(), 1).nextInt();
+        String sqlQuery = "SELECT * FROM prescriptions " + (afterId != null ? "WHERE id > ? " : "") + "ORDER BY id LIMIT ?";
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement psmt = conn.prepareStatement(sqlQuery)) {
+            int index = 1;
+            if (afterId != null) {
+                psmt.setInt(index++, afterId);
+            }
+            psmt.setInt(index, request.limit() + 1);
+            try (ResultSet rs = psmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(PrescriptionMapper.mapResultSetToPrescription(rs));
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error("❌ Error find Prescription page: " + e.getMessage());
+            throw new RuntimeException("Database find failed: " + e.getMessage(), e);
+        }
+        return Page.fromRows(rows, request.limit(), p -> PageCursor.encode(p.getId()));
+    }
+
     public List<Prescription> findByCustomerId(int customer_id){
         List<Prescription> prescriptions = new ArrayList<>();
         String sqlQuery = "SELECT * FROM prescriptions WHERE customer_id = ?";
@@ -54,7 +86,7 @@ public class PostgreSQLPrescription implements PrescriptionRepository {
             }
 
         } catch (SQLException e) {
-            System.err.println("❌ Error find Prescriptions By customer Id: " + e.getMessage());
+            LOG.error("❌ Error find Prescriptions By customer Id: " + e.getMessage());
             e.printStackTrace();
             // QUAN TRỌNG: Throw exception để controller biết có lỗi
             throw new RuntimeException("Database find failed: " + e.getMessage(), e);
@@ -73,7 +105,7 @@ public class PostgreSQLPrescription implements PrescriptionRepository {
             }
 
         } catch (SQLException e) {
-            System.err.println("❌ Error find Prescriptions appointmentId: " + e.getMessage());
+            LOG.error("❌ Error find Prescriptions appointmentId: " + e.getMessage());
             e.printStackTrace();
             // QUAN TRỌNG: Throw exception để controller biết có lỗi
             throw new RuntimeException("Database find failed: " + e.getMessage(), e);
@@ -120,9 +152,9 @@ public class PostgreSQLPrescription implements PrescriptionRepository {
             LocalDate updatedAt = prescription.getUpdated_at() != null ? prescription.getUpdated_at() : LocalDate.now();
             LocalDate signedAt = prescription.getSignedAt() != null ? prescription.getSignedAt() : LocalDate.now();
 
-            System.out.println("🔍 INSERT DEBUG - createdAt: " + createdAt + ", updatedAt: " + updatedAt + ", signedAt: " + signedAt);
-            System.out.println("🔍 INSERT DEBUG - Material: " + prescription.getMaterial() + ", Lens_type: " + prescription.getLens_type());
-            System.out.println("🔍 INSERT DEBUG - Base_od: " + prescription.getBase_od() + ", Base_os: " + prescription.getBase_os());
+            LOG.debug("🔍 INSERT DEBUG - createdAt: " + createdAt + ", updatedAt: " + updatedAt + ", signedAt: " + signedAt);
+            LOG.debug("🔍 INSERT DEBUG - Material: " + prescription.getMaterial() + ", Lens_type: " + prescription.getLens_type());
+            LOG.debug("🔍 INSERT DEBUG - Base_od: " + prescription.getBase_od() + ", Base_os: " + prescription.getBase_os());
 
             psmt.setInt(1, prescription.getAppointmentId());
             psmt.setInt(2, prescription.getCustomerId());
@@ -132,14 +164,14 @@ public class PostgreSQLPrescription implements PrescriptionRepository {
                 psmt.setDate(3, Date.valueOf(createdAt));
 
             } catch (Exception e) {
-                System.err.println("❌ Error setting created_at: createdAt=" + createdAt);
+                LOG.error("❌ Error setting created_at: createdAt=" + createdAt);
                 throw new RuntimeException("Failed to set created_at: " + e.getMessage(), e);
             }
 
             try {
                 psmt.setDate(4, Date.valueOf(updatedAt));
             } catch (Exception e) {
-                System.err.println("❌ Error setting updated_at: updatedAt=" + updatedAt);
+                LOG.error("❌ Error setting updated_at: updatedAt=" + updatedAt);
                 throw new RuntimeException("Failed to set updated_at: " + e.getMessage(), e);
             }
 
@@ -172,7 +204,7 @@ public class PostgreSQLPrescription implements PrescriptionRepository {
             try {
                 psmt.setDate(30, Date.valueOf(signedAt));
             } catch (Exception e) {
-                System.err.println("❌ Error setting signed_at: signedAt=" + signedAt);
+                LOG.error("❌ Error setting signed_at: signedAt=" + signedAt);
                 throw new RuntimeException("Failed to set signed_at: " + e.getMessage(), e);
             }
 
@@ -190,7 +222,7 @@ public class PostgreSQLPrescription implements PrescriptionRepository {
             }
         }
         catch (SQLException e){
-            System.err.println("❌ Error insert Prescriptions: " + e.getMessage());
+            LOG.error("❌ Error insert Prescriptions: " + e.getMessage());
             e.printStackTrace();
             // QUAN TRỌNG: Throw exception để controller biết có lỗi
             throw new RuntimeException("DatabaseF insert failed: " + e.getMessage(), e);
@@ -266,7 +298,7 @@ public class PostgreSQLPrescription implements PrescriptionRepository {
             }
 
         } catch (SQLException e){
-            System.err.println("❌ Error update Prescription: " + e.getMessage());
+            LOG.error("❌ Error update Prescription: " + e.getMessage());
             e.printStackTrace();
             throw new RuntimeException("Database update failed: " + e.getMessage(), e);
         }
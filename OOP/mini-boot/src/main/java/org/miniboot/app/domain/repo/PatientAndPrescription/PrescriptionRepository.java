@@ -1,6 +1,8 @@
 package org.miniboot.app.domain.repo.PatientAndPrescription;
 
 import org.miniboot.app.domain.models.CustomerAndPrescription.Prescription;
+import org.miniboot.app.domain.models.Page;
+import org.miniboot.app.domain.repo.PageRequest;
 
 import java.util.List;
 
@@ -10,6 +12,11 @@ public interface PrescriptionRepository {
 
     List<Prescription> findAll();
 
+    /**
+     * Một trang prescription theo id tăng dần (phân trang keyset)
+     */
+    Page<Prescription> findPage(PageRequest request);
+
     List<Prescription> findByCustomerId(int customerId);
     List<Prescription> findByAppointmentId(int appointmentId);
 
@@ -2,16 +2,49 @@ package org.miniboot.app.domain.repo.Payment;
 
 import org.miniboot.app.domain.models.Payment.Payment;
 import org.miniboot.app.domain.models.Payment.PaymentWithStatus;
+import org.miniboot.app.domain.models.Page;
+import org.miniboot.app.domain.repo.PageRequest;
+import org.miniboot.app.domain.repo.RowHandler;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
 public interface PaymentRepository {
     List<Payment> getPayments();
 
+    /**
+     * Một trang payment, mới nhất trước (phân trang keyset)
+     */
+    Page<Payment> findPage(PageRequest request);
+
     Optional<Payment> getPaymentById(int id);
 
+    /**
+     * Tìm payment theo code (code là UNIQUE - tra bằng index, không quét bảng)
+     */
+    Optional<Payment> findByCode(String code);
+
+    /**
+     * Payment theo code kèm trạng thái hiện tại trong một query
+     */
+    Optional<PaymentWithStatus> findByCodeWithStatus(String code);
+
     Payment savePayment(Payment payment);
 
     List<PaymentWithStatus> getAllPaymentsWithStatus();
+
+    /**
+     * Một trang payment kèm trạng thái hiện tại, mới nhất trước (phân trang keyset)
+     */
+    Page<PaymentWithStatus> findPageWithStatus(PageRequest request);
+
+    /**
+     * Duyệt toàn bộ payment kèm trạng thái hiện tại mà không gom vào List
+     */
+    default void streamAllPaymentsWithStatus(RowHandler<PaymentWithStatus> handler) throws IOException {
+        for (PaymentWithStatus payment : getAllPaymentsWithStatus()) {
+            handler.handle(payment);
+        }
+    }
 }
@@ -0,0 +1,352 @@
+package org.miniboot.app.domain.repo.Payment;
+
+import org.miniboot.app.config.DatabaseConfig;
+import org.miniboot.app.util.Logger;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tổng hợp doanh thu theo ngày cho báo cáo tài chính (payment_daily_rollups + payment_item_daily_rollups)
+ * <p>
+ * - Mỗi ngày (theo issued_at) giữ một dòng cho từng (payment_method, cashier) và từng (sản phẩm, category),
+ *   chỉ tính payment đã PAID. Báo cáo một năm đọc vài trăm dòng thay vì mọi payment / payment item.
+ * - Payment chuyển sang PAID: applyPaid() cộng payment đó vào rollup trong cùng transaction với log trạng thái.
+ *   PAID là trạng thái kết thúc nên mỗi payment được cộng đúng một lần.
+ * - Sửa payment / item sau khi đã PAID không tự cập nhật rollup: rebuild() tính lại các ngày bị ảnh hưởng.
+ * Nếu chưa tạo được bảng (ensureSchema lỗi / chưa gọi), báo cáo tổng hợp thẳng từ payments / payment_items.
+ */
+public class PaymentRollupRepository {
+    private static final Logger LOG = Logger.get(PaymentRollupRepository.class);
+
+    private static final String PAYMENT_ROLLUPS_DDL = """
+            CREATE TABLE payment_daily_rollups (
+                day date NOT NULL,
+                payment_method varchar(16) NOT NULL,
+                cashier_id integer NOT NULL,
+                payment_count integer NOT NULL,
+                subtotal bigint NOT NULL,
+                discount bigint NOT NULL,
+                tax_total bigint NOT NULL,
+                rounding bigint NOT NULL,
+                grand_total bigint NOT NULL,
+                PRIMARY KEY (day, payment_method, cashier_id)
+            )
+            """;
+    private static final String ITEM_ROLLUPS_DDL = """
+            CREATE TABLE payment_item_daily_rollups (
+                day date NOT NULL,
+                product_id integer NOT NULL, -- 0 = dòng không gắn sản phẩm (dịch vụ, phí khám...)
+                category varchar(32) NOT NULL,
+                line_count integer NOT NULL,
+                qty bigint NOT NULL,
+                revenue bigint NOT NULL,
+                PRIMARY KEY (day, product_id, category)
+            )
+            """;
+
+    // Nguồn của rollup: cùng một câu SELECT cho cộng dồn (một payment), dựng lại và báo cáo khi chưa có bảng.
+    // Cột khóa NULL (item không có product_id) được gộp về 0 để vừa khóa chính NOT NULL
+    private static final String PAYMENT_SOURCE_SQL = """
+            SELECT p.issued_at::date AS day, COALESCE(p.payment_method::text, 'NONE') AS payment_method,
+                   COALESCE(p.cashier_id, 0) AS cashier_id, COUNT(*) AS payment_count, SUM(p.subtotal) AS subtotal, SUM(p.discount) AS discount,
+                   SUM(p.tax_total) AS tax_total, SUM(p.rounding) AS rounding, SUM(p.grand_total) AS grand_total
+            FROM payments p
+            WHERE p.issued_at IS NOT NULL AND %s
+            GROUP BY 1, 2, 3
+            """;
+    private static final String ITEM_SOURCE_SQL = """
+            SELECT p.issued_at::date AS day, COALESCE(i.product_id, 0) AS product_id, COALESCE(pr.category::text, 'UNKNOWN') AS category,
+                   COUNT(*) AS line_count, SUM(i.qty) AS qty, SUM(i.total_line) AS revenue
+            FROM payment_items i
+            JOIN payments p ON p.id = i.payment_id
+            LEFT JOIN products pr ON pr.id = i.product_id
+            WHERE p.issued_at IS NOT NULL AND %s
+            GROUP BY 1, 2, 3
+            """;
+    private static final String PAYMENT_COLUMNS =
+            "day, payment_method, cashier_id, payment_count, subtotal, discount, tax_total, rounding, grand_total";
+    private static final String ITEM_COLUMNS = "day, product_id, category, line_count, qty, revenue";
+    private static final String PAYMENT_UPSERT = """
+             ON CONFLICT (day, payment_method, cashier_id) DO UPDATE SET
+                payment_count = payment_daily_rollups.payment_count + EXCLUDED.payment_count,
+                subtotal = payment_daily_rollups.subtotal + EXCLUDED.subtotal,
+                discount = payment_daily_rollups.discount + EXCLUDED.discount,
+                tax_total = payment_daily_rollups.tax_total + EXCLUDED.tax_total,
+                rounding = payment_daily_rollups.rounding + EXCLUDED.rounding,
+                grand_total = payment_daily_rollups.grand_total + EXCLUDED.grand_total
+            """;
+    private static final String ITEM_UPSERT = """
+             ON CONFLICT (day, product_id, category) DO UPDATE SET
+                line_count = payment_item_daily_rollups.line_count + EXCLUDED.line_count,
+                qty = payment_item_daily_rollups.qty + EXCLUDED.qty,
+                revenue = payment_item_daily_rollups.revenue + EXCLUDED.revenue
+            """;
+    // PAID là trạng thái kết thúc: "đã từng PAID" = "đang PAID", tra bằng index (payment_id, changed_at)
+    private static final String IS_PAID =
+            "EXISTS (SELECT 1 FROM payment_status_log sl WHERE sl.payment_id = p.id AND sl.status = 'PAID')";
+
+    /** Chiều nhóm của báo cáo; PAYMENT = chỉ có ở rollup payment, ITEM = chỉ có ở rollup item */
+    public enum Dimension {
+        DAY("day", "r.day::text", null),
+        WEEK("week", "date_trunc('week', r.day)::date::text", null),
+        MONTH("month", "to_char(r.day, 'YYYY-MM')", null),
+        PAYMENT_METHOD("payment_method", "r.payment_method", Family.PAYMENT),
+        CASHIER("cashier_id", "r.cashier_id", Family.PAYMENT),
+        CATEGORY("category", "r.category", Family.ITEM),
+        PRODUCT("product_id", "r.product_id", Family.ITEM);
+
+        private final String column;
+        private final String expression;
+        private final Family family;
+
+        Dimension(String column, String expression, Family family) {
+            this.column = column;
+            this.expression = expression;
+            this.family = family;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        /**
+         * "day", "payment_method", "cashier", "category", "product"... (không phân biệt hoa thường)
+         */
+        public static Dimension fromParam(String value) {
+            String v = value.trim().toUpperCase();
+            if (v.equals("METHOD")) {
+                return PAYMENT_METHOD;
+            }
+            return Dimension.valueOf(v);
+        }
+    }
+
+    /** Bảng rollup mà báo cáo đọc */
+    public enum Family {
+        PAYMENT, ITEM
+    }
+
+    private final DatabaseConfig dbConfig;
+    private volatile boolean available;
+
+    public PaymentRollupRepository() {
+        this.dbConfig = DatabaseConfig.getInstance().forRepository(PaymentRollupRepository.class);
+    }
+
+    /**
+     * Tạo bảng rollup nếu chưa có và dựng từ các payment đã PAID
+     */
+    public void ensureSchema() throws SQLException {
+        try (Connection conn = dbConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                // Chặn payment chuyển sang PAID trong lúc dựng (và instance khác cùng tạo bảng)
+                stmt.execute("LOCK TABLE payment_status_log IN SHARE ROW EXCLUSIVE MODE");
+                boolean exists;
+                try (ResultSet rs = stmt.executeQuery("SELECT to_regclass('payment_daily_rollups') IS NOT NULL")) {
+                    exists = rs.next() && rs.getBoolean(1);
+                }
+                if (!exists) {
+                    stmt.execute(PAYMENT_ROLLUPS_DDL);
+                    stmt.execute(ITEM_ROLLUPS_DDL);
+                    int days = fill(conn, null, null);
+                    LOG.info("Created payment rollups (" + days + " rows)");
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        available = true;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Cộng một payment vừa chuyển sang PAID vào rollup, dùng transaction của người gọi
+     */
+    public void applyPaid(Connection conn, int paymentId) throws SQLException {
+        if (!available) {
+            return;
+        }
+        String paymentSql = "INSERT INTO payment_daily_rollups (" + PAYMENT_COLUMNS + ") "
+                + PAYMENT_SOURCE_SQL.formatted("p.id = ?") + PAYMENT_UPSERT;
+        String itemSql = "INSERT INTO payment_item_daily_rollups (" + ITEM_COLUMNS + ") "
+                + ITEM_SOURCE_SQL.formatted("p.id = ?") + ITEM_UPSERT;
+        for (String sql : new String[]{paymentSql, itemSql}) {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, paymentId);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Tính lại rollup của các ngày trong [from, to] từ payments / payment_items
+     *
+     * @param from null = từ đầu
+     * @param to   null = đến hiện tại
+     * @return số dòng rollup sau khi dựng lại
+     */
+    public int rebuild(LocalDate from, LocalDate to) throws SQLException {
+        if (!available) {
+            return 0;
+        }
+        try (Connection conn = dbConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("LOCK TABLE payment_status_log IN SHARE ROW EXCLUSIVE MODE");
+                }
+                for (String table : new String[]{"payment_daily_rollups", "payment_item_daily_rollups"}) {
+                    List<Object> params = new ArrayList<>();
+                    String sql = "DELETE FROM " + table + " r WHERE TRUE" + dayRange(from, to, "r.day", params);
+                    try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                        bind(ps, params);
+                        ps.executeUpdate();
+                    }
+                }
+                int rows = fill(conn, from, to);
+                conn.commit();
+                return rows;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static int fill(Connection conn, LocalDate from, LocalDate to) throws SQLException {
+        int rows = 0;
+        List<Object> params = new ArrayList<>();
+        String condition = IS_PAID + dayRange(from, to, "p.issued_at", params);
+        String[] sqls = {
+                "INSERT INTO payment_daily_rollups (" + PAYMENT_COLUMNS + ") " + PAYMENT_SOURCE_SQL.formatted(condition),
+                "INSERT INTO payment_item_daily_rollups (" + ITEM_COLUMNS + ") " + ITEM_SOURCE_SQL.formatted(condition)
+        };
+        for (String sql : sqls) {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                bind(ps, params);
+                rows += ps.executeUpdate();
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Báo cáo trong [from, to] nhóm theo các chiều cho trước (cùng một Family, ngoài DAY / WEEK / MONTH).
+     * Mỗi dòng gồm các cột chiều nhóm rồi tới các chỉ số; không có chiều nào -> một dòng tổng
+     */
+    public List<Map<String, Object>> report(LocalDate from, LocalDate to, List<Dimension> groupBy) {
+        Family family = familyOf(groupBy);
+        List<Object> params = new ArrayList<>();
+        String source;
+        if (available) {
+            source = family == Family.PAYMENT ? "payment_daily_rollups" : "payment_item_daily_rollups";
+        } else {
+            String condition = IS_PAID + dayRange(from, to, "p.issued_at", params);
+            source = "(" + (family == Family.PAYMENT ? PAYMENT_SOURCE_SQL : ITEM_SOURCE_SQL).formatted(condition) + ")";
+        }
+
+        List<String> select = new ArrayList<>();
+        List<String> group = new ArrayList<>();
+        for (Dimension d : groupBy) {
+            select.add(d.expression + " AS " + d.column);
+            group.add(d.expression);
+        }
+        boolean withProductName = groupBy.contains(Dimension.PRODUCT);
+        if (withProductName) {
+            select.add("MIN(pn.name) AS product_name");
+        }
+        select.add(family == Family.PAYMENT
+                ? "SUM(r.payment_count) AS payment_count, SUM(r.subtotal) AS subtotal, SUM(r.discount) AS discount, "
+                + "SUM(r.tax_total) AS tax_total, SUM(r.rounding) AS rounding, SUM(r.grand_total) AS grand_total"
+                : "SUM(r.line_count) AS line_count, SUM(r.qty) AS qty, SUM(r.revenue) AS revenue");
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(String.join(", ", select))
+                .append(" FROM ").append(source).append(" r ");
+        if (withProductName) {
+            sql.append("LEFT JOIN products pn ON pn.id = r.product_id ");
+        }
+        sql.append("WHERE TRUE").append(dayRange(from, to, "r.day", params));
+        if (!group.isEmpty()) {
+            String keys = String.join(", ", group);
+            sql.append(" GROUP BY ").append(keys).append(" ORDER BY ").append(keys);
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                while (rs.next()) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (int i = 1; i <= meta.getColumnCount(); i++) {
+                        Object value = rs.getObject(i);
+                        // SUM(bigint) trả numeric -> đưa về long cho JSON gọn
+                        row.put(meta.getColumnLabel(i), value instanceof java.math.BigDecimal n ? n.longValue() : value);
+                    }
+                    rows.add(row);
+                }
+            }
+
+        } catch (SQLException e) {
+            LOG.error("❌ SQL ERROR in report(): " + e.getMessage());
+            throw new RuntimeException("Failed to build financial report", e);
+        }
+        return rows;
+    }
+
+    /**
+     * Bảng nguồn của một tổ hợp chiều nhóm
+     *
+     * @throws IllegalArgumentException nếu trộn chiều của payment với chiều của item
+     */
+    public static Family familyOf(List<Dimension> groupBy) {
+        Family family = null;
+        for (Dimension d : groupBy) {
+            if (d.family == null) {
+                continue;
+            }
+            if (family != null && family != d.family) {
+                throw new IllegalArgumentException("Cannot group payment_method / cashier together with category / product");
+            }
+            family = d.family;
+        }
+        return family != null ? family : Family.PAYMENT;
+    }
+
+    /** " AND column >= from AND column < to + 1" cho cột date / timestamp */
+    private static String dayRange(LocalDate from, LocalDate to, String column, List<Object> params) {
+        StringBuilder sql = new StringBuilder();
+        if (from != null) {
+            sql.append(" AND ").append(column).append(" >= ?");
+            params.add(Timestamp.valueOf(from.atStartOfDay()));
+        }
+        if (to != null) {
+            sql.append(" AND ").append(column).append(" < ?");
+            params.add(Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        }
+        return sql.toString();
+    }
+
+    private static void bind(PreparedStatement ps, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.miniboot.app.domain.repo.Payment;
+
+import org.miniboot.app.domain.models.Payment.PaymentStatus;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cache paymentId -> trạng thái hiện tại, có giới hạn kích thước và TTL
+ * <p>
+ * - Được cập nhật ngay sau khi transaction đổi trạng thái commit, nên chỉ lệch với DB khi
+ *   có nơi khác (process khác, sửa tay) ghi payment_status_log - TTL giới hạn độ lệch đó.
+ * - Khi đầy: dọn entry hết hạn trước, nếu vẫn đầy thì bỏ bớt ~10% entry bất kỳ.
+ */
+final class PaymentStatusCache {
+    private record Entry(PaymentStatus status, long validUntilMillis) {
+    }
+
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    PaymentStatusCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMillis = Math.max(0, ttlMillis);
+    }
+
+    /**
+     * @return trạng thái đã cache, null nếu không có hoặc đã hết hạn
+     */
+    PaymentStatus get(int paymentId) {
+        Entry entry = entries.get(paymentId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.validUntilMillis <= System.currentTimeMillis()) {
+            entries.remove(paymentId, entry);
+            return null;
+        }
+        return entry.status;
+    }
+
+    /**
+     * Trạng thái vừa ghi xong (sau commit) - ghi đè entry cũ
+     */
+    void put(int paymentId, PaymentStatus status) {
+        store(paymentId, status, true);
+    }
+
+    /**
+     * Trạng thái vừa đọc từ DB - không ghi đè entry có sẵn, vì entry đó có thể do một lần đổi trạng thái
+     * commit sau lúc đọc
+     */
+    void putLoaded(int paymentId, PaymentStatus status) {
+        store(paymentId, status, false);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void store(int paymentId, PaymentStatus status, boolean overwrite) {
+        if (ttlMillis == 0 || status == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (entries.size() >= maxEntries) {
+            evict(now);
+        }
+        Entry entry = new Entry(status, now + ttlMillis);
+        if (overwrite) {
+            entries.put(paymentId, entry);
+        } else {
+            entries.putIfAbsent(paymentId, entry);
+        }
+    }
+
+    private void evict(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            entries.values().removeIf(e -> e.validUntilMillis <= now);
+            int excess = entries.size() - (maxEntries - maxEntries / 10);
+            Iterator<Integer> it = entries.keySet().iterator();
+            while (excess-- > 0 && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
@@ -2,17 +2,45 @@ package org.miniboot.app.domain.repo.Payment;
 
 import org.miniboot.app.config.DatabaseConfig;
 import org.miniboot.app.domain.models.Payment.PaymentItem;
+import org.miniboot.app.util.Logger;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 public class PostgreSQLPaymentItemRepository implements PaymentItemRepository {
+    private static final Logger LOG = Logger.get(PostgreSQLPaymentItemRepository.class);
+
     private final DatabaseConfig dbConfig;
 
+    // total_line luôn = qty * unit_price, tính trong SQL thay vì tin giá trị client gửi lên
+    private static final String INSERT_SQL = """
+            INSERT INTO payment_items
+                (product_id, payment_id, description, qty, unit_price, total_line)
+            VALUES (?, ?, ?, ?, ?, ? * ?)
+            """;
+    private static final String UPDATE_SQL = """
+            UPDATE payment_items t
+            SET product_id = v.product_id, payment_id = v.payment_id, description = v.description,
+                qty = v.qty, unit_price = v.unit_price, total_line = v.qty * v.unit_price
+            FROM (SELECT ?::int AS product_id, ?::int AS payment_id, ?::varchar AS description,
+                         ?::int AS qty, ?::int AS unit_price, ?::int AS id) v
+            WHERE t.id = v.id
+            """;
+    // Chỉ ghi dòng có nội dung khác: dòng không đổi không bị ghi lại (không sinh dead tuple / WAL)
+    private static final String UPDATE_CHANGED_SQL = UPDATE_SQL + """
+              AND (t.product_id, t.payment_id, t.description, t.qty, t.unit_price, t.total_line)
+                  IS DISTINCT FROM (v.product_id, v.payment_id, v.description, v.qty, v.unit_price, v.qty * v.unit_price)
+            """;
+
     public PostgreSQLPaymentItemRepository() {
-        this.dbConfig = DatabaseConfig.getInstance();
+        this.dbConfig = DatabaseConfig.getInstance().forRepository(PostgreSQLPaymentItemRepository.class);
     }
 
     /*  SELECT  */
@@ -33,7 +61,7 @@ public class PostgreSQLPaymentItemRepository implements PaymentItemRepository {
                 while (rs.next()) list.add(map(rs));
             }
         } catch (SQLException e) {
-            System.err.println("❌ findByPaymentId error: " + e.getMessage());
+            LOG.error("❌ findByPaymentId error: " + e.getMessage());
             e.printStackTrace();
         }
         return list;
@@ -53,7 +81,7 @@ public class PostgreSQLPaymentItemRepository implements PaymentItemRepository {
                 if (rs.next()) return Optional.of(map(rs));
             }
         } catch (SQLException e) {
-            System.err.println("❌ findById error: " + e.getMessage());
+            LOG.error("❌ findById error: " + e.getMessage());
             e.printStackTrace();
         }
         return Optional.empty();
@@ -68,16 +96,25 @@ public class PostgreSQLPaymentItemRepository implements PaymentItemRepository {
         return insert ? insert(item) : update(item);
     }
 
+    /**
+     * Dòng có id -> một batch UPDATE (bỏ qua dòng không đổi), dòng chưa có id -> INSERT ... RETURNING id
+     * từng dòng (xem insertAll), tất cả trong một transaction
+     */
     @Override
     public List<PaymentItem> saveAll(int paymentId, List<PaymentItem> items) {
-        List<PaymentItem> out = new ArrayList<>(items.size());
+        List<PaymentItem> inserts = new ArrayList<>();
+        List<PaymentItem> updates = new ArrayList<>();
+        for (PaymentItem it : items) {
+            if (it.getPaymentId() == 0) it.setPaymentId(paymentId);
+            boolean insert = (it.getId() == null || it.getId() == 0);
+            (insert ? inserts : updates).add(it);
+        }
+
         try (Connection conn = dbConfig.getConnection()) {
             conn.setAutoCommit(false);
             try {
-                for (PaymentItem it : items) {
-                    if (it.getPaymentId() == 0) it.setPaymentId(paymentId);
-                    out.add(saveTx(conn, it));
-                }
+                updateBatch(conn, updates);
+                insertAll(conn, inserts);
                 conn.commit();
             } catch (SQLException e) {
                 conn.rollback();
@@ -86,10 +123,11 @@ public class PostgreSQLPaymentItemRepository implements PaymentItemRepository {
                 conn.setAutoCommit(true);
             }
         } catch (SQLException e) {
-            System.err.println("❌ saveAll error: " + e.getMessage());
+            LOG.error("❌ saveAll error: " + e.getMessage());
             e.printStackTrace();
+            return new ArrayList<>();
         }
-        return out;
+        return new ArrayList<>(items);
     }
 
     /*  DELETE  */
@@ -103,7 +141,7 @@ public class PostgreSQLPaymentItemRepository implements PaymentItemRepository {
             int rows = ps.executeUpdate();
             return rows > 0;
         } catch (SQLException e) {
-            System.err.println("❌ deleteById error: " + e.getMessage());
+            LOG.error("❌ deleteById error: " + e.getMessage());
             e.printStackTrace();
             return false;
         }
@@ -117,30 +155,83 @@ public class PostgreSQLPaymentItemRepository implements PaymentItemRepository {
             ps.setInt(1, paymentId);
             return ps.executeUpdate();
         } catch (SQLException e) {
-            System.err.println("❌ deleteByPaymentId error: " + e.getMessage());
+            LOG.error("❌ deleteByPaymentId error: " + e.getMessage());
             e.printStackTrace();
             return 0;
         }
     }
 
+    /**
+     * Đưa items của payment về đúng danh sách mới bằng cách so với các dòng hiện có:
+     * - dòng mới trùng id (hoặc chưa có id nhưng cùng nội dung / cùng sản phẩm với một dòng cũ) giữ lại dòng cũ,
+     *   chỉ UPDATE khi nội dung khác
+     * - còn lại: INSERT dòng mới, DELETE dòng cũ không còn trong danh sách
+     * DELETE một câu lệnh, UPDATE một batch, INSERT từng dòng (insertAll), tất cả trong một transaction
+     */
     @Override
     public List<PaymentItem> replaceAllForPayment(int paymentId, List<PaymentItem> newItems) {
-        List<PaymentItem> out = new ArrayList<>(newItems.size());
+        List<PaymentItem> out = new ArrayList<>(newItems);
         try (Connection conn = dbConfig.getConnection()) {
             conn.setAutoCommit(false);
             try {
-                // Xoá cũ
-                try (PreparedStatement ps = conn.prepareStatement("DELETE FROM payment_items WHERE payment_id = ?")) {
+                // Khoá các dòng cũ để hai lần thay thế cùng payment không chồng lên nhau
+                Map<Integer, PaymentItem> existing = new LinkedHashMap<>();
+                try (PreparedStatement ps = conn.prepareStatement("""
+                        SELECT id, product_id, payment_id, description, qty, unit_price, total_line
+                        FROM payment_items
+                        WHERE payment_id = ?
+                        ORDER BY id ASC
+                        FOR UPDATE
+                        """)) {
                     ps.setInt(1, paymentId);
-                    ps.executeUpdate();
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            PaymentItem old = map(rs);
+                            existing.put(old.getId(), old);
+                        }
+                    }
                 }
-                // Thêm mới
-                for (PaymentItem it : newItems) {
-                    it.setId(null);
+
+                List<PaymentItem> updates = new ArrayList<>();
+                List<PaymentItem> unmatched = new ArrayList<>();
+                for (PaymentItem it : out) {
                     it.setPaymentId(paymentId);
-                    out.add(insertTx(conn, it));
+                    PaymentItem old = it.getId() != null ? existing.remove(it.getId()) : null;
+                    if (old == null) {
+                        it.setId(null);
+                        unmatched.add(it);
+                    } else if (!sameContent(old, it)) {
+                        updates.add(it);
+                    }
+                }
+                // Dòng chưa có id: ưu tiên dòng cũ cùng nội dung (không cần ghi), sau đó dòng cũ cùng sản phẩm
+                for (PaymentItem it : unmatched) {
+                    PaymentItem old = take(existing, o -> sameContent(o, it));
+                    if (old != null) it.setId(old.getId());
+                }
+                List<PaymentItem> inserts = new ArrayList<>();
+                for (PaymentItem it : unmatched) {
+                    if (it.getId() != null) continue;
+                    PaymentItem old = take(existing, o -> Objects.equals(productIdOrNull(o), productIdOrNull(it)));
+                    if (old != null) {
+                        it.setId(old.getId());
+                        updates.add(it);
+                    } else {
+                        inserts.add(it);
+                    }
+                }
+
+                if (!existing.isEmpty()) {
+                    try (PreparedStatement ps = conn.prepareStatement("DELETE FROM payment_items WHERE id = ANY(?)")) {
+                        ps.setArray(1, conn.createArrayOf("integer", existing.keySet().toArray()));
+                        ps.executeUpdate();
+                    }
                 }
+                updateBatch(conn, updates);
+                insertAll(conn, inserts);
                 conn.commit();
+                LOG.debug("✅ Payment " + paymentId + " items: " + inserts.size() + " inserted, "
+                        + updates.size() + " updated, " + existing.size() + " deleted");
             } catch (SQLException e) {
                 conn.rollback();
                 throw e;
@@ -148,8 +239,9 @@ public class PostgreSQLPaymentItemRepository implements PaymentItemRepository {
                 conn.setAutoCommit(true);
             }
         } catch (SQLException e) {
-            System.err.println("❌ replaceAllForPayment error: " + e.getMessage());
+            LOG.error("❌ replaceAllForPayment error: " + e.getMessage());
             e.printStackTrace();
+            return new ArrayList<>();
         }
         return out;
     }
@@ -160,7 +252,7 @@ public class PostgreSQLPaymentItemRepository implements PaymentItemRepository {
         try (Connection conn = dbConfig.getConnection()) {
             return insertTx(conn, it);
         } catch (SQLException e) {
-            System.err.println("❌ insert error: " + e.getMessage());
+            LOG.error("❌ insert error: " + e.getMessage());
             e.printStackTrace();
             return null;
         }
@@ -170,35 +262,15 @@ public class PostgreSQLPaymentItemRepository implements PaymentItemRepository {
         try (Connection conn = dbConfig.getConnection()) {
             return updateTx(conn, it);
         } catch (SQLException e) {
-            System.err.println("❌ update error: " + e.getMessage());
+            LOG.error("❌ update error: " + e.getMessage());
             e.printStackTrace();
             return null;
         }
     }
 
-    // dùng trong transaction có sẵn
-    private PaymentItem saveTx(Connection conn, PaymentItem it) throws SQLException {
-        Integer id = it.getId();
-        boolean insert = (id == null || id == 0);
-        return insert ? insertTx(conn, it) : updateTx(conn, it);
-    }
-
     private PaymentItem insertTx(Connection conn, PaymentItem it) throws SQLException {
-        final String sql = """
-                INSERT INTO payment_items
-                    (product_id, payment_id, description, qty, unit_price, total_line)
-                VALUES (?, ?, ?, ?, ?, ?)
-                RETURNING id
-                """;
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            if (it.getProductId() == null || it.getProductId() == 0) ps.setNull(1, Types.INTEGER);
-            else ps.setInt(1, it.getProductId());
-            ps.setInt(2, it.getPaymentId());
-            ps.setString(3, it.getDescription());
-            ps.setInt(4, it.getQty());
-            ps.setInt(5, it.getUnitPrice());
-            ps.setInt(6, it.getTotalLine());
-
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL + "RETURNING id")) {
+            bindInsert(ps, it);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) it.setId(rs.getInt(1));
             }
@@ -210,31 +282,95 @@ public class PostgreSQLPaymentItemRepository implements PaymentItemRepository {
         if (it.getId() == null || it.getId() == 0) {
             throw new IllegalArgumentException("PaymentItem.update: id must not be null/0");
         }
-        final String sql = """
-                UPDATE payment_items
-                SET product_id = ?, payment_id = ?, description = ?,
-                    qty = ?, unit_price = ?, total_line = ?
-                WHERE id = ?
-                """;
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            if (it.getProductId() == null || it.getProductId() == 0) ps.setNull(1, Types.INTEGER);
-            else ps.setInt(1, it.getProductId());
-            ps.setInt(2, it.getPaymentId());
-            ps.setString(3, it.getDescription());
-            ps.setInt(4, it.getQty());
-            ps.setInt(5, it.getUnitPrice());
-            ps.setInt(6, it.getTotalLine());
-            ps.setInt(7, it.getId());
-
+        try (PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
+            bindUpdate(ps, it);
             int rows = ps.executeUpdate();
             if (rows == 0) {
-                System.err.println("❌ PaymentItem update failed, id=" + it.getId());
+                LOG.error("❌ PaymentItem update failed, id=" + it.getId());
                 return null;
             }
             return it;
         }
     }
 
+    /**
+     * INSERT ... RETURNING id từng dòng, dùng lại một PreparedStatement trong transaction của caller
+     * <p>
+     * Không dùng addBatch: thứ tự các dòng RETURNING của một batch (nhất là khi reWriteBatchedInserts gộp
+     * thành INSERT nhiều dòng) không được PostgreSQL hay pgjdbc đảm bảo, còn payment_items không có
+     * khóa tự nhiên để ghép id với item. Một payment chỉ có vài dòng mới nên số round trip nhỏ.
+     */
+    private void insertAll(Connection conn, List<PaymentItem> items) throws SQLException {
+        if (items.isEmpty()) return;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL + "RETURNING id")) {
+            for (PaymentItem it : items) {
+                bindInsert(ps, it);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) throw new SQLException("Missing generated id for payment item");
+                    it.setId(rs.getInt(1));
+                }
+            }
+        }
+    }
+
+    private void updateBatch(Connection conn, List<PaymentItem> items) throws SQLException {
+        if (items.isEmpty()) return;
+        try (PreparedStatement ps = conn.prepareStatement(UPDATE_CHANGED_SQL)) {
+            for (PaymentItem it : items) {
+                bindUpdate(ps, it);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void bindInsert(PreparedStatement ps, PaymentItem it) throws SQLException {
+        ps.setObject(1, productIdOrNull(it), Types.INTEGER);
+        ps.setInt(2, it.getPaymentId());
+        ps.setString(3, it.getDescription());
+        ps.setInt(4, it.getQty());
+        ps.setInt(5, it.getUnitPrice());
+        ps.setInt(6, it.getQty());
+        ps.setInt(7, it.getUnitPrice());
+        it.setTotalLine(it.getQty() * it.getUnitPrice());
+    }
+
+    private static void bindUpdate(PreparedStatement ps, PaymentItem it) throws SQLException {
+        ps.setObject(1, productIdOrNull(it), Types.INTEGER);
+        ps.setInt(2, it.getPaymentId());
+        ps.setString(3, it.getDescription());
+        ps.setInt(4, it.getQty());
+        ps.setInt(5, it.getUnitPrice());
+        ps.setInt(6, it.getId());
+        it.setTotalLine(it.getQty() * it.getUnitPrice());
+    }
+
+    // product_id 0 / null được lưu là NULL
+    private static Integer productIdOrNull(PaymentItem it) {
+        return it.getProductId() == null || it.getProductId() == 0 ? null : it.getProductId();
+    }
+
+    private static boolean sameContent(PaymentItem old, PaymentItem it) {
+        return Objects.equals(productIdOrNull(old), productIdOrNull(it))
+                && Objects.equals(old.getDescription(), it.getDescription())
+                && old.getQty() == it.getQty()
+                && old.getUnitPrice() == it.getUnitPrice()
+                && old.getTotalLine() == it.getQty() * it.getUnitPrice();
+    }
+
+    /** Lấy (và bỏ khỏi map) dòng cũ đầu tiên thỏa điều kiện */
+    private static PaymentItem take(Map<Integer, PaymentItem> existing, Predicate<PaymentItem> match) {
+        Iterator<PaymentItem> it = existing.values().iterator();
+        while (it.hasNext()) {
+            PaymentItem old = it.next();
+            if (match.test(old)) {
+                it.remove();
+                return old;
+            }
+        }
+        return null;
+    }
+
     private PaymentItem map(ResultSet rs) throws SQLException {
         PaymentItem it = new PaymentItem(
                 rs.getInt("id"),
@@ -1,11 +1,18 @@
 package org.miniboot.app.domain.repo.Payment;
 
 import org.miniboot.app.config.DatabaseConfig;
+import org.miniboot.app.config.DatabaseConstants;
 import org.miniboot.app.domain.models.Payment.Payment;
 import org.miniboot.app.domain.models.Payment.PaymentMethod;
 import org.miniboot.app.domain.models.Payment.PaymentStatus;
 import org.miniboot.app.domain.models.Payment.PaymentWithStatus;
+import org.miniboot.app.domain.models.Page;
+import org.miniboot.app.domain.repo.PageCursor;
+import org.miniboot.app.domain.repo.PageRequest;
+import org.miniboot.app.domain.repo.RowHandler;
+import org.miniboot.app.util.Logger;
 
+import java.io.IOException;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -13,10 +20,58 @@ import java.util.List;
 import java.util.Optional;
 
 public class PostgreSQLPaymentRepository implements PaymentRepository {
+    private static final Logger LOG = Logger.get(PostgreSQLPaymentRepository.class);
+
     private final DatabaseConfig dbConfig;
 
+    private static final String ALL_ORDER_BY = "ORDER BY p.created_at DESC, p.id DESC";
+    private static final String PAYMENT_COLUMNS = """
+            p.id, p.code, p.customer_id, p.cashier_id, p.issued_at,
+            p.subtotal, p.discount, p.tax_total, p.rounding, p.grand_total,
+            p.payment_method, p.amount_paid, p.note, p.created_at
+            """;
+
+    /** Status mới nhất của payment p: đọc một dòng từ index (payment_id, changed_at DESC) */
+    private static final String LATEST_STATUS_JOIN = "LEFT JOIN LATERAL (SELECT status, changed_at FROM payment_status_log "
+            + "WHERE payment_id = p.id ORDER BY changed_at DESC LIMIT 1) ls ON TRUE ";
+    /** Status hiện tại giữ sẵn trong payment_current_status: join theo khóa chính */
+    private static final String CURRENT_STATUS_JOIN = "LEFT JOIN payment_current_status ls ON ls.payment_id = p.id ";
+
+    private final PostgreSQLPaymentStatusLogRepository statusLog;
+
     public PostgreSQLPaymentRepository() {
-        this.dbConfig = DatabaseConfig.getInstance();
+        this(new PostgreSQLPaymentStatusLogRepository());
+    }
+
+    /**
+     * @param statusLog cho biết payment_current_status đã sẵn sàng hay chưa (chưa -> join với payment_status_log)
+     */
+    public PostgreSQLPaymentRepository(PostgreSQLPaymentStatusLogRepository statusLog) {
+        this.dbConfig = DatabaseConfig.getInstance().forRepository(PostgreSQLPaymentRepository.class);
+        this.statusLog = statusLog;
+    }
+
+    private String statusJoin() {
+        return statusLog.isProjectionAvailable() ? CURRENT_STATUS_JOIN : LATEST_STATUS_JOIN;
+    }
+
+    /** SELECT payment kèm status hiện tại (alias ls) */
+    private String selectWithStatus() {
+        return "SELECT " + PAYMENT_COLUMNS + ", ls.status, ls.changed_at AS status_updated_at "
+                + "FROM payments p " + statusJoin();
+    }
+
+    /**
+     * Tạo index cho việc tra status mới nhất của một payment và cho phân trang keyset (created_at, id)
+     * nếu chưa có (gọi một lần khi khởi động)
+     */
+    public void ensureIndexes() throws SQLException {
+        try (Connection conn = dbConfig.getConnection();
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_payment_status_log_payment_changed_at "
+                    + "ON payment_status_log (payment_id, changed_at DESC)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_payments_created_at_id ON payments (created_at, id)");
+        }
     }
 
     @Override
@@ -27,7 +82,7 @@ public class PostgreSQLPaymentRepository implements PaymentRepository {
                        subtotal, discount, tax_total, rounding, grand_total,
                        payment_method, amount_paid, note, created_at
                 FROM payments
-                ORDER BY created_at DESC
+                ORDER BY created_at DESC, id DESC
                 """;
 
         try (Connection conn = dbConfig.getConnection();
@@ -38,14 +93,80 @@ public class PostgreSQLPaymentRepository implements PaymentRepository {
                 payments.add(mapResultSetToPayment(rs));
             }
 
-            System.out.println("✅ Found " + payments.size() + " payments in database");
+            LOG.debug("✅ Found " + payments.size() + " payments in database");
         } catch (SQLException e) {
-            System.err.println("❌ Error fetching payments: " + e.getMessage());
+            LOG.error("❌ Error fetching payments: " + e.getMessage());
             e.printStackTrace();
         }
         return payments;
     }
 
+    /**
+     * Phân trang keyset theo (created_at DESC, id DESC)
+     */
+    @Override
+    public Page<Payment> findPage(PageRequest request) {
+        List<Payment> rows = new ArrayList<>();
+        PageCursor.Reader cursor = request.isFirst() ? null : PageCursor.decode(request.cursor(), 2);
+        String sql = "SELECT " + PAYMENT_COLUMNS + " FROM payments p "
+                + (cursor != null ? "WHERE (p.created_at, p.id) < (?, ?) " : "")
+                + "ORDER BY p.created_at DESC, p.id DESC LIMIT ?";
+
+        try (Connection conn = dbConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = bindCursor(ps, cursor);
+            ps.setInt(index, request.limit() + 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapResultSetToPayment(rs));
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error("❌ Error fetching payment page: " + e.getMessage());
+            throw new RuntimeException("Failed to fetch payments", e);
+        }
+        return Page.fromRows(rows, request.limit(),
+                p -> PageCursor.encode(p.getCreatedAt(), p.getId()));
+    }
+
+    /**
+     * Một trang payment kèm trạng thái hiện tại: chỉ join status cho các payment trong trang
+     */
+    @Override
+    public Page<PaymentWithStatus> findPageWithStatus(PageRequest request) {
+        List<PaymentWithStatus> rows = new ArrayList<>();
+        PageCursor.Reader cursor = request.isFirst() ? null : PageCursor.decode(request.cursor(), 2);
+        String sql = selectWithStatus()
+                + (cursor != null ? "WHERE (p.created_at, p.id) < (?, ?) " : "")
+                + "ORDER BY p.created_at DESC, p.id DESC LIMIT ?";
+
+        try (Connection conn = dbConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = bindCursor(ps, cursor);
+            ps.setInt(index, request.limit() + 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapResultSetToPaymentWithStatus(rs));
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error("❌ Error fetching payment page with status: " + e.getMessage());
+            throw new RuntimeException("Failed to fetch payments with status", e);
+        }
+        return Page.fromRows(rows, request.limit(),
+                p -> PageCursor.encode(p.getPayment().getCreatedAt(), p.getPayment().getId()));
+    }
+
+    /** Gắn (created_at, id) của cursor, trả về vị trí tham số kế tiếp */
+    private static int bindCursor(PreparedStatement ps, PageCursor.Reader cursor) throws SQLException {
+        int index = 1;
+        if (cursor != null) {
+            ps.setTimestamp(index++, Timestamp.valueOf(cursor.nextDateTime()));
+            ps.setInt(index++, cursor.nextInt());
+        }
+        return index;
+    }
+
     @Override
     public Optional<Payment> getPaymentById(int id) {
         final String sql = """
@@ -65,12 +186,48 @@ public class PostgreSQLPaymentRepository implements PaymentRepository {
                     return Optional.of(mapResultSetToPayment(rs));
             }
         } catch (SQLException e) {
-            System.err.println("❌ Error finding payment by id: " + e.getMessage());
+            LOG.error("❌ Error finding payment by id: " + e.getMessage());
             e.printStackTrace();
         }
         return Optional.empty();
     }
 
+    @Override
+    public Optional<Payment> findByCode(String code) {
+        String sql = "SELECT " + PAYMENT_COLUMNS + " FROM payments p WHERE p.code = ?";
+
+        try (Connection conn = dbConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, code);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next())
+                    return Optional.of(mapResultSetToPayment(rs));
+            }
+        } catch (SQLException e) {
+            LOG.error("❌ Error finding payment by code: " + e.getMessage());
+            throw new RuntimeException("Failed to find payment by code", e);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<PaymentWithStatus> findByCodeWithStatus(String code) {
+        String sql = selectWithStatus() + "WHERE p.code = ?";
+
+        try (Connection conn = dbConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, code);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next())
+                    return Optional.of(mapResultSetToPaymentWithStatus(rs));
+            }
+        } catch (SQLException e) {
+            LOG.error("❌ Error finding payment with status by code: " + e.getMessage());
+            throw new RuntimeException("Failed to find payment by code", e);
+        }
+        return Optional.empty();
+    }
+
     @Override
     public Payment savePayment(Payment payment) {
         LocalDateTime now = LocalDateTime.now();
@@ -185,67 +342,65 @@ public class PostgreSQLPaymentRepository implements PaymentRepository {
      * @return Danh sách các đối tượng PaymentWithStatus.
      */
     public List<PaymentWithStatus> getAllPaymentsWithStatus() {
-        // 1. Thay đổi kiểu trả về
         List<PaymentWithStatus> result = new ArrayList<>();
-
-        // 2. Sử dụng SQL hiệu năng hơn với Window Function
-        final String sql = """
-                WITH RankedStatus AS (
-                    -- Đánh số thứ tự status của mỗi payment, mới nhất là 1
-                    SELECT
-                        payment_id,
-                        status,
-                        changed_at,
-                        ROW_NUMBER() OVER(PARTITION BY payment_id ORDER BY changed_at DESC) as rn
-                    FROM
-                        payment_status_log
-                )
-                SELECT
-                    p.id, p.code, p.customer_id, p.cashier_id, p.issued_at,
-                    p.subtotal, p.discount, p.tax_total, p.rounding, p.grand_total,
-                    p.payment_method, p.amount_paid, p.note, p.created_at,
-                    rs.status, rs.changed_at AS status_updated_at  -- Lấy status và thời gian cập nhật từ RankedStatus
-                FROM
-                    payments p
-                LEFT JOIN
-                    RankedStatus rs ON p.id = rs.payment_id AND rs.rn = 1 -- Chỉ join với status mới nhất
-                ORDER BY
-                    p.created_at DESC
-                """;
+        final String sql = selectWithStatus() + ALL_ORDER_BY;
 
         try (Connection conn = dbConfig.getConnection();
                 Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                // Lấy Payment
-                Payment payment = mapResultSetToPayment(rs); // Giả sử bạn có hàm này
-
-                // 3. Xử lý status (QUAN TRỌNG: Phải kiểm tra NULL)
-                String statusStr = rs.getString("status");
-                PaymentStatus paymentStatus = null; // Mặc định là null nếu không có status
-
-                if (statusStr != null) {
-                    paymentStatus = PaymentStatus.valueOf(statusStr);
-                }
-
-                // 4. Lấy thời gian cập nhật status
-                java.sql.Timestamp statusUpdatedTs = rs.getTimestamp("status_updated_at");
-                LocalDateTime statusUpdatedAt = statusUpdatedTs != null ? statusUpdatedTs.toLocalDateTime() : null;
-
-                // 5. Thêm vào kết quả bằng DTO
-                result.add(new PaymentWithStatus(payment, paymentStatus, statusUpdatedAt));
+                result.add(mapResultSetToPaymentWithStatus(rs));
             }
 
-            System.out.println("✅ Found " + result.size() + " payments with current status");
+            LOG.debug("✅ Found " + result.size() + " payments with current status");
         } catch (SQLException e) {
-            System.err.println("❌ Error fetching payments with status: " + e.getMessage());
+            LOG.error("❌ Error fetching payments with status: " + e.getMessage());
             e.printStackTrace();
         }
         return result;
     }
 
+    /**
+     * Stream payment kèm trạng thái hiện tại bằng server-side cursor:
+     * mỗi dòng được map và giao cho handler ngay, không nạp toàn bộ vào heap
+     */
+    @Override
+    public void streamAllPaymentsWithStatus(RowHandler<PaymentWithStatus> handler) throws IOException {
+        try (Connection conn = dbConfig.getConnection()) {
+            // PostgreSQL driver chỉ dùng cursor khi tắt autocommit
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.setFetchSize(DatabaseConstants.STREAM_FETCH_SIZE);
+                try (ResultSet rs = stmt.executeQuery(selectWithStatus() + ALL_ORDER_BY)) {
+                    while (rs.next()) {
+                        handler.handle(mapResultSetToPaymentWithStatus(rs));
+                    }
+                }
+            } finally {
+                conn.rollback(); // Chỉ đọc - đóng transaction của cursor
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            LOG.error("❌ Error streaming payments with status: " + e.getMessage());
+            throw new RuntimeException("Failed to stream payments with status", e);
+        }
+    }
+
     /// helper
+    private PaymentWithStatus mapResultSetToPaymentWithStatus(ResultSet rs) throws SQLException {
+        Payment payment = mapResultSetToPayment(rs);
+
+        // Status có thể NULL nếu payment chưa có log nào
+        String statusStr = rs.getString("status");
+        PaymentStatus paymentStatus = statusStr != null ? PaymentStatus.valueOf(statusStr) : null;
+
+        Timestamp statusUpdatedTs = rs.getTimestamp("status_updated_at");
+        LocalDateTime statusUpdatedAt = statusUpdatedTs != null ? statusUpdatedTs.toLocalDateTime() : null;
+
+        return new PaymentWithStatus(payment, paymentStatus, statusUpdatedAt);
+    }
+
     private Payment mapResultSetToPayment(ResultSet rs) throws SQLException {
         Payment p = new Payment();
         p.setId(rs.getInt("id")); // PK not null
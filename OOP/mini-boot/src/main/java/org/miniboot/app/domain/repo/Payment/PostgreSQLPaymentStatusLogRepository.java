@@ -1,71 +1,175 @@
 package org.miniboot.app.domain.repo.Payment;
 
+import org.miniboot.app.AppConfig;
 import org.miniboot.app.config.DatabaseConfig;
 import org.miniboot.app.domain.models.Payment.PaymentStatus;
+import org.miniboot.app.util.Logger;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 
+/**
+ * payment_status_log là lịch sử đổi trạng thái; trạng thái hiện tại được giữ sẵn trong payment_current_status
+ * (một dòng mỗi payment), ghi cùng transaction với dòng log. Đọc trạng thái hiện tại / danh sách kèm trạng thái
+ * chỉ cần tra khóa chính thay vì tìm dòng log mới nhất.
+ * Nếu chưa tạo được bảng (ensureSchema lỗi / chưa gọi), mọi thao tác dùng payment_status_log như trước.
+ */
 public class PostgreSQLPaymentStatusLogRepository implements PaymentStatusLogRepository {
+    private static final Logger LOG = Logger.get(PostgreSQLPaymentStatusLogRepository.class);
+
+    private static final String CREATE_CURRENT_STATUS_SQL = """
+            CREATE TABLE payment_current_status (
+                payment_id integer PRIMARY KEY REFERENCES payments(id) ON DELETE CASCADE,
+                status payment_status NOT NULL,
+                changed_at timestamp NOT NULL
+            )
+            """;
+    // Dựng từ lịch sử có sẵn, chỉ chạy một lần khi vừa tạo bảng
+    private static final String BACKFILL_CURRENT_STATUS_SQL = """
+            INSERT INTO payment_current_status (payment_id, status, changed_at)
+            SELECT DISTINCT ON (payment_id) payment_id, status, COALESCE(changed_at, CURRENT_TIMESTAMP)
+            FROM payment_status_log
+            ORDER BY payment_id, changed_at DESC, id DESC
+            """;
+    private static final String CURRENT_FROM_LOG_SQL = """
+            SELECT status
+            FROM payment_status_log
+            WHERE payment_id = ?
+            ORDER BY changed_at DESC, id DESC
+            LIMIT 1
+            """;
+    private static final String CURRENT_FROM_PROJECTION_SQL =
+            "SELECT status FROM payment_current_status WHERE payment_id = ?";
+
     private final DatabaseConfig dbConfig;
+    private final PaymentStatusCache cache;
+    private final PaymentRollupRepository rollups;
+    private volatile boolean projectionAvailable;
 
     public PostgreSQLPaymentStatusLogRepository() {
-        this.dbConfig = DatabaseConfig.getInstance();
+        this(new PaymentRollupRepository());
+    }
+
+    /**
+     * @param rollups rollup báo cáo tài chính: payment chuyển sang PAID được cộng vào cùng transaction
+     */
+    public PostgreSQLPaymentStatusLogRepository(PaymentRollupRepository rollups) {
+        this.dbConfig = DatabaseConfig.getInstance().forRepository(PostgreSQLPaymentStatusLogRepository.class);
+        this.rollups = rollups;
+        this.cache = new PaymentStatusCache(AppConfig.PAYMENT_STATUS_CACHE_MAX_ENTRIES, AppConfig.PAYMENT_STATUS_CACHE_TTL_MS);
+    }
+
+    /**
+     * Tạo payment_current_status (và dựng lại từ payment_status_log) nếu chưa có
+     */
+    public void ensureSchema() throws SQLException {
+        try (Connection conn = dbConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                // Khóa để hai instance khởi động cùng lúc không cùng tạo / backfill
+                stmt.execute("LOCK TABLE payment_status_log IN SHARE ROW EXCLUSIVE MODE");
+                boolean exists;
+                try (ResultSet rs = stmt.executeQuery("SELECT to_regclass('payment_current_status') IS NOT NULL")) {
+                    exists = rs.next() && rs.getBoolean(1);
+                }
+                if (!exists) {
+                    stmt.execute(CREATE_CURRENT_STATUS_SQL);
+                    int rows = stmt.executeUpdate(BACKFILL_CURRENT_STATUS_SQL);
+                    LOG.info("Created payment_current_status from " + rows + " payments");
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        projectionAvailable = true;
+    }
+
+    /**
+     * true khi payment_current_status đã sẵn sàng để join thay cho payment_status_log
+     */
+    public boolean isProjectionAvailable() {
+        return projectionAvailable;
     }
 
     @Override
     public PaymentStatus setCurrentPaymentStatus(int paymentId, PaymentStatus targetStatus) {
         if (targetStatus == null) {
-            System.err.println("❌ setCurrentPaymentStatus: targetStatus is null");
+            LOG.error("❌ setCurrentPaymentStatus: targetStatus is null");
             return null;
         }
 
-        // 1) Lấy trạng thái hiện tại
-        PaymentStatus current = getCurrentPaymentStatus(paymentId);
-
-        // 2) Nếu đang ở trạng thái kết thúc (PAID/CANCELLED) → không cho đổi nữa
-        if (isTerminal(current)) {
-            System.out.println("🚫 Payment " + paymentId + " is terminal (" + current + "), skip change to " + targetStatus);
-            return current; // trả về hiện trạng, không chèn log mới
-        }
-
-        // 3) Idempotent: nếu đặt lại đúng trạng thái hiện tại → bỏ qua
-        if (current == targetStatus) {
-            System.out.println("ℹ️ Payment " + paymentId + " already in status " + targetStatus + ", no-op");
-            return current;
-        }
+        try (Connection conn = dbConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // 1) Khóa payment: các lần đổi trạng thái cùng payment chạy lần lượt,
+                //    nên kiểm tra trạng thái hiện tại bên dưới không bị lệch
+                try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM payments WHERE id = ? FOR UPDATE")) {
+                    ps.setInt(1, paymentId);
+                    ps.executeQuery().close();
+                }
 
-        // 4) Ghi log trạng thái mới
-        final String sql = """
-                INSERT INTO payment_status_log (payment_id, status, changed_at)
-                VALUES (?, ?::payment_status, CURRENT_TIMESTAMP)
-                RETURNING status
-                """;
-        try (Connection conn = dbConfig.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+                // 2) Lấy trạng thái hiện tại
+                PaymentStatus current = readCurrent(conn, paymentId);
 
-            ps.setInt(1, paymentId);
-            ps.setString(2, targetStatus.name()); // enum JAVA trùng 'UNPAID','PENDING','PAID','CANCELLED'
+                // 3) Nếu đang ở trạng thái kết thúc (PAID/CANCELLED) → không cho đổi nữa
+                //    Idempotent: nếu đặt lại đúng trạng thái hiện tại → bỏ qua
+                if (isTerminal(current) || current == targetStatus) {
+                    LOG.debug("ℹ️ Payment " + paymentId + " stays " + current + ", skip change to " + targetStatus);
+                    conn.rollback();
+                    cache.putLoaded(paymentId, current);
+                    return current; // trả về hiện trạng, không chèn log mới
+                }
 
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    String s = rs.getString(1);
-                    // Nếu bạn có fromCode thì dùng, còn không valueOf là đủ
-                    try {
-                        return PaymentStatus.valueOf(s);
-                    } catch (IllegalArgumentException ex) {
-                        try {
-                            return PaymentStatus.fromCode(s);
-                        } catch (Throwable ignore) {
-                            return null;
-                        }
+                // 4) Ghi log trạng thái mới + cập nhật trạng thái hiện tại (và rollup khi PAID) trong cùng transaction
+                Timestamp changedAt;
+                try (PreparedStatement ps = conn.prepareStatement("""
+                        INSERT INTO payment_status_log (payment_id, status, changed_at)
+                        VALUES (?, ?::payment_status, CURRENT_TIMESTAMP)
+                        RETURNING changed_at
+                        """)) {
+                    ps.setInt(1, paymentId);
+                    ps.setString(2, targetStatus.name()); // enum JAVA trùng 'UNPAID','PENDING','PAID','CANCELLED'
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        changedAt = rs.getTimestamp(1);
                     }
                 }
+                if (projectionAvailable) {
+                    try (PreparedStatement ps = conn.prepareStatement("""
+                            INSERT INTO payment_current_status (payment_id, status, changed_at)
+                            VALUES (?, ?::payment_status, ?)
+                            ON CONFLICT (payment_id) DO UPDATE
+                            SET status = EXCLUDED.status, changed_at = EXCLUDED.changed_at
+                            """)) {
+                        ps.setInt(1, paymentId);
+                        ps.setString(2, targetStatus.name());
+                        ps.setTimestamp(3, changedAt);
+                        ps.executeUpdate();
+                    }
+                }
+                if (targetStatus == PaymentStatus.PAID) {
+                    rollups.applyPaid(conn, paymentId);
+                }
+
+                conn.commit();
+                cache.put(paymentId, targetStatus);
+                return targetStatus;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
         } catch (SQLException e) {
-            System.err.println("❌ setCurrentPaymentStatus error: " + e.getMessage());
+            LOG.error("❌ setCurrentPaymentStatus error: " + e.getMessage());
             e.printStackTrace();
         }
         return null;
@@ -73,39 +177,44 @@ public class PostgreSQLPaymentStatusLogRepository implements PaymentStatusLogRep
 
     @Override
     public PaymentStatus getCurrentPaymentStatus(int paymentId) {
-        final String sql = """
-                SELECT status
-                FROM payment_status_log
-                WHERE payment_id = ?
-                ORDER BY changed_at DESC, id DESC
-                LIMIT 1
-                """;
-        try (Connection conn = dbConfig.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setInt(1, paymentId);
+        PaymentStatus cached = cache.get(paymentId);
+        if (cached != null) {
+            return cached;
+        }
 
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    String s = rs.getString("status");
-                    try {
-                        return PaymentStatus.valueOf(s);
-                    } catch (IllegalArgumentException ex) {
-                        try {
-                            return PaymentStatus.fromCode(s);
-                        } catch (Throwable ignore) {
-                            return null;
-                        }
-                    }
-                }
-            }
+        try (Connection conn = dbConfig.getConnection()) {
+            PaymentStatus status = readCurrent(conn, paymentId);
+            cache.putLoaded(paymentId, status);
+            return status;
         } catch (SQLException e) {
-            System.err.println("❌ getCurrentPaymentStatus error: " + e.getMessage());
+            LOG.error("❌ getCurrentPaymentStatus error: " + e.getMessage());
             e.printStackTrace();
         }
         return null; // chưa có log nào
     }
 
+    private PaymentStatus readCurrent(Connection conn, int paymentId) throws SQLException {
+        String sql = projectionAvailable ? CURRENT_FROM_PROJECTION_SQL : CURRENT_FROM_LOG_SQL;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, paymentId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? parseStatus(rs.getString("status")) : null;
+            }
+        }
+    }
+
+    private static PaymentStatus parseStatus(String s) {
+        try {
+            return PaymentStatus.valueOf(s);
+        } catch (IllegalArgumentException ex) {
+            try {
+                return PaymentStatus.fromCode(s);
+            } catch (Throwable ignore) {
+                return null;
+            }
+        }
+    }
+
     // Trạng thái kết thúc: không cho chuyển tiếp nữa
     private boolean isTerminal(PaymentStatus s) {
         return s == PaymentStatus.PAID || s == PaymentStatus.CANCELLED;
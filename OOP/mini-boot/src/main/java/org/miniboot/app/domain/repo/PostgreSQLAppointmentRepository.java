@@ -1,20 +1,27 @@
 package org.miniboot.app.domain.repo;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.miniboot.app.config.DatabaseConfig;
+import org.miniboot.app.config.DatabaseConstants;
 import org.miniboot.app.domain.models.Appointment;
 import org.miniboot.app.domain.models.AppointmentStatus;
 import org.miniboot.app.domain.models.AppointmentType;
+import org.miniboot.app.domain.models.Page;
+import org.miniboot.app.util.Logger;
 
 /**
  * PostgreSQLAppointmentRepository: Implementation của AppointmentRepository sử
@@ -24,11 +31,34 @@ import org.miniboot.app.domain.models.AppointmentType;
  * với bảng Appointments
  */
 public class PostgreSQLAppointmentRepository implements AppointmentRepository {
+    private static final Logger LOG = Logger.get(PostgreSQLAppointmentRepository.class);
+
 
     private final DatabaseConfig dbConfig;
 
+    private static final String FIND_ALL_SQL = "SELECT id, customer_id, doctor_id, appointment_type, notes, " +
+            "start_time, end_time, status, created_at, updated_at " +
+            "FROM Appointments ORDER BY start_time DESC, id DESC";
+    // Keyset: (start_time, id) của phần tử cuối trang trước
+    private static final String FIRST_PAGE_SQL = "SELECT id, customer_id, doctor_id, appointment_type, notes, " +
+            "start_time, end_time, status, created_at, updated_at " +
+            "FROM Appointments ORDER BY start_time DESC, id DESC LIMIT ?";
+    private static final String NEXT_PAGE_SQL = "SELECT id, customer_id, doctor_id, appointment_type, notes, " +
+            "start_time, end_time, status, created_at, updated_at " +
+            "FROM Appointments WHERE (start_time, id) < (?, ?) ORDER BY start_time DESC, id DESC LIMIT ?";
+
     public PostgreSQLAppointmentRepository() {
-        this.dbConfig = DatabaseConfig.getInstance();
+        this.dbConfig = DatabaseConfig.getInstance().forRepository(PostgreSQLAppointmentRepository.class);
+    }
+
+    /**
+     * Index cho phân trang keyset (start_time, id) nếu chưa có (gọi một lần khi khởi động)
+     */
+    public void ensureIndexes() throws SQLException {
+        try (Connection conn = dbConfig.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_appointments_start_time_id ON Appointments (start_time, id)");
+        }
     }
 
     /**
@@ -37,9 +67,7 @@ public class PostgreSQLAppointmentRepository implements AppointmentRepository {
     @Override
     public List<Appointment> findAll() {
         List<Appointment> appointments = new ArrayList<>();
-        String sql = "SELECT id, customer_id, doctor_id, appointment_type, notes, " +
-                "start_time, end_time, status, created_at, updated_at " +
-                "FROM Appointments ORDER BY start_time DESC";
+        String sql = FIND_ALL_SQL;
 
         try (Connection conn = dbConfig.getConnection();
                 Statement stmt = conn.createStatement();
@@ -50,16 +78,74 @@ public class PostgreSQLAppointmentRepository implements AppointmentRepository {
                 appointments.add(appointment);
             }
 
-            System.out.println("✅ Found " + appointments.size() + " appointments in database");
+            LOG.debug("✅ Found " + appointments.size() + " appointments in database");
 
         } catch (SQLException e) {
-            System.err.println("❌ Error fetching appointments: " + e.getMessage());
+            LOG.error("❌ Error fetching appointments: " + e.getMessage());
             e.printStackTrace();
         }
 
         return appointments;
     }
 
+    /**
+     * Stream toàn bộ appointments bằng server-side cursor (fetch size cố định)
+     * thay vì nạp cả bảng vào một List
+     */
+    @Override
+    public void streamAll(RowHandler<Appointment> handler) throws IOException {
+        try (Connection conn = dbConfig.getConnection()) {
+            // PostgreSQL driver chỉ dùng cursor khi tắt autocommit
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.setFetchSize(DatabaseConstants.STREAM_FETCH_SIZE);
+                try (ResultSet rs = stmt.executeQuery(FIND_ALL_SQL)) {
+                    while (rs.next()) {
+                        handler.handle(mapResultSetToAppointment(rs));
+                    }
+                }
+            } finally {
+                conn.rollback(); // Chỉ đọc - đóng transaction của cursor
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            LOG.error("❌ Error streaming appointments: " + e.getMessage());
+            throw new RuntimeException("Failed to stream appointments", e);
+        }
+    }
+
+    /**
+     * Một trang appointments theo keyset (start_time, id) - không OFFSET, chi phí không tăng theo số trang
+     */
+    @Override
+    public Page<Appointment> findPage(PageRequest request) {
+        List<Appointment> rows = new ArrayList<>();
+        PageCursor.Reader cursor = request.isFirst() ? null : PageCursor.decode(request.cursor(), 2);
+
+        try (Connection conn = dbConfig.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(cursor == null ? FIRST_PAGE_SQL : NEXT_PAGE_SQL)) {
+
+            int index = 1;
+            if (cursor != null) {
+                pstmt.setTimestamp(index++, Timestamp.valueOf(cursor.nextDateTime()));
+                pstmt.setInt(index++, cursor.nextInt());
+            }
+            pstmt.setInt(index, request.limit() + 1);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapResultSetToAppointment(rs));
+                }
+            }
+
+        } catch (SQLException e) {
+            LOG.error("❌ Error fetching appointment page: " + e.getMessage());
+            throw new RuntimeException("Failed to fetch appointments", e);
+        }
+
+        return Page.fromRows(rows, request.limit(), a -> PageCursor.encode(a.getStartTime(), a.getId()));
+    }
+
     /**
      * Tìm appointment theo ID
      */
@@ -81,7 +167,7 @@ public class PostgreSQLAppointmentRepository implements AppointmentRepository {
             }
 
         } catch (SQLException e) {
-            System.err.println("❌ Error finding appointment by id: " + e.getMessage());
+            LOG.error("❌ Error finding appointment by id: " + e.getMessage());
             e.printStackTrace();
         }
 
@@ -145,14 +231,14 @@ public class PostgreSQLAppointmentRepository implements AppointmentRepository {
                     appointment.setId(generatedKeys.getInt(1));
                     appointment.setCreatedAt(now);
                     appointment.setUpdatedAt(now);
-                    System.out.println("✅ Appointment created with ID: " + appointment.getId());
+                    LOG.debug("✅ Appointment created with ID: " + appointment.getId());
                 } else {
                     throw new SQLException("Creating appointment failed, no ID obtained.");
                 }
             }
 
         } catch (SQLException e) {
-            System.err.println("❌ Error inserting appointment: " + e.getMessage());
+            LOG.error("❌ Error inserting appointment: " + e.getMessage());
             e.printStackTrace();
             return null;
         }
@@ -189,15 +275,15 @@ public class PostgreSQLAppointmentRepository implements AppointmentRepository {
             int affectedRows = pstmt.executeUpdate();
 
             if (affectedRows == 0) {
-                System.err.println("❌ Appointment update failed, no rows affected.");
+                LOG.error("❌ Appointment update failed, no rows affected.");
                 return null;
             }
 
             appointment.setUpdatedAt(now);
-            System.out.println("✅ Appointment updated: ID = " + appointment.getId());
+            LOG.debug("✅ Appointment updated: ID = " + appointment.getId());
 
         } catch (SQLException e) {
-            System.err.println("❌ Error updating appointment: " + e.getMessage());
+            LOG.error("❌ Error updating appointment: " + e.getMessage());
             e.printStackTrace();
             return null;
         }
@@ -211,6 +297,19 @@ public class PostgreSQLAppointmentRepository implements AppointmentRepository {
      */
     @Override
     public List<Appointment> findByDoctorIdAndDate(Integer doctorId, String date) {
+        try {
+            return loadByDoctorIdAndDate(doctorId, LocalDate.parse(date));
+        } catch (SQLException e) {
+            LOG.error("❌ Error finding appointments by doctor and date: " + e.getMessage(), e);
+            return new ArrayList<>();
+        } catch (DateTimeParseException e) {
+            LOG.warn("Invalid date for appointments by doctor: " + date);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public List<Appointment> loadByDoctorIdAndDate(int doctorId, LocalDate date) throws SQLException {
         List<Appointment> appointments = new ArrayList<>();
 
         // Query lấy tất cả appointments trong ngày
@@ -227,24 +326,60 @@ public class PostgreSQLAppointmentRepository implements AppointmentRepository {
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, doctorId);
-            pstmt.setString(2, date);
-            pstmt.setString(3, date);
-
-            ResultSet rs = pstmt.executeQuery();
+            pstmt.setString(2, date.toString());
+            pstmt.setString(3, date.toString());
 
-            while (rs.next()) {
-                Appointment appointment = mapResultSetToAppointment(rs);
-                appointments.add(appointment);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    appointments.add(mapResultSetToAppointment(rs));
+                }
             }
+        }
 
-            System.out.println("✅ Found " + appointments.size() +
-                    " appointments for doctor " + doctorId + " on " + date);
+        LOG.debug("✅ Found " + appointments.size() +
+                " appointments for doctor " + doctorId + " on " + date);
+        return appointments;
+    }
+
+    /**
+     * Appointments của nhiều bác sĩ trong một khoảng ngày - một query thay vì một query mỗi (bác sĩ, ngày)
+     */
+    @Override
+    public List<Appointment> findByDoctorIdsAndDateRange(Collection<Integer> doctorIds, LocalDate from, LocalDate to)
+            throws SQLException {
+        List<Appointment> appointments = new ArrayList<>();
+        if (doctorIds.isEmpty()) {
+            return appointments;
+        }
+
+        String sql = "SELECT id, customer_id, doctor_id, appointment_type, notes, " +
+                "start_time, end_time, status, created_at, updated_at " +
+                "FROM Appointments " +
+                "WHERE doctor_id = ANY(?) " +
+                "AND start_time >= ?::date " +
+                "AND start_time < (?::date + interval '1 day') " +
+                "ORDER BY doctor_id, start_time";
+
+        try (Connection conn = dbConfig.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setArray(1, conn.createArrayOf("integer", doctorIds.toArray()));
+            pstmt.setString(2, from.toString());
+            pstmt.setString(3, to.toString());
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    appointments.add(mapResultSetToAppointment(rs));
+                }
+            }
 
         } catch (SQLException e) {
-            System.err.println("❌ Error finding appointments by doctor and date: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("❌ Error finding appointments by doctors and date range: " + e.getMessage(), e);
+            throw e;
         }
 
+        LOG.debug("✅ Found " + appointments.size() + " appointments for " + doctorIds.size() +
+                " doctors from " + from + " to " + to);
         return appointments;
     }
 
@@ -308,8 +443,8 @@ public class PostgreSQLAppointmentRepository implements AppointmentRepository {
                     pstmt.setString(i + 1, (String) p);
             }
 
-            System.out.println("🔍 Executing SQL: " + sql);
-            System.out.println("📌 Parameters: " + params);
+            LOG.debug("🔍 Executing SQL: " + sql);
+            LOG.debug("📌 Parameters: " + params);
 
             try (ResultSet rs = pstmt.executeQuery()) { // 👈 ĐÃ BỌC
                 while (rs.next()) {
@@ -317,10 +452,10 @@ public class PostgreSQLAppointmentRepository implements AppointmentRepository {
                 }
             }
 
-            System.out.println("✅ Found " + appointments.size() + " appointments with filters");
+            LOG.debug("✅ Found " + appointments.size() + " appointments with filters");
 
         } catch (SQLException e) {
-            System.err.println("❌ Error in findWithFilters: " + e.getMessage());
+            LOG.error("❌ Error in findWithFilters: " + e.getMessage());
             e.printStackTrace();
         }
 
@@ -12,6 +12,7 @@ import java.util.Optional;
 
 import org.miniboot.app.config.DatabaseConfig;
 import org.miniboot.app.domain.models.Doctor;
+import org.miniboot.app.util.Logger;
 
 /**
  * PostgreSQLDoctorRepository: Implementation của DoctorRepository sử dụng PostgreSQL
@@ -20,11 +21,13 @@ import org.miniboot.app.domain.models.Doctor;
  * với bảng Employees (role = 'doctor')
  */
 public class PostgreSQLDoctorRepository implements DoctorRepository {
+    private static final Logger LOG = Logger.get(PostgreSQLDoctorRepository.class);
+
     
     private final DatabaseConfig dbConfig;
     
     public PostgreSQLDoctorRepository() {
-        this.dbConfig = DatabaseConfig.getInstance();
+        this.dbConfig = DatabaseConfig.getInstance().forRepository(PostgreSQLDoctorRepository.class);
     }
     
     /**
@@ -49,10 +52,10 @@ public class PostgreSQLDoctorRepository implements DoctorRepository {
                 doctors.add(doctor);
             }
             
-            System.out.println("✅ Found " + doctors.size() + " doctors in database");
+            LOG.debug("✅ Found " + doctors.size() + " doctors in database");
             
         } catch (SQLException e) {
-            System.err.println("❌ Error fetching doctors: " + e.getMessage());
+            LOG.error("❌ Error fetching doctors: " + e.getMessage());
             e.printStackTrace();
         }
         
@@ -83,7 +86,7 @@ public class PostgreSQLDoctorRepository implements DoctorRepository {
             }
             
         } catch (SQLException e) {
-            System.err.println("❌ Error finding doctor by id: " + e.getMessage());
+            LOG.error("❌ Error finding doctor by id: " + e.getMessage());
             e.printStackTrace();
         }
         
@@ -123,10 +126,10 @@ public class PostgreSQLDoctorRepository implements DoctorRepository {
             pstmt.executeBatch();
             conn.commit(); // Commit transaction
             
-            System.out.println("✅ Saved " + doctors.size() + " doctors to database");
+            LOG.debug("✅ Saved " + doctors.size() + " doctors to database");
             
         } catch (SQLException e) {
-            System.err.println("❌ Error saving doctors: " + e.getMessage());
+            LOG.error("❌ Error saving doctors: " + e.getMessage());
             e.printStackTrace();
         }
     }
@@ -158,12 +161,12 @@ public class PostgreSQLDoctorRepository implements DoctorRepository {
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
                     doctor.setId(rs.getInt("id"));
-                    System.out.println("✅ Saved doctor with ID: " + doctor.getId());
+                    LOG.debug("✅ Saved doctor with ID: " + doctor.getId());
                 }
             }
             
         } catch (SQLException e) {
-            System.err.println("❌ Error saving doctor: " + e.getMessage());
+            LOG.error("❌ Error saving doctor: " + e.getMessage());
             e.printStackTrace();
         }
     }
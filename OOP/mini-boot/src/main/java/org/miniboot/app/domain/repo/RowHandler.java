@@ -0,0 +1,12 @@
+package org.miniboot.app.domain.repo;
+
+import java.io.IOException;
+
+/**
+ * Callback nhận từng dòng khi repository stream kết quả truy vấn
+ * (ví dụ: serialize thẳng ra response thay vì gom vào List)
+ */
+@FunctionalInterface
+public interface RowHandler<T> {
+    void handle(T row) throws IOException;
+}
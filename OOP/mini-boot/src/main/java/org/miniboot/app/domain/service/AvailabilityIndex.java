@@ -0,0 +1,343 @@
+package org.miniboot.app.domain.service;
+
+import org.miniboot.app.domain.models.Appointment;
+import org.miniboot.app.domain.models.AppointmentStatus;
+import org.miniboot.app.domain.repo.AppointmentRepository;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chỉ mục lịch bận theo (bác sĩ, ngày) trong bộ nhớ
+ * <p>
+ * - Mỗi (doctorId, ngày) có một DayIndex bất biến: các appointment chưa hủy (id -> [phút bắt đầu, phút kết thúc))
+ *   và bitmap 1440 bit (1 bit = 1 phút trong ngày) đánh dấu các phút đã có lịch.
+ *   Kiểm tra một khoảng trống/bận chỉ là vài phép AND trên long[], không quét danh sách appointment.
+ * - DayIndex được nạp lười từ DB (loadByDoctorIdAndDate) lần đầu được hỏi, sau đó cập nhật tăng dần
+ *   khi AppointmentController tạo / sửa / hủy appointment (onSaved). Mỗi thay đổi tạo DayIndex mới
+ *   (copy-on-write) nên luồng đọc không cần lock.
+ * - Entry quá TTL được nạp lại từ DB để bắt kịp thay đổi không đi qua API (sửa tay trong DB, instance khác).
+ * - Lỗi DB khi nạp được ném ra (SQLException) và không được cache: một lần nạp lỗi không được coi là ngày trống.
+ * - Độ phân giải là phút: appointment lẻ giây được làm tròn ra ngoài (bận thêm tối đa 1 phút).
+ * Appointment được tính vào ngày chứa startTime (giống loadByDoctorIdAndDate), phần qua nửa đêm bị cắt.
+ */
+public final class AvailabilityIndex {
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int WORDS = (MINUTES_PER_DAY + 63) / 64;
+
+    private final AppointmentRepository appointmentRepository;
+    private final int maxDays;
+    private final long ttlMillis;
+
+    private final ConcurrentHashMap<Long, DayIndex> days = new ConcurrentHashMap<>();
+    /** Tăng mỗi lần có thay đổi: lần nạp nào chạy song song với thay đổi thì không được cache */
+    private final AtomicLong modifications = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * @param maxDays   số (bác sĩ, ngày) giữ tối đa trong bộ nhớ
+     * @param ttlMillis thời gian giữ một ngày trước khi nạp lại từ DB, 0 = không cache
+     */
+    public AvailabilityIndex(AppointmentRepository appointmentRepository, int maxDays, long ttlMillis) {
+        this.appointmentRepository = appointmentRepository;
+        this.maxDays = Math.max(1, maxDays);
+        this.ttlMillis = Math.max(0, ttlMillis);
+    }
+
+    /**
+     * Lịch bận của một (bác sĩ, ngày), nạp từ DB nếu chưa có trong chỉ mục
+     *
+     * @return ảnh chụp để tra cứu không lock, không chạm DB
+     */
+    public Range loadDay(int doctorId, LocalDate date) throws SQLException {
+        return new Range(Map.of(key(doctorId, date), day(doctorId, date)));
+    }
+
+    /**
+     * Có appointment (chưa hủy) nào trùng với [start, end) không, bỏ qua excludeAppointmentId nếu có
+     */
+    public boolean hasConflict(int doctorId, LocalDateTime start, LocalDateTime end, Integer excludeAppointmentId)
+            throws SQLException {
+        LocalDate date = start.toLocalDate();
+        int from = startMinute(start.toLocalTime());
+        int to = end.toLocalDate().isAfter(date) ? MINUTES_PER_DAY : endMinute(end.toLocalTime());
+        return day(doctorId, date).overlaps(from, to, excludeAppointmentId);
+    }
+
+    /**
+     * Nạp lịch bận của nhiều bác sĩ trong khoảng ngày [from, to] bằng một query cho tất cả các ngày còn thiếu
+     * (thay vì một query mỗi (bác sĩ, ngày)); các ngày vừa nạp cũng được đưa vào chỉ mục.
+     * Query lỗi -> SQLException, không ngày nào được cache
+     *
+     * @return ảnh chụp để tra cứu không lock, không chạm DB - an toàn khi đọc từ nhiều thread
+     */
+    public Range loadRange(Collection<Integer> doctorIds, LocalDate from, LocalDate to) throws SQLException {
+        long now = System.currentTimeMillis();
+        Map<Long, DayIndex> view = new HashMap<>();
+        Set<Integer> missingDoctors = new LinkedHashSet<>();
+        for (Integer doctorId : doctorIds) {
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                long key = key(doctorId, date);
+                DayIndex cached = days.get(key);
+                if (cached != null && now - cached.loadedAtMillis < ttlMillis) {
+                    view.put(key, cached);
+                } else {
+                    missingDoctors.add(doctorId);
+                }
+            }
+        }
+        if (missingDoctors.isEmpty()) {
+            return new Range(view);
+        }
+
+        long version = modifications.get();
+        Map<Long, List<Appointment>> byDay = new HashMap<>();
+        for (Appointment appointment : appointmentRepository.findByDoctorIdsAndDateRange(missingDoctors, from, to)) {
+            if (appointment.getStartTime() != null) {
+                byDay.computeIfAbsent(key(appointment.getDoctorId(), appointment.getStartTime().toLocalDate()),
+                        k -> new ArrayList<>()).add(appointment);
+            }
+        }
+        for (Integer doctorId : missingDoctors) {
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                long key = key(doctorId, date);
+                if (!view.containsKey(key)) {
+                    DayIndex loaded = DayIndex.of(byDay.getOrDefault(key, List.of()), now);
+                    view.put(key, loaded);
+                    install(key, loaded, version, now);
+                }
+            }
+        }
+        return new Range(view);
+    }
+
+    /**
+     * Cập nhật chỉ mục sau khi appointment được lưu
+     *
+     * @param previous bản trước khi sửa (null khi tạo mới)
+     * @param saved    bản đã lưu (status CANCELLED = bỏ khỏi lịch bận)
+     */
+    public void onSaved(Appointment previous, Appointment saved) {
+        modifications.incrementAndGet();
+        if (previous != null && previous.getStartTime() != null) {
+            days.computeIfPresent(key(previous.getDoctorId(), previous.getStartTime().toLocalDate()),
+                    (k, day) -> day.without(previous.getId()));
+        }
+        if (saved != null && saved.getStartTime() != null) {
+            days.computeIfPresent(key(saved.getDoctorId(), saved.getStartTime().toLocalDate()),
+                    (k, day) -> isBusy(saved) ? day.with(saved.getId(), interval(saved)) : day.without(saved.getId()));
+        }
+    }
+
+    /**
+     * Bỏ dữ liệu đã nạp của một (bác sĩ, ngày), lần hỏi sau sẽ đọc lại từ DB
+     */
+    public void invalidate(int doctorId, LocalDate date) {
+        modifications.incrementAndGet();
+        days.remove(key(doctorId, date));
+    }
+
+    public void clear() {
+        modifications.incrementAndGet();
+        days.clear();
+    }
+
+    public int size() {
+        return days.size();
+    }
+
+    //  INTERNALS
+
+    private DayIndex day(int doctorId, LocalDate date) throws SQLException {
+        long key = key(doctorId, date);
+        long now = System.currentTimeMillis();
+        DayIndex cached = days.get(key);
+        if (cached != null && now - cached.loadedAtMillis < ttlMillis) {
+            return cached;
+        }
+
+        long version = modifications.get();
+        DayIndex loaded = DayIndex.of(appointmentRepository.loadByDoctorIdAndDate(doctorId, date), now);
+        install(key, loaded, version, now);
+        return loaded;
+    }
+
+    private void install(long key, DayIndex loaded, long version, long now) {
+        if (ttlMillis == 0) {
+            return;
+        }
+        if (days.size() >= maxDays) {
+            evict(now);
+        }
+        // Kiểm tra version trong compute: onSaved tăng version trước rồi mới computeIfPresent cùng key,
+        // nên hoặc ta thấy version đổi (không cache), hoặc onSaved áp thay đổi lên bản ta vừa đặt vào.
+        days.compute(key, (k, current) -> modifications.get() == version ? loaded : current);
+    }
+
+    private void evict(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            days.values().removeIf(day -> now - day.loadedAtMillis >= ttlMillis);
+            int excess = days.size() - (maxDays - maxDays / 10);
+            Iterator<Long> it = days.keySet().iterator();
+            while (excess-- > 0 && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static long key(int doctorId, LocalDate date) {
+        return ((long) doctorId << 32) | (date.toEpochDay() & 0xFFFF_FFFFL);
+    }
+
+    private static boolean isBusy(Appointment appointment) {
+        return appointment.getStatus() != AppointmentStatus.CANCELLED
+                && appointment.getStartTime() != null && appointment.getEndTime() != null;
+    }
+
+    /** [phút bắt đầu, phút kết thúc) trong ngày của startTime */
+    private static int[] interval(Appointment appointment) {
+        LocalDateTime start = appointment.getStartTime();
+        LocalDateTime end = appointment.getEndTime();
+        int to = end.toLocalDate().isAfter(start.toLocalDate()) ? MINUTES_PER_DAY : endMinute(end.toLocalTime());
+        return new int[]{startMinute(start.toLocalTime()), to};
+    }
+
+    private static int startMinute(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    // Làm tròn lên: 09:30:20 -> phút 571
+    private static int endMinute(LocalTime time) {
+        int minute = time.getHour() * 60 + time.getMinute();
+        return time.getSecond() > 0 || time.getNano() > 0 ? minute + 1 : minute;
+    }
+
+    /**
+     * Ảnh chụp lịch bận của một tập (bác sĩ, ngày), trả về bởi loadDay / loadRange
+     */
+    public static final class Range {
+        private final Map<Long, DayIndex> days;
+
+        private Range(Map<Long, DayIndex> days) {
+            this.days = days;
+        }
+
+        /**
+         * Khoảng [start, end) có trống không; (bác sĩ, ngày) ngoài khoảng đã nạp coi như bận
+         */
+        public boolean isFree(int doctorId, LocalDate date, LocalTime start, LocalTime end) {
+            DayIndex day = days.get(key(doctorId, date));
+            return day != null && !day.overlaps(startMinute(start), endMinute(end), null);
+        }
+    }
+
+    /**
+     * Lịch bận của một (bác sĩ, ngày) - bất biến
+     */
+    private static final class DayIndex {
+        final Map<Integer, int[]> intervals;
+        final long[] busy;
+        final long loadedAtMillis;
+
+        private DayIndex(Map<Integer, int[]> intervals, long loadedAtMillis) {
+            this.intervals = intervals;
+            this.loadedAtMillis = loadedAtMillis;
+            this.busy = new long[WORDS];
+            for (int[] interval : intervals.values()) {
+                setRange(busy, interval[0], interval[1]);
+            }
+        }
+
+        static DayIndex of(List<Appointment> appointments, long loadedAtMillis) {
+            Map<Integer, int[]> intervals = new HashMap<>();
+            for (Appointment appointment : appointments) {
+                if (isBusy(appointment)) {
+                    intervals.put(appointment.getId(), interval(appointment));
+                }
+            }
+            return new DayIndex(intervals, loadedAtMillis);
+        }
+
+        DayIndex with(int appointmentId, int[] interval) {
+            Map<Integer, int[]> copy = new HashMap<>(intervals);
+            copy.put(appointmentId, interval);
+            return new DayIndex(copy, loadedAtMillis);
+        }
+
+        DayIndex without(int appointmentId) {
+            if (!intervals.containsKey(appointmentId)) {
+                return this;
+            }
+            Map<Integer, int[]> copy = new HashMap<>(intervals);
+            copy.remove(appointmentId);
+            return new DayIndex(copy, loadedAtMillis);
+        }
+
+        boolean overlaps(int from, int to, Integer excludeId) {
+            if (from >= to || !anyInRange(busy, from, to)) {
+                return false;
+            }
+            if (excludeId == null || !intervals.containsKey(excludeId)) {
+                return true;
+            }
+            // Hiếm: bitmap báo bận nhưng có thể chỉ do chính appointment đang sửa -> duyệt các khoảng
+            for (Map.Entry<Integer, int[]> entry : intervals.entrySet()) {
+                int[] interval = entry.getValue();
+                if (!entry.getKey().equals(excludeId) && interval[0] < to && from < interval[1]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static void setRange(long[] bits, int from, int to) {
+        from = Math.max(0, from);
+        to = Math.min(MINUTES_PER_DAY, to);
+        for (int i = from; i < to; ) {
+            int word = i >>> 6;
+            int end = Math.min(to, (word + 1) << 6);
+            bits[word] |= rangeMask(i & 63, end - (word << 6));
+            i = end;
+        }
+    }
+
+    private static boolean anyInRange(long[] bits, int from, int to) {
+        from = Math.max(0, from);
+        to = Math.min(MINUTES_PER_DAY, to);
+        for (int i = from; i < to; ) {
+            int word = i >>> 6;
+            int end = Math.min(to, (word + 1) << 6);
+            if ((bits[word] & rangeMask(i & 63, end - (word << 6))) != 0) {
+                return true;
+            }
+            i = end;
+        }
+        return false;
+    }
+
+    // Các bit [lo, hi) của một word, 0 <= lo < hi <= 64
+    private static long rangeMask(int lo, int hi) {
+        long upper = hi == 64 ? -1L : (1L << hi) - 1;
+        return upper & (-1L << lo);
+    }
+}
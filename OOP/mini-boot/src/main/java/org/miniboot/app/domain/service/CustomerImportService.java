@@ -0,0 +1,338 @@
+package org.miniboot.app.domain.service;
+
+import com.google.gson.Gson;
+import org.miniboot.app.AppConfig;
+import org.miniboot.app.controllers.UserController;
+import org.miniboot.app.domain.models.CustomerAndPrescription.Customer;
+import org.miniboot.app.domain.repo.PatientAndPrescription.PostgreSQLCustomerRecordRepository;
+import org.miniboot.app.metrics.Counter;
+import org.miniboot.app.metrics.MetricsRegistry;
+import org.miniboot.app.util.CustomerAndPrescriptionConfig;
+import org.miniboot.app.util.GsonProvider;
+import org.miniboot.app.util.Logger;
+import org.miniboot.app.util.errorvalidation.CustomerValidator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Nhập danh sách customer lớn (CSV hoặc JSON lines) theo kiểu stream
+ * <p>
+ * - Đọc từng dòng, gom CUSTOMER_IMPORT_CHUNK_SIZE dòng thành một chunk: chỉ một chunk nằm trong bộ nhớ.
+ *   Với body dạng stream (POST /customers/import) bộ nhớ là một chunk + các set chống trùng, không phụ thuộc
+ *   kích thước file.
+ * - Parse + CustomerValidator.validateForImport + băm mật khẩu mặc định chạy song song trong chunk.
+ * - Trùng số điện thoại / email / username (với DB hoặc dòng trước trong file) loại bằng các HashSet nạp một lần
+ *   lúc bắt đầu, không query DB cho từng dòng.
+ * - Mọi dòng nhận tài khoản mặc định như save(): username = số điện thoại, mật khẩu mặc định đã băm.
+ *   id / username / password trong dòng JSON bị bỏ qua (không nhập mật khẩu dạng rõ hay NULL).
+ * - Dòng hợp lệ ghi bằng COPY, mỗi chunk một transaction (lỗi chỉ mất chunk đó).
+ * - Listener nhận từng dòng bị loại và tiến độ sau mỗi chunk, rồi một sự kiện "done".
+ * CSV: dòng đầu là header (firstname, lastname, phone, email, dob, gender, address, note; thứ tự tùy ý),
+ * không hỗ trợ ô có xuống dòng. Gửi lại cùng file là an toàn: các dòng đã nhập bị loại vì trùng.
+ */
+public class CustomerImportService {
+    private static final Logger LOG = Logger.get(CustomerImportService.class);
+
+    private static final Counter ROWS_IMPORTED = MetricsRegistry.global().counter("miniboot_customer_import_rows_total",
+            "Rows processed by the customer bulk import", "result", "imported");
+    private static final Counter ROWS_REJECTED = MetricsRegistry.global().counter("miniboot_customer_import_rows_total",
+            "Rows processed by the customer bulk import", "result", "rejected");
+
+    public enum Format {
+        CSV, JSON_LINES
+    }
+
+    /** Nhận sự kiện import: {event: rejected | chunk_failed | progress | done, ...} */
+    @FunctionalInterface
+    public interface Listener {
+        void onEvent(Map<String, Object> event, boolean flush) throws IOException;
+    }
+
+    private record Line(int number, String text) {
+    }
+
+    private record Prepared(int line, Customer customer, String error) {
+    }
+
+    private final PostgreSQLCustomerRecordRepository repository;
+
+    public CustomerImportService(PostgreSQLCustomerRecordRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Chạy import từ đầu đến cuối stream, trả về sự kiện "done" (cũng đã gửi cho listener)
+     */
+    public Map<String, Object> run(InputStream in, Format format, Listener listener) throws IOException, SQLException {
+        long start = System.nanoTime();
+        Set<String> phones = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        Set<String> usernames = new HashSet<>();
+        repository.loadContacts(phones, emails, usernames);
+
+        Run run = new Run(format, listener, phones, emails, usernames);
+        int chunkSize = Math.max(1, AppConfig.CUSTOMER_IMPORT_CHUNK_SIZE);
+        List<Line> chunk = new ArrayList<>(chunkSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String text;
+        int number = 0;
+        while ((text = reader.readLine()) != null) {
+            number++;
+            if (text.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && run.header == null) {
+                run.header = header(text);
+                continue;
+            }
+            chunk.add(new Line(number, text));
+            if (chunk.size() >= chunkSize) {
+                run.process(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            run.process(chunk);
+        }
+
+        if (run.imported > 0) {
+            try {
+                repository.warmUp(); // COPY không trả id -> nạp lại trie typeahead
+            } catch (SQLException e) {
+                LOG.error("❌ Error reloading customer prefix index after import: " + e.getMessage());
+            }
+        }
+        Map<String, Object> done = run.counters("done");
+        done.put("duration_ms", (System.nanoTime() - start) / 1_000_000);
+        listener.onEvent(done, true);
+        LOG.info("Customer import: " + run.imported + " imported, " + run.rejected + " rejected");
+        return done;
+    }
+
+    /** Trạng thái của một lần import */
+    private final class Run {
+        final Format format;
+        final Listener listener;
+        final Set<String> phones;
+        final Set<String> emails;
+        final Set<String> usernames;
+        final Gson gson = GsonProvider.getGson();
+        final String defaultPassword = CustomerAndPrescriptionConfig.DEFAULT_PASSWORD;
+        Map<String, Integer> header;
+        int processed;
+        int imported;
+        int rejected;
+
+        Run(Format format, Listener listener, Set<String> phones, Set<String> emails, Set<String> usernames) {
+            this.format = format;
+            this.listener = listener;
+            this.phones = phones;
+            this.emails = emails;
+            this.usernames = usernames;
+        }
+
+        void process(List<Line> chunk) throws IOException {
+            List<Prepared> prepared = chunk.parallelStream().map(this::prepare).toList();
+
+            List<Customer> accepted = new ArrayList<>(prepared.size());
+            for (Prepared p : prepared) {
+                processed++;
+                String error = p.error();
+                if (error == null) {
+                    Customer c = p.customer();
+                    String email = emailKey(c.getEmail());
+                    if (phones.contains(c.getPhone())) {
+                        error = "Phone number '" + c.getPhone() + "' is already registered";
+                    } else if (email != null && emails.contains(email)) {
+                        error = "Email '" + c.getEmail() + "' is already registered";
+                    } else if (usernames.contains(c.getUsername())) {
+                        error = "Username '" + c.getUsername() + "' is already taken";
+                    } else {
+                        phones.add(c.getPhone());
+                        if (email != null) emails.add(email);
+                        usernames.add(c.getUsername());
+                        accepted.add(c);
+                        continue;
+                    }
+                }
+                reject(p.line(), error);
+            }
+
+            if (!accepted.isEmpty()) {
+                try {
+                    int rows = repository.copyInsert(accepted);
+                    imported += rows;
+                    ROWS_IMPORTED.add(rows);
+                } catch (SQLException e) {
+                    LOG.error("❌ Customer import chunk failed: " + e.getMessage());
+                    rejected += accepted.size();
+                    ROWS_REJECTED.add(accepted.size());
+                    Map<String, Object> failed = new LinkedHashMap<>();
+                    failed.put("event", "chunk_failed");
+                    failed.put("first_line", chunk.get(0).number());
+                    failed.put("last_line", chunk.get(chunk.size() - 1).number());
+                    failed.put("rows", accepted.size());
+                    failed.put("error", e.getMessage());
+                    listener.onEvent(failed, false);
+                }
+            }
+            listener.onEvent(counters("progress"), true);
+        }
+
+        /** Chạy song song: chỉ đọc trạng thái không đổi trong lúc import */
+        Prepared prepare(Line line) {
+            Customer c;
+            try {
+                c = format == Format.CSV ? fromCsv(line.text()) : gson.fromJson(line.text(), Customer.class);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                return new Prepared(line.number(), null, e.getMessage());
+            } catch (RuntimeException e) {
+                return new Prepared(line.number(), null, "Invalid JSON: " + e.getMessage());
+            }
+            if (c == null) {
+                return new Prepared(line.number(), null, "Empty row");
+            }
+            // Không nhận id / tài khoản từ file
+            c.setId(0);
+            c.setUsername(null);
+            c.setPassword(null);
+            if (c.getPhone() != null) c.setPhone(c.getPhone().trim());
+            if (c.getEmail() != null) c.setEmail(c.getEmail().isBlank() ? null : c.getEmail().trim());
+
+            String error = CustomerValidator.validateForImport(c);
+            if (error != null) {
+                return new Prepared(line.number(), null, error);
+            }
+            // Giống save(): tài khoản mặc định là số điện thoại + mật khẩu mặc định (salt riêng từng dòng)
+            c.setUsername(c.getPhone());
+            c.setPassword(UserController.hashPassword(defaultPassword));
+            c.setCreatedAt(LocalDateTime.now());
+            return new Prepared(line.number(), c, null);
+        }
+
+        Customer fromCsv(String text) {
+            List<String> cells = parseCsvLine(text);
+            Customer c = new Customer();
+            c.setFirstname(cell(cells, "firstname"));
+            c.setLastname(cell(cells, "lastname"));
+            c.setPhone(cell(cells, "phone"));
+            c.setEmail(cell(cells, "email"));
+            c.setAddress(cell(cells, "address"));
+            c.setNote(cell(cells, "note"));
+            String dob = cell(cells, "dob");
+            if (dob != null) {
+                try {
+                    c.setDob(LocalDate.parse(dob));
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException("Invalid dob '" + dob + "', expected yyyy-MM-dd");
+                }
+            }
+            String gender = cell(cells, "gender");
+            if (gender != null) {
+                c.setGender(parseGender(gender));
+            }
+            return c;
+        }
+
+        String cell(List<String> cells, String column) {
+            Integer index = header.get(column);
+            if (index == null || index >= cells.size()) {
+                return null;
+            }
+            String value = cells.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        void reject(int line, String error) throws IOException {
+            rejected++;
+            ROWS_REJECTED.inc();
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("event", "rejected");
+            event.put("line", line);
+            event.put("error", error);
+            listener.onEvent(event, false);
+        }
+
+        Map<String, Object> counters(String event) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("event", event);
+            m.put("processed", processed);
+            m.put("imported", imported);
+            m.put("rejected", rejected);
+            return m;
+        }
+    }
+
+    private static Map<String, Integer> header(String text) {
+        Map<String, Integer> header = new HashMap<>();
+        List<String> cells = parseCsvLine(text.startsWith("\uFEFF") ? text.substring(1) : text); // bỏ BOM của Excel
+        for (int i = 0; i < cells.size(); i++) {
+            header.putIfAbsent(cells.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        return header;
+    }
+
+    private static String emailKey(String email) {
+        return email == null ? null : email.toLowerCase(Locale.ROOT);
+    }
+
+    /** MALE / FEMALE / OTHER hoặc tên hiển thị NAM / NỮ / KHÁC, không phân biệt hoa thường */
+    private static Customer.Gender parseGender(String value) {
+        for (Customer.Gender g : Customer.Gender.values()) {
+            if (g.name().equalsIgnoreCase(value) || g.toString().equalsIgnoreCase(value)) {
+                return g;
+            }
+        }
+        throw new IllegalArgumentException("Invalid gender '" + value + "'");
+    }
+
+    /** Một dòng CSV (RFC 4180): dấu phẩy phân cách, ô có thể quote, "" trong ô quote là một dấu " */
+    static List<String> parseCsvLine(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        cell.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    cell.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(ch);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+}
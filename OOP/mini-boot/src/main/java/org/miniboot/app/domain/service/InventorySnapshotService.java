@@ -0,0 +1,108 @@
+package org.miniboot.app.domain.service;
+
+import org.miniboot.app.AppConfig;
+import org.miniboot.app.domain.repo.Inventory.StockSnapshotRepository;
+import org.miniboot.app.metrics.Counter;
+import org.miniboot.app.metrics.MetricsRegistry;
+import org.miniboot.app.util.Logger;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Job định kỳ cho checkpoint tồn kho (StockSnapshotRepository), chạy trên một thread daemon
+ * <p>
+ * - Tạo checkpoint mới khi checkpoint gần nhất cũ hơn STOCK_SNAPSHOT_INTERVAL_MS.
+ *   Mốc của checkpoint là now - STOCK_SNAPSHOT_LAG_MS (làm tròn xuống phút) để transaction đang ghi
+ *   movement "bây giờ" không bị bỏ sót.
+ * - Mỗi STOCK_SNAPSHOT_VERIFY_INTERVAL_MS đối chiếu checkpoint mới nhất với sổ kho (sai -> xóa để dựng lại)
+ *   và đếm sản phẩm có qty_on_hand lệch với tổng movement (chỉ báo, không sửa).
+ * Job kiểm tra mỗi phút: checkpoint bị xóa (ghi lùi ngày / verify) được dựng lại trong vòng một phút.
+ */
+public class InventorySnapshotService {
+    private static final Logger LOG = Logger.get(InventorySnapshotService.class);
+
+    private static final long TICK_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final Counter SNAPSHOTS_CREATED = MetricsRegistry.global().counter("miniboot_stock_snapshots_total",
+            "Inventory snapshot checkpoints created");
+    private static final Counter SNAPSHOT_FAILURES = MetricsRegistry.global().counter("miniboot_stock_snapshot_failures_total",
+            "Inventory snapshot or verification runs that failed");
+    private static final Counter SNAPSHOT_MISMATCHES = MetricsRegistry.global().counter("miniboot_stock_snapshot_mismatches_total",
+            "Snapshot rows that disagreed with the stock movement ledger");
+
+    private final StockSnapshotRepository snapshots;
+    private volatile int qtyOnHandDrift;
+    private long lastVerifyNanos;
+
+    public InventorySnapshotService(StockSnapshotRepository snapshots) {
+        this.snapshots = snapshots;
+        MetricsRegistry.global().gauge("miniboot_stock_qty_on_hand_drift",
+                "Products whose qty_on_hand differs from the sum of their stock movements (last verification)",
+                () -> qtyOnHandDrift);
+    }
+
+    /**
+     * Tạo bảng (nếu cần) rồi chạy job trên thread daemon. Tắt / không có bảng -> truy vấn quét thẳng sổ kho
+     */
+    public void start() {
+        if (!AppConfig.STOCK_SNAPSHOT_ENABLED) {
+            return;
+        }
+        try {
+            snapshots.ensureSchema();
+        } catch (Exception e) {
+            LOG.warn("Inventory snapshots disabled, cannot prepare schema: " + e.getMessage());
+            return;
+        }
+        Thread worker = new Thread(this::run, "stock-snapshots");
+        worker.setDaemon(true); // Daemon để JVM có thể kết thúc nếu chỉ có thread này đang chạy
+        worker.start();
+    }
+
+    private void run() {
+        lastVerifyNanos = System.nanoTime();
+        while (!Thread.currentThread().isInterrupted()) {
+            tick();
+            LockSupport.parkNanos(this, TICK_NANOS);
+        }
+    }
+
+    void tick() {
+        try {
+            LocalDateTime cutoff = LocalDateTime.now()
+                    .minus(AppConfig.STOCK_SNAPSHOT_LAG_MS, ChronoUnit.MILLIS)
+                    .truncatedTo(ChronoUnit.MINUTES);
+            LocalDateTime latest = snapshots.getLatestSnapshotAt();
+            if (latest == null || !latest.plus(AppConfig.STOCK_SNAPSHOT_INTERVAL_MS, ChronoUnit.MILLIS).isAfter(cutoff)) {
+                if (snapshots.createSnapshot(cutoff, AppConfig.STOCK_SNAPSHOT_RETAIN)) {
+                    SNAPSHOTS_CREATED.inc();
+                }
+            }
+
+            long verifyInterval = TimeUnit.MILLISECONDS.toNanos(AppConfig.STOCK_SNAPSHOT_VERIFY_INTERVAL_MS);
+            if (verifyInterval > 0 && System.nanoTime() - lastVerifyNanos >= verifyInterval) {
+                lastVerifyNanos = System.nanoTime();
+                verify();
+            }
+        } catch (Exception e) {
+            SNAPSHOT_FAILURES.inc();
+            LOG.error("❌ Inventory snapshot job failed: " + e.getMessage());
+        }
+    }
+
+    private void verify() throws Exception {
+        StockSnapshotRepository.VerifyResult result = snapshots.verify();
+        qtyOnHandDrift = result.qtyOnHandDrift();
+        if (result.snapshotMismatches() > 0) {
+            SNAPSHOT_MISMATCHES.add(result.snapshotMismatches());
+            LOG.warn("Stock snapshot at " + result.snapshotAt() + " disagreed with the ledger on "
+                    + result.snapshotMismatches() + " rows, snapshots dropped and will be rebuilt");
+        }
+        if (result.qtyOnHandDrift() > 0) {
+            LOG.warn(result.qtyOnHandDrift() + " products have qty_on_hand different from their stock movements");
+        }
+    }
+}
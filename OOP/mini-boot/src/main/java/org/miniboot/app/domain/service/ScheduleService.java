@@ -1,7 +1,10 @@
 package org.miniboot.app.domain.service;
 
+import org.miniboot.app.AppConfig;
 import org.miniboot.app.domain.models.Appointment;
-import org.miniboot.app.domain.models.AppointmentStatus;
+import org.miniboot.app.domain.models.AppointmentType;
+import org.miniboot.app.domain.models.AvailableSlot;
+import org.miniboot.app.domain.models.DoctorDayAvailability;
 import org.miniboot.app.domain.models.DoctorSchedule;
 import org.miniboot.app.domain.models.TimeSlot;
 import org.miniboot.app.domain.repo.AppointmentRepository;
@@ -12,7 +15,12 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.BiPredicate;
 
 /**
  * Service để tính toán available time slots cho booking appointment
@@ -20,13 +28,15 @@ import java.util.List;
  * Logic:
  * 1. Lấy working schedule của bác sĩ cho ngày cụ thể
  * 2. Chia working hours thành các time slots (mỗi slot 30 phút)
- * 3. Check slot nào đã có appointment → mark as unavailable
+ * 3. Check slot nào đã có appointment → mark as unavailable (qua AvailabilityIndex, không query Appointments mỗi lần)
  * 4. Trả về list các TimeSlot với trạng thái available/unavailable
+ *
+ * Mọi thay đổi appointment phải báo lại qua onAppointmentSaved() để chỉ mục lịch bận luôn đúng.
  */
 public class ScheduleService {
     
     private final DoctorScheduleRepository scheduleRepository;
-    private final AppointmentRepository appointmentRepository;
+    private final AvailabilityIndex availabilityIndex;
     
     // Default slot duration: 30 minutes
     private static final int SLOT_DURATION_MINUTES = 30;
@@ -34,7 +44,8 @@ public class ScheduleService {
     public ScheduleService(DoctorScheduleRepository scheduleRepository, 
                           AppointmentRepository appointmentRepository) {
         this.scheduleRepository = scheduleRepository;
-        this.appointmentRepository = appointmentRepository;
+        this.availabilityIndex = new AvailabilityIndex(appointmentRepository,
+                AppConfig.AVAILABILITY_INDEX_MAX_DAYS, AppConfig.AVAILABILITY_INDEX_TTL_MS);
     }
     
     /**
@@ -54,81 +65,134 @@ public class ScheduleService {
             return new ArrayList<>();
         }
         
-        // 2. Get all appointments for this doctor on this date
-        List<Appointment> appointments = appointmentRepository.findByDoctorIdAndDate(
-            doctorId, date.toString());
-        
-        // 3. Generate time slots from working schedules
+        // 2. Generate time slots from working schedules, check lịch bận trên chỉ mục
         List<TimeSlot> allSlots = new ArrayList<>();
+        AvailabilityIndex.Range busy = availabilityIndex.loadDay(doctorId, date);
         
         for (DoctorSchedule schedule : workingSchedules) {
-            List<TimeSlot> slotsForSchedule = generateSlotsForSchedule(schedule, appointments, date);
+            List<TimeSlot> slotsForSchedule = generateSlotsForSchedule(schedule, SLOT_DURATION_MINUTES,
+                    (start, end) -> busy.isFree(doctorId, date, start, end));
             allSlots.addAll(slotsForSchedule);
         }
         
         return allSlots;
     }
     
+    /**
+     * Tìm N slot trống sớm nhất trong khoảng ngày [from, to] cho nhiều bác sĩ
+     * - Một query doctor_schedules + một query Appointments cho cả khoảng (thay vì 2 query mỗi bác sĩ mỗi ngày)
+     * - Quét lần lượt từng ngày, các bác sĩ trong cùng ngày quét song song trên bộ nhớ; dừng khi đủ limit
+     * - Bỏ qua slot đã bắt đầu trước thời điểm hiện tại
+     *
+     * @param doctorIds       null = tất cả bác sĩ có lịch làm việc
+     * @param durationMinutes độ dài lịch hẹn cần đặt (slot bắt đầu mỗi SLOT_DURATION_MINUTES phút)
+     * @return slot sắp theo (ngày, giờ bắt đầu, doctorId)
+     */
+    public List<AvailableSlot> findFirstAvailable(Collection<Integer> doctorIds, LocalDate from, LocalDate to,
+                                                  int durationMinutes, int limit) throws Exception {
+        List<AvailableSlot> result = new ArrayList<>();
+        Map<Integer, Map<DayOfWeek, List<DoctorSchedule>>> schedules = schedulesByDoctor(doctorIds);
+        if (schedules.isEmpty() || limit <= 0) {
+            return result;
+        }
+        AvailabilityIndex.Range busy = availabilityIndex.loadRange(schedules.keySet(), from, to);
+        LocalDateTime now = LocalDateTime.now();
+
+        for (LocalDate date = from; !date.isAfter(to) && result.size() < limit; date = date.plusDays(1)) {
+            LocalDate day = date;
+            int remaining = limit - result.size();
+            List<AvailableSlot> daySlots = schedules.entrySet().parallelStream()
+                    .flatMap(entry -> {
+                        int doctorId = entry.getKey();
+                        List<DoctorSchedule> working = entry.getValue().getOrDefault(day.getDayOfWeek(), List.of());
+                        List<AvailableSlot> free = new ArrayList<>();
+                        for (DoctorSchedule schedule : working) {
+                            for (TimeSlot slot : generateSlotsForSchedule(schedule, durationMinutes,
+                                    (start, end) -> busy.isFree(doctorId, day, start, end))) {
+                                if (slot.isAvailable() && LocalDateTime.of(day, slot.getStartTime()).isAfter(now)) {
+                                    free.add(new AvailableSlot(doctorId, day, slot.getStartTime(), slot.getEndTime(),
+                                            durationMinutes));
+                                }
+                            }
+                        }
+                        return free.stream();
+                    })
+                    .sorted(Comparator.comparing(AvailableSlot::getStartTime)
+                            .thenComparingInt(AvailableSlot::getDoctorId))
+                    .limit(remaining)
+                    .toList();
+            result.addAll(daySlots);
+        }
+        return result;
+    }
+
+    /**
+     * Ma trận lịch trống: mỗi (bác sĩ, ngày) trong khoảng [from, to] kèm toàn bộ TimeSlot (available / không)
+     * Cùng cách nạp dữ liệu như findFirstAvailable; các ô được tính song song.
+     *
+     * @param doctorIds null = tất cả bác sĩ có lịch làm việc
+     * @return sắp theo (doctorId, ngày); bác sĩ không làm việc ngày nào thì ô đó có slots rỗng
+     */
+    public List<DoctorDayAvailability> getAvailabilityMatrix(Collection<Integer> doctorIds, LocalDate from,
+                                                             LocalDate to, int durationMinutes) throws Exception {
+        Map<Integer, Map<DayOfWeek, List<DoctorSchedule>>> schedules = schedulesByDoctor(doctorIds);
+        List<Integer> doctors = new ArrayList<>(doctorIds != null ? new TreeSet<>(doctorIds) : schedules.keySet());
+        AvailabilityIndex.Range busy = availabilityIndex.loadRange(schedules.keySet(), from, to);
+
+        List<DoctorDayAvailability> cells = new ArrayList<>();
+        for (int doctorId : doctors) {
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                cells.add(new DoctorDayAvailability(doctorId, date, new ArrayList<>()));
+            }
+        }
+        cells.parallelStream().forEach(cell -> {
+            Map<DayOfWeek, List<DoctorSchedule>> byDay = schedules.getOrDefault(cell.getDoctorId(), Map.of());
+            for (DoctorSchedule schedule : byDay.getOrDefault(cell.getDate().getDayOfWeek(), List.of())) {
+                cell.getSlots().addAll(generateSlotsForSchedule(schedule, durationMinutes,
+                        (start, end) -> busy.isFree(cell.getDoctorId(), cell.getDate(), start, end)));
+            }
+        });
+        return cells;
+    }
+
+    /**
+     * Độ dài mặc định (phút) theo loại lịch hẹn khi client không truyền duration
+     */
+    public static int defaultDurationMinutes(AppointmentType type) {
+        if (type == AppointmentType.SURGERY) {
+            return 2 * SLOT_DURATION_MINUTES;
+        }
+        return SLOT_DURATION_MINUTES;
+    }
+
+    // doctorId -> thứ trong tuần -> các ca làm việc (đã sắp theo giờ bắt đầu), sắp theo doctorId
+    private Map<Integer, Map<DayOfWeek, List<DoctorSchedule>>> schedulesByDoctor(Collection<Integer> doctorIds)
+            throws Exception {
+        return scheduleRepository.findActiveGrouped(doctorIds);
+    }
+
     /**
      * Generate time slots cho một ca làm việc cụ thể
+     * Slot dài durationMinutes, bắt đầu mỗi SLOT_DURATION_MINUTES phút, không vượt quá giờ kết thúc ca
      */
-    private List<TimeSlot> generateSlotsForSchedule(DoctorSchedule schedule, 
-                                                    List<Appointment> appointments,
-                                                    LocalDate date) {
+    private static List<TimeSlot> generateSlotsForSchedule(DoctorSchedule schedule, int durationMinutes,
+                                                           BiPredicate<LocalTime, LocalTime> isFree) {
         List<TimeSlot> slots = new ArrayList<>();
         
-        LocalTime currentSlotStart = schedule.getStartTime();
-        LocalTime endTime = schedule.getEndTime();
+        int workStart = schedule.getStartTime().toSecondOfDay() / 60;
+        int workEnd = schedule.getEndTime().toSecondOfDay() / 60;
         
-        while (currentSlotStart.plusMinutes(SLOT_DURATION_MINUTES).isBefore(endTime) ||
-               currentSlotStart.plusMinutes(SLOT_DURATION_MINUTES).equals(endTime)) {
-            
-            LocalTime currentSlotEnd = currentSlotStart.plusMinutes(SLOT_DURATION_MINUTES);
+        for (int start = workStart; start + durationMinutes <= workEnd; start += SLOT_DURATION_MINUTES) {
+            LocalTime slotStart = LocalTime.ofSecondOfDay(start * 60L);
+            LocalTime slotEnd = LocalTime.ofSecondOfDay((start + durationMinutes) * 60L);
             
             // Check if this slot is available
-            boolean isAvailable = isSlotAvailable(currentSlotStart, currentSlotEnd, appointments, date);
-            
-            TimeSlot slot = new TimeSlot(
-                currentSlotStart,
-                currentSlotEnd,
-                SLOT_DURATION_MINUTES,
-                isAvailable
-            );
-            
-            slots.add(slot);
-            
-            // Move to next slot
-            currentSlotStart = currentSlotEnd;
+            slots.add(new TimeSlot(slotStart, slotEnd, durationMinutes, isFree.test(slotStart, slotEnd)));
         }
         
         return slots;
     }
     
-    /**
-     * Kiểm tra xem một time slot có available không
-     * (không bị trùng với appointment nào)
-     */
-    private boolean isSlotAvailable(LocalTime slotStart, LocalTime slotEnd, 
-                                   List<Appointment> appointments, LocalDate date) {
-        LocalDateTime slotStartDateTime = LocalDateTime.of(date, slotStart);
-        LocalDateTime slotEndDateTime = LocalDateTime.of(date, slotEnd);
-        
-        for (Appointment appointment : appointments) {
-            // Skip cancelled appointments
-            if (appointment.getStatus() == AppointmentStatus.CANCELLED) {
-                continue;
-            }
-            
-            // Check if appointment overlaps with this slot
-            if (appointment.getStartTime().isBefore(slotEndDateTime) &&
-                appointment.getEndTime().isAfter(slotStartDateTime)) {
-                return false; // Slot is occupied
-            }
-        }
-        
-        return true; // Slot is available
-    }
-    
     /**
      * Kiểm tra xem bác sĩ có làm việc vào ngày cụ thể không
      */
@@ -170,27 +234,16 @@ public class ScheduleService {
     public boolean hasConflictingAppointment(int doctorId, LocalDateTime startTime, 
                                             LocalDateTime endTime, Integer excludeAppointmentId) 
             throws Exception {
-        String date = startTime.toLocalDate().toString();
-        List<Appointment> appointments = appointmentRepository.findByDoctorIdAndDate(doctorId, date);
-        
-        for (Appointment appointment : appointments) {
-            // Skip the appointment being updated
-            if (excludeAppointmentId != null && appointment.getId() == excludeAppointmentId) {
-                continue;
-            }
-            
-            // Skip cancelled appointments
-            if (appointment.getStatus() == AppointmentStatus.CANCELLED) {
-                continue;
-            }
-            
-            // Check for time overlap
-            if (startTime.isBefore(appointment.getEndTime()) &&
-                endTime.isAfter(appointment.getStartTime())) {
-                return true; // Conflict found
-            }
-        }
-        
-        return false; // No conflict
+        return availabilityIndex.hasConflict(doctorId, startTime, endTime, excludeAppointmentId);
+    }
+
+    /**
+     * Báo cho chỉ mục lịch bận sau khi appointment được tạo / sửa / hủy
+     *
+     * @param previous bản trước khi sửa (null khi tạo mới)
+     * @param saved    bản đã lưu
+     */
+    public void onAppointmentSaved(Appointment previous, Appointment saved) {
+        availabilityIndex.onSaved(previous, saved);
     }
 }
@@ -0,0 +1,76 @@
+package org.miniboot.app.http;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Body của một request đọc thẳng từ buffer / socket của connection, dừng đúng ở Content-Length
+ * <p>
+ * Dùng cho route đăng ký nhận body dạng stream (Router.postStreaming): body không được đọc trước
+ * vào byte[], handler đọc dần qua HttpRequest.bodyStream(). close() không đóng connection;
+ * phần handler chưa đọc được HttpServer đọc bỏ (drain) trước request kế tiếp.
+ */
+final class BodyInputStream extends InputStream {
+    private final RequestBuffer in;
+    private long remaining;
+
+    BodyInputStream(RequestBuffer in, long length) {
+        this.in = in;
+        this.remaining = length;
+    }
+
+    /** Số byte body chưa đọc */
+    long remaining() {
+        return remaining;
+    }
+
+    /**
+     * Đọc bỏ phần body còn lại để connection sẵn sàng cho request kế tiếp
+     */
+    void drain() throws IOException {
+        byte[] skip = new byte[8 * 1024];
+        while (remaining > 0) {
+            read(skip, 0, skip.length);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining <= 0) {
+            return -1;
+        }
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Unexpected EOF reading body");
+        }
+        remaining--;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (remaining <= 0) {
+            return -1;
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int n = in.read(b, off, (int) Math.min(len, remaining));
+        if (n < 0) {
+            throw new EOFException("Unexpected EOF reading body");
+        }
+        remaining -= n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(remaining, in.buffered());
+    }
+
+    @Override
+    public void close() {
+        // Connection do HttpServer quản lý
+    }
+}
@@ -0,0 +1,64 @@
+package org.miniboot.app.http;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool các ByteBuffer có kích thước cố định dùng chung giữa các connection
+ * <p>
+ * Mỗi connection mượn một buffer khi được accept và trả lại khi đóng, nhờ đó
+ * hàng nghìn connection keep-alive không phải cấp phát buffer mới liên tục.
+ * Pool chỉ giữ tối đa {@code maxPooled} buffer rảnh; buffer dư sẽ bị bỏ cho GC.
+ *
+ * @author Ngũ hổ tướng
+ */
+public final class ByteBufferPool {
+    /** Kích thước mỗi buffer trong pool (bytes) */
+    private final int bufferSize;
+
+    /** Số buffer rảnh tối đa được giữ lại */
+    private final int maxPooled;
+
+    /** Hàng đợi lock-free chứa các buffer rảnh */
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+    /** Số buffer rảnh hiện có (ConcurrentLinkedQueue.size() là O(n)) */
+    private final AtomicInteger freeCount = new AtomicInteger();
+
+    public ByteBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Mượn một buffer (đã clear, ở chế độ ghi)
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buf = free.poll();
+        if (buf == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        freeCount.decrementAndGet();
+        buf.clear();
+        return buf;
+    }
+
+    /**
+     * Trả buffer về pool. Buffer không đúng kích thước của pool sẽ bị bỏ qua.
+     */
+    public void release(ByteBuffer buf) {
+        if (buf == null || buf.capacity() != bufferSize || !buf.isDirect()) {
+            return;
+        }
+        if (freeCount.incrementAndGet() > maxPooled) {
+            freeCount.decrementAndGet();
+            return;
+        }
+        free.offer(buf);
+    }
+
+    public int bufferSize() {
+        return bufferSize;
+    }
+}
@@ -0,0 +1,93 @@
+package org.miniboot.app.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * OutputStream mã hóa dữ liệu theo Transfer-Encoding: chunked (RFC 9112 §7.1)
+ * <p>
+ * Dữ liệu được gom vào buffer cố định và gửi thành từng chunk "size-hex CRLF data CRLF";
+ * finish() ghi chunk kết thúc "0 CRLF CRLF". Không đóng stream bên dưới (socket)
+ * để connection có thể được dùng lại (keep-alive).
+ */
+final class ChunkedOutputStream extends OutputStream {
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+    private final byte[] buf;
+    private int count;
+    private boolean finished;
+
+    ChunkedOutputStream(OutputStream out, int chunkSize) {
+        this.out = out;
+        this.buf = new byte[chunkSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == buf.length) {
+            writeChunk();
+        }
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == 0 && len >= buf.length) {
+                // Dữ liệu lớn: gửi thẳng thành một chunk, không copy qua buffer
+                writeChunk(b, off, len);
+                return;
+            }
+            int n = Math.min(len, buf.length - count);
+            System.arraycopy(b, off, buf, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == buf.length) {
+                writeChunk();
+            }
+        }
+    }
+
+    /**
+     * Gửi phần đang gom thành một chunk và đẩy xuống socket
+     */
+    @Override
+    public void flush() throws IOException {
+        writeChunk();
+        out.flush();
+    }
+
+    /**
+     * Gửi chunk cuối cùng (không flush - caller quyết định thời điểm flush)
+     */
+    void finish() throws IOException {
+        if (finished) return;
+        writeChunk();
+        out.write(LAST_CHUNK);
+        finished = true;
+    }
+
+    /** Không đóng socket; close() chỉ kết thúc body */
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+    private void writeChunk() throws IOException {
+        if (count > 0) {
+            writeChunk(buf, 0, count);
+            count = 0;
+        }
+    }
+
+    private void writeChunk(byte[] b, int off, int len) throws IOException {
+        out.write(Integer.toHexString(len).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+        out.write(b, off, len);
+        out.write(CRLF);
+    }
+}
@@ -0,0 +1,197 @@
+package org.miniboot.app.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.miniboot.app.AppConfig;
+import org.miniboot.app.config.HttpConstants;
+
+/**
+ * OutputStream nén body response theo Content-Encoding gzip hoặc deflate
+ * <p>
+ * Khác với GZIPOutputStream / DeflaterOutputStream của JDK (mỗi instance tự tạo một Deflater
+ * với vài trăm KB bộ nhớ native), lớp này mượn Deflater từ một pool dùng chung và trả lại sau
+ * finish(). Header/trailer gzip được tự ghi quanh dòng deflate thô.
+ * <p>
+ * finish()/close() KHÔNG đóng stream bên dưới (socket / ChunkedOutputStream).
+ */
+public final class CompressionOutputStream extends FilterOutputStream {
+    /** Header gzip tối thiểu: magic, CM=deflate, không flag, mtime=0, XFL=0, OS=unknown */
+    private static final byte[] GZIP_HEADER = {
+            0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+
+    private static final DeflaterPool RAW_POOL = new DeflaterPool(true);
+    private static final DeflaterPool ZLIB_POOL = new DeflaterPool(false);
+
+    private final boolean gzip;
+    private final DeflaterPool pool;
+    private final CRC32 crc;
+    private final byte[] buffer = new byte[8 * 1024];
+    private final byte[] single = new byte[1];
+
+    private Deflater deflater;
+    private boolean headerWritten;
+
+    private CompressionOutputStream(OutputStream out, boolean gzip) {
+        super(out);
+        this.gzip = gzip;
+        this.pool = gzip ? RAW_POOL : ZLIB_POOL;
+        this.crc = gzip ? new CRC32() : null;
+        this.deflater = pool.acquire();
+    }
+
+    /**
+     * Tạo stream nén theo encoding đã thương lượng
+     *
+     * @param encoding HttpConstants.ENCODING_GZIP hoặc HttpConstants.ENCODING_DEFLATE
+     */
+    public static CompressionOutputStream of(OutputStream out, String encoding) {
+        return new CompressionOutputStream(out, !HttpConstants.ENCODING_DEFLATE.equals(encoding));
+    }
+
+    /**
+     * Nén trọn một body đã buffer
+     */
+    public static byte[] compress(byte[] body, String encoding) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (CompressionOutputStream out = of(buffer, encoding)) {
+            out.write(body, 0, body.length);
+        }
+        return buffer.toByteArray();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (len == 0) {
+            return;
+        }
+        writeHeader();
+        if (crc != null) {
+            crc.update(b, off, len);
+        }
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            drain(Deflater.NO_FLUSH);
+        }
+    }
+
+    /**
+     * Đẩy phần đã nén ra ngay (SYNC_FLUSH) - dùng khi handler stream muốn client nhận sớm.
+     * Mỗi lần flush làm giảm nhẹ tỉ lệ nén nên chỉ nên gọi khi thực sự cần.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (deflater != null) {
+            writeHeader();
+            int n;
+            while ((n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Kết thúc dòng nén (ghi trailer) và trả Deflater về pool
+     */
+    public void finish() throws IOException {
+        if (deflater == null) {
+            return;
+        }
+        try {
+            writeHeader();
+            deflater.finish();
+            while (!deflater.finished()) {
+                drain(Deflater.NO_FLUSH);
+            }
+            if (crc != null) {
+                writeIntLE((int) crc.getValue());
+                writeIntLE((int) deflater.getBytesRead());
+            }
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Trả Deflater về pool mà không ghi trailer (khi body stream bị lỗi giữa chừng)
+     */
+    public void release() {
+        if (deflater != null) {
+            pool.release(deflater);
+            deflater = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+    private void drain(int flushMode) throws IOException {
+        int n = deflater.deflate(buffer, 0, buffer.length, flushMode);
+        if (n > 0) {
+            out.write(buffer, 0, n);
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        if (gzip && !headerWritten) {
+            out.write(GZIP_HEADER);
+        }
+        headerWritten = true;
+    }
+
+    private void writeIntLE(int v) throws IOException {
+        out.write(v & 0xff);
+        out.write((v >>> 8) & 0xff);
+        out.write((v >>> 16) & 0xff);
+        out.write((v >>> 24) & 0xff);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (deflater == null) {
+            throw new IOException("Compression stream already finished");
+        }
+    }
+
+    /**
+     * Pool Deflater có giới hạn: lấy ra bằng poll() (tạo mới nếu pool rỗng), khi trả về thì
+     * reset() rồi offer(); pool đầy thì end() để giải phóng bộ nhớ native ngay.
+     */
+    private static final class DeflaterPool {
+        private final boolean nowrap;
+        private final BlockingQueue<Deflater> idle =
+                new ArrayBlockingQueue<>(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+        DeflaterPool(boolean nowrap) {
+            this.nowrap = nowrap;
+        }
+
+        Deflater acquire() {
+            Deflater deflater = idle.poll();
+            return deflater != null ? deflater : new Deflater(AppConfig.COMPRESSION_LEVEL, nowrap);
+        }
+
+        void release(Deflater deflater) {
+            deflater.reset();
+            if (!idle.offer(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.miniboot.app.http;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
@@ -8,6 +9,10 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import org.miniboot.app.AppConfig;
+import org.miniboot.app.config.HttpConstants;
 
 /**
  * Lớp đại diện cho một HTTP Request (yêu cầu HTTP)
@@ -44,6 +49,12 @@ public class HttpRequest {
     public final Map<String, List<String>> query;
     public final Map<String,String> tags = new LinkedHashMap<>();
 
+    /** Địa chỉ IP của connection, do server gán sau khi parse (null nếu không rõ) */
+    private String remoteAddress;
+
+    /** Body chưa đọc trên connection (route nhận body dạng stream), khi đó body là mảng rỗng */
+    private BodyInputStream bodyStream;
+
     /**
      * Constructor khởi tạo HttpRequest
      * 
@@ -54,28 +65,44 @@ public class HttpRequest {
      * @param body Nội dung body dưới dạng byte array, có thể null
      */
     public HttpRequest(String method, String path, String httpVersion, Map<String, String> rawHeaders, byte[] body) {
+        this(method, path, httpVersion, body, normalizeHeaders(rawHeaders));
+    }
+
+    private HttpRequest(String method, String path, String httpVersion, byte[] body, Map<String, String> normalizedHeaders) {
         this.method = method;
-        
-        // Tách đường dẫn và query parameters
+
+        // Tách đường dẫn và query parameters (không dùng regex)
         // Ví dụ: "/users?name=john&age=25" -> path="/users", query="name=john&age=25"
-        String[] split = path.split("\\?", 2);
-        this.path = split[0];
-        this.query = parseQuery(split.length == 2 ? split[1] : "");
-        
+        // Query chỉ được decode khi handler thực sự đọc tới (xem QueryParams)
+        int q = path.indexOf('?');
+        this.path = q < 0 ? path : path.substring(0, q);
+        this.query = new QueryParams(q < 0 ? null : path.substring(q + 1));
+
         this.httpVersion = httpVersion;
-        
-        // Chuẩn hóa tên headers về chữ thường một lần để tối ưu tốc độ tìm kiếm
-        // Điều này cho phép tìm kiếm header không phân biệt hoa thường với O(1)
+        this.headers = Collections.unmodifiableMap(normalizedHeaders);
+
+        // Đảm bảo body không bao giờ null, sử dụng mảng rỗng thay vì null
+        this.body = body != null ? body : new byte[0];
+    }
+
+    /**
+     * Tạo request từ HttpRequestParser: tên headers đã được chuẩn hóa về chữ thường
+     * ngay lúc parse nên dùng thẳng map, không copy lại
+     */
+    static HttpRequest parsed(String method, String path, String httpVersion, Map<String, String> normalizedHeaders, byte[] body) {
+        return new HttpRequest(method, path, httpVersion, body, normalizedHeaders);
+    }
+
+    // Chuẩn hóa tên headers về chữ thường một lần để tối ưu tốc độ tìm kiếm
+    // Điều này cho phép tìm kiếm header không phân biệt hoa thường với O(1)
+    private static Map<String, String> normalizeHeaders(Map<String, String> rawHeaders) {
         Map<String,String> normalized = new LinkedHashMap<>();
         if (rawHeaders != null) {
             rawHeaders.forEach((k,v) -> {
                 if (k != null && v != null) normalized.put(k.toLowerCase(), v);
             });
         }
-        this.headers = Collections.unmodifiableMap(normalized);
-        
-        // Đảm bảo body không bao giờ null, sử dụng mảng rỗng thay vì null
-        this.body = body != null ? body : new byte[0];
+        return normalized;
     }
 
     // === METHODS HELPER VÀ API CÔNG KHAI ===
@@ -91,6 +118,94 @@ public class HttpRequest {
         return headers.get(name.toLowerCase());
     }
 
+    /**
+     * Địa chỉ IP của connection (có thể là IP của reverse proxy)
+     */
+    public String remoteAddress() {
+        return remoteAddress;
+    }
+
+    void setRemoteAddress(String remoteAddress) {
+        this.remoteAddress = remoteAddress;
+    }
+
+    /**
+     * IP của client: connection đến từ proxy trong AppConfig.TRUSTED_PROXIES thì lấy từ X-Forwarded-For
+     * (đi từ phải sang, bỏ qua các proxy tin cậy - phần bên trái do client tự gửi, không tin được),
+     * ngược lại là địa chỉ của connection
+     *
+     * @return IP client hoặc null nếu không xác định được
+     */
+    public String clientIp() {
+        String forwarded = headers.get(HttpConstants.HEADER_X_FORWARDED_FOR);
+        if (forwarded == null || forwarded.isBlank()) {
+            return remoteAddress;
+        }
+        TrustedProxies proxies = TrustedProxies.current();
+        if (!proxies.trustsPeer(remoteAddress)) {
+            return remoteAddress;
+        }
+        String[] hops = forwarded.split(",");
+        for (int i = hops.length - 1; i > 0; i--) {
+            String hop = hops[i].trim();
+            if (!proxies.ips.contains(hop)) {
+                return hop.isEmpty() ? remoteAddress : hop;
+            }
+        }
+        String first = hops.length > 0 ? hops[0].trim() : "";
+        return first.isEmpty() ? remoteAddress : first;
+    }
+
+    /** AppConfig.TRUSTED_PROXIES đã parse, parse lại khi chuỗi cấu hình đổi */
+    private record TrustedProxies(String spec, boolean any, Set<String> ips) {
+        private static volatile TrustedProxies cached = parse("");
+
+        static TrustedProxies current() {
+            TrustedProxies c = cached;
+            String spec = AppConfig.TRUSTED_PROXIES == null ? "" : AppConfig.TRUSTED_PROXIES;
+            if (!c.spec.equals(spec)) {
+                c = parse(spec);
+                cached = c;
+            }
+            return c;
+        }
+
+        private static TrustedProxies parse(String spec) {
+            boolean any = false;
+            List<String> ips = new ArrayList<>();
+            for (String part : spec.split(",")) {
+                String ip = part.trim();
+                if (ip.equals("*")) {
+                    any = true;
+                } else if (!ip.isEmpty()) {
+                    ips.add(ip);
+                }
+            }
+            return new TrustedProxies(spec, any, Set.copyOf(ips));
+        }
+
+        /** "*" chỉ tin connection hiện tại, các địa chỉ trong header vẫn phải có trong danh sách */
+        boolean trustsPeer(String ip) {
+            return ip != null && (any || ips.contains(ip));
+        }
+    }
+
+    /**
+     * Body dạng stream: route đăng ký bằng Router.postStreaming (server blocking) đọc thẳng từ connection,
+     * các trường hợp khác đọc từ byte[] body
+     */
+    public InputStream bodyStream() {
+        return bodyStream != null ? bodyStream : new ByteArrayInputStream(body);
+    }
+
+    BodyInputStream streamedBody() {
+        return bodyStream;
+    }
+
+    void setBodyStream(BodyInputStream bodyStream) {
+        this.bodyStream = bodyStream;
+    }
+
     /**
      * Chuyển đổi body từ byte array sang String với encoding UTF-8
      * 
@@ -168,7 +283,7 @@ public class HttpRequest {
      * @param q Chuỗi query parameters (không bao gồm dấu ?)
      * @return Map chứa các parameter và danh sách giá trị tương ứng
      */
-    private static Map<String, List<String>> parseQuery(String q) {
+    static Map<String, List<String>> parseQuery(String q) {
         Map<String, List<String>> res = new LinkedHashMap<>();
         
         // Nếu không có query string thì trả về map rỗng
@@ -199,6 +314,9 @@ public class HttpRequest {
      * @return Chuỗi đã decode hoặc chuỗi gốc nếu decode thất bại
      */
     private static String urlDecode(String s) {
+        if (s.indexOf('%') < 0 && s.indexOf('+') < 0) {
+            return s; // Không có ký tự cần decode
+        }
         try {
             return java.net.URLDecoder.decode(s, StandardCharsets.UTF_8);
         } catch (Exception e) {
@@ -1,12 +1,13 @@
 package org.miniboot.app.http;
 
-import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.function.BiPredicate;
 
 import org.miniboot.app.AppConfig;
 import org.miniboot.app.config.HttpConstants;
@@ -14,120 +15,331 @@ import org.miniboot.app.config.ErrorMessages;
 
 /**
  * Lớp tiện ích để parse (phân tích cú pháp) HTTP Request từ InputStream
+ * <p>
+ * Parser làm việc trực tiếp trên mảng byte của RequestBuffer (buffer dùng lại theo connection):
+ * - Tìm điểm kết thúc headers bằng cách quét mảng byte, không đọc từng byte qua InputStream.read()
+ * - Các header / method / version phổ biến được nhận diện bằng so sánh byte và dùng lại
+ *   hằng String có sẵn, không tạo String mới cho tên của chúng
+ * - Content-Length được parse thẳng từ byte
+ * - Query string chỉ được decode khi handler đọc tới (xem QueryParams)
+ * - Giới hạn kích thước headers (AppConfig.MAX_HEADER_BYTES) và số header (AppConfig.MAX_HEADER_COUNT)
+ * - Body đọc trọn vào byte[] (tối đa AppConfig.MAX_BODY_BYTES), trừ route nhận body dạng stream:
+ *   body đó để nguyên trên connection (tối đa AppConfig.MAX_STREAM_BODY_BYTES), handler đọc dần
  */
 public final class HttpRequestParser {
-    
+
+    /** Các header phổ biến - tên đã ở dạng chữ thường, dùng thẳng làm key trong map headers */
+    private static final String[] KNOWN_HEADERS = {
+            HttpConstants.HEADER_HOST,
+            HttpConstants.HEADER_CONNECTION,
+            HttpConstants.HEADER_CONTENT_LENGTH,
+            HttpConstants.HEADER_CONTENT_TYPE,
+            HttpConstants.HEADER_AUTHORIZATION,
+            HttpConstants.HEADER_ACCEPT,
+            HttpConstants.HEADER_ACCEPT_ENCODING,
+            HttpConstants.HEADER_ACCEPT_LANGUAGE,
+            HttpConstants.HEADER_USER_AGENT,
+            HttpConstants.HEADER_TRANSFER_ENCODING,
+            HttpConstants.HEADER_COOKIE,
+            HttpConstants.HEADER_REFERER,
+            HttpConstants.HEADER_ORIGIN,
+            HttpConstants.HEADER_X_FORWARDED_FOR,
+            HttpConstants.HEADER_CACHE_CONTROL,
+            HttpConstants.HEADER_KEEP_ALIVE,
+    };
+
+    private static final String[] KNOWN_METHODS = {
+            HttpConstants.METHOD_GET,
+            HttpConstants.METHOD_POST,
+            HttpConstants.METHOD_PUT,
+            HttpConstants.METHOD_DELETE,
+            HttpConstants.METHOD_PATCH,
+            HttpConstants.METHOD_OPTIONS,
+            HttpConstants.METHOD_HEAD,
+    };
+
+    private static final String[] KNOWN_VERSIONS = {
+            HttpConstants.HTTP_VERSION_1_1,
+            HttpConstants.HTTP_VERSION_1_0,
+    };
+
+    /** Giá trị phổ biến của header Connection */
+    private static final String[] KNOWN_CONNECTION_VALUES = {
+            HttpConstants.CONNECTION_KEEP_ALIVE,
+            HttpConstants.CONNECTION_CLOSE,
+    };
+
+    private static final byte[][] KNOWN_HEADER_BYTES = ascii(KNOWN_HEADERS);
+    private static final byte[][] KNOWN_METHOD_BYTES = ascii(KNOWN_METHODS);
+    private static final byte[][] KNOWN_VERSION_BYTES = ascii(KNOWN_VERSIONS);
+    private static final byte[][] KNOWN_CONNECTION_VALUE_BYTES = ascii(KNOWN_CONNECTION_VALUES);
+
     /** Private constructor ngăn việc tạo instance - đây là utility class */
     private HttpRequestParser() {}
 
     /**
      * Phân tích cú pháp HTTP Request từ InputStream
+     * <p>
+     * Với RequestBuffer (HttpServer) parse trực tiếp trên buffer của connection;
+     * với InputStream khác đọc phần headers từng byte để không đọc lố sang request sau.
      */
     public static HttpRequest parse(InputStream in) throws IOException {
-        //  BƯỚC 1: PARSE REQUEST LINE 
-        // Request line có format: "METHOD /path HTTP/1.1"
-        String requestLine = readLine(in);
-        
-        if (requestLine == null || requestLine.isEmpty()) {
-            throw new IOException("Empty request line");
-        }
-        
-        // Tách request line thành 3 phần: method, path, version
-        String[] parts = requestLine.split(" ", 3);
-        if (parts.length < 3) {
-            throw new IllegalArgumentException(ErrorMessages.ERROR_INVALID_REQUEST + ": " + requestLine);
-        }
-        String method = parts[0].trim();        // GET, POST, PUT, DELETE, etc.
-        String target = parts[1].trim();        // /path?query=value
-        String httpVersion = parts[2].trim();   // HTTP/1.1
-
-        //  BƯỚC 2: PARSE HEADERS 
-        Map<String, String> headers = new LinkedHashMap<>();
+        if (in instanceof RequestBuffer buffer) {
+            return parse(buffer);
+        }
+
+        //  BƯỚC 1: ĐỌC PHẦN HEAD (request line + headers)
+        byte[] head = readHead(in);
+
+        //  BƯỚC 2: PARSE REQUEST LINE + HEADERS
+        Head parsed = parseHead(head, 0, head.length);
+
+        //  BƯỚC 3: ĐỌC BODY
+        checkBodyLimit(parsed);
+        return parsed.toRequest(readBody(in, parsed));
+    }
+
+    /**
+     * Parse một request đã nằm trọn trong mảng byte (NioHttpServer đã cắt sẵn request)
+     */
+    public static HttpRequest parse(byte[] data, int offset, int length) throws IOException {
+        return parse(new RequestBuffer(data, offset, length));
+    }
+
+    /**
+     * Parse request kế tiếp từ buffer của connection, đọc thêm từ socket khi cần
+     */
+    static HttpRequest parse(RequestBuffer in) throws IOException {
+        return parse(in, null);
+    }
+
+    /**
+     * Như parse(RequestBuffer), nhưng khi streamBody(method, path) trả về true thì body không được
+     * đọc trước: request nhận một BodyInputStream đọc thẳng từ connection
+     */
+    static HttpRequest parse(RequestBuffer in, BiPredicate<String, String> streamBody) throws IOException {
+        int maxHead = AppConfig.MAX_HEADER_BYTES;
+        int from = 0; // vị trí (tính từ in.pos) bắt đầu tìm điểm kết thúc headers
+        int end;
         while (true) {
-            String line = readLine(in);
-            if (line == null) throw new IOException("Unexpected EOF in headers");
-            if (line.isEmpty()) break; // Dòng trống đánh dấu kết thúc headers
-            
-            // Tách header name và value bằng dấu ':'
-            int colon = line.indexOf(':');
-            if (colon <= 0) continue; // Bỏ qua header không hợp lệ
-            
-            String name = line.substring(0, colon).trim();
-            String value = line.substring(colon + 1).trim();
-            headers.put(name, value);
-        }
-
-        //  BƯỚC 3: PARSE BODY 
-        // Kiểm tra Transfer-Encoding - từ chối nếu không phải identity
-        String te = getHeaderIgnoreCase(headers, "transfer-encoding");
-        if (te != null && !te.isBlank() && !"identity".equalsIgnoreCase(te)) {
-            throw new IOException("Transfer-Encoding not supported: " + te);
-        }
-
-        // Đọc body dựa trên Content-Length header
-        byte[] body = new byte[0];
-        String cl = getHeaderIgnoreCase(headers, HttpConstants.HEADER_CONTENT_LENGTH);
-        if (cl != null) {
-            int len = parseIntSafe(cl, 0);
-            
-            // Kiểm tra giới hạn kích thước body
-            if (len < 0 || len > AppConfig.MAX_BODY_BYTES) {
-                throw new IOException(ErrorMessages.ERROR_PAYLOAD_TOO_LARGE + ": " + cl);
+            // Bỏ qua các dòng trống trước request line (keep-alive ping, CRLF thừa)
+            while (in.pos < in.limit && (in.buf[in.pos] == '\r' || in.buf[in.pos] == '\n')) {
+                in.pos++;
             }
-            
-            // Đọc body nếu có độ dài > 0
-            if (len > 0) {
-                body = readExactly(in, len);
+            end = findHeaderEnd(in.buf, in.pos + from, in.limit);
+            if (end >= 0) break;
+
+            if (in.buffered() >= maxHead) {
+                throw new IllegalArgumentException(ErrorMessages.ERROR_HEADERS_TOO_LARGE);
+            }
+            // Giữ lại 3 byte cuối phòng trường hợp CRLFCRLF bị cắt giữa 2 lần đọc
+            from = Math.max(0, in.buffered() - 3);
+            if (in.fill(maxHead) < 0) {
+                if (in.buffered() == 0) {
+                    throw new IOException("Empty request line");
+                }
+                throw new IOException("Unexpected EOF in headers");
             }
         }
 
-        // Trả về HttpRequest đã parse
-        return new HttpRequest(method, target, httpVersion, headers, body);
+        Head parsed = parseHead(in.buf, in.pos, end);
+        in.pos = end;
+        if (streamBody != null && parsed.contentLength > 0 && streamBody.test(parsed.method, parsed.path())) {
+            HttpRequest request = parsed.toRequest(null);
+            request.setBodyStream(new BodyInputStream(in, parsed.contentLength));
+            return request;
+        }
+        checkBodyLimit(parsed);
+        return parsed.toRequest(readBody(in, parsed));
     }
 
-    //  PHƯƠNG THỨC HELPER (HỖ TRỢ) 
+    //  PHƯƠNG THỨC HELPER (HỖ TRỢ)
 
     /**
-     * Đọc một dòng từ InputStream cho đến khi gặp CRLF hoặc LF
-     * 
-     * HTTP chuẩn sử dụng CRLF (\r\n) để kết thúc dòng, nhưng method này
-     * cũng chấp nhận LF đơn (\n) để tương thích với các client không chuẩn.
-     * 
-     * @param in InputStream để đọc dữ liệu
-     * @return Chuỗi đại diện cho một dòng (không bao gồm \r\n), hoặc null nếu EOF
-     * @throws IOException Nếu có lỗi khi đọc dữ liệu
+     * Kết quả parse phần head của request
      */
-    private static String readLine(InputStream in) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        boolean foundEOF = false;
-        
-        while (true) {
-            int b = in.read();
-            
-            if (b == -1) {
-                foundEOF = true;
-                break;
+    private static final class Head {
+        String method;
+        String target;
+        String httpVersion;
+        final Map<String, String> headers = new LinkedHashMap<>();
+        int contentLength = -1;
+        String transferEncoding;
+
+        HttpRequest toRequest(byte[] body) {
+            return HttpRequest.parsed(method, target, httpVersion, headers, body);
+        }
+
+        String path() {
+            int q = target.indexOf('?');
+            return q < 0 ? target : target.substring(0, q);
+        }
+    }
+
+    /**
+     * Parse request line và headers trong đoạn [start, end) của mảng byte
+     * (end là vị trí ngay sau dòng trống kết thúc headers)
+     */
+    private static Head parseHead(byte[] b, int start, int end) {
+        Head head = new Head();
+
+        //  REQUEST LINE: "METHOD /path?query HTTP/1.1"
+        int lineEnd = indexOf(b, (byte) '\n', start, end);
+        if (lineEnd < 0) lineEnd = end;
+        int e = trimEnd(b, start, lineEnd);
+        int sp1 = indexOf(b, (byte) ' ', start, e);
+        int sp2 = sp1 < 0 ? -1 : indexOf(b, (byte) ' ', sp1 + 1, e);
+        if (sp1 <= start || sp2 < 0) {
+            throw new IllegalArgumentException(ErrorMessages.ERROR_INVALID_REQUEST + ": "
+                    + new String(b, start, e - start, StandardCharsets.UTF_8));
+        }
+        head.method = knownOrText(b, start, sp1, KNOWN_METHOD_BYTES, KNOWN_METHODS, false);
+        head.target = new String(b, sp1 + 1, sp2 - sp1 - 1, StandardCharsets.UTF_8).trim();
+        int vs = trimStart(b, sp2 + 1, e);
+        head.httpVersion = knownOrText(b, vs, e, KNOWN_VERSION_BYTES, KNOWN_VERSIONS, false);
+
+        //  HEADERS: "Name: value"
+        int count = 0;
+        int p = lineEnd + 1;
+        while (p < end) {
+            int le = indexOf(b, (byte) '\n', p, end);
+            if (le < 0) le = end;
+            int lineStop = trimEnd(b, p, le);
+            if (lineStop == p) break; // Dòng trống đánh dấu kết thúc headers
+
+            if (++count > AppConfig.MAX_HEADER_COUNT) {
+                throw new IllegalArgumentException(ErrorMessages.ERROR_HEADERS_TOO_LARGE);
             }
-            
-            if (b == '\n') {
-                break;
+
+            int colon = indexOf(b, (byte) ':', p, lineStop);
+            if (colon > p) { // Bỏ qua header không hợp lệ
+                int ns = trimStart(b, p, colon);
+                int ne = trimEnd(b, ns, colon);
+                int valStart = trimStart(b, colon + 1, lineStop);
+                int valEnd = trimEnd(b, valStart, lineStop);
+                addHeader(head, b, ns, ne, valStart, valEnd);
             }
-            
-            if (b == '\r') {
+            p = le + 1;
+        }
+
+        // Kiểm tra Transfer-Encoding - từ chối nếu không phải identity
+        String te = head.transferEncoding;
+        if (te != null && !te.isBlank() && !"identity".equalsIgnoreCase(te)) {
+            throw new IllegalArgumentException("Transfer-Encoding not supported: " + te);
+        }
+        return head;
+    }
+
+    private static void addHeader(Head head, byte[] b, int ns, int ne, int vs, int ve) {
+        String name = known(b, ns, ne, KNOWN_HEADER_BYTES, KNOWN_HEADERS, true);
+        String value;
+        if (name == HttpConstants.HEADER_CONNECTION) {
+            value = knownOrText(b, vs, ve, KNOWN_CONNECTION_VALUE_BYTES, KNOWN_CONNECTION_VALUES, true);
+        } else {
+            value = new String(b, vs, ve - vs, StandardCharsets.UTF_8);
+        }
+
+        if (name == HttpConstants.HEADER_CONTENT_LENGTH) {
+            head.contentLength = parseContentLength(b, vs, ve);
+        } else if (name == HttpConstants.HEADER_TRANSFER_ENCODING) {
+            head.transferEncoding = value;
+        } else if (name == null) {
+            // Header không phổ biến: tạo tên chữ thường một lần tại đây
+            name = new String(b, ns, ne - ns, StandardCharsets.ISO_8859_1).toLowerCase(Locale.ROOT);
+        }
+        head.headers.put(name, value);
+    }
+
+    /**
+     * Đọc body dựa trên Content-Length header
+     */
+    private static byte[] readBody(InputStream in, Head head) throws IOException {
+        int len = head.contentLength;
+        if (len <= 0) {
+            return new byte[0];
+        }
+        return readExactly(in, len);
+    }
+
+    /**
+     * Body đọc vào bộ nhớ không được vượt AppConfig.MAX_BODY_BYTES
+     */
+    private static void checkBodyLimit(Head head) {
+        if (head.contentLength > AppConfig.MAX_BODY_BYTES) {
+            throw new IllegalArgumentException(ErrorMessages.ERROR_PAYLOAD_TOO_LARGE + ": " + head.contentLength);
+        }
+    }
+
+    /**
+     * Parse Content-Length trực tiếp từ byte, kiểm tra giới hạn kích thước body
+     * (giới hạn lớn nhất của MAX_BODY_BYTES / MAX_STREAM_BODY_BYTES, checkBodyLimit kiểm tra tiếp theo route)
+     */
+    private static int parseContentLength(byte[] b, int start, int end) {
+        if (start == end) {
+            throw new IllegalArgumentException(ErrorMessages.ERROR_INVALID_REQUEST + ": empty Content-Length");
+        }
+        long max = Math.max(AppConfig.MAX_BODY_BYTES, AppConfig.MAX_STREAM_BODY_BYTES);
+        long len = 0;
+        for (int i = start; i < end; i++) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9) {
+                throw new IllegalArgumentException(ErrorMessages.ERROR_INVALID_REQUEST + ": bad Content-Length");
+            }
+            len = len * 10 + d;
+            if (len > max) {
+                throw new IllegalArgumentException(ErrorMessages.ERROR_PAYLOAD_TOO_LARGE + ": "
+                        + new String(b, start, end - start, StandardCharsets.US_ASCII));
+            }
+        }
+        return (int) len;
+    }
+
+    /**
+     * Đọc phần head từ một InputStream thông thường, từng byte một,
+     * để không tiêu thụ byte của request kế tiếp
+     */
+    private static byte[] readHead(InputStream in) throws IOException {
+        int maxHead = AppConfig.MAX_HEADER_BYTES;
+        byte[] head = new byte[512];
+        int n = 0;
+        while (true) {
+            int c = in.read();
+            if (c == -1) {
+                if (n == 0) throw new IOException("Empty request line");
+                throw new IOException("Unexpected EOF in headers");
+            }
+            if (n == 0 && (c == '\r' || c == '\n')) {
                 continue;
             }
-            
-            baos.write(b);
+            if (n == maxHead) {
+                throw new IllegalArgumentException(ErrorMessages.ERROR_HEADERS_TOO_LARGE);
+            }
+            if (n == head.length) {
+                byte[] grown = new byte[Math.min(maxHead, head.length * 2)];
+                System.arraycopy(head, 0, grown, 0, n);
+                head = grown;
+            }
+            head[n++] = (byte) c;
+            if (c == '\n' && findHeaderEnd(head, Math.max(0, n - 3), n) == n) {
+                byte[] exact = new byte[n];
+                System.arraycopy(head, 0, exact, 0, n);
+                return exact;
+            }
         }
-        
-        String result = baos.toString(StandardCharsets.UTF_8);
-        
-        // Nếu EOF và chưa đọc gì → return null
-        if (foundEOF && baos.size() == 0) {
-            return null;
+    }
+
+    /**
+     * Tìm vị trí ngay sau dòng trống kết thúc headers ("\n\r\n" hoặc "\n\n")
+     *
+     * @return vị trí kết thúc, hoặc -1 nếu chưa nhận đủ headers
+     */
+    static int findHeaderEnd(byte[] b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (b[i] != '\n') continue;
+            if (i + 1 < to && b[i + 1] == '\n') return i + 2;
+            if (i + 2 < to && b[i + 1] == '\r' && b[i + 2] == '\n') return i + 3;
         }
-        
-        return result;
+        return -1;
     }
 
     /**
@@ -145,25 +357,60 @@ public final class HttpRequestParser {
     }
 
     /**
-     * Lấy header value không phân biệt hoa thường
+     * Trả về hằng String tương ứng nếu đoạn byte khớp một giá trị đã biết, nếu không trả về null
      */
-    private static String getHeaderIgnoreCase(Map<String, String> headers, String name) {
-        for (Map.Entry<String, String> entry : headers.entrySet()) {
-            if (entry.getKey().equalsIgnoreCase(name)) {
-                return entry.getValue();
+    private static String known(byte[] b, int start, int end, byte[][] candidates, String[] values, boolean ignoreCase) {
+        int len = end - start;
+        for (int i = 0; i < candidates.length; i++) {
+            byte[] c = candidates[i];
+            if (c.length == len && regionEquals(b, start, c, ignoreCase)) {
+                return values[i];
             }
         }
         return null;
     }
 
     /**
-     * Parse int an toàn, trả về defaultValue nếu không hợp lệ
+     * Như known(), nhưng tạo String mới từ byte khi không khớp giá trị nào
      */
-    private static int parseIntSafe(String s, int defaultValue) {
-        try {
-            return Integer.parseInt(s);
-        } catch (NumberFormatException e) {
-            return defaultValue;
+    private static String knownOrText(byte[] b, int start, int end, byte[][] candidates, String[] values, boolean ignoreCase) {
+        String value = known(b, start, end, candidates, values, ignoreCase);
+        return value != null ? value : new String(b, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private static boolean regionEquals(byte[] b, int start, byte[] expected, boolean ignoreCase) {
+        for (int i = 0; i < expected.length; i++) {
+            byte x = b[start + i];
+            if (ignoreCase && x >= 'A' && x <= 'Z') {
+                x = (byte) (x + ('a' - 'A'));
+            }
+            if (x != expected[i]) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] b, byte target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (b[i] == target) return i;
+        }
+        return -1;
+    }
+
+    private static int trimStart(byte[] b, int from, int to) {
+        while (from < to && (b[from] & 0xff) <= ' ') from++;
+        return from;
+    }
+
+    private static int trimEnd(byte[] b, int from, int to) {
+        while (to > from && (b[to - 1] & 0xff) <= ' ') to--;
+        return to;
+    }
+
+    private static byte[][] ascii(String[] values) {
+        byte[][] bytes = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = values[i].getBytes(StandardCharsets.US_ASCII);
         }
+        return bytes;
     }
 }
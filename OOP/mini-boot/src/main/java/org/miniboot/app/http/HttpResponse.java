@@ -1,5 +1,6 @@
 package org.miniboot.app.http;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
@@ -20,6 +21,12 @@ public class HttpResponse {
     public byte[] body;
     public final Map<String, String> headers = new LinkedHashMap<>();
 
+    /**
+     * Body dạng stream (null với response thông thường)
+     * Khi khác null, body[] bị bỏ qua và nội dung được ghi theo Transfer-Encoding: chunked
+     */
+    public StreamingBody stream;
+
     public HttpResponse(int status, String contentType, byte[] body) {
         this.status = status;
         
@@ -64,6 +71,34 @@ public class HttpResponse {
         return new HttpResponse(status, contentType, body);
     }
 
+    /**
+     * Factory method tạo response có body stream - nội dung được sinh ra trong lúc ghi ra socket
+     */
+    public static HttpResponse stream(int status, String contentType, StreamingBody stream) {
+        HttpResponse response = new HttpResponse(status, contentType, null);
+        response.stream = stream;
+        response.headers.remove(HttpConstants.HEADER_CONTENT_LENGTH);
+        return response;
+    }
+
+    public boolean isStreaming() {
+        return stream != null;
+    }
+
+    /**
+     * Chạy body stream và gom lại thành byte[] (dùng khi không thể gửi chunked,
+     * ví dụ NioHttpServer encode cả response trước khi giao cho selector)
+     */
+    public HttpResponse bufferStream() throws IOException {
+        if (stream != null) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(8 * 1024);
+            stream.writeTo(buffer);
+            stream = null;
+            body(buffer.toByteArray());
+        }
+        return this;
+    }
+
     /**
      * Factory method tạo response với status code, sử dụng content type mặc định
      */
@@ -117,7 +152,9 @@ public class HttpResponse {
         out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
 
         // Body
-        if (body != null && body.length > 0) {
+        if (stream != null) {
+            stream.writeTo(out);
+        } else if (body != null && body.length > 0) {
             out.write(body);
         }
 
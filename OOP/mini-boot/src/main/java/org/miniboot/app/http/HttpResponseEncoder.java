@@ -10,6 +10,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.miniboot.app.AppConfig;
+import org.miniboot.app.config.HttpConstants;
 
 /**
  * Lớp tiện ích để encode (mã hóa) HttpResponse thành định dạng HTTP chuẩn
@@ -48,9 +49,13 @@ public final class HttpResponseEncoder {
             "content-type",      // Loại nội dung
             "content-length",    // Độ dài body
             "connection",        // Kiểu kết nối (keep-alive/close)
+            "keep-alive",        // Tham số keep-alive (timeout/max)
             "transfer-encoding"  // Cách mã hóa truyền tải (chunked/identity)
     );
 
+    /** Kích thước mỗi chunk khi ghi body dạng stream */
+    private static final int CHUNK_SIZE = 8 * 1024;
+
     /** Private constructor ngăn việc tạo instance - đây là utility class */
     private HttpResponseEncoder() {}
 
@@ -58,25 +63,68 @@ public final class HttpResponseEncoder {
      * Ghi HttpResponse ra OutputStream theo định dạng HTTP chuẩn
      * 
      * Đây là method convenience để ghi HttpResponse, nội bộ sẽ gọi
-     * method write() chính với đầy đủ tham số.
+     * method write() chính với đầy đủ tham số. Kết nối được đánh dấu
+     * "Connection: close" và dữ liệu được flush ngay.
      * 
      * @param out OutputStream để ghi dữ liệu (thường là socket output stream)
      * @param res Đối tượng HttpResponse cần encode
      * @throws IOException Nếu có lỗi khi ghi dữ liệu ra stream
      */
     public static void write(OutputStream out, HttpResponse res) throws IOException {
-        write(out, res.status, res.contentType, res.body == null ? new byte[0] : res.body, res.headers);
+        write(out, res, false);
+        out.flush();
     }
 
     /**
-     * Method chính để ghi HTTP Response ra OutputStream theo định dạng chuẩn
+     * Ghi HttpResponse trên một persistent connection (HTTP/1.1 keep-alive)
      * 
-     * Thực hiện encode HttpResponse theo cấu trúc HTTP RFC 2616:
-     * 1. Status Line: "HTTP/1.1 {status} {reason}"
-     * 2. Standard Headers: Date, Server, Content-Type, Content-Length, Connection
-     * 3. Custom Headers: Các headers do user cung cấp (trừ reserved headers)
-     * 4. Blank Line: Ngăn cách headers và body
-     * 5. Body: Dữ liệu nhị phân
+     * Method này KHÔNG flush - caller (HttpServer) tự quyết định thời điểm flush
+     * để có thể gom nhiều response của các request pipelined vào một lần gửi.
+     * 
+     * @param out OutputStream để ghi dữ liệu
+     * @param res Đối tượng HttpResponse cần encode
+     * @param keepAlive true nếu connection được giữ lại cho request tiếp theo
+     * @throws IOException Nếu có lỗi khi ghi dữ liệu ra stream
+     */
+    public static void write(OutputStream out, HttpResponse res, boolean keepAlive) throws IOException {
+        write(out, res, keepAlive, true);
+    }
+
+    /**
+     * Ghi HttpResponse, hỗ trợ body dạng stream
+     * 
+     * Với response stream (HttpResponse.isStreaming()):
+     * - chunked = true (client HTTP/1.1): gửi "Transfer-Encoding: chunked", connection vẫn giữ được
+     * - chunked = false (client HTTP/1.0): gửi body thô và kết thúc bằng cách đóng connection
+     *   (caller phải truyền keepAlive = false)
+     * Nếu callback sinh body ném lỗi giữa chừng, headers đã được gửi nên không thể đổi status:
+     * ném StreamAbortedException để caller đóng connection (client thấy body bị cắt).
+     * 
+     * @param chunked true nếu client hiểu Transfer-Encoding: chunked (HTTP/1.1)
+     */
+    public static void write(OutputStream out, HttpResponse res, boolean keepAlive, boolean chunked) throws IOException {
+        if (!res.isStreaming()) {
+            encode(out, res.status, res.contentType, res.body == null ? new byte[0] : res.body, res.headers, keepAlive);
+            return;
+        }
+
+        writeHead(out, res.status, res.contentType, chunked ? -1 : -2, res.headers, keepAlive && chunked);
+        try {
+            if (chunked) {
+                ChunkedOutputStream body = new ChunkedOutputStream(out, CHUNK_SIZE);
+                res.stream.writeTo(body);
+                body.finish();
+            } else {
+                res.stream.writeTo(out);
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new StreamAbortedException(e);
+        }
+    }
+
+    /**
+     * Method chính để ghi HTTP Response ra OutputStream theo định dạng chuẩn
+     * (Connection: close, flush ngay sau khi ghi)
      * 
      * @param out OutputStream để ghi dữ liệu
      * @param status Mã trạng thái HTTP (200, 404, 500, etc.)
@@ -86,10 +134,39 @@ public final class HttpResponseEncoder {
      * @throws IOException Nếu có lỗi khi ghi dữ liệu ra stream
      */
     public static void write(OutputStream out, int status, String contentType, byte[] body, Map<String, String> headers) throws IOException {
-        // === CHUẨN BỊ DỮ LIỆU ===
+        encode(out, status, contentType, body, headers, false);
+        out.flush();
+    }
+
+    /**
+     * Encode HTTP Response theo cấu trúc HTTP RFC 2616:
+     * 1. Status Line: "HTTP/1.1 {status} {reason}"
+     * 2. Standard Headers: Date, Server, Content-Type, Content-Length, Connection
+     * 3. Custom Headers: Các headers do user cung cấp (trừ reserved headers)
+     * 4. Blank Line: Ngăn cách headers và body
+     * 5. Body: Dữ liệu nhị phân
+     * 
+     * @param keepAlive true → "Connection: keep-alive" kèm header Keep-Alive, false → "Connection: close"
+     */
+    private static void encode(OutputStream out, int status, String contentType, byte[] body, Map<String, String> headers, boolean keepAlive) throws IOException {
         // Đảm bảo body không null
         if (body == null) body = new byte[0];
-        
+
+        writeHead(out, status, contentType, body.length, headers, keepAlive);
+
+        // Ghi body (dữ liệu nhị phân)
+        out.write(body);
+    }
+
+    /**
+     * Ghi status line + headers + dòng trống
+     * 
+     * @param contentLength độ dài body; -1 → "Transfer-Encoding: chunked"; -2 → không gửi độ dài
+     *                      (body kết thúc khi đóng connection)
+     * @param keepAlive true → "Connection: keep-alive" kèm header Keep-Alive, false → "Connection: close"
+     */
+    private static void writeHead(OutputStream out, int status, String contentType, long contentLength, Map<String, String> headers, boolean keepAlive) throws IOException {
+        // === CHUẨN BỊ DỮ LIỆU ===
         // Đặt content-type mặc định nếu không được cung cấp
         if (contentType == null || contentType.isBlank()) contentType = AppConfig.TEXT_UTF_8_TYPE;
         
@@ -107,8 +184,20 @@ public final class HttpResponseEncoder {
         head.append(AppConfig.RES_DATE_KEY).append(": ").append(RFC_1123.format(Instant.now())).append("\r\n");
         head.append(AppConfig.RES_SERVER_KEY).append(": ").append(AppConfig.SERVER_NAME).append("\r\n");
         head.append(AppConfig.RES_CONTENT_TYPE_KEY).append(": ").append(contentType).append("\r\n");
-        head.append(AppConfig.RES_CONTENT_LENGTH_KEY).append(": ").append(body.length).append("\r\n");
-        head.append("Connection: close\r\n"); // Đóng kết nối sau khi gửi response
+        if (contentLength >= 0) {
+            head.append(AppConfig.RES_CONTENT_LENGTH_KEY).append(": ").append(contentLength).append("\r\n");
+        } else if (contentLength == -1) {
+            head.append("Transfer-Encoding: chunked\r\n");
+        }
+        if (keepAlive) {
+            // Giữ kết nối cho request tiếp theo, báo cho client biết idle timeout và số request tối đa
+            head.append("Connection: keep-alive\r\n");
+            head.append(HttpConstants.HEADER_KEEP_ALIVE).append(": timeout=")
+                    .append(AppConfig.KEEP_ALIVE_TIMEOUT_MS / 1000)
+                    .append(", max=").append(AppConfig.KEEP_ALIVE_MAX_REQUESTS).append("\r\n");
+        } else {
+            head.append("Connection: close\r\n"); // Đóng kết nối sau khi gửi response
+        }
 
         // 3. Custom Headers do user cung cấp (nếu có)
         if (headers != null) {
@@ -137,11 +226,15 @@ public final class HttpResponseEncoder {
         // === GHI DỮ LIỆU RA STREAM ===
         // Ghi headers (chuyển StringBuilder thành bytes với UTF-8 encoding)
         out.write(head.toString().getBytes(StandardCharsets.UTF_8));
-        
-        // Ghi body (dữ liệu nhị phân)
-        out.write(body);
-        
-        // Flush để đảm bảo dữ liệu được gửi ngay lập tức
-        out.flush();
+    }
+
+    /**
+     * Lỗi xảy ra khi đang ghi body dạng stream (headers đã gửi đi):
+     * connection phải được đóng ngay, không thể gửi thêm response lỗi
+     */
+    public static class StreamAbortedException extends IOException {
+        public StreamAbortedException(Throwable cause) {
+            super("Streaming response aborted: " + cause.getMessage(), cause);
+        }
     }
 }
@@ -1,17 +1,18 @@
 package org.miniboot.app.http;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import org.miniboot.app.AppConfig;
 import org.miniboot.app.config.HttpConstants;
 import org.miniboot.app.router.Router;
+import org.miniboot.app.util.Logger;
 
 /**
  * HTTP Server - Lớp chính triển khai web server đơn giản
@@ -20,6 +21,7 @@ import org.miniboot.app.router.Router;
  * có khả năng:
  * - Lắng nghe kết nối TCP trên một port cụ thể
  * - Xử lý đồng thời nhiều client connections sử dụng thread pool
+ * - Giữ kết nối HTTP/1.1 (keep-alive, pipelining) để tránh bắt tay TCP cho mỗi request
  * - Parse HTTP requests và tạo HTTP responses
  * - Routing requests tới các handlers tương ứng
  * - Xử lý exceptions và trả về error responses phù hợp
@@ -39,6 +41,17 @@ public class HttpServer {
      */
     private static final int CLIENT_SO_TIMEOUT_MS = 10_000;
 
+    /**
+     * Kích thước buffer đọc/ghi cho mỗi connection (8KB)
+     * Buffer đầu vào giữ lại các byte của request pipelined giữa các lần parse
+     */
+    private static final int IO_BUFFER_SIZE = 8 * 1024;
+
+    /** Trả lời "Expect: 100-continue" của route nhận body dạng stream trước khi handler đọc body */
+    private static final byte[] CONTINUE_100 = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private static final Logger LOG = Logger.get(HttpServer.class);
+
     /**
      * Port mà server sẽ lắng nghe (ví dụ: 8080, 3000)
      */
@@ -61,12 +74,15 @@ public class HttpServer {
     private ServerSocket socket;
 
     /**
-     * Thread pool để xử lý client connections đồng thời
-     * Kích thước pool = max(4, số CPU cores * 2) để tối ưu performance
-     * Công thức này cân bằng giữa sử dụng tài nguyên và khả năng xử lý đồng thời
+     * Executor để xử lý client connections đồng thời (chọn qua AppConfig.EXECUTOR_MODE)
+     * - fixed: kích thước pool = max(4, số CPU cores * 2), cân bằng giữa tài nguyên và khả năng xử lý đồng thời
+     * - virtual / bounded: một virtual thread cho mỗi connection, phù hợp khi handler block trên JDBC
      */
-    private final ExecutorService pool = Executors
-            .newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+    private final ExecutorService pool = WorkerExecutors.create(
+            AppConfig.EXECUTOR_MODE,
+            Math.max(4, Runtime.getRuntime().availableProcessors() * 2),
+            AppConfig.VIRTUAL_THREAD_LIMIT,
+            "http-worker-");
 
     /**
      * Constructor khởi tạo HttpServer
@@ -116,7 +132,7 @@ public class HttpServer {
 
         running = true;
         System.out.println("[mini-boot] HTTP listening on: 0.0.0.0:" + port);
-        System.out.println("[mini-boot] Server is ready to accept connections");
+        System.out.println("[mini-boot] Server is ready to accept connections (executor: " + AppConfig.EXECUTOR_MODE + ")");
 
         // Main server loop - accept connections liên tục
         while (!socket.isClosed()) {
@@ -161,38 +177,84 @@ public class HttpServer {
     /**
      * Xử lý một client connection trong worker thread
      * <p>
-     * Quy trình xử lý đã được tách thành các method nhỏ để dễ đọc và bảo trì:
-     * 1. Thiết lập timeout cho client
-     * 2. Parse HTTP request từ input stream
-     * 3. Tạo response phù hợp (routing logic)
-     * 4. Ghi HTTP response ra output stream
-     * 5. Xử lý exceptions và log kết quả
+     * Connection được giữ lại (HTTP/1.1 persistent connection) để xử lý nhiều
+     * request liên tiếp cho đến khi:
+     * - Client gửi "Connection: close" (hoặc HTTP/1.0 không có "Connection: keep-alive")
+     * - Đạt số request tối đa trên một connection (AppConfig.KEEP_ALIVE_MAX_REQUESTS)
+     * - Client không gửi request mới trong AppConfig.KEEP_ALIVE_TIMEOUT_MS
+     * - Có lỗi parse / I/O
+     * <p>
+     * Các request pipelined (client gửi nhiều request liền nhau không chờ response)
+     * được xử lý tuần tự theo đúng thứ tự; response chỉ được flush khi không còn
+     * request nào nằm sẵn trong buffer để gom thành ít lần ghi socket nhất.
+     * <p>
+     * Route đăng ký bằng Router.postStreaming nhận body chưa đọc (HttpRequest.bodyStream()):
+     * handler không đọc hết thì phần còn lại được đọc bỏ sau response, hoặc đóng connection
+     * nếu handler trả response thường mà chưa đọc body (không nhận cả file chỉ để bỏ đi).
      *
      * @param client Socket connection tới client
      */
     private void handle(Socket client) {
         setupClientTimeout(client);
 
-        InputStream in;
+        RequestBuffer in;
         OutputStream out = null;
 
         try {
-            in = client.getInputStream();
-            out = client.getOutputStream();
-
-            long startTime = System.nanoTime();
-
-            // Bước 1: Parse HTTP request
-            HttpRequest request = HttpRequestParser.parse(in);
-
-            // Bước 2: Tạo HTTP response dựa trên request
-            HttpResponse response = router.dispatch(request);
-
-            // Bước 3: Ghi response ra client
-            HttpResponseEncoder.write(out, response);
+            in = new RequestBuffer(client.getInputStream(), IO_BUFFER_SIZE);
+            out = new BufferedOutputStream(client.getOutputStream(), IO_BUFFER_SIZE);
+
+            String remote = client.getInetAddress().getHostAddress();
+            int served = 0;
+            boolean keepAlive = true;
+
+            while (keepAlive && running) {
+                // Từ request thứ 2 trở đi: chờ request mới với idle timeout
+                if (served > 0 && !awaitNextRequest(client, in)) {
+                    break;
+                }
+
+                long startTime = System.nanoTime();
+
+                // Bước 1: Parse HTTP request
+                HttpRequest request = HttpRequestParser.parse(in, router::streamsBody);
+                request.setRemoteAddress(remote);
+                served++;
+                keepAlive = shouldKeepAlive(request, served);
+
+                BodyInputStream body = request.streamedBody();
+                if (body != null && "100-continue".equalsIgnoreCase(request.header(HttpConstants.HEADER_EXPECT))) {
+                    out.write(CONTINUE_100);
+                    out.flush();
+                }
+
+                // Bước 2: Tạo HTTP response dựa trên request
+                HttpResponse response = router.dispatch(request);
+
+                // Bước 3: Ghi response ra client
+                // Body dạng stream: HTTP/1.1 gửi chunked; HTTP/1.0 gửi thô rồi đóng connection
+                boolean chunked = HttpConstants.HTTP_VERSION_1_1.equalsIgnoreCase(request.httpVersion);
+                if (response.isStreaming() && !chunked) {
+                    keepAlive = false;
+                }
+                if (body != null && body.remaining() > 0 && !response.isStreaming()) {
+                    keepAlive = false;
+                }
+                HttpResponseEncoder.write(out, response, keepAlive, chunked);
+                if (!keepAlive || in.available() == 0) {
+                    out.flush();
+                }
+                if (body != null && keepAlive) {
+                    body.drain();
+                }
+
+                // Bước 4: Log kết quả xử lý
+                logRequest(request, response, startTime, remote);
+            }
 
-            // Bước 4: Log kết quả xử lý
-            logRequest(request, response, startTime);
+        } catch (HttpResponseEncoder.StreamAbortedException e) {
+            // Headers đã gửi đi - không thể trả response lỗi, chỉ đóng connection để client thấy body bị cắt
+            LOG.warn(e.getMessage());
 
         } catch (IllegalArgumentException | IOException e) {
             // Xử lý im lặng cho empty request lines (health checks, keep-alive pings)
@@ -201,15 +263,12 @@ public class HttpServer {
                 return;
             }
             
-            System.err.println("❌ Bad Request / IOException: " + e.getMessage());
+            LOG.warn("Bad Request / IOException: " + e.getMessage());
             // Lỗi do request không hợp lệ hoặc lỗi I/O → HTTP 400 Bad Request
             handleBadRequestError(out, client);
 
         } catch (Exception e) {
-            System.err.println("❌ CAUGHT EXCEPTION in handleClientRequest:");
-            System.err.println("   Type: " + e.getClass().getName());
-            System.err.println("   Message: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Unhandled exception in handleClientRequest", e);
             // Lỗi bất ngờ khác → HTTP 500 Internal Server Error
             handleInternalError(out, client, e);
         } finally {
@@ -218,6 +277,51 @@ public class HttpServer {
         }
     }
 
+    /**
+     * Chờ byte đầu tiên của request kế tiếp trên một persistent connection
+     * <p>
+     * Trong lúc chờ dùng idle timeout (AppConfig.KEEP_ALIVE_TIMEOUT_MS); khi đã có dữ liệu
+     * thì trả lại timeout đọc thông thường cho phần còn lại của request.
+     *
+     * @return true nếu có request mới, false nếu client đóng kết nối hoặc hết idle timeout
+     */
+    private boolean awaitNextRequest(Socket client, RequestBuffer in) {
+        if (in.buffered() > 0) {
+            return true; // Request pipelined đã nằm sẵn trong buffer
+        }
+        try {
+            client.setSoTimeout(AppConfig.KEEP_ALIVE_TIMEOUT_MS);
+            if (in.fill(AppConfig.MAX_HEADER_BYTES) < 0) {
+                return false;
+            }
+            client.setSoTimeout(CLIENT_SO_TIMEOUT_MS);
+            return true;
+        } catch (IOException e) {
+            // SocketTimeoutException: client idle quá lâu → đóng connection
+            return false;
+        }
+    }
+
+    /**
+     * Quyết định có giữ connection sau request hiện tại hay không
+     * <p>
+     * - HTTP/1.1: mặc định keep-alive, trừ khi client gửi "Connection: close"
+     * - HTTP/1.0: chỉ keep-alive khi client gửi "Connection: keep-alive"
+     *
+     * @param request Request vừa parse
+     * @param served  Số request đã xử lý trên connection này (tính cả request hiện tại)
+     */
+    static boolean shouldKeepAlive(HttpRequest request, int served) {
+        if (served >= AppConfig.KEEP_ALIVE_MAX_REQUESTS) {
+            return false;
+        }
+        String connection = request.header(HttpConstants.HEADER_CONNECTION);
+        if (HttpConstants.HTTP_VERSION_1_1.equalsIgnoreCase(request.httpVersion)) {
+            return !HttpConstants.CONNECTION_CLOSE.equalsIgnoreCase(connection);
+        }
+        return HttpConstants.CONNECTION_KEEP_ALIVE.equalsIgnoreCase(connection);
+    }
+
     /**
      * Thiết lập timeout cho client socket để tránh treo connection
      *
@@ -317,11 +421,20 @@ public class HttpServer {
      * @param request   HTTP request
      * @param response  HTTP response
      * @param startTime Thời điểm bắt đầu xử lý (nanoseconds)
+     * @param remote    Địa chỉ client của connection
      */
-    private void logRequest(HttpRequest request, HttpResponse response, long startTime) {
-        long processingTimeMs = (System.nanoTime() - startTime) / 1_000_000;
-        System.out.printf("[HTTP] %s %s -> %d (%dms)%n",
-                request.method, request.path, response.status, processingTimeMs);
+    private void logRequest(HttpRequest request, HttpResponse response, long startTime, String remote) {
+        accessLog(request, response, System.nanoTime() - startTime, remote);
+    }
+
+    /**
+     * Ghi access log qua Logger bất đồng bộ (dùng chung cho NioHttpServer)
+     * Sau reverse proxy tin cậy (AppConfig.TRUSTED_PROXIES) lấy IP client từ X-Forwarded-For
+     */
+    static void accessLog(HttpRequest request, HttpResponse response, long durationNanos, String remote) {
+        String client = request.clientIp();
+        long bytes = response.isStreaming() ? -1 : response.body.length;
+        Logger.access(request.method, request.path, response.status, durationNanos, bytes, client != null ? client : remote);
     }
 
     /**
@@ -359,7 +472,7 @@ public class HttpServer {
         }
 
         // Log lỗi để debug (có thể bật/tắt tùy theo môi trường)
-        System.err.println("[ERROR] Internal server error: " + originalException.getMessage());
+        LOG.error("Internal server error: " + originalException.getMessage());
     }
 
     /**
@@ -434,5 +547,19 @@ public class HttpServer {
      * Exception cho HTTP 405 Method Not Allowed - method không được hỗ trợ
      */
     public static class MethodNotAllowed extends RuntimeException {
+        /** Các method hợp lệ cho path này (giá trị header Allow), có thể null */
+        private final String allowedMethods;
+
+        public MethodNotAllowed() {
+            this(null);
+        }
+
+        public MethodNotAllowed(String allowedMethods) {
+            this.allowedMethods = allowedMethods;
+        }
+
+        public String getAllowedMethods() {
+            return allowedMethods;
+        }
     }
 }
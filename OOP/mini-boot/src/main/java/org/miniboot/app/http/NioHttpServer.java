@@ -0,0 +1,492 @@
+package org.miniboot.app.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+import org.miniboot.app.AppConfig;
+import org.miniboot.app.config.HttpConstants;
+import org.miniboot.app.router.Router;
+import org.miniboot.app.util.Logger;
+
+/**
+ * NIO HTTP Server - Chế độ event loop dựa trên Selector
+ * <p>
+ * Khác với {@link HttpServer} (mỗi connection chiếm một worker thread trong suốt
+ * vòng đời của nó), server này dùng một selector thread duy nhất để:
+ * - Accept connections (ServerSocketChannel non-blocking)
+ * - Đọc dữ liệu tăng dần vào ByteBuffer lấy từ {@link ByteBufferPool}
+ * - Nhận diện khi đã có đủ một request (headers + Content-Length bytes body)
+ * - Ghi response ra socket khi channel sẵn sàng
+ * <p>
+ * Chỉ các request đã nhận đủ mới được giao cho worker pool để chạy Router.dispatch,
+ * vì vậy client chậm hoặc hàng nghìn connection keep-alive đang rảnh không chiếm
+ * worker thread nào.
+ * <p>
+ * Mỗi connection xử lý tuần tự từng request (hỗ trợ pipelining): trong khi một request
+ * đang được xử lý, connection ngừng đọc; sau khi ghi xong response, các byte của request
+ * kế tiếp đã nằm sẵn trong buffer sẽ được xử lý ngay.
+ *
+ * @author Ngũ hổ tướng
+ */
+public class NioHttpServer {
+    /** Kích thước buffer đọc của mỗi connection, cũng là giới hạn kích thước phần headers */
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /** Số buffer rảnh tối đa giữ lại trong pool */
+    private static final int MAX_POOLED_BUFFERS = 1024;
+
+    /** Thời gian tối đa để nhận xong một request hoặc gửi xong một response */
+    private static final long CLIENT_TIMEOUT_NANOS = 10_000L * 1_000_000L;
+
+    /** Chu kỳ selector thức dậy để dọn các connection quá hạn */
+    private static final long SELECT_TIMEOUT_MS = 1_000;
+
+    /** Backlog cho hàng đợi accept của OS */
+    private static final int ACCEPT_BACKLOG = 1024;
+
+    private static final Logger LOG = Logger.get(NioHttpServer.class);
+
+    private static final byte[] CONTENT_LENGTH = HttpConstants.HEADER_CONTENT_LENGTH.getBytes(StandardCharsets.US_ASCII);
+
+    private final int port;
+    private final Router router;
+    private final ByteBufferPool bufferPool = new ByteBufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+
+    /** Worker pool chạy Router.dispatch (handlers chủ yếu block trên JDBC) */
+    private final ExecutorService workers = WorkerExecutors.create(
+            AppConfig.EXECUTOR_MODE, Math.max(4, AppConfig.WORKER_THREADS), AppConfig.VIRTUAL_THREAD_LIMIT, "nio-worker-");
+
+    /** Các tác vụ do worker gửi về để chạy trên selector thread (ghi response) */
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean running = false;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+
+    public NioHttpServer(int port, Router router) {
+        this.port = port;
+        this.router = router;
+    }
+
+    /**
+     * Khởi động server và chạy event loop trên thread hiện tại
+     * <p>
+     * Method này sẽ block cho đến khi server được stop()
+     *
+     * @throws IOException Nếu không thể bind port
+     */
+    public void start() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(new InetSocketAddress("0.0.0.0", port), ACCEPT_BACKLOG);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        System.out.println("[mini-boot] NIO HTTP listening on: 0.0.0.0:" + port);
+        System.out.println("[mini-boot] Server is ready to accept connections");
+
+        long lastSweep = System.nanoTime();
+        while (running) {
+            selector.select(SELECT_TIMEOUT_MS);
+            runSelectorTasks();
+
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                if (!key.isValid()) continue;
+
+                if (key.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+
+                Connection conn = (Connection) key.attachment();
+                try {
+                    if (key.isReadable()) {
+                        read(conn);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        write(conn);
+                    }
+                } catch (IOException | CancelledKeyException e) {
+                    conn.close();
+                }
+            }
+
+            long now = System.nanoTime();
+            if (now - lastSweep >= SELECT_TIMEOUT_MS * 1_000_000L) {
+                closeExpiredConnections(now);
+                lastSweep = now;
+            }
+        }
+
+        // Server đã dừng: đóng mọi connection còn mở trên chính selector thread
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection conn) {
+                conn.close();
+            }
+        }
+        selector.close();
+    }
+
+    /**
+     * Dừng server: ngừng accept, đóng mọi connection và worker pool
+     */
+    public void stop() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        try {
+            if (serverChannel != null)
+                serverChannel.close();
+        } catch (IOException ignore) {
+        }
+        workers.shutdownNow();
+        System.out.println("[mini-boot] HTTP stopped.");
+    }
+
+    //  EVENT HANDLERS (chạy trên selector thread)
+
+    private void accept() {
+        SocketChannel channel;
+        try {
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Connection conn = new Connection(channel, bufferPool.acquire());
+                conn.key = channel.register(selector, SelectionKey.OP_READ, conn);
+            }
+        } catch (IOException e) {
+            LOG.warn("Accept failed: " + e.getMessage());
+        }
+    }
+
+    private void read(Connection conn) throws IOException {
+        if (!conn.in.hasRemaining()) {
+            // Buffer đầy nhưng chưa đủ một request (headers quá lớn) → 400
+            respondAndClose(conn, HttpConstants.STATUS_BAD_REQUEST, "bad request");
+            return;
+        }
+        int n = conn.channel.read(conn.in);
+        if (n < 0) {
+            conn.close();
+            return;
+        }
+        if (n > 0) {
+            conn.lastActivity = System.nanoTime();
+            dispatchIfComplete(conn);
+        }
+    }
+
+    private void write(Connection conn) throws IOException {
+        conn.channel.write(conn.out);
+        conn.lastActivity = System.nanoTime();
+        if (conn.out.hasRemaining()) {
+            conn.key.interestOps(SelectionKey.OP_WRITE);
+            return;
+        }
+
+        conn.out = null;
+        if (conn.closeAfterWrite) {
+            conn.close();
+            return;
+        }
+
+        // Quay lại đọc; request pipelined có thể đã nằm sẵn trong buffer
+        conn.key.interestOps(SelectionKey.OP_READ);
+        dispatchIfComplete(conn);
+    }
+
+    /**
+     * Nếu buffer của connection đã chứa đủ một request thì cắt request đó ra
+     * và giao cho worker pool
+     */
+    private void dispatchIfComplete(Connection conn) throws IOException {
+        if (conn.inFlight || conn.out != null) return;
+
+        ByteBuffer in = conn.in;
+        int filled = in.position();
+        int headerEnd = findHeaderEnd(in, filled);
+        if (headerEnd < 0) {
+            if (filled > AppConfig.MAX_HEADER_BYTES) {
+                respondAndClose(conn, HttpConstants.STATUS_BAD_REQUEST, "bad request");
+            }
+            return; // Chưa nhận đủ headers
+        }
+
+        int contentLength = findContentLength(in, headerEnd);
+        if (contentLength < 0 || contentLength > AppConfig.MAX_BODY_BYTES) {
+            respondAndClose(conn, HttpConstants.STATUS_BAD_REQUEST, "bad request");
+            return;
+        }
+
+        int total = headerEnd + contentLength;
+        if (filled < total) {
+            // Body chưa đủ - nới buffer nếu request lớn hơn buffer hiện tại
+            conn.ensureCapacity(total);
+            return;
+        }
+
+        // Cắt đúng một request ra khỏi buffer, giữ lại phần thừa (request pipelined)
+        byte[] raw = new byte[total];
+        in.flip();
+        in.get(raw);
+        in.compact();
+        conn.shrinkIfPossible();
+
+        conn.inFlight = true;
+        conn.requestStart = System.nanoTime();
+        conn.key.interestOps(0); // Ngừng đọc cho đến khi response được ghi xong
+        workers.execute(() -> process(conn, raw));
+    }
+
+    private void runSelectorTasks() {
+        Runnable task;
+        while ((task = selectorTasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * Đóng các connection rảnh quá idle timeout, hoặc nhận/gửi quá chậm
+     */
+    private void closeExpiredConnections(long now) {
+        long idleNanos = AppConfig.KEEP_ALIVE_TIMEOUT_MS * 1_000_000L;
+        for (SelectionKey key : selector.keys()) {
+            if (!(key.attachment() instanceof Connection conn) || conn.inFlight) continue;
+
+            boolean idle = conn.out == null && conn.in.position() == 0 && conn.served > 0;
+            long limit = idle ? idleNanos : CLIENT_TIMEOUT_NANOS;
+            if (now - conn.lastActivity > limit) {
+                conn.close();
+            }
+        }
+    }
+
+    //  WORKER SIDE
+
+    /**
+     * Parse và xử lý một request đã nhận đủ trên worker thread,
+     * sau đó gửi response về selector thread để ghi
+     */
+    private void process(Connection conn, byte[] raw) {
+        HttpResponse response;
+        boolean keepAlive = false;
+        HttpRequest request = null;
+        try {
+            request = HttpRequestParser.parse(raw, 0, raw.length);
+            request.setRemoteAddress(conn.remote());
+            keepAlive = running && HttpServer.shouldKeepAlive(request, conn.served + 1);
+            response = router.dispatch(request);
+        } catch (IllegalArgumentException | IOException e) {
+            LOG.warn("Bad Request / IOException: " + e.getMessage());
+            response = HttpResponse.of(400, HttpConstants.CONTENT_TYPE_TEXT_PLAIN_UTF8, "bad request".getBytes());
+            keepAlive = false;
+        } catch (Exception e) {
+            LOG.error("Internal server error: " + e.getMessage(), e);
+            response = HttpResponse.of(500, HttpConstants.CONTENT_TYPE_TEXT_PLAIN_UTF8, "internal error".getBytes());
+            keepAlive = false;
+        }
+
+        if (response.isStreaming()) {
+            // Response được encode trọn trước khi giao cho selector thread nên body stream
+            // được gom lại ở đây (lỗi lúc sinh body vẫn còn trả được 500)
+            try {
+                response.bufferStream();
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Streaming body failed: " + e.getMessage());
+                response = HttpResponse.of(500, HttpConstants.CONTENT_TYPE_TEXT_PLAIN_UTF8, "internal error".getBytes());
+                keepAlive = false;
+            }
+        }
+
+        ByteBuffer encoded;
+        try {
+            encoded = encode(response, keepAlive);
+        } catch (IOException e) {
+            encoded = null;
+        }
+
+        if (request != null) {
+            HttpServer.accessLog(request, response, System.nanoTime() - conn.requestStart, conn.remote());
+        }
+
+        ByteBuffer out = encoded;
+        boolean close = !keepAlive || encoded == null;
+        selectorTasks.add(() -> beginWrite(conn, out, close));
+        selector.wakeup();
+    }
+
+    private void beginWrite(Connection conn, ByteBuffer out, boolean closeAfterWrite) {
+        if (conn.closed) return;
+        conn.inFlight = false;
+        conn.served++;
+        if (out == null) {
+            conn.close();
+            return;
+        }
+        conn.out = out;
+        conn.closeAfterWrite = closeAfterWrite;
+        try {
+            write(conn);
+        } catch (IOException | CancelledKeyException e) {
+            conn.close();
+        }
+    }
+
+    private void respondAndClose(Connection conn, int status, String message) throws IOException {
+        conn.out = encode(HttpResponse.of(status, HttpConstants.CONTENT_TYPE_TEXT_PLAIN_UTF8,
+                message.getBytes(StandardCharsets.UTF_8)), false);
+        conn.closeAfterWrite = true;
+        write(conn);
+    }
+
+    private static ByteBuffer encode(HttpResponse response, boolean keepAlive) throws IOException {
+        int bodyLength = response.body == null ? 0 : response.body.length;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(bodyLength + 256);
+        HttpResponseEncoder.write(bytes, response, keepAlive);
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    //  FRAMING HELPERS
+
+    /**
+     * Tìm vị trí kết thúc headers (ngay sau "\r\n\r\n" hoặc "\n\n")
+     *
+     * @return offset byte đầu tiên của body, hoặc -1 nếu chưa nhận đủ headers
+     */
+    private static int findHeaderEnd(ByteBuffer buf, int limit) {
+        for (int i = 0; i < limit; i++) {
+            if (buf.get(i) != '\n') continue;
+            if (i + 1 < limit && buf.get(i + 1) == '\n') return i + 2;
+            if (i + 2 < limit && buf.get(i + 1) == '\r' && buf.get(i + 2) == '\n') return i + 3;
+        }
+        return -1;
+    }
+
+    /**
+     * Đọc giá trị Content-Length trong phần headers mà không tạo String
+     *
+     * @return độ dài body (0 nếu không có header), hoặc -1 nếu giá trị không hợp lệ
+     */
+    private static int findContentLength(ByteBuffer buf, int headerEnd) {
+        int lineStart = 0;
+        for (int i = 0; i < headerEnd; i++) {
+            if (buf.get(i) != '\n') continue;
+            int lineEnd = i;
+            if (lineEnd - lineStart > CONTENT_LENGTH.length && headerNameEquals(buf, lineStart, CONTENT_LENGTH)
+                    && buf.get(lineStart + CONTENT_LENGTH.length) == ':') {
+                long value = 0;
+                boolean digits = false;
+                for (int j = lineStart + CONTENT_LENGTH.length + 1; j < lineEnd; j++) {
+                    byte b = buf.get(j);
+                    if (b == ' ' || b == '\t' || b == '\r') continue;
+                    if (b < '0' || b > '9') return -1;
+                    value = value * 10 + (b - '0');
+                    if (value > Integer.MAX_VALUE) return -1;
+                    digits = true;
+                }
+                return digits ? (int) value : -1;
+            }
+            lineStart = i + 1;
+        }
+        return 0;
+    }
+
+    private static boolean headerNameEquals(ByteBuffer buf, int offset, byte[] lowerName) {
+        for (int k = 0; k < lowerName.length; k++) {
+            int b = buf.get(offset + k);
+            if (b >= 'A' && b <= 'Z') b += 'a' - 'A';
+            if (b != lowerName[k]) return false;
+        }
+        return true;
+    }
+
+    //  CONNECTION STATE
+
+    /**
+     * Trạng thái của một connection; chỉ được thay đổi trên selector thread
+     * (ngoại trừ requestStart/served được worker đọc khi xử lý request đang in-flight)
+     */
+    private final class Connection {
+        final SocketChannel channel;
+        SelectionKey key;
+
+        /** Buffer đọc (chế độ ghi); mượn từ pool, có thể được thay bằng buffer lớn hơn tạm thời */
+        ByteBuffer in;
+
+        /** Response đang ghi dở (chế độ đọc), null nếu không có */
+        ByteBuffer out;
+
+        boolean inFlight;
+        boolean closeAfterWrite;
+        volatile boolean closed;
+        int served;
+        long lastActivity = System.nanoTime();
+        long requestStart;
+
+        Connection(SocketChannel channel, ByteBuffer in) {
+            this.channel = channel;
+            this.in = in;
+        }
+
+        /** Địa chỉ client (chỉ dùng cho access log) */
+        String remote() {
+            Socket socket = channel.socket();
+            return socket.getInetAddress() != null ? socket.getInetAddress().getHostAddress() : null;
+        }
+
+        /**
+         * Nới buffer đọc để chứa trọn một request lớn hơn buffer của pool
+         */
+        void ensureCapacity(int required) {
+            if (in.capacity() >= required) return;
+            ByteBuffer bigger = ByteBuffer.allocate(required);
+            in.flip();
+            bigger.put(in);
+            bufferPool.release(in);
+            in = bigger;
+        }
+
+        /**
+         * Trả buffer tạm lớn về lại buffer của pool khi phần còn lại đủ nhỏ
+         */
+        void shrinkIfPossible() {
+            if (in.capacity() == bufferPool.bufferSize() || in.position() > bufferPool.bufferSize()) return;
+            ByteBuffer pooled = bufferPool.acquire();
+            in.flip();
+            pooled.put(in);
+            in = pooled;
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            if (key != null) key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignore) {
+            }
+            bufferPool.release(in);
+            in = ByteBuffer.allocate(0);
+        }
+    }
+}
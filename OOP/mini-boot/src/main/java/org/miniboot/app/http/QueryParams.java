@@ -0,0 +1,54 @@
+package org.miniboot.app.http;
+
+import java.util.AbstractMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Map query parameters được decode lazy
+ * <p>
+ * Chuỗi query thô chỉ được tách và URL-decode ở lần truy cập đầu tiên,
+ * nên các request không đọc query (phần lớn POST/PUT) không tốn chi phí này.
+ * Một request chỉ được xử lý bởi một thread nên không cần đồng bộ.
+ */
+final class QueryParams extends AbstractMap<String, List<String>> {
+    private final String raw;
+    private Map<String, List<String>> decoded;
+
+    QueryParams(String raw) {
+        this.raw = raw;
+    }
+
+    private Map<String, List<String>> decoded() {
+        if (decoded == null) {
+            decoded = HttpRequest.parseQuery(raw);
+        }
+        return decoded;
+    }
+
+    @Override
+    public List<String> get(Object key) {
+        return decoded().get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return decoded().containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return decoded().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return raw == null || raw.isEmpty() || decoded().isEmpty();
+    }
+
+    @Override
+    public Set<Entry<String, List<String>>> entrySet() {
+        return decoded().entrySet();
+    }
+}
@@ -0,0 +1,102 @@
+package org.miniboot.app.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Buffer đọc dùng lại cho suốt vòng đời một connection
+ * <p>
+ * HttpRequestParser quét headers trực tiếp trên mảng byte này (không đọc từng byte qua
+ * InputStream.read(), không tạo ByteArrayOutputStream mỗi dòng). Phần byte thừa sau một
+ * request (request pipelined) được giữ lại cho lần parse kế tiếp.
+ */
+final class RequestBuffer extends InputStream {
+    private final InputStream in;
+
+    byte[] buf;
+    int pos;
+    int limit;
+
+    RequestBuffer(InputStream in, int capacity) {
+        this.in = in;
+        this.buf = new byte[capacity];
+    }
+
+    /**
+     * Buffer bọc quanh một request đã nhận đủ (không còn gì để đọc thêm)
+     */
+    RequestBuffer(byte[] data, int offset, int length) {
+        this.in = InputStream.nullInputStream();
+        this.buf = data;
+        this.pos = offset;
+        this.limit = offset + length;
+    }
+
+    /** Số byte đã nhận nhưng chưa parse */
+    int buffered() {
+        return limit - pos;
+    }
+
+    /**
+     * Đọc thêm dữ liệu từ socket vào cuối buffer
+     * Dồn phần chưa parse về đầu mảng hoặc nới buffer (tối đa maxCapacity) khi cần
+     *
+     * @return số byte đọc được, 0 nếu buffer đã đầy ở maxCapacity, -1 nếu EOF
+     */
+    int fill(int maxCapacity) throws IOException {
+        if (pos == limit) {
+            pos = limit = 0; // Đã parse hết - dùng lại từ đầu buffer
+        }
+        if (limit == buf.length) {
+            if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, limit - pos);
+                limit -= pos;
+                pos = 0;
+            } else if (buf.length < maxCapacity) {
+                byte[] grown = new byte[Math.min(maxCapacity, buf.length * 2)];
+                System.arraycopy(buf, 0, grown, 0, limit);
+                buf = grown;
+            } else {
+                return 0;
+            }
+        }
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n > 0) {
+            limit += n;
+        }
+        return n;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pos < limit) {
+            return buf[pos++] & 0xff;
+        }
+        return in.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int n = limit - pos;
+        if (n > 0) {
+            n = Math.min(n, len);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+        return in.read(b, off, len);
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (limit - pos) + in.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,16 @@
+package org.miniboot.app.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Body được sinh ra dần trong lúc ghi response (không dựng sẵn byte[] trong heap)
+ * <p>
+ * Callback được gọi một lần khi server ghi response: dữ liệu ghi vào {@code out}
+ * được gửi đi theo từng chunk (Transfer-Encoding: chunked), nên có thể đọc ResultSet
+ * và serialize từng dòng thẳng ra socket với bộ nhớ giới hạn.
+ */
+@FunctionalInterface
+public interface StreamingBody {
+    void writeTo(OutputStream out) throws IOException;
+}
@@ -0,0 +1,197 @@
+package org.miniboot.app.http;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.miniboot.app.metrics.LatencyHistogram;
+import org.miniboot.app.metrics.MetricsRegistry;
+
+/**
+ * Factory tạo executor cho worker của HttpServer / NioHttpServer
+ * <p>
+ * Các chiến lược (cấu hình qua AppConfig.EXECUTOR_MODE):
+ * - fixed:   thread pool cố định (platform threads) như trước đây
+ * - virtual: một virtual thread cho mỗi task - phù hợp khi handler chủ yếu block trên JDBC
+ * - bounded: virtual thread cho mỗi task nhưng giới hạn số task chạy đồng thời bằng Semaphore,
+ *            tránh dồn hàng nghìn request cùng lúc vào connection pool của database
+ * <p>
+ * Mọi executor đều được bọc bởi InstrumentedExecutor để export độ sâu hàng đợi, số task đang chạy
+ * và thời gian chờ trong hàng đợi ra /metrics (label pool = namePrefix).
+ */
+public final class WorkerExecutors {
+    public static final String MODE_FIXED = "fixed";
+    public static final String MODE_VIRTUAL = "virtual";
+    public static final String MODE_BOUNDED = "bounded";
+
+    private WorkerExecutors() {
+    }
+
+    /**
+     * Tạo executor theo chiến lược đã chọn
+     *
+     * @param mode         fixed | virtual | bounded (mode lạ sẽ fallback về fixed)
+     * @param fixedThreads số platform threads cho chế độ fixed
+     * @param maxInFlight  số task tối đa chạy đồng thời cho chế độ bounded
+     * @param namePrefix   tiền tố tên thread (giúp đọc thread dump)
+     */
+    public static ExecutorService create(String mode, int fixedThreads, int maxInFlight, String namePrefix) {
+        return new InstrumentedExecutor(createRaw(mode, fixedThreads, maxInFlight, namePrefix), poolLabel(namePrefix));
+    }
+
+    private static ExecutorService createRaw(String mode, int fixedThreads, int maxInFlight, String namePrefix) {
+        if (MODE_VIRTUAL.equals(mode)) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix + "vt-", 0).factory());
+        }
+        if (MODE_BOUNDED.equals(mode)) {
+            return new BoundedVirtualExecutor(Math.max(1, maxInFlight), namePrefix);
+        }
+        if (!MODE_FIXED.equals(mode)) {
+            System.err.println("⚠️  Unknown executor mode '" + mode + "', falling back to " + MODE_FIXED);
+        }
+        return Executors.newFixedThreadPool(Math.max(1, fixedThreads), platformThreads(namePrefix));
+    }
+
+    private static String poolLabel(String namePrefix) {
+        return namePrefix.endsWith("-") ? namePrefix.substring(0, namePrefix.length() - 1) : namePrefix;
+    }
+
+    private static ThreadFactory platformThreads(String namePrefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> new Thread(r, namePrefix + seq.getAndIncrement());
+    }
+
+    /**
+     * Virtual thread cho mỗi task, giới hạn bởi Semaphore
+     * <p>
+     * Permit được lấy bên trong virtual thread (không phải ở thread gọi execute()),
+     * nên accept loop / selector thread không bao giờ bị block khi đã đạt giới hạn -
+     * các task thừa chỉ "đỗ" lại dưới dạng virtual thread rẻ tiền chờ permit.
+     */
+    static final class BoundedVirtualExecutor extends AbstractExecutorService {
+        private final ExecutorService delegate;
+        private final Semaphore permits;
+
+        BoundedVirtualExecutor(int maxInFlight, String namePrefix) {
+            this.delegate = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix + "vt-", 0).factory());
+            this.permits = new Semaphore(maxInFlight);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            delegate.execute(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+
+    /**
+     * Bọc executor để đếm task đang chờ / đang chạy
+     * <p>
+     * Task được tính là "queued" từ lúc execute() tới lúc thực sự bắt đầu chạy - với chế độ bounded
+     * thì gồm cả thời gian chờ permit, vì task gốc chỉ được gọi sau khi đã lấy permit.
+     */
+    static final class InstrumentedExecutor extends AbstractExecutorService {
+        private final ExecutorService delegate;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final LatencyHistogram queueWait;
+
+        InstrumentedExecutor(ExecutorService delegate, String pool) {
+            this.delegate = delegate;
+            MetricsRegistry registry = MetricsRegistry.global();
+            registry.gauge("miniboot_http_worker_queue_depth", "Tasks submitted but not yet started",
+                    queued::get, "pool", pool);
+            registry.gauge("miniboot_http_worker_active", "Tasks currently running on workers",
+                    active::get, "pool", pool);
+            this.queueWait = registry.histogram("miniboot_http_worker_queue_wait_seconds",
+                    "Time a task waited before a worker picked it up", "pool", pool);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            long submitted = System.nanoTime();
+            queued.incrementAndGet();
+            try {
+                delegate.execute(() -> {
+                    queued.decrementAndGet();
+                    queueWait.record(System.nanoTime() - submitted);
+                    active.incrementAndGet();
+                    try {
+                        task.run();
+                    } finally {
+                        active.decrementAndGet();
+                    }
+                });
+            } catch (RuntimeException e) {
+                queued.decrementAndGet(); // Bị từ chối (executor đã shutdown)
+                throw e;
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
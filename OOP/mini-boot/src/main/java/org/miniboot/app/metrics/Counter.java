@@ -0,0 +1,23 @@
+package org.miniboot.app.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bộ đếm chỉ tăng (Prometheus counter)
+ * Dùng LongAdder nên nhiều thread tăng đồng thời không tranh chấp một biến atomic.
+ */
+public final class Counter {
+    private final LongAdder value = new LongAdder();
+
+    public void inc() {
+        value.increment();
+    }
+
+    public void add(long delta) {
+        value.add(delta);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
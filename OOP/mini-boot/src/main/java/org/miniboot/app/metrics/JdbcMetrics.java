@@ -0,0 +1,57 @@
+package org.miniboot.app.metrics;
+
+import java.sql.Connection;
+
+/**
+ * Đo thời gian dùng database theo từng repository
+ * <p>
+ * Mỗi repository lấy một Label lúc khởi tạo (DatabaseConfig.forRepository), label được dựng một lần.
+ * Connection mượn qua đó được bọc bởi MeteredConnection (lớp delegate thường, không reflection, không
+ * bọc Statement): lúc close() ghi thời gian giữ connection - các lượt SQL + map kết quả của một lần gọi
+ * repository. Chi phí mỗi lần mượn là một object và hai lần đọc System.nanoTime().
+ */
+public final class JdbcMetrics {
+    static final String HOLD_DURATION = "miniboot_db_connection_hold_seconds";
+
+    private static final LatencyHistogram ACQUIRE = MetricsRegistry.global().histogram(
+            "miniboot_db_connection_acquire_seconds", "Time spent waiting for a pooled connection");
+
+    private JdbcMetrics() {
+    }
+
+    /**
+     * Metrics của một repository, giữ lại làm field thay vì tra lại mỗi lần mượn connection
+     */
+    public static final class Label {
+        final LatencyHistogram hold;
+
+        private Label(String repository) {
+            this.hold = MetricsRegistry.global().histogram(HOLD_DURATION,
+                    "Time a repository holds a connection (SQL round trips and row mapping)", "repository", repository);
+        }
+    }
+
+    /**
+     * Label cho repository: tên class (không package)
+     */
+    public static Label label(Class<?> repository) {
+        return new Label(repository.getSimpleName());
+    }
+
+    /**
+     * Ghi nhận thời gian lấy connection từ pool
+     */
+    public static void recordAcquire(long durationNanos) {
+        ACQUIRE.record(durationNanos);
+    }
+
+    /**
+     * Bọc connection vừa mượn để ghi thời gian giữ khi close()
+     */
+    public static Connection track(Connection connection, Label label) {
+        if (connection == null || connection instanceof MeteredConnection) {
+            return connection;
+        }
+        return new MeteredConnection(connection, label.hold);
+    }
+}
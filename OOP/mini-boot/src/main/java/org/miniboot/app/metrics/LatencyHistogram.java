@@ -0,0 +1,126 @@
+package org.miniboot.app.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram độ trễ kiểu HDR (log-linear), đơn vị nanosecond
+ * <p>
+ * Mỗi lũy thừa của 2 được chia thành 8 bucket đều nhau nên sai số tương đối tối đa ~12.5%
+ * trên toàn dải (từ vài ns tới vài phút) với một mảng cố định ~300 ô - record() chỉ là
+ * vài phép dịch bit và một lần tăng atomic, không cấp phát, không lock.
+ * <p>
+ * Khi export, các bucket mịn được gom lại theo các mốc "le" cố định của Prometheus
+ * (BOUNDS_SECONDS), kèm các phân vị ước lượng (p50/p90/p99).
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /** Giá trị lớn hơn (~18 phút) được gộp vào bucket cuối */
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    /** Các mốc bucket khi export (giây) */
+    static final double[] BOUNDS_SECONDS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    /** Với mỗi mốc: số bucket mịn đầu tiên có cận trên <= mốc */
+    private static final int[] BOUND_CUTOFFS = new int[BOUNDS_SECONDS.length];
+
+    static {
+        for (int b = 0; b < BOUNDS_SECONDS.length; b++) {
+            long boundNanos = (long) (BOUNDS_SECONDS[b] * 1_000_000_000L);
+            int cutoff = 0;
+            while (cutoff < BUCKETS && upperBound(cutoff) <= boundNanos) {
+                cutoff++;
+            }
+            BOUND_CUTOFFS[b] = cutoff;
+        }
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sumNanos = new LongAdder();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(indexOf(nanos));
+        sumNanos.add(nanos);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /** Cận trên (không bao gồm) của bucket index, đơn vị ns */
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index + 1;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS);
+    }
+
+    /**
+     * Chụp trạng thái hiện tại để export (không cần nhất quán tuyệt đối giữa các bucket)
+     */
+    Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, sumNanos.sum());
+    }
+
+    static final class Snapshot {
+        final long[] counts;
+        final long count;
+        final long sumNanos;
+
+        private Snapshot(long[] counts, long count, long sumNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.sumNanos = sumNanos;
+        }
+
+        /** Số mẫu tích lũy cho từng mốc trong BOUNDS_SECONDS */
+        long[] cumulative() {
+            long[] result = new long[BOUND_CUTOFFS.length];
+            long running = 0;
+            int i = 0;
+            for (int b = 0; b < BOUND_CUTOFFS.length; b++) {
+                for (; i < BOUND_CUTOFFS[b]; i++) {
+                    running += counts[i];
+                }
+                result[b] = running;
+            }
+            return result;
+        }
+
+        /** Phân vị ước lượng (cận trên của bucket chứa phân vị), đơn vị ns */
+        long quantile(double q) {
+            if (count == 0) return 0;
+            long rank = (long) Math.ceil(q * count);
+            long running = 0;
+            for (int i = 0; i < counts.length; i++) {
+                running += counts[i];
+                if (running >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(counts.length - 1);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.miniboot.app.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Registry chứa toàn bộ metrics của server và export theo định dạng Prometheus text
+ * <p>
+ * - Metric được tạo một lần (lúc mount route / khởi động) rồi giữ tham chiếu trực tiếp,
+ *   nên đường đi của request không phải tra map.
+ * - Một "family" = một tên metric (+ HELP/TYPE), chứa nhiều series phân biệt bởi labels.
+ * - Gauge là callback (DoubleSupplier) được đọc lúc scrape, không tốn gì khi không ai scrape.
+ * - Histogram export kèm family {@code <name>_quantile} (p50/p90/p99) ước lượng từ bucket mịn.
+ */
+public final class MetricsRegistry {
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Lấy (hoặc tạo) counter
+     *
+     * @param labels cặp tên/giá trị xen kẽ: "route", "/products", "status", "2xx"
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, Type.COUNTER).series.computeIfAbsent(labelString(labels), k -> new Counter());
+    }
+
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        return (LatencyHistogram) family(name, help, Type.HISTOGRAM).series.computeIfAbsent(labelString(labels), k -> new LatencyHistogram());
+    }
+
+    /**
+     * Đăng ký gauge dạng callback; đăng ký lại cùng labels sẽ thay callback cũ
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).series.put(labelString(labels), value);
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, n -> new Family(n, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " already registered as " + family.type);
+        }
+        return family;
+    }
+
+    /**
+     * Ghi toàn bộ metrics theo Prometheus exposition format (text 0.0.4)
+     */
+    public void writePrometheus(StringBuilder sb) {
+        for (Family family : families.values()) {
+            family.write(sb);
+        }
+    }
+
+    //  INTERNALS
+
+    private enum Type {
+        COUNTER("counter"), GAUGE("gauge"), HISTOGRAM("histogram");
+
+        final String text;
+
+        Type(String text) {
+            this.text = text;
+        }
+    }
+
+    private static final class Family {
+        final String name;
+        final String help;
+        final Type type;
+        /** labels đã format ("{a=\"b\"}" hoặc "") -> Counter | LatencyHistogram | DoubleSupplier */
+        final Map<String, Object> series = new ConcurrentHashMap<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        void write(StringBuilder sb) {
+            if (series.isEmpty()) return;
+            Map<String, Object> sorted = new TreeMap<>(series);
+            if (type == Type.HISTOGRAM) {
+                writeHistograms(sb, sorted);
+                return;
+            }
+            header(sb, name, help, type.text);
+            for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+                Object metric = entry.getValue();
+                if (type == Type.COUNTER) {
+                    sample(sb, name, entry.getKey(), ((Counter) metric).get());
+                } else {
+                    sample(sb, name, entry.getKey(), ((DoubleSupplier) metric).getAsDouble());
+                }
+            }
+        }
+
+        /**
+         * Histogram chuẩn (_bucket/_sum/_count) + family gauge {@code <name>_quantile} riêng chứa p50/p90/p99
+         * ước lượng từ bucket mịn (tiện xem nhanh khi không có PromQL).
+         * Series chưa có mẫu nào được bỏ qua để output không phình theo số route.
+         */
+        private void writeHistograms(StringBuilder sb, Map<String, Object> sorted) {
+            Map<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+            for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+                LatencyHistogram.Snapshot snap = ((LatencyHistogram) entry.getValue()).snapshot();
+                if (snap.count > 0) {
+                    snapshots.put(entry.getKey(), snap);
+                }
+            }
+            if (snapshots.isEmpty()) return;
+
+            header(sb, name, help, type.text);
+            for (Map.Entry<String, LatencyHistogram.Snapshot> entry : snapshots.entrySet()) {
+                String labels = entry.getKey();
+                LatencyHistogram.Snapshot snap = entry.getValue();
+                long[] cumulative = snap.cumulative();
+                for (int i = 0; i < cumulative.length; i++) {
+                    sample(sb, name + "_bucket", withLabel(labels, "le", formatDouble(LatencyHistogram.BOUNDS_SECONDS[i])), cumulative[i]);
+                }
+                sample(sb, name + "_bucket", withLabel(labels, "le", "+Inf"), snap.count);
+                sample(sb, name + "_sum", labels, snap.sumNanos / 1e9);
+                sample(sb, name + "_count", labels, snap.count);
+            }
+
+            String quantileName = name + "_quantile";
+            header(sb, quantileName, help + " (estimated quantiles)", Type.GAUGE.text);
+            for (Map.Entry<String, LatencyHistogram.Snapshot> entry : snapshots.entrySet()) {
+                for (double q : QUANTILES) {
+                    sample(sb, quantileName, withLabel(entry.getKey(), "quantile", formatDouble(q)),
+                            entry.getValue().quantile(q) / 1e9);
+                }
+            }
+        }
+    }
+
+    private static void header(StringBuilder sb, String name, String help, String type) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, long value) {
+        sb.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, double value) {
+        sb.append(name).append(labels).append(' ').append(formatDouble(value)).append('\n');
+    }
+
+    private static String formatDouble(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return String.valueOf((long) value);
+        }
+        return String.valueOf(value);
+    }
+
+    private static String withLabel(String labels, String name, String value) {
+        String pair = name + "=\"" + value + "\"";
+        return labels.isEmpty() ? "{" + pair + "}" : labels.substring(0, labels.length() - 1) + "," + pair + "}";
+    }
+
+    static String labelString(String... labels) {
+        if (labels == null || labels.length == 0) return "";
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(labels[i]).append("=\"");
+            String value = labels[i + 1] == null ? "" : labels[i + 1];
+            for (int c = 0; c < value.length(); c++) {
+                char ch = value.charAt(c);
+                if (ch == '\\' || ch == '"') sb.append('\\');
+                if (ch == '\n') {
+                    sb.append("\\n");
+                    continue;
+                }
+                sb.append(ch);
+            }
+            sb.append('"');
+        }
+        return sb.append('}').toString();
+    }
+}
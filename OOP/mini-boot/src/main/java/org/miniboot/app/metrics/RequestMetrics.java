@@ -0,0 +1,45 @@
+package org.miniboot.app.metrics;
+
+/**
+ * Metrics của một route (method + path pattern), tạo sẵn lúc đăng ký route
+ * <p>
+ * Label là pattern ("/products/{id}") chứ không phải path thô, nên số series cố định
+ * theo số route. Request không khớp route nào được gộp vào UNMATCHED.
+ */
+public final class RequestMetrics {
+    public static final String REQUESTS_TOTAL = "miniboot_http_requests_total";
+    public static final String REQUEST_DURATION = "miniboot_http_request_duration_seconds";
+
+    /** Request 404 / 405 - không gắn với route cụ thể để tránh bùng nổ số series */
+    public static final RequestMetrics UNMATCHED = forRoute("*", "unmatched");
+
+    private final LatencyHistogram duration;
+    /** Counter theo nhóm status: index 0..4 ứng với 1xx..5xx */
+    private final Counter[] byStatusClass = new Counter[5];
+
+    private RequestMetrics(String method, String route) {
+        MetricsRegistry registry = MetricsRegistry.global();
+        this.duration = registry.histogram(REQUEST_DURATION,
+                "Handler latency per route (including middlewares)", "method", method, "route", route);
+        for (int i = 0; i < byStatusClass.length; i++) {
+            byStatusClass[i] = registry.counter(REQUESTS_TOTAL,
+                    "HTTP requests per route and status class", "method", method, "route", route, "status", (i + 1) + "xx");
+        }
+    }
+
+    public static RequestMetrics forRoute(String method, String route) {
+        return new RequestMetrics(method, route);
+    }
+
+    /**
+     * Ghi nhận một request đã xử lý xong
+     */
+    public void record(int status, long durationNanos) {
+        int statusClass = status / 100 - 1;
+        if (statusClass < 0 || statusClass >= byStatusClass.length) {
+            statusClass = 4; // Status lạ coi như lỗi server
+        }
+        byStatusClass[statusClass].inc();
+        duration.record(durationNanos);
+    }
+}
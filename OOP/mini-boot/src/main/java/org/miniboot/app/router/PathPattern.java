@@ -7,17 +7,19 @@ import java.util.*;
 
 import static java.util.Collections.min;
 
-enum Type{STATIC, VARIABLE};
-class Segment{
-    Type type;
-    String token;
-    Segment(Type type, String token) {
-        this.type = type;
-        this.token = token;
-    }
-}
 // Class Dung de kiem tra pattern va path
 public class PathPattern {
+    enum Type{STATIC, VARIABLE}
+
+    // Mot doan cua pattern giua hai dau / (Router dung khi dung trie)
+    static final class Segment{
+        final Type type;
+        final String token;
+        Segment(Type type, String token) {
+            this.type = type;
+            this.token = token;
+        }
+    }
 
     private String pattern;
     private List<Segment> segments;
@@ -135,6 +137,15 @@ public class PathPattern {
         return extractResult;
 
     }
+    // Danh sach segment da parse (Router dung de dung trie luc dang ky route)
+    List<Segment> segments() {
+        return segments;
+    }
+
+    public String pattern() {
+        return pattern;
+    }
+
     public int score(){
         int score = 0;
         for(int i = 0; i < segments.size(); i++){
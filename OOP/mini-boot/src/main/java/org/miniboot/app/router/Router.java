@@ -1,32 +1,100 @@
 package org.miniboot.app.router;
 
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 
 import org.miniboot.app.AppConfig;
 import org.miniboot.app.http.HttpRequest;
 import org.miniboot.app.http.HttpResponse;
 import org.miniboot.app.http.HttpServer;
+import org.miniboot.app.metrics.RequestMetrics;
 
+/**
+ * Router dựa trên segment-trie
+ * <p>
+ * - Mỗi node của trie ứng với một segment của path: các con STATIC được thử trước, con {var} sau
+ *   (có backtrack), nên "/products/search" luôn thắng "/products/{id}" bất kể thứ tự đăng ký.
+ * - Match trực tiếp trên chuỗi path bằng regionMatches: không regex, không split, không cấp phát
+ *   ngoài các giá trị path param.
+ * - Chuỗi middleware được bọc sẵn (compile) cho từng route lúc đăng ký / lúc use(),
+ *   không dựng lại ở mỗi request.
+ * - Match theo cả method: nhánh static khớp path nhưng không có method của request thì vẫn backtrack
+ *   sang nhánh {var} ("PUT /products/search" tới "PUT /products/{id}" khi chỉ có "GET /products/search").
+ * - Không nhánh nào có method -> 405, header Allow là hợp các method của mọi nhánh khớp path.
+ * - Route đăng ký bằng postStreaming nhận body dạng stream (HttpRequest.bodyStream()): HttpServer hỏi
+ *   streamsBody() ngay sau khi parse headers và không đọc trước body vào bộ nhớ.
+ * - Mỗi route có sẵn RequestMetrics (label = pattern), dispatch đo thời gian và status của chuỗi
+ *   handler; 404/405 gộp vào RequestMetrics.UNMATCHED.
+ */
 public class Router {
     private static class Route {
         private final String method;
         private final PathPattern path;
         private final Function<HttpRequest, HttpResponse> handler;
         private final boolean isProtected;
+        private final String protectedTag;
+        private final RequestMetrics metrics;
+        private final boolean streamBody;
 
-        public Route(String method, String path, Function<HttpRequest, HttpResponse> handler, boolean isProtected) {
+        /** Handler đã bọc middleware, compile lại mỗi khi danh sách middleware thay đổi */
+        private Handler compiled;
+
+        public Route(String method, PathPattern path, Function<HttpRequest, HttpResponse> handler, boolean isProtected,
+                     boolean streamBody) {
             this.method = method;
-            this.path = new PathPattern(path);
+            this.path = path;
             this.handler = handler;
             this.isProtected = isProtected;
+            this.protectedTag = String.valueOf(isProtected);
+            this.metrics = RequestMetrics.forRoute(method, path.pattern());
+            this.streamBody = streamBody;
+        }
+    }
+
+    /** Một node trong trie, tương ứng với một segment */
+    private static class Node {
+        private final String token;
+        private final List<Node> staticChildren = new ArrayList<>();
+        private Node variableChild;
+
+        /** method (in hoa) -> route tại đúng path này */
+        private final Map<String, Route> routes = new LinkedHashMap<>();
+        private Handler methodNotAllowed;
 
+        Node(String token) {
+            this.token = token;
+        }
+
+        Node staticChild(String token) {
+            for (int i = 0; i < staticChildren.size(); i++) {
+                Node child = staticChildren.get(i);
+                if (child.token.equals(token)) {
+                    return child;
+                }
+            }
+            Node child = new Node(token);
+            staticChildren.add(child);
+            return child;
         }
     }
 
-    private ArrayList<Route> routes = new ArrayList<>();
+    private final Node root = new Node("");
+    private final List<Node> endpoints = new ArrayList<>();
     private ArrayList<Middleware> middlewares = new ArrayList<>();
+    private Handler notFound;
+    private boolean hasStreamingRoutes;
+
+    public Router() {
+        recompile();
+    }
 
     public ArrayList<Middleware> getMiddlewares() {
         return middlewares;
@@ -34,11 +102,12 @@ public class Router {
 
     public void use(Middleware middleware) {
         middlewares.add(middleware);
+        recompile();
     }
 
     public void get(String path, Function<HttpRequest, HttpResponse> handler, boolean isProtected) {
         System.out.println("📍 Registering GET route: " + path);
-        routes.add(new Route(AppConfig.GET_KEY, path, handler, isProtected));
+        addRoute(AppConfig.GET_KEY, path, handler, isProtected);
     }
 
     public void get(String path, Function<HttpRequest, HttpResponse> handler) {
@@ -46,15 +115,24 @@ public class Router {
     }
 
     public void post(String path, Function<HttpRequest, HttpResponse> handler, boolean isProtected) {
-        routes.add(new Route(AppConfig.POST_KEY, path, handler, isProtected));
+        addRoute(AppConfig.POST_KEY, path, handler, isProtected);
     }
 
     public void post(String path, Function<HttpRequest, HttpResponse> handler) {
         post(path, handler, false);
     }
 
+    /**
+     * POST nhận body dạng stream: handler đọc qua HttpRequest.bodyStream(), body tối đa
+     * AppConfig.MAX_STREAM_BODY_BYTES thay vì MAX_BODY_BYTES (chỉ server blocking; NioHttpServer vẫn
+     * nhận trọn body trong giới hạn MAX_BODY_BYTES)
+     */
+    public void postStreaming(String path, Function<HttpRequest, HttpResponse> handler) {
+        addRoute(AppConfig.POST_KEY, path, handler, false, true);
+    }
+
     public void put(String path, Function<HttpRequest, HttpResponse> handler, boolean isProtected) {
-        routes.add(new Route(AppConfig.PUT_KEY, path, handler, isProtected));
+        addRoute(AppConfig.PUT_KEY, path, handler, isProtected);
     }
 
     public void put(String path, Function<HttpRequest, HttpResponse> handler) {
@@ -62,44 +140,240 @@ public class Router {
     }
 
     public void delete(String path, Function<HttpRequest, HttpResponse> handler, boolean isProtected) {
-        routes.add(new Route(AppConfig.DELETE_KEY, path, handler, isProtected));
+        addRoute(AppConfig.DELETE_KEY, path, handler, isProtected);
     }
 
     public void delete(String path, Function<HttpRequest, HttpResponse> handler) {
         delete(path, handler, false);
     }
 
+    /**
+     * Request (method, path) có tới route nhận body dạng stream không
+     */
+    public boolean streamsBody(String method, String path) {
+        if (!hasStreamingRoutes) {
+            return false;
+        }
+        String key = method.toUpperCase(Locale.ROOT);
+        Node node = match(root, path, 0, pathEnd(path), key);
+        return node != null && node.routes.get(key).streamBody;
+    }
+
     public HttpResponse dispatch(HttpRequest request) throws Exception {
-        Handler h = null;
-        for (Route route : routes) {
-            if (route.path.match(request.path)) {
-
-                if (!route.method.equalsIgnoreCase(request.method)) {
-                    // Không break, tiếp tục tìm route khác có cùng path nhưng đúng method
-                    h = req -> {
-                        throw new HttpServer.MethodNotAllowed();
-                    };
-                } else {
-                    request.tags.put("protected", String.valueOf(route.isProtected));
-                    Map<String, String> params = route.path.extract(request.path);
-                    request.tags.putAll(params);
-                    h = req -> route.handler.apply(req);
-                    break; // Tìm được route đúng, dừng tìm
+        String path = request.path;
+        int end = pathEnd(path);
+        // Method trong request line thường đã in hoa (toUpperCase trả lại chính chuỗi đó)
+        String method = request.method.toUpperCase(Locale.ROOT);
+        Node node = match(root, path, 0, end, method);
+        if (node == null) {
+            // Chỉ chạy khi không có route: phân biệt 404 / 405 và tính Allow
+            List<Node> candidates = new ArrayList<>();
+            collectPathMatches(root, path, 0, end, candidates);
+            if (candidates.isEmpty()) {
+                return timed(RequestMetrics.UNMATCHED, notFound, request);
+            }
+            Handler methodNotAllowed = candidates.size() == 1
+                    ? candidates.get(0).methodNotAllowed
+                    : methodNotAllowed(candidates);
+            return timed(RequestMetrics.UNMATCHED, methodNotAllowed, request);
+        }
+
+        Route route = node.routes.get(method);
+
+        request.tags.put("protected", route.protectedTag);
+        extractParams(route, path, request.tags);
+        return timed(route.metrics, route.compiled, request);
+    }
+
+    /** Chạy handler và ghi nhận status + thời gian; exception lọt ra ngoài tính là 500 */
+    private static HttpResponse timed(RequestMetrics metrics, Handler handler, HttpRequest request) throws Exception {
+        long start = System.nanoTime();
+        try {
+            HttpResponse response = handler.handle(request);
+            metrics.record(response == null ? 500 : response.status, System.nanoTime() - start);
+            return response;
+        } catch (Exception e) {
+            metrics.record(500, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    //  ĐĂNG KÝ ROUTE
+
+    private void addRoute(String method, String path, Function<HttpRequest, HttpResponse> handler, boolean isProtected) {
+        addRoute(method, path, handler, isProtected, false);
+    }
+
+    private void addRoute(String method, String path, Function<HttpRequest, HttpResponse> handler, boolean isProtected,
+                          boolean streamBody) {
+        PathPattern pattern = new PathPattern(path);
+        Node node = root;
+        for (PathPattern.Segment segment : pattern.segments()) {
+            if (segment.type == PathPattern.Type.VARIABLE) {
+                if (node.variableChild == null) {
+                    node.variableChild = new Node(segment.token);
                 }
+                node = node.variableChild;
+            } else {
+                node = node.staticChild(segment.token);
             }
         }
-        if (h == null) {
-            h = req -> {
-                throw new HttpServer.NotFound();
-            };
+
+        String key = method.toUpperCase();
+        if (node.routes.containsKey(key)) {
+            // Giữ hành vi cũ: route đăng ký trước được ưu tiên
+            System.err.println("⚠️  Duplicate route ignored: " + key + " " + pattern.pattern());
+            return;
         }
-        // Boc middleware tu cuoi ve dau
+        if (node.routes.isEmpty()) {
+            endpoints.add(node);
+        }
+        Route route = new Route(key, pattern, handler, isProtected, streamBody);
+        hasStreamingRoutes |= streamBody;
+        route.compiled = wrap(req -> route.handler.apply(req));
+        node.routes.put(key, route);
+        compileMethodNotAllowed(node);
+    }
+
+    /** Bọc lại toàn bộ handler sau khi danh sách middleware thay đổi */
+    private void recompile() {
+        notFound = wrap(req -> {
+            throw new HttpServer.NotFound();
+        });
+        for (Node node : endpoints) {
+            for (Route route : node.routes.values()) {
+                route.compiled = wrap(req -> route.handler.apply(req));
+            }
+            compileMethodNotAllowed(node);
+        }
+    }
+
+    private void compileMethodNotAllowed(Node node) {
+        node.methodNotAllowed = methodNotAllowed(List.of(node));
+    }
+
+    /** 405 với Allow = hợp các method của các node khớp path */
+    private Handler methodNotAllowed(List<Node> nodes) {
+        Set<String> methods = new LinkedHashSet<>();
+        for (Node node : nodes) {
+            methods.addAll(node.routes.keySet());
+        }
+        String allow = String.join(", ", methods);
+        return wrap(req -> {
+            throw new HttpServer.MethodNotAllowed(allow);
+        });
+    }
+
+    // Boc middleware tu cuoi ve dau
+    private Handler wrap(Handler h) {
         for (int i = middlewares.size() - 1; i >= 0; --i) {
             h = middlewares.get(i).apply(h);
         }
+        return h;
+    }
+
+    //  MATCHING
+
+    /**
+     * Tìm node khớp với path[pos, end) và có route cho method: thử con static trước, con {var} sau.
+     * Segment rỗng (do "//" hoặc "/" cuối) được bỏ qua như khi chuẩn hóa path.
+     */
+    private static Node match(Node node, String path, int pos, int end, String method) {
+        while (pos < end && path.charAt(pos) == '/') {
+            pos++;
+        }
+        if (pos >= end) {
+            return node.routes.containsKey(method) ? node : null;
+        }
+
+        int segEnd = path.indexOf('/', pos);
+        if (segEnd < 0 || segEnd > end) {
+            segEnd = end;
+        }
+        int len = segEnd - pos;
 
-        // (d) Gọi handler CUỐI (đã bọc middleware)
-        return h.handle(request);
+        List<Node> children = node.staticChildren;
+        for (int i = 0; i < children.size(); i++) {
+            Node child = children.get(i);
+            if (child.token.length() == len && path.regionMatches(pos, child.token, 0, len)) {
+                Node found = match(child, path, segEnd, end, method);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        if (node.variableChild != null) {
+            return match(node.variableChild, path, segEnd, end, method);
+        }
+        return null;
     }
 
+    /** Mọi node có route (method bất kỳ) khớp với path[pos, end), theo cùng thứ tự duyệt như match() */
+    private static void collectPathMatches(Node node, String path, int pos, int end, List<Node> out) {
+        while (pos < end && path.charAt(pos) == '/') {
+            pos++;
+        }
+        if (pos >= end) {
+            if (!node.routes.isEmpty()) {
+                out.add(node);
+            }
+            return;
+        }
+
+        int segEnd = path.indexOf('/', pos);
+        if (segEnd < 0 || segEnd > end) {
+            segEnd = end;
+        }
+        int len = segEnd - pos;
+
+        List<Node> children = node.staticChildren;
+        for (int i = 0; i < children.size(); i++) {
+            Node child = children.get(i);
+            if (child.token.length() == len && path.regionMatches(pos, child.token, 0, len)) {
+                collectPathMatches(child, path, segEnd, end, out);
+            }
+        }
+        if (node.variableChild != null) {
+            collectPathMatches(node.variableChild, path, segEnd, end, out);
+        }
+    }
+
+    /** Lấy giá trị các {var} của route đã khớp và đưa vào tags */
+    private static void extractParams(Route route, String path, Map<String, String> out) {
+        List<PathPattern.Segment> segments = route.path.segments();
+        int end = pathEnd(path);
+        int pos = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            while (pos < end && path.charAt(pos) == '/') {
+                pos++;
+            }
+            int segEnd = path.indexOf('/', pos);
+            if (segEnd < 0 || segEnd > end) {
+                segEnd = end;
+            }
+            PathPattern.Segment segment = segments.get(i);
+            if (segment.type == PathPattern.Type.VARIABLE) {
+                out.put(segment.token, decode(path.substring(pos, segEnd)));
+            }
+            pos = segEnd;
+        }
+    }
+
+    private static String decode(String value) {
+        if (value.indexOf('%') < 0 && value.indexOf('+') < 0) {
+            return value;
+        }
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    // Path đã bỏ query string, nhưng vẫn cắt ở '?' / '#' như PathPattern cũ
+    private static int pathEnd(String path) {
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '?' || c == '#') {
+                return i;
+            }
+        }
+        return path.length();
+    }
 }
@@ -1,12 +1,18 @@
 package org.miniboot.app.router.middleware;
 
-import org.miniboot.app.auth.AuthService;
+import org.miniboot.app.auth.JwtService;
+import org.miniboot.app.config.AuthConstants;
 import org.miniboot.app.http.HttpResponse;
 import org.miniboot.app.router.Handler;
 import org.miniboot.app.router.Middleware;
 
 import java.nio.charset.StandardCharsets;
 
+/**
+ * Chặn request vào route protected nếu không có Bearer token hợp lệ
+ * Token hợp lệ -> userId được gắn vào request (AuthConstants.ATTR_USER_ID) để controller dùng lại,
+ * không phải xác thực lần nữa.
+ */
 public class AuthMiddlewareStub implements Middleware {
     public Handler apply(Handler next) {
 
@@ -29,16 +35,18 @@ public class AuthMiddlewareStub implements Middleware {
                             "application/json",
                             "{\"error\":\"missing Authorization\"}".getBytes(StandardCharsets.UTF_8));
                 } else {
-                    // Validate token using AuthService
-                    try {
-                        AuthService.validateToken(auth);
-                        return next.handle(req);
-                    } catch (Exception e) {
+                    // Validate token (JwtService cache kết quả theo token)
+                    JwtService.Principal principal = auth.startsWith(AuthConstants.TOKEN_PREFIX)
+                            ? JwtService.verify(auth.substring(AuthConstants.TOKEN_PREFIX.length()))
+                            : null;
+                    if (principal == null) {
                         return new HttpResponse(
                                 401,
                                 "application/json",
                                 "{\"error\":\"invalid token\"}".getBytes(StandardCharsets.UTF_8));
                     }
+                    req.setAttribute(AuthConstants.ATTR_USER_ID, principal.userId());
+                    return next.handle(req);
                 }
             }
 
@@ -0,0 +1,143 @@
+package org.miniboot.app.router.middleware;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.miniboot.app.AppConfig;
+import org.miniboot.app.config.HttpConstants;
+import org.miniboot.app.http.CompressionOutputStream;
+import org.miniboot.app.http.HttpResponse;
+import org.miniboot.app.http.StreamingBody;
+import org.miniboot.app.router.Handler;
+import org.miniboot.app.router.Middleware;
+
+/**
+ * Nén response bằng gzip / deflate theo header Accept-Encoding của client
+ * <p>
+ * - Chỉ nén content-type nằm trong AppConfig.COMPRESSION_MIME_TYPES (JSON, text...)
+ * - Body buffer nhỏ hơn AppConfig.COMPRESSION_MIN_BYTES được gửi nguyên bản;
+ *   nếu bản nén không nhỏ hơn bản gốc cũng gửi nguyên bản
+ * - Body stream (HttpResponse.stream) luôn được nén trên đường ghi ra socket,
+ *   vì không biết trước kích thước
+ * Nên đăng ký đầu tiên (ngoài cùng) để nén cả response lỗi do ErrorHandle tạo ra.
+ */
+public class CompressionMiddleware implements Middleware {
+    private final List<String> mimeTypes;
+
+    public CompressionMiddleware() {
+        this.mimeTypes = parseMimeTypes(AppConfig.COMPRESSION_MIME_TYPES);
+    }
+
+    public Handler apply(Handler next) {
+
+        return req -> {
+            HttpResponse resp = next.handle(req);
+            if (!AppConfig.COMPRESSION_ENABLED || !isCompressible(resp)) {
+                return resp;
+            }
+
+            // Response phụ thuộc Accept-Encoding -> báo cho cache/proxy
+            resp.headers.put(HttpConstants.HEADER_VARY, HttpConstants.HEADER_ACCEPT_ENCODING);
+
+            String encoding = negotiate(req.headers.get(HttpConstants.HEADER_ACCEPT_ENCODING));
+            if (encoding == null) {
+                return resp;
+            }
+
+            if (resp.isStreaming()) {
+                StreamingBody original = resp.stream;
+                resp.stream = out -> {
+                    CompressionOutputStream compressed = CompressionOutputStream.of(out, encoding);
+                    try {
+                        original.writeTo(compressed);
+                        compressed.finish();
+                    } finally {
+                        compressed.release();
+                    }
+                };
+                resp.headers.put(HttpConstants.HEADER_CONTENT_ENCODING, encoding);
+                return resp;
+            }
+
+            if (resp.body.length < AppConfig.COMPRESSION_MIN_BYTES) {
+                return resp;
+            }
+            byte[] compressed = CompressionOutputStream.compress(resp.body, encoding);
+            if (compressed.length < resp.body.length) {
+                resp.body(compressed);
+                resp.headers.put(HttpConstants.HEADER_CONTENT_ENCODING, encoding);
+            }
+            return resp;
+        };
+    }
+
+    private boolean isCompressible(HttpResponse resp) {
+        if (resp.status < 200 || resp.status == HttpConstants.STATUS_NO_CONTENT
+                || resp.status == HttpConstants.STATUS_NOT_MODIFIED) {
+            return false;
+        }
+        if (resp.headers.containsKey(HttpConstants.HEADER_CONTENT_ENCODING)) {
+            return false; // Handler đã tự encode
+        }
+        String type = resp.contentType;
+        int semi = type.indexOf(';');
+        String base = (semi >= 0 ? type.substring(0, semi) : type).trim().toLowerCase(Locale.ROOT);
+        return mimeTypes.contains(base);
+    }
+
+    /**
+     * Chọn encoding từ Accept-Encoding: ưu tiên gzip, sau đó deflate; bỏ qua mục có q=0
+     *
+     * @return HttpConstants.ENCODING_GZIP / ENCODING_DEFLATE, hoặc null nếu client không nhận nén
+     */
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        boolean gzip = false;
+        boolean deflate = false;
+        for (String part : acceptEncoding.split(",")) {
+            String token = part.trim();
+            int semi = token.indexOf(';');
+            String name = (semi >= 0 ? token.substring(0, semi) : token).trim().toLowerCase(Locale.ROOT);
+            if (semi >= 0 && isZeroQuality(token.substring(semi + 1))) {
+                continue;
+            }
+            if (name.equals(HttpConstants.ENCODING_GZIP) || name.equals("*")) {
+                gzip = true;
+            } else if (name.equals(HttpConstants.ENCODING_DEFLATE)) {
+                deflate = true;
+            }
+        }
+        if (gzip) {
+            return HttpConstants.ENCODING_GZIP;
+        }
+        return deflate ? HttpConstants.ENCODING_DEFLATE : null;
+    }
+
+    private static boolean isZeroQuality(String params) {
+        for (String param : params.split(";")) {
+            String p = param.trim();
+            if (p.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(p.substring(2).trim()) <= 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static List<String> parseMimeTypes(String csv) {
+        List<String> types = new ArrayList<>();
+        for (String type : csv.split(",")) {
+            String t = type.trim().toLowerCase(Locale.ROOT);
+            if (!t.isEmpty()) {
+                types.add(t);
+            }
+        }
+        return types;
+    }
+}
@@ -8,28 +8,30 @@ import org.miniboot.app.http.HttpResponse;
 import org.miniboot.app.http.HttpServer;
 import org.miniboot.app.router.Handler;
 import org.miniboot.app.router.Middleware;
+import org.miniboot.app.util.Logger;
 
 public class ErrorHandle implements Middleware {
+    private static final Logger LOG = Logger.get(ErrorHandle.class);
+
     public Handler apply(Handler next) {
         return req -> {
             try {
-                HttpResponse response = next.handle(req);
-                System.out.println("✅ Handler returned response successfully");
-                return response;
+                return next.handle(req);
             } catch (IllegalArgumentException e) {
-                System.err.println("❌ ErrorHandle caught IllegalArgumentException: " + e.getMessage());
+                LOG.warn("IllegalArgumentException: " + e.getMessage());
                 return jsonError(400, HttpConstants.REASON_BAD_REQUEST, AppConfig.RESPONSE_REASON.get(400));
             } catch (HttpServer.MethodNotAllowed e) {
-                System.err.println("❌ ErrorHandle caught MethodNotAllowed: " + e.getMessage());
-                return jsonError(405, HttpConstants.REASON_METHOD_NOT_ALLOWED, AppConfig.RESPONSE_REASON.get(405));
+                LOG.debug("MethodNotAllowed: " + req.method + " " + req.path);
+                HttpResponse response = jsonError(405, HttpConstants.REASON_METHOD_NOT_ALLOWED, AppConfig.RESPONSE_REASON.get(405));
+                if (e.getAllowedMethods() != null) {
+                    response.header(HttpConstants.HEADER_ALLOW, e.getAllowedMethods());
+                }
+                return response;
             } catch (HttpServer.NotFound e) {
-                System.err.println("❌ ErrorHandle caught NotFound: " + e.getMessage());
+                LOG.debug("NotFound: " + req.path);
                 return jsonError(404, HttpConstants.REASON_NOT_FOUND, AppConfig.RESPONSE_REASON.get(404));
             } catch (Exception e) {
-                System.err.println("❌ ErrorHandle caught Exception:");
-                System.err.println("   Type: " + e.getClass().getName());
-                System.err.println("   Message: " + e.getMessage());
-                e.printStackTrace();
+                LOG.error("Unhandled " + e.getClass().getName() + " on " + req.method + " " + req.path, e);
                 return jsonError(500, HttpConstants.REASON_INTERNAL_SERVER_ERROR, AppConfig.RESPONSE_REASON.get(500));
             }
         };
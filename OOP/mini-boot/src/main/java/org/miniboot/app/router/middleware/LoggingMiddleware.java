@@ -3,25 +3,33 @@ package org.miniboot.app.router.middleware;
 import org.miniboot.app.http.HttpResponse;
 import org.miniboot.app.router.Handler;
 import org.miniboot.app.router.Middleware;
+import org.miniboot.app.util.Logger;
 
-import java.util.Date;
-
+/**
+ * Log thời gian chạy handler của từng route (mức DEBUG)
+ * Access log đầy đủ (status, bytes, client) do HttpServer / NioHttpServer ghi qua Logger.access
+ */
 public class LoggingMiddleware implements Middleware {
+    private static final Logger LOG = Logger.get(LoggingMiddleware.class);
+
     public Handler apply(Handler next) {
 
         return req -> {
+            if (!LOG.isDebugEnabled()) {
+                return next.handle(req);
+            }
 
             long timeStart = System.nanoTime();
             try{
                 HttpResponse resp = next.handle(req);
                 long time = (System.nanoTime() - timeStart)/1000000;
-                System.out.println(req.method + " " + req.path + " -> " + resp.status + " " + time + "ms");
+                LOG.debug(req.method + " " + req.path + " -> " + resp.status + " " + time + "ms");
                 return resp;
 
             }
             catch (Exception e) {
                 long time = (System.nanoTime() - timeStart)/1000000;
-                System.out.println(req.method + " " + req.path + " -> " + 500 + " " + time + "ms");
+                LOG.debug(req.method + " " + req.path + " -> " + 500 + " " + time + "ms");
                 throw e;
 
             }
@@ -0,0 +1,153 @@
+package org.miniboot.app.router.middleware;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.miniboot.app.AppConfig;
+import org.miniboot.app.config.AuthConstants;
+import org.miniboot.app.config.HttpConstants;
+import org.miniboot.app.http.HttpResponse;
+import org.miniboot.app.metrics.Counter;
+import org.miniboot.app.metrics.MetricsRegistry;
+import org.miniboot.app.router.Handler;
+import org.miniboot.app.router.Middleware;
+import org.miniboot.app.util.Logger;
+import org.miniboot.app.util.errorvalidation.RateLimiter;
+import org.miniboot.app.util.errorvalidation.ValidationUtils;
+
+/**
+ * Giới hạn tần suất request (429 Too Many Requests) cho mọi route
+ * <p>
+ * - Nhóm route theo tiền tố path (AppConfig.RATE_LIMIT_ROUTES), tiền tố dài nhất thắng;
+ *   route không khớp nhóm nào dùng giới hạn mặc định (RATE_LIMIT_PER_MINUTE / RATE_LIMIT_BURST).
+ *   Nhóm có limit 0 không bị giới hạn (vd. /health).
+ * - Hai phạm vi (Scope), mỗi instance có bucket riêng:
+ *   + CLIENT_IP: key là IP client (HttpRequest.clientIp: X-Forwarded-For chỉ khi connection đến từ
+ *     TRUSTED_PROXIES). Đăng ký TRƯỚC AuthMiddlewareStub để request token sai / thiếu token cũng bị đếm,
+ *     không thể dò token hoặc bắt server verify JWT không giới hạn.
+ *   + USER: key là userId do AuthMiddlewareStub gắn vào; request chưa xác thực đi qua (đã bị đếm theo IP).
+ *     Đăng ký SAU AuthMiddlewareStub để mỗi user có hạn mức riêng dù chung IP.
+ * - Mỗi nhóm có bucket riêng cho cùng một key.
+ */
+public class RateLimitMiddleware implements Middleware {
+    private static final Logger LOG = Logger.get(RateLimitMiddleware.class);
+
+    /** Đếm request theo gì */
+    public enum Scope {
+        CLIENT_IP, USER
+    }
+
+    /** Một nhóm route: tiền tố path + limiter (null = không giới hạn) */
+    private static final class Rule {
+        final String prefix;
+        final RateLimiter limiter;
+        final Counter rejected; // null khi không giới hạn
+
+        Rule(Scope scope, String prefix, int permitsPerMinute, int burst) {
+            this.prefix = prefix;
+            this.limiter = permitsPerMinute > 0
+                    ? new RateLimiter(permitsPerMinute, burst, AppConfig.RATE_LIMIT_MAX_KEYS)
+                    : null;
+            String group = prefix.isEmpty() ? "default" : prefix;
+            if (limiter != null) {
+                this.rejected = MetricsRegistry.global().counter("miniboot_rate_limited_total",
+                        "Requests rejected with 429 per route group", "scope", scope.name(), "group", group);
+                MetricsRegistry.global().gauge("miniboot_rate_limit_tracked_keys",
+                        "Clients currently tracked by the rate limiter", limiter::trackedKeys,
+                        "scope", scope.name(), "group", group);
+            } else {
+                this.rejected = null;
+            }
+        }
+    }
+
+    /** Sắp xếp theo tiền tố dài nhất trước; phần tử cuối là nhóm mặc định ("") */
+    private final List<Rule> rules;
+    private final Scope scope;
+
+    public RateLimitMiddleware(Scope scope) {
+        this.scope = scope;
+        List<Rule> parsed = parseRules(scope, AppConfig.RATE_LIMIT_ROUTES);
+        parsed.add(new Rule(scope, "", AppConfig.RATE_LIMIT_PER_MINUTE, AppConfig.RATE_LIMIT_BURST));
+        parsed.sort(Comparator.comparingInt((Rule r) -> r.prefix.length()).reversed());
+        this.rules = parsed;
+    }
+
+    public Handler apply(Handler next) {
+
+        return req -> {
+            if (!AppConfig.RATE_LIMIT_ENABLED) {
+                return next.handle(req);
+            }
+            Rule rule = ruleFor(req.path);
+            if (rule.limiter == null) {
+                return next.handle(req);
+            }
+
+            String key;
+            if (scope == Scope.USER) {
+                Object userId = req.getAttribute(AuthConstants.ATTR_USER_ID);
+                if (userId == null) {
+                    return next.handle(req);
+                }
+                key = "u:" + userId;
+            } else {
+                String ip = req.clientIp();
+                key = "ip:" + (ip != null ? ip : "unknown");
+            }
+
+            long waitNanos = rule.limiter.tryAcquire(key);
+            if (waitNanos == 0) {
+                return next.handle(req);
+            }
+
+            rule.rejected.inc();
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+            LOG.debug("Rate limited " + key + " on " + req.method + " " + req.path);
+            HttpResponse resp = ValidationUtils.error(HttpConstants.STATUS_TOO_MANY_REQUESTS, "TOO_MANY_REQUESTS",
+                    "Rate limit exceeded. Maximum " + rule.limiter.getPermitsPerMinute()
+                            + " requests per minute. Try again in " + retryAfter + " seconds.");
+            return resp.header(HttpConstants.HEADER_RETRY_AFTER, String.valueOf(retryAfter));
+        };
+    }
+
+    private Rule ruleFor(String path) {
+        for (int i = 0; i < rules.size(); i++) {
+            Rule rule = rules.get(i);
+            if (path.startsWith(rule.prefix)) {
+                return rule;
+            }
+        }
+        return rules.get(rules.size() - 1);
+    }
+
+    /**
+     * "prefix=perMinute[:burst],..." -> danh sách Rule (burst mặc định = perMinute)
+     */
+    private static List<Rule> parseRules(Scope scope, String spec) {
+        List<Rule> rules = new ArrayList<>();
+        if (spec == null || spec.isBlank()) {
+            return rules;
+        }
+        for (String part : spec.split(",")) {
+            String entry = part.trim();
+            int eq = entry.indexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+            try {
+                String prefix = entry.substring(0, eq).trim();
+                String limit = entry.substring(eq + 1).trim();
+                int colon = limit.indexOf(':');
+                int perMinute = Integer.parseInt((colon >= 0 ? limit.substring(0, colon) : limit).trim());
+                int burst = colon >= 0 ? Integer.parseInt(limit.substring(colon + 1).trim()) : perMinute;
+                rules.add(new Rule(scope, prefix, perMinute, burst));
+            } catch (NumberFormatException e) {
+                LOG.warn("Invalid rate limit rule ignored: " + entry);
+            }
+        }
+        return rules;
+    }
+}
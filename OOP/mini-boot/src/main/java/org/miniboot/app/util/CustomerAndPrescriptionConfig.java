@@ -4,8 +4,10 @@ public class CustomerAndPrescriptionConfig {
 
     public static final String DEFAULT_PASSWORD = "12345678";
     public static final String GET_CUSTOMER_ENDPOINT = "/customers";
+    public static final String GET_CUSTOMER_TYPEAHEAD_ENDPOINT = "/customers/typeahead";
     public static final String PUT_CUSTOMER_BY_ID_ENDPOINT = "/customers";
     public static final String POST_CUSTOMER_ENDPOINT = "/customers";
+    public static final String POST_CUSTOMER_IMPORT_ENDPOINT = "/customers/import";
     public static final String DELETE_CUSTOMER_BY_ID_ENDPOINT ="/customers";
     public static final String GET_PRESCRIPTION_ENDPOINT = "/prescriptions";
     public static final String POST_PRESCRIPTION_ENDPOINT = "/prescriptions";
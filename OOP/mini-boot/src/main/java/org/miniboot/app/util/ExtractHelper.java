@@ -1,5 +1,10 @@
 package org.miniboot.app.util;
 
+import org.miniboot.app.AppConfig;
+import org.miniboot.app.domain.repo.PageRequest;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -46,4 +51,33 @@ public class ExtractHelper {
             return Optional.empty();
         }
     }
+
+    /**
+     * Tham số phân trang keyset: ?limit=N&cursor=...
+     * Rỗng nếu client không gửi cả limit lẫn cursor (endpoint trả toàn bộ danh sách như cũ).
+     * limit thiếu -> PAGE_DEFAULT_LIMIT, bị giới hạn trong [1, PAGE_MAX_LIMIT].
+     */
+    public static Optional<PageRequest> extractPage(Map<String, List<String>> q) {
+        if (q == null || (!q.containsKey("limit") && !q.containsKey("cursor")))
+            return Optional.empty();
+        int limit = extractInt(q, "limit").orElse(AppConfig.PAGE_DEFAULT_LIMIT);
+        limit = Math.max(1, Math.min(AppConfig.PAGE_MAX_LIMIT, limit));
+        return Optional.of(new PageRequest(extractFirst(q, "cursor").orElse(null), limit));
+    }
+
+    /**
+     * Tham số ngày dạng yyyy-MM-dd, rỗng nếu không gửi
+     *
+     * @throws IllegalArgumentException nếu sai định dạng
+     */
+    public static Optional<LocalDate> extractDate(Map<String, List<String>> q, String key) {
+        Optional<String> value = extractFirst(q, key).filter(s -> !s.isBlank());
+        if (value.isEmpty())
+            return Optional.empty();
+        try {
+            return Optional.of(LocalDate.parse(value.get().trim()));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + key + " date (expected yyyy-MM-dd): " + value.get());
+        }
+    }
 }
@@ -1,8 +1,10 @@
 package org.miniboot.app.util;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.miniboot.app.AppConfig;
@@ -15,6 +17,7 @@ import java.util.List;
 import java.util.Map;
 
 public class Json {
+    private static final Logger LOG = Logger.get(Json.class);
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
     static {
@@ -30,6 +33,22 @@ public class Json {
         MAPPER.configure(SerializationFeature.INDENT_OUTPUT, pretty);
     }
 
+    // Writer cho stream: không flush sau mỗi phần tử (mỗi lần flush sẽ thành một chunk riêng)
+    private static final ObjectWriter STREAM_WRITER = MAPPER.writer()
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    /** Nhận từng phần tử của mảng JSON đang stream */
+    @FunctionalInterface
+    public interface ArrayWriter {
+        void write(Object element) throws IOException;
+    }
+
+    /** Nguồn phần tử cho mảng JSON stream (thường là repository đọc ResultSet) */
+    @FunctionalInterface
+    public interface ArraySource {
+        void writeElements(ArrayWriter writer) throws IOException;
+    }
+
     // parse JSON từ byte[]
     public static <T> T fromBytes(byte[] body, Class<T> clazz) throws IOException {
         return MAPPER.readValue(body, clazz);
@@ -50,6 +69,21 @@ public class Json {
         return json(HttpConstants.STATUS_OK, data);
     }
 
+    /**
+     * 200 OK với body là mảng JSON được serialize dần trong lúc ghi ra socket
+     * (không dựng List / String / byte[] của toàn bộ kết quả trong heap)
+     */
+    public static HttpResponse okStream(ArraySource source) {
+        return HttpResponse.stream(HttpConstants.STATUS_OK, HttpConstants.CONTENT_TYPE_JSON_UTF8, out -> {
+            JsonGenerator gen = MAPPER.getFactory().createGenerator(out);
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET); // không đóng socket
+            gen.writeStartArray();
+            source.writeElements(element -> STREAM_WRITER.writeValue(gen, element));
+            gen.writeEndArray();
+            gen.close();
+        });
+    }
+
     public static HttpResponse created(Object data) {
         return json(HttpConstants.STATUS_CREATED, data);
     }
@@ -60,16 +94,10 @@ public class Json {
 
     public static HttpResponse json(int status, Object data) {
         try {
-            System.out.println("🔄 Serializing to JSON: " + (data != null ? data.getClass().getName() : "null"));
             byte[] body = MAPPER.writeValueAsBytes(data);
-            System.out.println("✅ JSON serialized: " + body.length + " bytes");
             return HttpResponse.of(status, HttpConstants.CONTENT_TYPE_JSON_UTF8, body);
         } catch (JsonProcessingException e) {
-            System.err.println("❌ JSON SERIALIZATION FAILED!");
-            System.err.println("   Data type: " + (data != null ? data.getClass().getName() : "null"));
-            System.err.println("   Error: " + e.getMessage());
-            System.err.println("   Cause: " + (e.getCause() != null ? e.getCause().getMessage() : "none"));
-            e.printStackTrace();
+            LOG.error("JSON serialization failed for " + (data != null ? data.getClass().getName() : "null"), e);
             byte[] body = ("{\"error\":\"" + ErrorMessages.ERROR_JSON_PARSE + "\"}").getBytes();
             return HttpResponse.of(HttpConstants.STATUS_INTERNAL_SERVER_ERROR,
                     HttpConstants.CONTENT_TYPE_JSON_UTF8, body);
@@ -2,33 +2,255 @@ package org.miniboot.app.util;
 
 import org.miniboot.app.AppConfig;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Logger bất đồng bộ
+ * <p>
+ * Thread gọi log chỉ tạo một Event và đẩy vào RingBuffer lock-free (không chạm vào lock
+ * của System.out); một daemon thread "log-writer" format và ghi ra stdout theo lô.
+ * Khi buffer đầy, event bị bỏ và được đếm lại - request không bao giờ phải chờ log.
+ * <p>
+ * - Level lọc theo AppConfig.LOG_LEVEL (TRACE | DEBUG | INFO | WARN | ERROR)
+ * - Access log (Logger.access) ở dạng key=value một dòng, bật/tắt bằng AppConfig.ACCESS_LOG_ENABLED
+ */
 public class Logger {
     public enum Level { TRACE, DEBUG, INFO, WARN, ERROR }
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final DateTimeFormatter ACCESS_TIMESTAMP =
+            DateTimeFormatter.ISO_OFFSET_DATE_TIME.withZone(ZoneOffset.UTC);
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private static volatile Level globalLevel = parseLevel(AppConfig.LOG_LEVEL);
+    private static volatile boolean accessLogEnabled = AppConfig.ACCESS_LOG_ENABLED;
+
+    private static final RingBuffer<Event> BUFFER = new RingBuffer<>(AppConfig.LOG_BUFFER_SIZE);
+    private static final AtomicLong DROPPED = new AtomicLong();
+    private static volatile boolean writerParked;
+    private static volatile boolean running = true;
+    private static final Thread WRITER = startWriter();
+
     private final String name;
-    private static final Level GLOBAL_LEVEL =
-            Level.valueOf(System.getProperty(AppConfig.LOG_LEVEL_KEY,
-                    System.getenv().getOrDefault(AppConfig.LOG_LEVEL_KEY,AppConfig.LOG_LEVEL_DEFAULT)).toUpperCase());
 
     public static Logger get(Class<?> cls) { return new Logger(cls.getSimpleName()); }
     private Logger(String name) { this.name = name; }
 
-    private boolean enabled(Level lv) { return lv.ordinal() >= GLOBAL_LEVEL.ordinal(); }
+    /**
+     * Áp dụng lại cấu hình level / access log (gọi sau AppConfig.load())
+     */
+    public static void configure() {
+        globalLevel = parseLevel(AppConfig.LOG_LEVEL);
+        accessLogEnabled = AppConfig.ACCESS_LOG_ENABLED;
+    }
+
+    public boolean isEnabled(Level lv) { return lv.ordinal() >= globalLevel.ordinal(); }
+    public boolean isDebugEnabled() { return isEnabled(Level.DEBUG); }
 
     private void log(Level lv, String msg, Throwable t) {
-        if (!enabled(lv)) return;
-        String ts = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        String thread = Thread.currentThread().getName();
-        System.out.printf("%s [%s] %-5s %s - %s%n", ts, thread, lv, name, msg);
-        if (t != null) t.printStackTrace(System.out);
+        if (!isEnabled(lv)) return;
+        Event event = new Event(lv, name, msg, t);
+        publish(event);
     }
 
     public void trace(String m){log(Level.TRACE,m,null);}
     public void debug(String m){log(Level.DEBUG,m,null);}
     public void info (String m){log(Level.INFO ,m,null);}
     public void warn (String m){log(Level.WARN ,m,null);}
+    public void warn (String m, Throwable t){log(Level.WARN,m,t);}
     public void error(String m){log(Level.ERROR,m,null);}
     public void error(String m, Throwable t){log(Level.ERROR,m,t);}
+
+    /**
+     * Ghi một dòng access log cho request đã xử lý xong
+     *
+     * @param durationNanos thời gian xử lý (System.nanoTime())
+     * @param bytes         kích thước body, -1 nếu không biết (body stream)
+     * @param remote        địa chỉ client
+     */
+    public static void access(String method, String path, int status, long durationNanos, long bytes, String remote) {
+        if (!accessLogEnabled) return;
+        publish(new Event(method, path, status, durationNanos, bytes, remote));
+    }
+
+    /** Số event bị bỏ do buffer đầy (kể từ khi khởi động) */
+    public static long droppedCount() {
+        return DROPPED.get();
+    }
+
+    private static void publish(Event event) {
+        if (!running || !BUFFER.offer(event)) {
+            DROPPED.incrementAndGet();
+            return;
+        }
+        if (writerParked) {
+            LockSupport.unpark(WRITER);
+        }
+    }
+
+    private static Level parseLevel(String value) {
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (RuntimeException e) {
+            return Level.valueOf(AppConfig.LOG_LEVEL_DEFAULT);
+        }
+    }
+
+    //  WRITER THREAD
+
+    private static Thread startWriter() {
+        Thread writer = new Thread(Logger::drainLoop, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            running = false;
+            LockSupport.unpark(writer);
+            try {
+                writer.join(1_000);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+        }, "log-flush"));
+        return writer;
+    }
+
+    private static void drainLoop() {
+        StringBuilder batch = new StringBuilder(16 * 1024);
+        long reportedDrops = 0;
+        while (true) {
+            Event event;
+            while ((event = BUFFER.poll()) != null) {
+                event.format(batch);
+                if (batch.length() >= 64 * 1024) {
+                    flush(batch);
+                }
+            }
+            long dropped = DROPPED.get();
+            if (dropped != reportedDrops) {
+                batch.append(LocalDateTime.ofInstant(Instant.ofEpochMilli(System.currentTimeMillis()), ZONE).format(TIMESTAMP)).append(" [log-writer] WARN  Logger - dropped ")
+                        .append(dropped - reportedDrops).append(" log events (buffer full)").append(System.lineSeparator());
+                reportedDrops = dropped;
+            }
+            flush(batch);
+
+            if (!running) {
+                return;
+            }
+            // Ngủ tới khi có event mới (producer thấy writerParked sẽ unpark) hoặc tối đa 100ms
+            writerParked = true;
+            if (BUFFER.isEmpty() && running) {
+                LockSupport.parkNanos(100_000_000L);
+            }
+            writerParked = false;
+        }
+    }
+
+    private static void flush(StringBuilder batch) {
+        if (batch.length() == 0) return;
+        System.out.print(batch);
+        System.out.flush();
+        batch.setLength(0);
+    }
+
+    /**
+     * Một bản ghi log; được format trên writer thread
+     */
+    private static final class Event {
+        private final long timestamp = System.currentTimeMillis();
+        private final String thread = Thread.currentThread().getName();
+        private final Level level;
+        private final String logger;
+        private final String message;
+        private final Throwable error;
+
+        // Access log
+        private final boolean access;
+        private final String method;
+        private final String path;
+        private final int status;
+        private final long durationNanos;
+        private final long bytes;
+        private final String remote;
+
+        Event(Level level, String logger, String message, Throwable error) {
+            this.level = level;
+            this.logger = logger;
+            this.message = message;
+            this.error = error;
+            this.access = false;
+            this.method = null;
+            this.path = null;
+            this.status = 0;
+            this.durationNanos = 0;
+            this.bytes = 0;
+            this.remote = null;
+        }
+
+        Event(String method, String path, int status, long durationNanos, long bytes, String remote) {
+            this.level = Level.INFO;
+            this.logger = "access";
+            this.message = null;
+            this.error = null;
+            this.access = true;
+            this.method = method;
+            this.path = path;
+            this.status = status;
+            this.durationNanos = durationNanos;
+            this.bytes = bytes;
+            this.remote = remote;
+        }
+
+        void format(StringBuilder out) {
+            if (access) {
+                formatAccess(out);
+                return;
+            }
+            out.append(LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZONE).format(TIMESTAMP))
+                    .append(" [").append(thread).append("] ");
+            String lv = level.name();
+            out.append(lv);
+            for (int i = lv.length(); i < 5; i++) out.append(' ');
+            out.append(' ').append(logger).append(" - ").append(message).append(System.lineSeparator());
+            if (error != null) {
+                StringWriter trace = new StringWriter();
+                error.printStackTrace(new PrintWriter(trace));
+                out.append(trace);
+            }
+        }
+
+        // ts=... type=access method=GET path="/x" status=200 duration_ms=1.234 bytes=512 remote=1.2.3.4 thread=...
+        private void formatAccess(StringBuilder out) {
+            out.append("ts=").append(ACCESS_TIMESTAMP.format(Instant.ofEpochMilli(timestamp)))
+                    .append(" type=access method=").append(method)
+                    .append(" path=\"");
+            appendEscaped(out, path);
+            out.append("\" status=").append(status)
+                    .append(" duration_ms=").append(durationNanos / 1_000_000).append('.');
+            long micros = (durationNanos / 1_000) % 1_000;
+            if (micros < 100) out.append('0');
+            if (micros < 10) out.append('0');
+            out.append(micros)
+                    .append(" bytes=").append(bytes >= 0 ? String.valueOf(bytes) : "-")
+                    .append(" remote=").append(remote != null ? remote : "-")
+                    .append(" thread=").append(thread)
+                    .append(System.lineSeparator());
+        }
+
+        private static void appendEscaped(StringBuilder out, String value) {
+            if (value == null) return;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') out.append('\\');
+                out.append(c < 0x20 ? ' ' : c);
+            }
+        }
+    }
 }
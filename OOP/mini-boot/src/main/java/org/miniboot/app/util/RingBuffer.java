@@ -0,0 +1,90 @@
+package org.miniboot.app.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Hàng đợi vòng có giới hạn, lock-free: nhiều producer - một consumer (MPSC)
+ * <p>
+ * Mỗi slot có một sequence number: producer giành slot bằng CAS trên tail rồi "publish"
+ * bằng cách ghi sequence (volatile), consumer chỉ đọc slot khi sequence báo đã publish.
+ * Không có lock nên thread gọi log không bao giờ bị block; khi đầy, offer() trả về false.
+ *
+ * @param <T> kiểu phần tử
+ */
+final class RingBuffer<T> {
+    private final Object[] items;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+
+    /** Chỉ consumer thread đọc/ghi */
+    private long head;
+
+    /**
+     * @param capacity dung lượng, được làm tròn lên lũy thừa của 2
+     */
+    RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.items = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Thêm phần tử (an toàn với nhiều producer)
+     *
+     * @return false nếu buffer đầy
+     */
+    boolean offer(T item) {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    items[index] = item;
+                    sequences.set(index, pos + 1); // publish
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false; // Slot chưa được consumer giải phóng -> đầy
+            } else {
+                pos = tail.get(); // Producer khác đã lấy slot này
+            }
+        }
+    }
+
+    /**
+     * Lấy phần tử kế tiếp (chỉ gọi từ consumer thread)
+     *
+     * @return null nếu rỗng
+     */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        T item = (T) items[index];
+        items[index] = null;
+        sequences.set(index, head + mask + 1); // Trả slot cho vòng kế tiếp
+        head++;
+        return item;
+    }
+
+    /**
+     * Kiểm tra rỗng mà không lấy phần tử (chỉ gọi từ consumer thread)
+     */
+    boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
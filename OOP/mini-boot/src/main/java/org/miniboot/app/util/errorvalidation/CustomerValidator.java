@@ -17,32 +17,56 @@ public class CustomerValidator {
      * Validate required fields for customer
      */
     public static HttpResponse validateRequiredFields(Customer customer) {
+        String message = requiredFieldsError(customer);
+        return message != null ? ValidationUtils.error(400, "BAD_REQUEST", message) : null;
+    }
+
+    /**
+     * Validate customer business rules (DOB constraints)
+     */
+    public static HttpResponse validateBusinessRules(Customer customer) {
+        String message = businessRulesError(customer);
+        return message != null ? ValidationUtils.error(422, "VALIDATION_FAILED", message) : null;
+    }
+
+    /**
+     * Validation for bulk import rows: same rules as create, without duplicate checks
+     * (the import dedupes phone/email in memory). Dob and gender are required because
+     * imported rows are written directly and read back by CustomerMapper.
+     * Safe to call from several threads.
+     *
+     * @return error message, null if valid
+     */
+    public static String validateForImport(Customer customer) {
+        String message = requiredFieldsError(customer);
+        if (message != null) return message;
+        if (customer.getDob() == null) return "Date of birth is required";
+        if (customer.getGender() == null) return "Gender is required";
+        return businessRulesError(customer);
+    }
+
+    private static String requiredFieldsError(Customer customer) {
         if (customer.getFirstname() == null || customer.getFirstname().trim().isEmpty()) {
-            return ValidationUtils.error(400, "BAD_REQUEST", "First name is required");
+            return "First name is required";
         }
         if (customer.getLastname() == null || customer.getLastname().trim().isEmpty()) {
-            return ValidationUtils.error(400, "BAD_REQUEST", "Last name is required");
+            return "Last name is required";
         }
         if (customer.getPhone() == null || customer.getPhone().trim().isEmpty()) {
-            return ValidationUtils.error(400, "BAD_REQUEST", "Phone is required");
+            return "Phone is required";
         }
         return null; // Valid
     }
 
-    /**
-     * Validate customer business rules (DOB constraints)
-     */
-    public static HttpResponse validateBusinessRules(Customer customer) {
+    private static String businessRulesError(Customer customer) {
         if (customer.getDob() != null) {
             // Check future date
             if (customer.getDob().isAfter(LocalDate.now())) {
-                return ValidationUtils.error(422, "VALIDATION_FAILED",
-                        "Date of birth cannot be in the future");
+                return "Date of birth cannot be in the future";
             }
             // Check unrealistic age (>150 years)
             if (customer.getDob().isBefore(LocalDate.now().minusYears(150))) {
-                return ValidationUtils.error(422, "VALIDATION_FAILED",
-                        "Invalid date of birth");
+                return "Invalid date of birth";
             }
         }
         return null; // Valid
@@ -1,113 +1,139 @@
 package org.miniboot.app.util.errorvalidation;
 
-import org.miniboot.app.http.HttpRequest;
-import org.miniboot.app.http.HttpResponse;
-
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * RateLimiter: Simple rate limiting implementation
- * Limits requests per IP address to prevent abuse
- * 
- * Algorithm: Sliding window with token bucket
- * - Each IP gets N tokens per time window
- * - Each request consumes 1 token
- * - Tokens refill after window expires
+ * RateLimiter: Token bucket theo từng key (IP, user...), lock-free
+ * Được dùng bởi RateLimitMiddleware, mỗi nhóm route có một RateLimiter riêng
+ * <p>
+ * Algorithm: token bucket ở dạng GCRA (Generic Cell Rate Algorithm)
+ * - Mỗi key chỉ lưu một AtomicLong: "theoretical arrival time" (TAT) - thời điểm bucket đầy lại
+ * - Mỗi request đẩy TAT thêm một khoảng T = 1 phút / limit; bị từ chối nếu TAT vượt quá now + burst * T
+ * - Cập nhật bằng một lần CAS, không lock, không cấp phát sau khi key đã có
+ * <p>
+ * Giới hạn bộ nhớ:
+ * - Key có TAT <= now là bucket đã đầy lại, giống hệt key mới -> xóa được mà không đổi hành vi.
+ *   Việc dọn chạy định kỳ trên thread của request (chỉ một thread dọn một lúc).
+ * - Khi số key vượt maxKeys, key mới dùng chung một bucket "overflow" thay vì tạo entry mới.
  */
-public class RateLimiter {
+public final class RateLimiter {
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+    /** Khi đã đầy key: dọn sớm hơn nhưng không quá 1 lần mỗi giây */
+    private static final long FULL_SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int permitsPerMinute;
+    private final int burst;
+    private final int maxKeys;
+    /** Khoảng cách giữa 2 token (ns) */
+    private final long intervalNanos;
+    /** Dung sai burst: TAT không được vượt quá now + burstNanos */
+    private final long burstNanos;
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong overflow;
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private volatile long lastSweepNanos;
 
-    // Request limit per IP per time window
-    private static final int MAX_REQUESTS_PER_WINDOW = 100;
-    
-    // Time window in milliseconds (1 minute)
-    private static final long WINDOW_SIZE_MS = 60000;
-    
-    // Store request counts per IP
-    private static final ConcurrentHashMap<String, RequestWindow> requestCounts = new ConcurrentHashMap<>();
-    
     /**
-     * Check if request should be rate limited
-     * 
-     * @param req HTTP request
-     * @return HttpResponse with 429 if rate limited, null if allowed
+     * @param permitsPerMinute số request trung bình cho phép mỗi phút (> 0)
+     * @param burst            số request tối đa liên tiếp khi bucket đầy (>= 1)
+     * @param maxKeys          số key tối đa được theo dõi riêng
      */
-    public static HttpResponse checkRateLimit(HttpRequest req) {
-        String clientIp = getClientIp(req);
-        
-        long currentTime = System.currentTimeMillis();
-        
-        // Get or create request window for this IP
-        RequestWindow window = requestCounts.compute(clientIp, (ip, existingWindow) -> {
-            if (existingWindow == null || currentTime - existingWindow.startTime >= WINDOW_SIZE_MS) {
-                // Create new window
-                return new RequestWindow(currentTime, 1);
-            } else {
-                // Increment existing window
-                existingWindow.count++;
-                return existingWindow;
-            }
-        });
-        
-        // Check if limit exceeded
-        if (window.count > MAX_REQUESTS_PER_WINDOW) {
-            long resetTime = window.startTime + WINDOW_SIZE_MS;
-            long secondsUntilReset = (resetTime - currentTime) / 1000;
-            
-            return ValidationUtils.error(429, "TOO_MANY_REQUESTS",
-                    "Rate limit exceeded. Maximum " + MAX_REQUESTS_PER_WINDOW + 
-                    " requests per minute. Try again in " + secondsUntilReset + " seconds.");
+    public RateLimiter(int permitsPerMinute, int burst, int maxKeys) {
+        if (permitsPerMinute <= 0) {
+            throw new IllegalArgumentException("permitsPerMinute must be > 0");
         }
-        
-        return null; // Not rate limited
+        this.permitsPerMinute = permitsPerMinute;
+        this.burst = Math.max(1, burst);
+        this.maxKeys = Math.max(1, maxKeys);
+        this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / permitsPerMinute;
+        this.burstNanos = intervalNanos * this.burst;
+        long now = System.nanoTime();
+        this.overflow = new AtomicLong(now);
+        this.lastSweepNanos = now;
     }
-    
+
     /**
-     * Extract client IP from request
-     * Checks X-Forwarded-For header first (for proxies), then falls back to remote address
+     * Lấy một token cho key
+     *
+     * @return 0 nếu được phép, ngược lại là số nanosecond cần chờ tới khi có token
      */
-    private static String getClientIp(HttpRequest req) {
-        // Check X-Forwarded-For header (for requests behind proxy/load balancer)
-        String forwardedFor = req.headers.get("X-Forwarded-For");
-        if (forwardedFor != null && !forwardedFor.isEmpty()) {
-            // X-Forwarded-For can contain multiple IPs, take the first one
-            return forwardedFor.split(",")[0].trim();
+    public long tryAcquire(String key) {
+        long now = System.nanoTime();
+        maybeSweep(now);
+
+        AtomicLong tat = buckets.get(key);
+        if (tat == null) {
+            if (buckets.size() >= maxKeys) {
+                tat = overflow;
+            } else {
+                tat = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+            }
         }
-        
-        // Fall back to remote address
-        String remoteAddr = req.headers.get("Remote-Addr");
-        if (remoteAddr != null && !remoteAddr.isEmpty()) {
-            return remoteAddr;
+
+        while (true) {
+            long current = tat.get();
+            long base = current - now > 0 ? current : now;
+            long next = base + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
         }
-        
-        // Default fallback
-        return "unknown";
     }
-    
+
+    public int getPermitsPerMinute() {
+        return permitsPerMinute;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
     /**
-     * Reset rate limit for specific IP (useful for testing or admin override)
+     * Số key đang được theo dõi
      */
-    public static void resetRateLimit(String ip) {
-        requestCounts.remove(ip);
+    public int trackedKeys() {
+        return buckets.size();
     }
-    
+
     /**
-     * Clear all rate limit data (useful for testing)
+     * Reset rate limit cho một key (admin override)
      */
-    public static void clearAllRateLimits() {
-        requestCounts.clear();
+    public void reset(String key) {
+        buckets.remove(key);
     }
-    
+
     /**
-     * Request window for tracking requests per IP
+     * Xóa toàn bộ trạng thái
      */
-    private static class RequestWindow {
-        long startTime;
-        int count;
-        
-        RequestWindow(long startTime, int count) {
-            this.startTime = startTime;
-            this.count = count;
+    public void clear() {
+        buckets.clear();
+        overflow.set(System.nanoTime());
+    }
+
+    // Xóa các bucket đã đầy lại. Một request có thể đang CAS trên bucket vừa bị xóa:
+    // lượt đó không được tính - chấp nhận sai lệch tối đa 1 request để không phải lock.
+    private void maybeSweep(long now) {
+        long sinceLast = now - lastSweepNanos;
+        if (sinceLast < SWEEP_INTERVAL_NANOS
+                && (sinceLast < FULL_SWEEP_INTERVAL_NANOS || buckets.size() < maxKeys)) {
+            return;
+        }
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            lastSweepNanos = now;
+            buckets.values().removeIf(tat -> tat.get() - now <= 0);
+        } finally {
+            sweeping.set(false);
         }
     }
 }
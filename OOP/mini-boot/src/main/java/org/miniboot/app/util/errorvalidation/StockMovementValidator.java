@@ -0,0 +1,70 @@
+package org.miniboot.app.util.errorvalidation;
+
+import org.miniboot.app.domain.models.Inventory.StockMovement;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Validator cho lô stock movement (POST /stock_movements/batch)
+ * Trả về lỗi theo từng dòng thay vì dừng ở lỗi đầu tiên, để client sửa cả lô một lần
+ */
+public class StockMovementValidator {
+
+    /**
+     * Kiểm tra các trường bắt buộc của từng dòng
+     *
+     * @return danh sách lỗi {index, field, message}, rỗng nếu hợp lệ
+     */
+    public static List<Map<String, Object>> validateBatch(List<StockMovement> movements) {
+        List<Map<String, Object>> errors = new ArrayList<>();
+        for (int i = 0; i < movements.size(); i++) {
+            StockMovement m = movements.get(i);
+            if (m == null) {
+                errors.add(rowError(i, null, "Stock movement is required"));
+                continue;
+            }
+            if (m.getProductId() <= 0) {
+                errors.add(rowError(i, "product_id", "Product ID must be greater than 0"));
+            }
+            if (m.getQty() == 0) {
+                errors.add(rowError(i, "qty", "Quantity must not be 0"));
+            }
+            if (m.getMoveType() == null) {
+                errors.add(rowError(i, "move_type", "Move type is required"));
+            }
+            if (m.getMovedBy() <= 0) {
+                errors.add(rowError(i, "moved_by", "Moved by must be greater than 0"));
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Lỗi cho mọi dòng tham chiếu sản phẩm không tồn tại
+     */
+    public static List<Map<String, Object>> unknownProducts(List<StockMovement> movements, Set<Integer> missing) {
+        List<Map<String, Object>> errors = new ArrayList<>();
+        if (missing.isEmpty()) {
+            return errors;
+        }
+        for (int i = 0; i < movements.size(); i++) {
+            int productId = movements.get(i).getProductId();
+            if (missing.contains(productId)) {
+                errors.add(rowError(i, "product_id", "Product with ID " + productId + " not found"));
+            }
+        }
+        return errors;
+    }
+
+    private static Map<String, Object> rowError(int index, String field, String message) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("index", index);
+        error.put("field", field);
+        error.put("message", message);
+        return error;
+    }
+}
@@ -1,12 +1,18 @@
 package org.miniboot.app.util.errorvalidation;
 
 import org.miniboot.app.auth.JwtService;
+import org.miniboot.app.config.AuthConstants;
+import org.miniboot.app.dao.UserDAO;
 import org.miniboot.app.http.HttpRequest;
 import org.miniboot.app.http.HttpResponse;
+import org.miniboot.app.util.Logger;
 import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
 import java.util.Map;
+import java.util.Optional;
 
 public class ValidationUtils {
+    private static final Logger LOG = Logger.get(ValidationUtils.class);
 
     /**
      * Validate Content-Type header
@@ -39,6 +45,11 @@ public class ValidationUtils {
      * Extracts Bearer token from Authorization header and verifies with JwtService
      */
     public static HttpResponse validateJWT(HttpRequest req) {
+        // Route protected: AuthMiddlewareStub đã xác thực và gắn userId
+        if (req.getAttribute(AuthConstants.ATTR_USER_ID) != null) {
+            return null;
+        }
+
         Map<String, String> headers = req.headers;
         String authHeader = headers.get("Authorization");
         if (authHeader == null) {
@@ -47,34 +58,30 @@ public class ValidationUtils {
 
         // Check if Authorization header exists
         if (authHeader == null || authHeader.isEmpty()) {
-            System.out.println("⚠️ [Backend] Missing Authorization header");
+            LOG.debug("Missing Authorization header");
             return error(401, "UNAUTHORIZED",
                     "Authorization header is required");
         }
 
         // Check if it's a Bearer token
         if (!authHeader.startsWith("Bearer ")) {
-            System.out.println("⚠️ [Backend] Wrong format: " + authHeader);
+            LOG.debug("Authorization header is not a Bearer token");
             return error(401, "UNAUTHORIZED",
                     "Authorization header must use Bearer scheme");
         }
 
         // Extract token (remove "Bearer " prefix)
         String token = authHeader.substring(7);
-        System.out.println("🔑 [Backend] Received token: " + 
-            (token.length() > 20 ? token.substring(0, 20) + "..." : token));
-        
         // Validate token with JwtService
         String userId = JwtService.validateTokenAndGetUserId(token);
         if (userId == null) {
-            System.out.println("❌ [Backend] Token validation FAILED");
+            LOG.debug("Token validation failed for " + req.method + " " + req.path);
             return error(401, "UNAUTHORIZED",
                     "Invalid or expired JWT token");
         }
-        System.out.println("✅ [Backend] Token valid, userId: " + userId);
 
         // Token is valid, store userId in request context for later use
-        req.setAttribute("userId", userId);
+        req.setAttribute(AuthConstants.ATTR_USER_ID, userId);
         
         return null; // Valid
     }
@@ -86,7 +93,7 @@ public class ValidationUtils {
      */
     public static HttpResponse validateRole(HttpRequest req, String requiredRole) {
         // Get userId from request context (set by validateJWT)
-        String userId = (String) req.getAttribute("userId");
+        String userId = (String) req.getAttribute(AuthConstants.ATTR_USER_ID);
         
         if (userId == null) {
             return error(403, "FORBIDDEN",
@@ -96,6 +103,31 @@ public class ValidationUtils {
         return null; // Valid for now (all authenticated users allowed)
     }
 
+    /**
+     * Validate that the authenticated user is an admin (account found in the Admins table)
+     * Unlike validateRole this is enforced: use it for maintenance endpoints (rebuilds, bulk imports)
+     * that customers and employees must not reach. Call after validateJWT
+     */
+    public static HttpResponse validateAdmin(HttpRequest req) {
+        String userId = (String) req.getAttribute(AuthConstants.ATTR_USER_ID);
+        if (userId == null) {
+            return error(403, "FORBIDDEN",
+                    "User authentication required for this operation");
+        }
+
+        try {
+            Optional<UserDAO.UserRecord> user = new UserDAO().findByUsername(userId);
+            if (user.isEmpty() || !"ADMIN".equals(user.get().role)) {
+                LOG.debug("Admin role required, denied for user " + userId);
+                return error(403, "FORBIDDEN",
+                        "Admin role required for this operation");
+            }
+        } catch (SQLException e) {
+            return DatabaseErrorHandler.handleDatabaseException(e);
+        }
+        return null; // Valid
+    }
+
     /**
      * Validate standard request with Content-Type, JWT, and Role
      * Combines common validation chain
@@ -0,0 +1,133 @@
+package org.miniboot.app.bench;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.miniboot.app.AppConfig;
+import org.miniboot.app.http.HttpResponse;
+import org.miniboot.app.http.HttpServer;
+import org.miniboot.app.router.Router;
+import org.miniboot.app.util.Logger;
+
+/**
+ * So sánh throughput của HttpServer (blocking) theo AppConfig.EXECUTOR_MODE
+ * <p>
+ * Handler sleep HANDLER_MS (thay cho một lần gọi JDBC), CLIENTS client keep-alive, mỗi client gửi
+ * REQUESTS_PER_CLIENT request tuần tự. Client chạy trên virtual thread để không thành nút cổ chai.
+ * <p>
+ * Chạy: mvn -q test-compile exec:java -Dexec.classpathScope=test
+ *       -Dexec.mainClass=org.miniboot.app.bench.ExecutorModeBench [-Dexec.args="fixed virtual bounded"]
+ */
+public final class ExecutorModeBench {
+    private static final int PORT = 18_081;
+    private static final int HANDLER_MS = 50;
+    private static final int CLIENTS = 200;
+    private static final int REQUESTS_PER_CLIENT = 10;
+    private static final int BOUNDED_LIMIT = 256;
+
+    private static final byte[] REQUEST = ("GET /work HTTP/1.1\r\nHost: localhost\r\n\r\n")
+            .getBytes(StandardCharsets.US_ASCII);
+
+    private ExecutorModeBench() {}
+
+    public static void main(String[] args) throws Exception {
+        AppConfig.ACCESS_LOG_ENABLED = false;
+        AppConfig.KEEP_ALIVE_MAX_REQUESTS = REQUESTS_PER_CLIENT + 1;
+        AppConfig.VIRTUAL_THREAD_LIMIT = BOUNDED_LIMIT;
+        Logger.configure();
+
+        String[] modes = args.length > 0 ? args : new String[]{"fixed", "virtual", "bounded"};
+        System.out.printf("cpus=%d handler=%dms clients=%d requests/client=%d%n",
+                Runtime.getRuntime().availableProcessors(), HANDLER_MS, CLIENTS, REQUESTS_PER_CLIENT);
+        for (String mode : modes) {
+            run(mode, 1); // warm-up: JIT + connection setup
+            double rps = run(mode, REQUESTS_PER_CLIENT);
+            System.out.printf("%-8s %8.0f req/s%n", mode, rps);
+        }
+    }
+
+    private static double run(String mode, int requestsPerClient) throws Exception {
+        AppConfig.EXECUTOR_MODE = mode; // HttpServer đọc khi khởi tạo pool
+        Router router = new Router();
+        router.get("/work", req -> {
+            try {
+                Thread.sleep(HANDLER_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return HttpResponse.of(200, "text/plain", "ok".getBytes(StandardCharsets.US_ASCII));
+        });
+        HttpServer server = new HttpServer(PORT, router);
+        Thread acceptor = Thread.ofPlatform().daemon().start(() -> {
+            try {
+                server.start();
+            } catch (IOException ignore) {
+                // stop() đóng ServerSocket
+            }
+        });
+        Thread.sleep(200);
+
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(CLIENTS);
+        List<Thread> clients = new ArrayList<>(CLIENTS);
+        long start = System.nanoTime();
+        for (int i = 0; i < CLIENTS; i++) {
+            clients.add(Thread.ofVirtual().start(() -> {
+                try (Socket socket = new Socket("localhost", PORT)) {
+                    OutputStream out = socket.getOutputStream();
+                    InputStream in = new BufferedInputStream(socket.getInputStream());
+                    for (int r = 0; r < requestsPerClient; r++) {
+                        out.write(REQUEST);
+                        out.flush();
+                        if (readResponse(in) != 200) failed.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    failed.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            }));
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        server.stop();
+        acceptor.join(1_000);
+        if (failed.get() > 0) {
+            System.out.println("  " + mode + ": " + failed.get() + " failed requests");
+        }
+        return CLIENTS * (double) requestsPerClient / (elapsed / 1e9);
+    }
+
+    /** Đọc một response có Content-Length, trả về status */
+    private static int readResponse(InputStream in) throws IOException {
+        String status = readLine(in);
+        int contentLength = 0;
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("content-length")) {
+                contentLength = Integer.parseInt(line.substring(colon + 1).trim());
+            }
+        }
+        in.skipNBytes(contentLength);
+        return Integer.parseInt(status.split(" ")[1]);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) throw new IOException("EOF");
+            if (c != '\r') sb.append((char) c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,105 @@
+package org.miniboot.app.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.miniboot.app.AppConfig;
+import org.miniboot.app.domain.models.Payment.PaymentItem;
+import org.miniboot.app.domain.repo.Payment.PostgreSQLPaymentItemRepository;
+
+/**
+ * Thời gian ghi payment_items cho hoá đơn 1 / 50 / 500 dòng
+ * <p>
+ * - per-row: deleteByPaymentId + save() từng dòng (1 + N câu lệnh, autocommit) - cách thay thế trước khi có batch
+ * - replace-all: replaceAllForPayment, mọi dòng đổi nội dung (một SELECT ... FOR UPDATE + một batch UPDATE,
+ *   dòng thử không gắn sản phẩm nên ghép cặp với dòng cũ)
+ * - replace-unchanged: replaceAllForPayment với đúng các dòng đang có (không ghi gì)
+ * - replace-one: như trên nhưng đổi qty của một dòng (một UPDATE)
+ * Cần PostgreSQL thật (DB_URL / DB_USER / DB_PASSWORD như khi chạy server) và id của một payment dùng để thử:
+ * items của payment đó bị ghi đè trong lúc chạy, nội dung được khôi phục khi kết thúc (id dòng có thể đổi).
+ * <p>
+ * Chạy: mvn -q test-compile exec:java -Dexec.classpathScope=test
+ *       -Dexec.mainClass=org.miniboot.app.bench.PaymentItemWriteBench -Dexec.args="<paymentId> [rounds]"
+ */
+public final class PaymentItemWriteBench {
+    private static final int[] SIZES = {1, 50, 500};
+
+    /** Mỗi lần tạo dòng thử dùng giá khác, để replaceAllForPayment không coi là không đổi */
+    private static int salt;
+
+    private interface Step {
+        void run(List<PaymentItem> items);
+    }
+
+    private PaymentItemWriteBench() {}
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: PaymentItemWriteBench <paymentId> [rounds]");
+            System.exit(2);
+        }
+        int paymentId = Integer.parseInt(args[0]);
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        AppConfig.load();
+
+        PostgreSQLPaymentItemRepository repo = new PostgreSQLPaymentItemRepository();
+        List<PaymentItem> original = repo.findByPaymentId(paymentId);
+        try {
+            System.out.printf("payment=%d rounds=%d (median ms)%n", paymentId, rounds);
+            System.out.printf("%5s %10s %12s %18s %12s%n", "lines", "per-row", "replace-all", "replace-unchanged", "replace-one");
+            for (int size : SIZES) {
+                double perRow = time(rounds, () -> lines(paymentId, size), items -> {
+                    repo.deleteByPaymentId(paymentId);
+                    for (PaymentItem it : items) {
+                        repo.save(it);
+                    }
+                });
+                double replaceAll = time(rounds, () -> lines(paymentId, size),
+                        items -> repo.replaceAllForPayment(paymentId, items));
+
+                repo.replaceAllForPayment(paymentId, lines(paymentId, size));
+                double unchanged = time(rounds, () -> repo.findByPaymentId(paymentId),
+                        items -> repo.replaceAllForPayment(paymentId, items));
+                double one = time(rounds, () -> {
+                    List<PaymentItem> items = repo.findByPaymentId(paymentId);
+                    PaymentItem first = items.get(0);
+                    first.setQty(first.getQty() + 1);
+                    return items;
+                }, items -> repo.replaceAllForPayment(paymentId, items));
+
+                System.out.printf("%5d %10.2f %12.2f %18.2f %12.2f%n", size, perRow, replaceAll, unchanged, one);
+            }
+        } finally {
+            for (PaymentItem it : original) {
+                it.setId(null);
+            }
+            repo.replaceAllForPayment(paymentId, original);
+        }
+    }
+
+    /** Dữ liệu chuẩn bị ngoài phần đo, mỗi vòng một danh sách mới */
+    private static double time(int rounds, Supplier<List<PaymentItem>> setup, Step step) {
+        step.run(setup.get()); // warm-up: statement cache, pool
+        double[] ms = new double[rounds];
+        for (int r = 0; r < rounds; r++) {
+            List<PaymentItem> items = setup.get();
+            long start = System.nanoTime();
+            step.run(items);
+            ms[r] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(ms);
+        return ms[rounds / 2];
+    }
+
+    private static List<PaymentItem> lines(int paymentId, int count) {
+        List<PaymentItem> items = new ArrayList<>(count);
+        salt++;
+        for (int i = 0; i < count; i++) {
+            int price = 10_000 + (i + salt) * 100;
+            items.add(new PaymentItem(null, null, paymentId, "Bench line " + i, 1 + i % 3, price, 0));
+        }
+        return items;
+    }
+}
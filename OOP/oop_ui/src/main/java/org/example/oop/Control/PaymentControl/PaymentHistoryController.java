@@ -12,11 +12,13 @@ import org.example.oop.Service.HttpPaymentItemService;
 import org.example.oop.Service.HttpPaymentService;
 import org.example.oop.Service.HttpPaymentStatusLogService;
 import org.example.oop.Utils.ApiResponse;
+import org.example.oop.Utils.PaymentConfig;
 import org.example.oop.Utils.SceneConfig;
 import org.example.oop.Utils.SceneManager;
 import org.miniboot.app.domain.models.CustomerAndPrescription.Customer;
 import org.miniboot.app.domain.models.Inventory.Enum.MoveType;
 import org.miniboot.app.domain.models.Inventory.StockMovement;
+import org.miniboot.app.domain.models.Page;
 import org.miniboot.app.domain.models.Payment.*;
 import org.miniboot.app.domain.models.UserRole;
 
@@ -35,7 +37,9 @@ public class PaymentHistoryController extends BaseController implements Initiali
     private final ObservableList<PaymentWithStatus> paymentsWithStatus;
 
     // Dữ liệu tải về từ API sẽ được lưu trữ ở đây
-    private List<PaymentWithStatus> allPaymentsWithStatus;
+    private List<PaymentWithStatus> allPaymentsWithStatus = new ArrayList<>();
+    // Tăng mỗi lần loadPayments() để bỏ qua trang về trễ của lượt tải trước
+    private int loadGeneration;
 
     //  LOADING STATUS
     @FXML
@@ -525,58 +529,71 @@ public class PaymentHistoryController extends BaseController implements Initiali
         showLoadingStatus(loadingStatusContainer, statusProgressIndicator, loadingStatusLabel,
                 "⏳ Đang tải lịch sử thanh toán...");
 
+        // Bắt đầu lượt tải mới: các trang của lượt cũ (nếu còn đang tải) sẽ bị bỏ qua
+        int generation = ++loadGeneration;
+        allPaymentsWithStatus = new ArrayList<>();
+        paymentsWithStatus.clear();
+        loadPaymentsPage(null, generation);
+    }
+
+    /**
+     * Tải dần từng trang (?limit=&cursor=): trang đầu hiện lên bảng ngay, các trang sau nối tiếp
+     * ở background cho tới khi hết, thay vì chờ toàn bộ lịch sử trong một response
+     */
+    private void loadPaymentsPage(String cursor, int generation) {
         executeAsync(
                 () -> {
                     // Task chạy trên background thread
-                    try {
-                        ApiResponse<List<PaymentWithStatus>> response = paymentService.getPaymentsWithStatus();
-
-                        if (!response.isSuccess()) {
-                            throw new RuntimeException("Không thể tải lịch sử thanh toán: " + response.getErrorMessage());
-                        }
-
-                        List<PaymentWithStatus> allPayments = response.getData();
-
-                        if (allPayments == null) {
-                            System.err.println("❌ Dữ liệu trả về null");
-                            allPayments = List.of();
-                        }
+                    ApiResponse<Page<PaymentWithStatus>> response = paymentService.getPaymentsWithStatusPage(
+                            cursor, PaymentConfig.PAYMENT_HISTORY_PAGE_SIZE);
 
-                        System.out.println("📊 Tổng số hóa đơn: " + allPayments.size());
-
-                        // Lọc theo role nếu là customer
-                        if (SceneManager.getSceneData("role") == UserRole.CUSTOMER) {
-                            Object accountData = SceneManager.getSceneData("accountData");
-                            if (accountData instanceof Customer) {
-                                int customerId = ((Customer) accountData).getId();
-                                System.out.println("🔍 Lọc lịch sử thanh toán cho khách hàng ID: " + customerId);
+                    if (!response.isSuccess()) {
+                        throw new RuntimeException("Không thể tải lịch sử thanh toán: " + response.getErrorMessage());
+                    }
 
-                                allPayments = allPayments.stream()
-                                        .filter(p -> p.getPayment() != null && p.getPayment().getCustomerId() == customerId)
-                                        .toList();
+                    Page<PaymentWithStatus> page = response.getData();
+                    if (page == null || page.getItems() == null) {
+                        System.err.println("❌ Dữ liệu trả về null");
+                        return new Page<PaymentWithStatus>(List.of(), null);
+                    }
 
-                                System.out.println("📊 Số hóa đơn sau khi lọc: " + allPayments.size());
-                            }
+                    // Lọc theo role nếu là customer
+                    if (SceneManager.getSceneData("role") == UserRole.CUSTOMER) {
+                        Object accountData = SceneManager.getSceneData("accountData");
+                        if (accountData instanceof Customer) {
+                            int customerId = ((Customer) accountData).getId();
+                            page.setItems(page.getItems().stream()
+                                    .filter(p -> p.getPayment() != null && p.getPayment().getCustomerId() == customerId)
+                                    .toList());
                         }
-
-                        return allPayments;
-                    } catch (Exception e) {
-                        throw new RuntimeException(e);
                     }
+
+                    return page;
                 },
-                (allPayments) -> {
+                (page) -> {
                     // Success callback - chạy trên UI thread
-                    // Lưu lại toàn bộ danh sách và cập nhật bảng
-                    allPaymentsWithStatus = allPayments;
-                    paymentsWithStatus.clear();
-                    paymentsWithStatus.addAll(allPayments);
+                    if (generation != loadGeneration) {
+                        return; // Đã có lượt tải mới hơn
+                    }
+                    allPaymentsWithStatus.addAll(page.getItems());
+                    searchPayments(); // Áp lại bộ lọc hiện tại lên dữ liệu đã tải
+
+                    if (page.getNext() != null) {
+                        showLoadingStatus(loadingStatusContainer, statusProgressIndicator, loadingStatusLabel,
+                                "⏳ Đã tải " + allPaymentsWithStatus.size() + " hóa đơn, đang tải tiếp...");
+                        loadPaymentsPage(page.getNext(), generation);
+                        return;
+                    }
 
-                    System.out.println("✅ Đã tải " + paymentsWithStatus.size() + " hóa đơn");
+                    System.out.println("✅ Đã tải " + allPaymentsWithStatus.size() + " hóa đơn");
                     showSuccessStatus(loadingStatusContainer, statusProgressIndicator, loadingStatusLabel,
-                            "✅ Đã tải " + paymentsWithStatus.size() + " hóa đơn");
+                            "✅ Đã tải " + allPaymentsWithStatus.size() + " hóa đơn");
                 },
                 (error) -> {
                     // Error callback - chạy trên UI thread
+                    if (generation != loadGeneration) {
+                        return;
+                    }
                     System.err.println("❌ Exception khi tải lịch sử thanh toán: " + error.getMessage());
                     showErrorStatus(loadingStatusContainer, statusProgressIndicator, loadingStatusLabel,
                             "❌ Lỗi: " + error.getMessage());
@@ -4,15 +4,20 @@ import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import org.example.oop.Utils.ApiConfig;
 import org.example.oop.Utils.GsonProvider;
+import org.miniboot.app.domain.models.AvailableSlot;
 import org.miniboot.app.domain.models.Doctor;
 import org.miniboot.app.domain.models.TimeSlot;
 
 import java.io.IOException;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.example.oop.Utils.GsonProvider;
 import org.miniboot.app.domain.models.Doctor;
@@ -102,4 +107,50 @@ public class HttpDoctorService {
             return List.of();
         }
     }
+
+    /**
+     * GET /doctors/availability?from=..&to=..&doctorIds=..&type=..&limit=..
+     * Tìm các slot trống sớm nhất của nhiều bác sĩ trong nhiều ngày bằng một request
+     *
+     * @param doctorIds null/rỗng = tất cả bác sĩ
+     * @param type      loại lịch hẹn (visit/test/surgery), null = mặc định
+     */
+    public List<AvailableSlot> findFirstAvailable(List<Integer> doctorIds, LocalDate from, LocalDate to,
+                                                  String type, int limit) {
+        try {
+            StringBuilder url = new StringBuilder(baseUrl)
+                    .append("/doctors/availability?from=").append(from)
+                    .append("&to=").append(to)
+                    .append("&limit=").append(limit);
+            if (doctorIds != null && !doctorIds.isEmpty()) {
+                url.append("&doctorIds=").append(doctorIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+            }
+            if (type != null && !type.isBlank()) {
+                url.append("&type=").append(URLEncoder.encode(type.toLowerCase(), StandardCharsets.UTF_8));
+            }
+
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(url.toString()))
+                    .GET()
+                    .header("Accept", "application/json")
+                    .build();
+
+            HttpResponse<String> response = httpClient.send(request,
+                    HttpResponse.BodyHandlers.ofString());
+
+            if (response.statusCode() == 200) {
+                return gson.fromJson(response.body(),
+                        new TypeToken<List<AvailableSlot>>() {
+                        }.getType());
+            } else {
+                System.err.println("❌ HTTP Error: " + response.statusCode() + " " + response.body());
+                return List.of();
+            }
+
+        } catch (IOException | InterruptedException e) {
+            System.err.println("❌ Error: " + e.getMessage());
+            e.printStackTrace();
+            return List.of();
+        }
+    }
 }
@@ -7,11 +7,14 @@ import org.example.oop.Utils.ApiClient;
 import org.example.oop.Utils.ApiResponse;
 import org.example.oop.Utils.ErrorHandler;
 import org.example.oop.Utils.GsonProvider;
+import org.miniboot.app.domain.models.Page;
 import org.miniboot.app.domain.models.Payment.Payment;
 import org.miniboot.app.domain.models.Payment.PaymentWithStatus;
 // import org.miniboot.app.util.PaymentConfig; // TODO: PaymentConfig class not found
 import org.example.oop.Utils.PaymentConfig; // Temporary workaround
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
@@ -199,6 +202,34 @@ public class HttpPaymentService {
         }
     }
 
+    /**
+     * GET /payments/with-status?limit={limit}&cursor={cursor} - Lấy một trang payment với trạng thái (Sync)
+     * Trang đầu: cursor = null. Trang kế tiếp: truyền lại page.getNext() cho tới khi nó null.
+     */
+    public ApiResponse<Page<PaymentWithStatus>> getPaymentsWithStatusPage(String cursor, int limit) {
+        String endpoint = PaymentConfig.GET_PAYMENT_WITH_STATUS_ENDPOINT + "?limit=" + limit
+                + (cursor != null ? "&cursor=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8) : "");
+        ApiResponse<String> response = apiClient.get(endpoint);
+
+        if (response.isSuccess()) {
+            if (!ErrorHandler.validateResponse(response.getData(), "Tải danh sách thanh toán với trạng thái")) {
+                return ApiResponse.error("Empty or invalid response");
+            }
+
+            try {
+                Page<PaymentWithStatus> page = gson.fromJson(response.getData(),
+                        new TypeToken<Page<PaymentWithStatus>>() {}.getType());
+                return ApiResponse.success(page, response.getStatusCode());
+            } catch (Exception e) {
+                ErrorHandler.handleJsonParseError(e, "Parse payments with status page");
+                return ApiResponse.error("JSON parse error: " + e.getMessage());
+            }
+        } else {
+            ErrorHandler.showUserFriendlyError(response.getStatusCode(), "Không thể tải danh sách thanh toán");
+            return ApiResponse.error(response.getErrorMessage());
+        }
+    }
+
     /**
      * GET /payments/with-status?id={id} - Lấy 1 payment với trạng thái theo ID (Sync)
      * TỐI ƯU: Gộp 2 requests (payment + status) thành 1 request duy nhất
@@ -1,13 +1,18 @@
 package org.example.oop.Utils;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 import javafx.application.Platform;
 import org.example.oop.Control.SessionStorage;
@@ -24,11 +29,26 @@ import org.example.oop.Control.SessionStorage;
  * - Connection timeout and retry logic
  * - Type-safe responses
  * - ✅ JWT token auto-injection (Fixed: 401 unauthorized errors)
+ * - Gzip/deflate response compression (Accept-Encoding + transparent decompression)
  */
 public class ApiClient {
 
      private static final String BASE_URL = ApiConfig.getBaseUrl();
 
+     /**
+      * BodyHandler đọc body thành String, tự giải nén theo header Content-Encoding
+      * (HttpClient của JDK không tự làm việc này)
+      */
+     private static final HttpResponse.BodyHandler<String> DECODING_BODY_HANDLER = responseInfo -> {
+          String encoding = responseInfo.headers().firstValue("Content-Encoding").orElse("").trim();
+          if (encoding.isEmpty() || encoding.equalsIgnoreCase("identity")) {
+               return HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8);
+          }
+          return HttpResponse.BodySubscribers.mapping(
+                    HttpResponse.BodySubscribers.ofByteArray(),
+                    bytes -> decompress(bytes, encoding));
+     };
+
      private final HttpClient httpClient;
 
      // Singleton instance
@@ -58,6 +78,8 @@ public class ApiClient {
       */
      private HttpRequest.Builder addAuthHeaders(HttpRequest.Builder builder) {
           builder.header("Content-Type", "application/json");
+          // Server nén các response JSON lớn; body được giải nén trong DECODING_BODY_HANDLER
+          builder.header("Accept-Encoding", "gzip, deflate");
 
           String jwtToken = SessionStorage.getJwtToken();
           if (jwtToken != null && !jwtToken.isEmpty()) {
@@ -88,7 +110,7 @@ public class ApiClient {
                HttpRequest request = addAuthHeaders(builder).build();
 
                HttpResponse<String> response = httpClient.send(request,
-                         HttpResponse.BodyHandlers.ofString());
+                         DECODING_BODY_HANDLER);
 
                return handleResponse(response);
 
@@ -111,7 +133,7 @@ public class ApiClient {
                HttpRequest request = addAuthHeaders(builder).build();
 
                HttpResponse<String> response = httpClient.send(request,
-                         HttpResponse.BodyHandlers.ofString());
+                         DECODING_BODY_HANDLER);
 
                return handleResponse(response);
 
@@ -135,7 +157,7 @@ public class ApiClient {
                HttpRequest request = addAuthHeaders(builder).build();
 
                HttpResponse<String> response = httpClient.send(request,
-                         HttpResponse.BodyHandlers.ofString());
+                         DECODING_BODY_HANDLER);
 
                return handleResponse(response);
 
@@ -159,7 +181,7 @@ public class ApiClient {
                HttpRequest request = addAuthHeaders(builder).build();
 
                HttpResponse<String> response = httpClient.send(request,
-                         HttpResponse.BodyHandlers.ofString());
+                         DECODING_BODY_HANDLER);
 
                return handleResponse(response);
 
@@ -184,7 +206,7 @@ public class ApiClient {
 
                     HttpRequest request = addAuthHeaders(builder).build();
 
-                    return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                    return httpClient.send(request, DECODING_BODY_HANDLER);
 
                } catch (IOException | InterruptedException e) {
                     throw new RuntimeException("Network error: " + e.getMessage());
@@ -218,7 +240,7 @@ public class ApiClient {
 
                     HttpRequest request = addAuthHeaders(builder).build();
 
-                    return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                    return httpClient.send(request, DECODING_BODY_HANDLER);
 
                } catch (IOException | InterruptedException e) {
                     throw new RuntimeException("Network error: " + e.getMessage());
@@ -252,7 +274,7 @@ public class ApiClient {
 
                     HttpRequest request = addAuthHeaders(builder).build();
 
-                    return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                    return httpClient.send(request, DECODING_BODY_HANDLER);
 
                } catch (IOException | InterruptedException e) {
                     throw new RuntimeException("Network error: " + e.getMessage());
@@ -285,7 +307,7 @@ public class ApiClient {
 
                     HttpRequest request = addAuthHeaders(builder).build();
 
-                    return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                    return httpClient.send(request, DECODING_BODY_HANDLER);
 
                } catch (IOException | InterruptedException e) {
                     throw new RuntimeException("Network error: " + e.getMessage());
@@ -342,6 +364,22 @@ public class ApiClient {
           return ApiResponse.error(errorMessage, statusCode);
      }
 
+     /**
+      * Giải nén body gzip/deflate thành chuỗi UTF-8
+      */
+     private static String decompress(byte[] bytes, String encoding) {
+          if (bytes.length == 0) {
+               return "";
+          }
+          try (var in = encoding.equalsIgnoreCase("gzip")
+                    ? new GZIPInputStream(new ByteArrayInputStream(bytes))
+                    : new InflaterInputStream(new ByteArrayInputStream(bytes))) {
+               return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+          } catch (IOException e) {
+               throw new UncheckedIOException("Failed to decode " + encoding + " response", e);
+          }
+     }
+
      // UTILITY METHODS
 
      /**
@@ -11,6 +11,8 @@ public class PaymentConfig {
     public static final String POST_PAYMENT_ENDPOINT = "/payments";
     public static final String PUT_PAYMENT_ENDPOINT = "/payments";
     public static final String GET_PAYMENT_WITH_STATUS_ENDPOINT = "/payments/with-status";
+    // Số payment mỗi trang khi tải dần lịch sử thanh toán (?limit=)
+    public static final int PAYMENT_HISTORY_PAGE_SIZE = 200;
     
     // Payment Item endpoints (backend: /payment-items)
     public static final String GET_PAYMENT_ITEM_ENDPOINT = "/payment-items";